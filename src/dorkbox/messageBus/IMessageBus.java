@@ -37,7 +37,16 @@
  */
 package dorkbox.messageBus;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import dorkbox.messageBus.common.MessageSupplier;
 import dorkbox.messageBus.error.IPublicationErrorHandler;
+import dorkbox.messageBus.journal.ReplayResult;
+import dorkbox.messageBus.request.ResponseCollector;
+import dorkbox.messageBus.schedule.ScheduledMessage;
 
 /**
  * A message bus offers facilities for publishing messages to the message handlers of registered listeners.
@@ -119,6 +128,139 @@ public interface IMessageBus extends PubSubSupport {
      */
     void addErrorHandler(IPublicationErrorHandler errorHandler);
 
+    /**
+     * Synchronously publish a message to all registered listeners, and return the first (non-null) value returned by a handler. Once
+     * a handler has responded, the remaining handlers will not receive the message.
+     *
+     * @return the first response, or null if no handler responded
+     */
+    Object request(Object message);
+
+    /**
+     * Synchronously publish a message to all registered listeners (that match the signature). The (non-null) values returned by the
+     * handlers are aggregated by the collector, and the call returns when the collector is complete or all handlers have been invoked.
+     *
+     * @return the result of the collector
+     */
+    <R> R request(ResponseCollector<R> collector, Object message);
+
+    /**
+     * Synchronously publish <b>TWO</b> messages to all registered listeners (that match the signature). The (non-null) values returned
+     * by the handlers are aggregated by the collector, and the call returns when the collector is complete or all handlers have been
+     * invoked.
+     *
+     * @return the result of the collector
+     */
+    <R> R request(ResponseCollector<R> collector, Object message1, Object message2);
+
+    /**
+     * Synchronously publish <b>THREE</b> messages to all registered listeners (that match the signature). The (non-null) values
+     * returned by the handlers are aggregated by the collector, and the call returns when the collector is complete or all handlers
+     * have been invoked.
+     *
+     * @return the result of the collector
+     */
+    <R> R request(ResponseCollector<R> collector, Object message1, Object message2, Object message3);
+
+    /**
+     * Publish the message asynchronously to all registered listeners (that match the signature). The (non-null) values returned by the
+     * handlers are aggregated by the collector. This call returns immediately.
+     *
+     * @return the future result of the collector
+     */
+    <R> Future<R> requestAsync(ResponseCollector<R> collector, Object message);
+
+    /**
+     * Publish <b>TWO</b> messages asynchronously to all registered listeners (that match the signature). The (non-null) values returned
+     * by the handlers are aggregated by the collector. This call returns immediately.
+     *
+     * @return the future result of the collector
+     */
+    <R> Future<R> requestAsync(ResponseCollector<R> collector, Object message1, Object message2);
+
+    /**
+     * Publish <b>THREE</b> messages asynchronously to all registered listeners (that match the signature). The (non-null) values
+     * returned by the handlers are aggregated by the collector. This call returns immediately.
+     *
+     * @return the future result of the collector
+     */
+    <R> Future<R> requestAsync(ResponseCollector<R> collector, Object message1, Object message2, Object message3);
+
+    /**
+     * Publish the message asynchronously, with a priority. When priority lanes are enabled, messages with a higher priority are
+     * dispatched before those with a lower priority (otherwise the priority is ignored). This call returns immediately.
+     */
+    void publishAsyncPriority(int priority, Object message);
+
+    /**
+     * Publish <b>TWO</b> messages asynchronously, with a priority. When priority lanes are enabled, messages with a higher priority are
+     * dispatched before those with a lower priority (otherwise the priority is ignored). This call returns immediately.
+     */
+    void publishAsyncPriority(int priority, Object message1, Object message2);
+
+    /**
+     * Publish <b>THREE</b> messages asynchronously, with a priority. When priority lanes are enabled, messages with a higher priority are
+     * dispatched before those with a lower priority (otherwise the priority is ignored). This call returns immediately.
+     */
+    void publishAsyncPriority(int priority, Object message1, Object message2, Object message3);
+
+    /**
+     * Publish the message asynchronously, replacing any message with the same key that has not been dispatched yet (so only the newest
+     * message for a key is dispatched). This call returns immediately.
+     */
+    void publishAsyncConflated(Object key, Object message);
+
+    /**
+     * Publish the message asynchronously, once the delay has expired. This call returns immediately.
+     *
+     * @return the scheduled message, which can be cancelled before it is published
+     */
+    ScheduledMessage publishAsyncDelayed(Object message, long delay, TimeUnit unit);
+
+    /**
+     * Publish the message asynchronously once the initial delay has expired, and then again every period until it is cancelled. This
+     * call returns immediately.
+     *
+     * @return the scheduled message, which can be cancelled to stop the publication
+     */
+    ScheduledMessage publishAtFixedRate(Object message, long initialDelay, long period, TimeUnit unit);
+
+    /**
+     * Check whether a message of this type would be delivered to any listener (including listeners for its super types, depending
+     * on the dispatch mode). DeadMessage listeners are not considered. This is a lock-free read, suitable for hot paths.
+     */
+    boolean hasSubscribers(Class<?> messageClass);
+
+    /**
+     * Synchronously publish a message that is only created if there are listeners for its type. This is useful for messages that are
+     * expensive to create.
+     *
+     * @param messageClass the type of message that the supplier creates
+     * @param supplier called (on this thread) only if a message of this type would be delivered to at least one listener
+     */
+    <T> void publishLazy(Class<T> messageClass, MessageSupplier<T> supplier);
+
+    /**
+     * Publishes (asynchronously) the messages that were journaled by the previous run, but never dispatched. This should be called once
+     * the listeners are subscribed, and only does something when the asynchronous messages are journaled.
+     *
+     * @return how many messages were recovered
+     */
+    int recoverJournal();
+
+    /**
+     * Synchronously publishes (on this thread) the messages that were written to a journal, in the order they were written. Only one
+     * batch of messages is kept in memory at a time. The messages are not acknowledged in the journal.
+     *
+     * @param journalDirectory the directory of the journal
+     * @param fromSequence the sequence of the first message to replay
+     * @param toSequence the sequence after the last message to replay (Long.MAX_VALUE for all of them)
+     * @param speed 0 replays as fast as possible, 1.0 replays with the original timing between the messages, 2.0 twice as fast, etc.
+     *
+     * @return how many messages were replayed, and how fast
+     */
+    ReplayResult replay(File journalDirectory, long fromSequence, long toSequence, double speed) throws IOException;
+
     /**
      * Check whether any asynchronous message publications are pending to be processed
      *
@@ -126,6 +268,13 @@ public interface IMessageBus extends PubSubSupport {
      */
     boolean hasPendingMessages();
 
+    /**
+     * Waits (without spinning) until all of the queued asynchronous messages have been processed, or the timeout expires.
+     *
+     * @return true if there are no more pending messages, false if the timeout expired first
+     */
+    boolean awaitQuiescence(long timeout, TimeUnit unit) throws InterruptedException;
+
     /**
      * Shutdown the bus such that it will stop delivering asynchronous messages. Executor service and
      * other internally used threads will be shutdown gracefully.
@@ -133,4 +282,14 @@ public interface IMessageBus extends PubSubSupport {
      * After calling shutdown it is not safe to further use the message bus.
      */
     void shutdown();
+
+    /**
+     * Shutdown the bus, first waiting for up to the drain timeout for the already queued asynchronous messages to be delivered. New
+     * asynchronous messages are rejected (and reported to the error handlers) as soon as this is called.
+     * <p>
+     * After calling shutdown it is not safe to further use the message bus.
+     *
+     * @return the number of queued messages that were abandoned because the timeout expired
+     */
+    int shutdown(long drainTimeout, TimeUnit unit);
 }
@@ -15,18 +15,48 @@
  */
 package dorkbox.messageBus;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
+import dorkbox.messageBus.common.MessageSupplier;
 import dorkbox.messageBus.dispatch.Dispatch;
 import dorkbox.messageBus.dispatch.DispatchCancel;
+import dorkbox.messageBus.dispatch.DispatchConflated;
 import dorkbox.messageBus.dispatch.DispatchExact;
 import dorkbox.messageBus.dispatch.DispatchExactWithSuperTypes;
+import dorkbox.messageBus.dispatch.DispatchMetered;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.error.IPublicationErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.jfr.FlightRecorder;
+import dorkbox.messageBus.jmx.MessageBusMonitor;
+import dorkbox.messageBus.journal.Journal;
+import dorkbox.messageBus.journal.JournalReader;
+import dorkbox.messageBus.journal.KryoCodec;
+import dorkbox.messageBus.journal.MessageCodec;
+import dorkbox.messageBus.journal.ReplayResult;
+import dorkbox.messageBus.metrics.MetricsRecorder;
+import dorkbox.messageBus.request.FirstResponse;
+import dorkbox.messageBus.request.ResponseCollector;
+import dorkbox.messageBus.request.ResponseFuture;
+import dorkbox.messageBus.schedule.ScheduledMessage;
+import dorkbox.messageBus.schedule.TimingWheel;
 import dorkbox.messageBus.subscription.SubscriptionManager;
 import dorkbox.messageBus.synchrony.AsyncABQ;
 import dorkbox.messageBus.synchrony.AsyncABQ_noGc;
 import dorkbox.messageBus.synchrony.AsyncDisruptor;
+import dorkbox.messageBus.synchrony.AsyncDisruptorSharded;
+import dorkbox.messageBus.synchrony.AsyncJournaled;
+import dorkbox.messageBus.synchrony.AsyncPriorityLanes;
 import dorkbox.messageBus.synchrony.Sync;
 import dorkbox.messageBus.synchrony.Synchrony;
+import dorkbox.messageBus.synchrony.disruptor.MessageType;
+import dorkbox.messageBus.watchdog.Watchdog;
 
 /**
  * The base class for all message bus implementations with support for asynchronous message dispatch.
@@ -61,6 +91,35 @@ class MessageBus implements IMessageBus {
      */
     public static boolean useDisruptorForAsyncPublish = true;
 
+    /**
+     * When using the LMAX Disruptor for the asynchronous dispatch of published messages, all of the publishing threads contend on the
+     * same ring buffer. With many publishing threads, it is faster to split the dispatch into multiple ring buffers (shards), where
+     * each publishing thread is mapped to a shard (by it's thread ID) and each shard has it's own worker threads.
+     *
+     * This value is rounded up to the nearest power of 2, and by default there is only 1 shard.
+     */
+    public static int numberOfDisruptorShards = 1;
+
+    /**
+     * When there are multiple disruptor shards, and the shard for the publishing thread is full, publish the message to a different shard
+     * (so the idle workers of that shard process it). This means that the messages published by a single thread are no longer
+     * guaranteed to be delivered in order.
+     */
+    public static boolean useOverflowBetweenShards = false;
+
+    /**
+     * When greater than 1, asynchronous messages are dispatched via priority lanes (instead of the disruptor or ArrayBlockingQueue),
+     * where the workers always take messages from the highest priority lane first. Messages published without a priority use the lowest
+     * lane (0).
+     */
+    public static int numberOfPriorityLanes = 1;
+
+    /**
+     * When using priority lanes, every Nth message that a worker takes is from the lowest priority lane that has messages. This bounds
+     * the starvation of the low priority lanes when there are always high priority messages.
+     */
+    public static int priorityLaneStarvationLimit = 32;
+
     /**
      * When using the ArrayBlockingQueue for the asynchronous dispatch of published messages, there are two modes of operation. A
      * "non-garbage" version (which is zero garbage, but slow-ish) and it's opposite (which generates garbage on the heap, but is faster).
@@ -80,6 +139,89 @@ class MessageBus implements IMessageBus {
      */
     public static boolean useStrongReferencesByDefault = true;
 
+    /**
+     * By default, the error handlers are called on the thread that caused the error, one at a time. When true, errors are queued
+     * (without locking or allocating) and the error handlers are called by a dedicated thread, so a storm of errors does not slow down
+     * the publishing threads. The PublicationError passed to the error handlers is then reused, and must not be kept.
+     */
+    public static boolean useAsyncErrorHandling = false;
+
+    /**
+     * When handling errors asynchronously, how many errors can be waiting to be handled. Once full, errors are dropped (and counted).
+     */
+    public static int errorQueueSize = 1024;
+
+    /**
+     * When handling errors asynchronously, how many errors of the same type are passed to the error handlers per second. The rest are
+     * reported once per second as a summary ("N errors of type X in 1000ms"). 0 disables the limit.
+     */
+    public static int maxErrorsPerTypePerSecond = 10;
+
+    /**
+     * When not null, every asynchronous message is written to a memory-mapped journal (in this directory) before it is queued, and is
+     * acknowledged in the journal once it has been dispatched. Messages that were queued (but not dispatched) when the JVM died are
+     * published again by recoverJournal().
+     */
+    public static File asyncJournalDirectory = null;
+
+    /**
+     * How the journaled messages are converted to bytes. When null, Kryo is used.
+     */
+    public static MessageCodec journalCodec = null;
+
+    /**
+     * The size of each (memory-mapped) journal file. A message cannot be larger than this.
+     */
+    public static int journalSegmentSize = 64 * 1024 * 1024;
+
+    /**
+     * How many messages are written to the journal before it is flushed to disk. The journal is also flushed every
+     * 'journalFlushIntervalMillis'. The journal survives the JVM dying without flushing, flushing is so that it also survives the
+     * operating system crashing.
+     */
+    public static int journalFlushBatchSize = 1024;
+
+    /**
+     * How often the journal is flushed to disk (if messages were written since the last flush). 0 only flushes by batch size.
+     */
+    public static long journalFlushIntervalMillis = 100L;
+
+    /**
+     * By default, a journal file is deleted once all of it's messages are dispatched. When true, the files are kept so the messages can
+     * be replayed later (the journal directory then grows without bound).
+     */
+    public static boolean journalRetainSegments = false;
+
+    /**
+     * When not null, every message that is dispatched is measured (per message type) and passed to this recorder, as well as how long
+     * the asynchronous messages waited to be dispatched (only when using the disruptor). MetricsRegistry keeps the metrics in memory.
+     * When null (the default), nothing is measured.
+     */
+    public static MetricsRecorder metrics = null;
+
+    /**
+     * When true, each bus registers a MessageBusMXBean (named "dorkbox.messageBus:type=MessageBus,name=bus-N") with the platform MBean
+     * server, so the ring buffer, workers, subscriptions and errors can be inspected while it is running. It is unregistered when the bus
+     * is shutdown.
+     */
+    public static boolean registerMBeans = false;
+
+    /**
+     * When greater than 0, a watchdog reports (to the error handlers) the handlers that have been dispatching an asynchronous message for
+     * longer than this many milliseconds, with the stack of the stuck worker. This is only supported when using the disruptor. When 0
+     * (the default), the handlers are not watched.
+     */
+    public static long slowHandlerThresholdMillis = 0L;
+
+    /**
+     * The largest (encoded) message that a SocketBridge sends or accepts. A connection that sends a larger (or negative) length is
+     * closed, so a broken or hostile node cannot make the bridge allocate an arbitrary amount of memory.
+     */
+    public static int bridgeMaxFrameSize = 16 * 1024 * 1024;
+
+    // used to name the MBean of each bus
+    private static final AtomicInteger busCount = new AtomicInteger(0);
+
 
     static {
         // check to see if we can use ASM for method access (it's a LOT faster than reflection). By default, we use ASM.
@@ -115,10 +257,12 @@ class MessageBus implements IMessageBus {
     /**
      * Cancels the publication of the message (or messages). Only applicable for the currently running thread. No more subscribers for
      * this message will be called.
+     * <p/>
+     * This does not allocate, the same (stackless) exception is always thrown.
      */
     public static
     void cancel() {
-        throw new DispatchCancel();
+        throw DispatchCancel.INSTANCE;
     }
 
 
@@ -127,8 +271,20 @@ class MessageBus implements IMessageBus {
     private final SubscriptionManager subscriptionManager;
 
     private final Dispatch dispatch;
+    private final DispatchConflated conflatedDispatch;
     private final Synchrony syncPublication;
     private final Synchrony asyncPublication;
+    private final AsyncPriorityLanes priorityPublication;
+    private final TimingWheel timingWheel;
+
+    // null when the handlers are not watched
+    private final Watchdog watchdog;
+
+    // null when the MBean is not registered
+    private final ObjectName mbeanName;
+
+    // set when the bus starts to shutdown, so that new asynchronous messages are rejected
+    private volatile boolean shuttingDown = false;
 
     /**
      * By default, will permit subType matching, and will use half of CPUs available for dispatching async messages
@@ -149,7 +305,7 @@ class MessageBus implements IMessageBus {
     }
 
     /**
-     * By default, will use half of CPUs available for dispatching async messages
+     * By default, will use all of the CPUs available for dispatching async messages
      *
      * @param dispatchMode Specifies which publishMode to operate the publication of messages.
      */
@@ -163,41 +319,169 @@ class MessageBus implements IMessageBus {
      * @param numberOfThreads how many threads to use for dispatching async messages
      */
     public
-    MessageBus(final DispatchMode dispatchMode, int numberOfThreads) {
+    MessageBus(final DispatchMode dispatchMode, final int numberOfThreads) {
+        this(dispatchMode, numberOfThreads, numberOfThreads);
+    }
+
+    /**
+     * The number of threads used for dispatching async messages grows (up to the max) when messages are published faster than they
+     * can be processed, and shrinks (down to the min) when the bus is idle. This is only supported when using the disruptor (without
+     * shards), otherwise the max number of threads is always used.
+     *
+     * @param dispatchMode     Specifies which publishMode to operate the publication of messages.
+     * @param minNumberOfThreads how many threads are always used for dispatching async messages
+     * @param maxNumberOfThreads the max number of threads to use for dispatching async messages
+     */
+    public
+    MessageBus(final DispatchMode dispatchMode, final int minNumberOfThreads, int maxNumberOfThreads) {
+        final boolean fixedSize = minNumberOfThreads == maxNumberOfThreads;
+
         // round to the nearest power of 2
-        numberOfThreads = 1 << (32 - Integer.numberOfLeadingZeros(getMinNumberOfThreads(numberOfThreads) - 1));
+        maxNumberOfThreads = 1 << (32 - Integer.numberOfLeadingZeros(getMinNumberOfThreads(maxNumberOfThreads) - 1));
+
+        // a fixed number of threads must stay fixed after rounding, otherwise the min only has to be within the bounds
+        final int minThreads = fixedSize ? maxNumberOfThreads : Math.max(1, Math.min(minNumberOfThreads, maxNumberOfThreads));
 
-        this.errorHandler = new ErrorHandler();
+        if (useAsyncErrorHandling) {
+            this.errorHandler = new ErrorHandler(errorQueueSize, maxErrorsPerTypePerSecond);
+        }
+        else {
+            this.errorHandler = new ErrorHandler();
+        }
 
         // Will subscribe and publish using all provided parameters in the method signature (for subscribe), and arguments (for publish)
         this.subscriptionManager = new SubscriptionManager(useStrongReferencesByDefault);
 
+        final MetricsRecorder metrics = MessageBus.metrics;
+
         switch (dispatchMode) {
             case Exact:
-                dispatch = new DispatchExact(errorHandler, subscriptionManager);
+                dispatch = metered(new DispatchExact(errorHandler, subscriptionManager), metrics);
                 break;
 
             case ExactWithSuperTypes:
             default:
-                dispatch = new DispatchExactWithSuperTypes(errorHandler, subscriptionManager);
+                dispatch = metered(new DispatchExactWithSuperTypes(errorHandler, subscriptionManager), metrics);
                 break;
         }
 
+        conflatedDispatch = new DispatchConflated(dispatch);
         syncPublication = new Sync();
 
+        final Synchrony async;
+
+        if (slowHandlerThresholdMillis > 0L && useDisruptorForAsyncPublish && numberOfPriorityLanes <= 1) {
+            watchdog = new Watchdog(slowHandlerThresholdMillis, TimeUnit.MILLISECONDS, errorHandler);
+        }
+        else {
+            watchdog = null;
+        }
+
         // the disruptor is preferred, but if it cannot be loaded -- we want to try to continue working, hence the use of ArrayBlockingQueue
-        if (useDisruptorForAsyncPublish) {
-            asyncPublication = new AsyncDisruptor(numberOfThreads, errorHandler);
+        if (numberOfPriorityLanes > 1) {
+            priorityPublication = new AsyncPriorityLanes(numberOfPriorityLanes, priorityLaneStarvationLimit, maxNumberOfThreads, errorHandler);
+            async = priorityPublication;
+        }
+        else if (useDisruptorForAsyncPublish) {
+            priorityPublication = null;
+
+            if (numberOfDisruptorShards > 1) {
+                // round to the nearest power of 2
+                final int numberOfShards = 1 << (32 - Integer.numberOfLeadingZeros(numberOfDisruptorShards - 1));
+                async = new AsyncDisruptorSharded(numberOfShards, maxNumberOfThreads, useOverflowBetweenShards, metrics,
+                                                  watchdog, errorHandler);
+            }
+            else {
+                async = new AsyncDisruptor(minThreads, maxNumberOfThreads, metrics, watchdog, errorHandler);
+            }
         } else {
+            priorityPublication = null;
+
             if (useZeroGarbageVersionOfABQ) {
                 // no garbage is created, but this is slow (but faster than other messagebus implementations)
-                asyncPublication = new AsyncABQ_noGc(numberOfThreads, errorHandler);
+                async = new AsyncABQ_noGc(maxNumberOfThreads, errorHandler);
             }
             else {
                 // garbage is created, but this is fast
-                asyncPublication = new AsyncABQ(numberOfThreads, errorHandler);
+                async = new AsyncABQ(maxNumberOfThreads, errorHandler);
             }
         }
+
+        if (asyncJournalDirectory != null) {
+            final MessageCodec codec = journalCodec != null ? journalCodec : new KryoCodec();
+            try {
+                final Journal journal = new Journal(asyncJournalDirectory, codec, journalSegmentSize, journalFlushBatchSize,
+                                                    journalFlushIntervalMillis, journalRetainSegments);
+                asyncPublication = new AsyncJournaled(async, dispatch, journal, errorHandler);
+            } catch (IOException e) {
+                if (watchdog != null) {
+                    watchdog.shutdown();
+                }
+                async.shutdown();
+                errorHandler.shutdown();
+                throw new IllegalStateException("Unable to open the journal in " + asyncJournalDirectory, e);
+            }
+        }
+        else {
+            asyncPublication = async;
+        }
+
+        // 10ms resolution, and each rotation of the wheel is ~5 seconds
+        timingWheel = new TimingWheel(asyncPublication, dispatch, 10L, TimeUnit.MILLISECONDS, 512);
+
+        if (registerMBeans) {
+            mbeanName = registerMBean(async);
+        }
+        else {
+            mbeanName = null;
+        }
+    }
+
+    /**
+     * @return the name the MBean was registered with, or null if it could not be registered
+     */
+    private
+    ObjectName registerMBean(final Synchrony async) {
+        try {
+            final ObjectName name = new ObjectName("dorkbox.messageBus:type=MessageBus,name=bus-" + busCount.incrementAndGet());
+            new MessageBusMonitor(async, subscriptionManager, errorHandler).register(name);
+            return name;
+        } catch (Exception e) {
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Unable to register the MBean for the message bus.")
+                                                                      .setCause(e));
+            return null;
+        }
+    }
+
+    private
+    void unregisterMBean() {
+        if (mbeanName != null) {
+            try {
+                MessageBusMonitor.unregister(mbeanName);
+            } catch (Exception e) {
+                errorHandler.handlePublicationError(new PublicationError().setMessage("Unable to unregister the MBean for the message bus.")
+                                                                          .setCause(e));
+            }
+        }
+    }
+
+    /**
+     * @return the name of the MBean for this bus, or null when MBeans are not registered
+     */
+    public
+    ObjectName getMBeanName() {
+        return mbeanName;
+    }
+
+    /**
+     * @return the dispatch, which is measured when there is a metrics recorder
+     */
+    private
+    Dispatch metered(final Dispatch dispatch, final MetricsRecorder metrics) {
+        if (metrics == null) {
+            return dispatch;
+        }
+        return new DispatchMetered(dispatch, metrics);
     }
 
     /**
@@ -227,6 +511,22 @@ class MessageBus implements IMessageBus {
         subscriptionManager.subscribe(listener);
     }
 
+    /**
+     * Subscribe the (single message) handlers of the given listener, but only for the given message types (and their sub types). For
+     * example, a handler for Object is then only invoked for these types, and messages of other types still become dead messages.
+     *
+     * @throws IllegalArgumentException if the listener does not have a handler for one of the message types
+     */
+    public
+    void subscribe(final Object listener, final Class<?>... messageTypes) {
+        if (listener == null) {
+            return;
+        }
+
+        // single writer principle using synchronised
+        subscriptionManager.subscribe(listener, messageTypes);
+    }
+
 
     /**
      * Immediately remove all registered message handlers (if any) of the given listener.
@@ -258,7 +558,13 @@ class MessageBus implements IMessageBus {
     @Override
     public
     void publish(final Object message1) {
+        final Object event = FlightRecorder.beginPublish();
+
         syncPublication.publish(dispatch, message1);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, message1.getClass(), 1, false);
+        }
     }
 
 
@@ -271,7 +577,13 @@ class MessageBus implements IMessageBus {
     @Override
     public
     void publish(final Object message1, final Object message2) {
+        final Object event = FlightRecorder.beginPublish();
+
         syncPublication.publish(dispatch, message1, message2);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, message1.getClass(), 2, false);
+        }
     }
 
 
@@ -284,7 +596,13 @@ class MessageBus implements IMessageBus {
     @Override
     public
     void publish(final Object message1, final Object message2, final Object message3) {
+        final Object event = FlightRecorder.beginPublish();
+
         syncPublication.publish(dispatch, message1, message2, message3);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, message1.getClass(), 3, false);
+        }
     }
 
 
@@ -296,7 +614,18 @@ class MessageBus implements IMessageBus {
     @Override
     public
     void publishAsync(final Object message) {
+        if (shuttingDown) {
+            rejected(message);
+            return;
+        }
+
+        final Object event = FlightRecorder.beginPublish();
+
         asyncPublication.publish(dispatch, message);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, message.getClass(), 1, true);
+        }
     }
 
 
@@ -308,7 +637,18 @@ class MessageBus implements IMessageBus {
     @Override
     public
     void publishAsync(final Object message1, final Object message2) {
+        if (shuttingDown) {
+            rejected(message1, message2);
+            return;
+        }
+
+        final Object event = FlightRecorder.beginPublish();
+
         asyncPublication.publish(dispatch, message1, message2);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, message1.getClass(), 2, true);
+        }
     }
 
 
@@ -320,7 +660,499 @@ class MessageBus implements IMessageBus {
     @Override
     public
     void publishAsync(final Object message1, final Object message2, final Object message3) {
+        if (shuttingDown) {
+            rejected(message1, message2, message3);
+            return;
+        }
+
+        final Object event = FlightRecorder.beginPublish();
+
         asyncPublication.publish(dispatch, message1, message2, message3);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, message1.getClass(), 3, true);
+        }
+    }
+
+
+    /**
+     * Synchronously publish a int without boxing it.
+     */
+    @Override
+    public
+    void publish(final int message) {
+        final Object event = FlightRecorder.beginPublish();
+
+        syncPublication.publishPrimitive(dispatch, MessageType.INT, message);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, int.class, 1, false);
+        }
+    }
+
+
+    /**
+     * Synchronously publish a long without boxing it.
+     */
+    @Override
+    public
+    void publish(final long message) {
+        final Object event = FlightRecorder.beginPublish();
+
+        syncPublication.publishPrimitive(dispatch, MessageType.LONG, message);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, long.class, 1, false);
+        }
+    }
+
+
+    /**
+     * Synchronously publish a double without boxing it.
+     */
+    @Override
+    public
+    void publish(final double message) {
+        final Object event = FlightRecorder.beginPublish();
+
+        syncPublication.publishPrimitive(dispatch, MessageType.DOUBLE, Double.doubleToRawLongBits(message));
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, double.class, 1, false);
+        }
+    }
+
+
+    /**
+     * Publish a int asynchronously, without boxing it in the queue. This call returns immediately.
+     */
+    @Override
+    public
+    void publishAsync(final int message) {
+        if (shuttingDown) {
+            rejected(message);
+            return;
+        }
+
+        final Object event = FlightRecorder.beginPublish();
+
+        asyncPublication.publishPrimitive(dispatch, MessageType.INT, message);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, int.class, 1, true);
+        }
+    }
+
+
+    /**
+     * Publish a long asynchronously, without boxing it in the queue. This call returns immediately.
+     */
+    @Override
+    public
+    void publishAsync(final long message) {
+        if (shuttingDown) {
+            rejected(message);
+            return;
+        }
+
+        final Object event = FlightRecorder.beginPublish();
+
+        asyncPublication.publishPrimitive(dispatch, MessageType.LONG, message);
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, long.class, 1, true);
+        }
+    }
+
+
+    /**
+     * Publish a double asynchronously, without boxing it in the queue. This call returns immediately.
+     */
+    @Override
+    public
+    void publishAsync(final double message) {
+        if (shuttingDown) {
+            rejected(message);
+            return;
+        }
+
+        final Object event = FlightRecorder.beginPublish();
+
+        asyncPublication.publishPrimitive(dispatch, MessageType.DOUBLE, Double.doubleToRawLongBits(message));
+
+        if (event != null) {
+            FlightRecorder.endPublish(event, double.class, 1, true);
+        }
+    }
+
+
+    // the narrow primitive types keep their boxed type, instead of being widened to publish(int) or publish(double)
+    @Override
+    public
+    void publish(final float message) {
+        publish((Object) message);
+    }
+
+
+    @Override
+    public
+    void publish(final short message) {
+        publish((Object) message);
+    }
+
+
+    @Override
+    public
+    void publish(final byte message) {
+        publish((Object) message);
+    }
+
+
+    @Override
+    public
+    void publish(final char message) {
+        publish((Object) message);
+    }
+
+
+    @Override
+    public
+    void publishAsync(final float message) {
+        publishAsync((Object) message);
+    }
+
+
+    @Override
+    public
+    void publishAsync(final short message) {
+        publishAsync((Object) message);
+    }
+
+
+    @Override
+    public
+    void publishAsync(final byte message) {
+        publishAsync((Object) message);
+    }
+
+
+    @Override
+    public
+    void publishAsync(final char message) {
+        publishAsync((Object) message);
+    }
+
+
+    /**
+     * Synchronously publish a message to all registered listeners, and return the first (non-null) value returned by a handler. Once
+     * a handler has responded, the remaining handlers will not receive the message.
+     *
+     * @return the first response, or null if no handler responded
+     */
+    @Override
+    public
+    Object request(final Object message) {
+        final FirstResponse<Object> collector = new FirstResponse<Object>();
+        dispatch.request(collector, message);
+        return collector.getResult();
+    }
+
+
+    /**
+     * Synchronously publish a message to all registered listeners (that match the signature). The (non-null) values returned by the
+     * handlers are aggregated by the collector, and the call returns when the collector is complete or all handlers have been invoked.
+     *
+     * @return the result of the collector
+     */
+    @Override
+    public
+    <R> R request(final ResponseCollector<R> collector, final Object message) {
+        dispatch.request(collector, message);
+        return collector.getResult();
+    }
+
+
+    /**
+     * Synchronously publish <b>TWO</b> messages to all registered listeners (that match the signature). The (non-null) values returned
+     * by the handlers are aggregated by the collector, and the call returns when the collector is complete or all handlers have been
+     * invoked.
+     *
+     * @return the result of the collector
+     */
+    @Override
+    public
+    <R> R request(final ResponseCollector<R> collector, final Object message1, final Object message2) {
+        dispatch.request(collector, message1, message2);
+        return collector.getResult();
+    }
+
+
+    /**
+     * Synchronously publish <b>THREE</b> messages to all registered listeners (that match the signature). The (non-null) values
+     * returned by the handlers are aggregated by the collector, and the call returns when the collector is complete or all handlers
+     * have been invoked.
+     *
+     * @return the result of the collector
+     */
+    @Override
+    public
+    <R> R request(final ResponseCollector<R> collector, final Object message1, final Object message2, final Object message3) {
+        dispatch.request(collector, message1, message2, message3);
+        return collector.getResult();
+    }
+
+
+    /**
+     * Publish the message asynchronously to all registered listeners (that match the signature). The (non-null) values returned by the
+     * handlers are aggregated by the collector. This call returns immediately.
+     *
+     * @return the future result of the collector
+     */
+    @Override
+    public
+    <R> Future<R> requestAsync(final ResponseCollector<R> collector, final Object message) {
+        final ResponseFuture<R> future = new ResponseFuture<R>(collector);
+        if (shuttingDown) {
+            future.done();
+            rejected(message);
+            return future;
+        }
+
+        asyncPublication.request(dispatch, future, message);
+        return future;
+    }
+
+
+    /**
+     * Publish <b>TWO</b> messages asynchronously to all registered listeners (that match the signature). The (non-null) values returned
+     * by the handlers are aggregated by the collector. This call returns immediately.
+     *
+     * @return the future result of the collector
+     */
+    @Override
+    public
+    <R> Future<R> requestAsync(final ResponseCollector<R> collector, final Object message1, final Object message2) {
+        final ResponseFuture<R> future = new ResponseFuture<R>(collector);
+        if (shuttingDown) {
+            future.done();
+            rejected(message1, message2);
+            return future;
+        }
+
+        asyncPublication.request(dispatch, future, message1, message2);
+        return future;
+    }
+
+
+    /**
+     * Publish <b>THREE</b> messages asynchronously to all registered listeners (that match the signature). The (non-null) values
+     * returned by the handlers are aggregated by the collector. This call returns immediately.
+     *
+     * @return the future result of the collector
+     */
+    @Override
+    public
+    <R> Future<R> requestAsync(final ResponseCollector<R> collector, final Object message1, final Object message2, final Object message3) {
+        final ResponseFuture<R> future = new ResponseFuture<R>(collector);
+        if (shuttingDown) {
+            future.done();
+            rejected(message1, message2, message3);
+            return future;
+        }
+
+        asyncPublication.request(dispatch, future, message1, message2, message3);
+        return future;
+    }
+
+
+    /**
+     * Publish the message asynchronously, with a priority. When priority lanes are enabled, messages with a higher priority are
+     * dispatched before those with a lower priority (otherwise the priority is ignored). This call returns immediately.
+     */
+    @Override
+    public
+    void publishAsyncPriority(final int priority, final Object message) {
+        if (shuttingDown) {
+            rejected(message);
+            return;
+        }
+
+        if (priorityPublication != null) {
+            priorityPublication.publish(priority, dispatch, message);
+        }
+        else {
+            asyncPublication.publish(dispatch, message);
+        }
+    }
+
+
+    /**
+     * Publish <b>TWO</b> messages asynchronously, with a priority. When priority lanes are enabled, messages with a higher priority are
+     * dispatched before those with a lower priority (otherwise the priority is ignored). This call returns immediately.
+     */
+    @Override
+    public
+    void publishAsyncPriority(final int priority, final Object message1, final Object message2) {
+        if (shuttingDown) {
+            rejected(message1, message2);
+            return;
+        }
+
+        if (priorityPublication != null) {
+            priorityPublication.publish(priority, dispatch, message1, message2);
+        }
+        else {
+            asyncPublication.publish(dispatch, message1, message2);
+        }
+    }
+
+
+    /**
+     * Publish <b>THREE</b> messages asynchronously, with a priority. When priority lanes are enabled, messages with a higher priority are
+     * dispatched before those with a lower priority (otherwise the priority is ignored). This call returns immediately.
+     */
+    @Override
+    public
+    void publishAsyncPriority(final int priority, final Object message1, final Object message2, final Object message3) {
+        if (shuttingDown) {
+            rejected(message1, message2, message3);
+            return;
+        }
+
+        if (priorityPublication != null) {
+            priorityPublication.publish(priority, dispatch, message1, message2, message3);
+        }
+        else {
+            asyncPublication.publish(dispatch, message1, message2, message3);
+        }
+    }
+
+
+    /**
+     * Publish the message asynchronously, replacing any message with the same key that has not been dispatched yet (so only the newest
+     * message for a key is dispatched). This call returns immediately.
+     * <p>
+     * Once a key has been used, no garbage is created when publishing messages for that key.
+     */
+    @Override
+    public
+    void publishAsyncConflated(final Object key, final Object message) {
+        if (shuttingDown) {
+            rejected(message);
+            return;
+        }
+
+        conflatedDispatch.publish(asyncPublication, key, message);
+    }
+
+
+    /**
+     * Publish the message asynchronously, once the delay has expired. This call returns immediately.
+     * <p>
+     * The delay has a resolution of 10 milliseconds.
+     *
+     * @return the scheduled message, which can be cancelled before it is published
+     */
+    @Override
+    public
+    ScheduledMessage publishAsyncDelayed(final Object message, final long delay, final TimeUnit unit) {
+        if (shuttingDown) {
+            rejected(message);
+            return timingWheel.rejected(message);
+        }
+
+        return timingWheel.schedule(message, delay, 0L, unit);
+    }
+
+
+    /**
+     * Publish the message asynchronously once the initial delay has expired, and then again every period until it is cancelled. This
+     * call returns immediately.
+     * <p>
+     * The delay and period have a resolution of 10 milliseconds.
+     *
+     * @return the scheduled message, which can be cancelled to stop the publication
+     */
+    @Override
+    public
+    ScheduledMessage publishAtFixedRate(final Object message, final long initialDelay, final long period, final TimeUnit unit) {
+        if (shuttingDown) {
+            rejected(message);
+            return timingWheel.rejected(message);
+        }
+
+        return timingWheel.schedule(message, initialDelay, Math.max(1L, period), unit);
+    }
+
+
+    /**
+     * Check whether a message of this type would be delivered to any listener (including listeners for its super types, depending
+     * on the dispatch mode). DeadMessage listeners are not considered. This is a lock-free read, suitable for hot paths.
+     */
+    @Override
+    public
+    boolean hasSubscribers(final Class<?> messageClass) {
+        return dispatch.hasSubscribers(messageClass);
+    }
+
+    /**
+     * Synchronously publish a message that is only created if there are listeners for its type. This is useful for messages that are
+     * expensive to create.
+     *
+     * @param messageClass the type of message that the supplier creates
+     * @param supplier called (on this thread) only if a message of this type would be delivered to at least one listener
+     */
+    @Override
+    public
+    <T> void publishLazy(final Class<T> messageClass, final MessageSupplier<T> supplier) {
+        if (dispatch.hasSubscribers(messageClass)) {
+            final T message = supplier.get();
+            if (message != null) {
+                syncPublication.publish(dispatch, message);
+            }
+        }
+    }
+
+    /**
+     * Publishes (asynchronously) the messages that were journaled by the previous run, but never dispatched. This should be called once
+     * the listeners are subscribed, and only does something when the asynchronous messages are journaled.
+     *
+     * @return how many messages were recovered
+     */
+    @Override
+    public
+    int recoverJournal() {
+        if (asyncPublication instanceof AsyncJournaled) {
+            return ((AsyncJournaled) asyncPublication).recover();
+        }
+        return 0;
+    }
+
+    /**
+     * Synchronously publishes (on this thread) the messages that were written to a journal, in the order they were written. Only one
+     * batch of messages is kept in memory at a time. The messages are not acknowledged in the journal.
+     *
+     * @param journalDirectory the directory of the journal, see asyncJournalDirectory and journalRetainSegments
+     * @param fromSequence the sequence of the first message to replay
+     * @param toSequence the sequence after the last message to replay (Long.MAX_VALUE for all of them)
+     * @param speed 0 replays as fast as possible, 1.0 replays with the original timing between the messages, 2.0 twice as fast, etc.
+     *
+     * @return how many messages were replayed, and how fast
+     */
+    @Override
+    public
+    ReplayResult replay(final File journalDirectory, final long fromSequence, final long toSequence, final double speed)
+                    throws IOException {
+        final MessageCodec codec = journalCodec != null ? journalCodec : new KryoCodec();
+        return new JournalReader(journalDirectory, codec).replay(dispatch, fromSequence, toSequence, speed);
+    }
+
+
+    // asynchronous messages are not accepted once the bus starts to shutdown
+    private
+    void rejected(final Object... messages) {
+        errorHandler.handlePublicationError(new PublicationError().setMessage("Message bus is shutting down, message was not queued.")
+                                                                  .setPublishedObject(messages));
     }
 
 
@@ -337,6 +1169,15 @@ class MessageBus implements IMessageBus {
         this.errorHandler.addErrorHandler(errorHandler);
     }
 
+    /**
+     * @return the error handler of this bus, so that errors in the components attached to the bus (ie: transports) are reported to
+     *         the same error handlers
+     */
+    public
+    ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
 
     /**
      * Check whether any asynchronous message publications are pending to be processed
@@ -349,6 +1190,17 @@ class MessageBus implements IMessageBus {
         return asyncPublication.hasPendingMessages();
     }
 
+    /**
+     * Waits (without spinning) until all of the queued asynchronous messages have been processed, or the timeout expires.
+     *
+     * @return true if there are no more pending messages, false if the timeout expired first
+     */
+    @Override
+    public
+    boolean awaitQuiescence(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return asyncPublication.awaitQuiescence(timeout, unit);
+    }
+
     /**
      * Shutdown the bus such that it will stop delivering asynchronous messages. Executor service and
      * other internally used threads will be shutdown gracefully.
@@ -358,9 +1210,45 @@ class MessageBus implements IMessageBus {
     @Override
     public
     void shutdown() {
+        this.shuttingDown = true;
+
+        this.timingWheel.shutdown();
         this.syncPublication.shutdown();
         this.asyncPublication.shutdown();
         this.subscriptionManager.shutdown();
+        unregisterMBean();
+        if (this.watchdog != null) {
+            this.watchdog.shutdown();
+        }
+        this.errorHandler.shutdown();
     }
-}
 
+    /**
+     * Shutdown the bus, first waiting for up to the drain timeout for the already queued asynchronous messages to be delivered. New
+     * asynchronous messages are rejected (and reported to the error handlers) as soon as this is called.
+     * <p>
+     * After calling shutdown it is not safe to further use the message bus.
+     *
+     * @return the number of queued messages that were abandoned because the timeout expired
+     */
+    @Override
+    public
+    int shutdown(final long drainTimeout, final TimeUnit unit) {
+        this.shuttingDown = true;
+
+        // messages that are scheduled, but have not been published yet, are never published
+        this.timingWheel.shutdown();
+        this.syncPublication.shutdown();
+        final int abandoned = this.asyncPublication.shutdown(drainTimeout, unit);
+        this.subscriptionManager.shutdown();
+        unregisterMBean();
+        if (this.watchdog != null) {
+            this.watchdog.shutdown();
+        }
+
+        // the errors that happened while draining are still handled
+        this.errorHandler.shutdown();
+
+        return abandoned;
+    }
+}
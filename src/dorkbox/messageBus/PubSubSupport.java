@@ -112,4 +112,48 @@ public interface PubSubSupport {
      * reject valid subtypes. This call returns immediately.
      */
     void publishAsync(Object message1, Object message2, Object message3);
+
+    /**
+     * Synchronously publish an int without boxing it. Handlers that take an int parameter are invoked directly, and the
+     * value is only boxed when there are Integer (or super type) listeners.
+     */
+    void publish(int message);
+
+    /**
+     * Synchronously publish a long without boxing it. Handlers that take a long parameter are invoked directly, and the
+     * value is only boxed when there are Long (or super type) listeners.
+     */
+    void publish(long message);
+
+    /**
+     * Synchronously publish a double without boxing it. Handlers that take a double parameter are invoked directly, and the
+     * value is only boxed when there are Double (or super type) listeners.
+     */
+    void publish(double message);
+
+    /**
+     * Publish an int asynchronously, without boxing it in the queue. This call returns immediately.
+     */
+    void publishAsync(int message);
+
+    /**
+     * Publish a long asynchronously, without boxing it in the queue. This call returns immediately.
+     */
+    void publishAsync(long message);
+
+    /**
+     * Publish a double asynchronously, without boxing it in the queue. This call returns immediately.
+     */
+    void publishAsync(double message);
+
+    // these are published as their boxed type. Without them, they would be widened to publish(int) or publish(double)
+    void publish(float message);
+    void publish(short message);
+    void publish(byte message);
+    void publish(char message);
+
+    void publishAsync(float message);
+    void publishAsync(short message);
+    void publishAsync(byte message);
+    void publishAsync(char message);
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import dorkbox.messageBus.filter.IMessageFilter;
+
+/**
+ * A handler marked with this annotation is only invoked for messages that are accepted by the filter. The filter is compiled once,
+ * when the handler is first subscribed, so that checking it during publication is a single method call.
+ * <p/>
+ * The filter is either a class that implements {@link IMessageFilter} (it must have a no-arg constructor), or a field expression
+ * on the message, which is compared to a constant, {@code @Filter(field = "symbol", equals = "ABC")}, or to the value of a field of
+ * the listener, {@code @Filter(field = "symbol", listenerField = "symbol")}.
+ * <p/>
+ * For handlers that accept more than one message, the filter is checked against the first message.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Inherited
+@Target(value = {ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+public
+@interface Filter {
+
+    /**
+     * The filter class to use. This is ignored if a field is specified.
+     */
+    Class<? extends IMessageFilter> value() default IMessageFilter.class;
+
+    /**
+     * The name of the field (of the message) to check
+     */
+    String field() default "";
+
+    /**
+     * The constant that the message field must be equal to. It is converted (once) to the type of the field.
+     */
+    String equals() default "";
+
+    /**
+     * The name of the field (of the listener) that the message field must be equal to. This is used instead of the constant.
+     */
+    String listenerField() default "";
+}
@@ -70,4 +70,28 @@ public
      * handlers that have been declared by a superclass but do not apply to the subclass
      */
     boolean enabled() default true;
+
+    /**
+     * Handlers with a higher priority are invoked before handlers with a lower priority (for the same message type). This is useful for
+     * validation handlers, that can cancel the publication before the remaining handlers are invoked.
+     *
+     * The order is computed when a listener is subscribed, so it does not cost anything during publication. Handlers for the exact
+     * message type are always invoked before the handlers for its super types.
+     */
+    int priority() default 0;
+
+    /**
+     * The name of a field of the message that is used to route messages to listeners. Each listener supplies the key it is interested
+     * in via its own field (see {@link #listenerKey()}), and only the listeners with a key equal to the message key are invoked.
+     * Listeners with a null key receive every message.
+     *
+     * The listeners are indexed by their key when they are subscribed, so publishing touches only the matching listeners. The key of a
+     * listener must not change while it is subscribed.
+     */
+    String key() default "";
+
+    /**
+     * The name of the field of the listener that supplies its routing key. By default, this is the same name as {@link #key()}
+     */
+    String listenerKey() default "";
 }
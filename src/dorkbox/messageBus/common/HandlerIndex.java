@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.common;
+
+/**
+ * The handlers of a listener class, generated at build time by the HandlerIndexProcessor (as 'ListenerClass$$HandlerIndex'). When
+ * this exists for a listener class, the handlers are not searched for via reflection, and they are invoked directly (instead of via
+ * bytecode that is generated at runtime).
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+interface HandlerIndex {
+    String SUFFIX = "$$HandlerIndex";
+
+    /**
+     * @return how many handlers the listener class has
+     */
+    int size();
+
+    /**
+     * @return the class that declares the (bottom most) method of the handler
+     */
+    Class<?> getDeclaringClass(int handler);
+
+    /**
+     * @return the class that declares the method with the @Handler annotation (which can be overridden by a sub class)
+     */
+    Class<?> getAnnotatedClass(int handler);
+
+    String getName(int handler);
+
+    Class<?>[] getParameterTypes(int handler);
+
+    /**
+     * The signature of a class is the hash code of it's binary name, plus the hash codes of each method that it declares (except for
+     * synthetic methods), as 'name(canonical parameter types, separated by ",")'. A method with the @Handler annotation has "@Handler" (or
+     * "@Handler(enabled = false)") appended.
+     *
+     * @return the signature of each class in the hierarchy (from the listener class up to, but not including, Object) when the index was
+     *         generated. If a class is different now, the index is out of date.
+     */
+    int[] getSignatures();
+
+    Object invoke(int handler, Object listener, Object message1) throws Throwable;
+
+    Object invoke(int handler, Object listener, Object message1, Object message2) throws Throwable;
+
+    Object invoke(int handler, Object listener, Object message1, Object message2, Object message3) throws Throwable;
+}
@@ -37,13 +37,17 @@
  */
 package dorkbox.messageBus.common;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 
+import dorkbox.messageBus.annotations.Filter;
 import dorkbox.messageBus.annotations.Handler;
 import dorkbox.messageBus.annotations.Listener;
 import dorkbox.messageBus.annotations.References;
 import dorkbox.messageBus.annotations.Synchronized;
+import dorkbox.messageBus.filter.FieldFilter;
+import dorkbox.messageBus.filter.IMessageFilter;
 import dorkbox.messageBus.util.ReflectionUtils;
 
 /**
@@ -69,10 +73,130 @@ class MessageHandler {
 
     private static final MessageHandler[] EMPTY_MESSAGEHANDLERS = new MessageHandler[0];
 
-    // publish all listeners defined by the given class (includes listeners defined in super classes)
+    // the handlers of a class are shared by every bus in the JVM, so a class is only searched once. A ClassValue (unlike a map) does
+    // not prevent the listener class from being unloaded.
+    private static final ClassValue<MessageHandler[]> HANDLERS = new ClassValue<MessageHandler[]>() {
+        @Override
+        protected
+        MessageHandler[] computeValue(final Class<?> type) {
+            return find(type);
+        }
+    };
+
+    /**
+     * @return all of the handlers defined by the given class (includes handlers defined in super classes). The array is shared by
+     *         every bus, so it must not be modified.
+     */
     public static
-    MessageHandler[] get(final Class<?> messageClass) {
+    MessageHandler[] get(final Class<?> listenerClass) {
+        return HANDLERS.get(listenerClass);
+    }
+
+    // publish all listeners defined by the given class (includes listeners defined in super classes)
+    private static
+    MessageHandler[] find(final Class<?> messageClass) {
+        // the index (generated at build time) invokes the handlers directly, so the class hierarchy is not searched, and a method
+        // accessor is not generated at runtime. It is only used if the classes in the hierarchy still declare the same methods as when
+        // it was generated, otherwise it is out of date (ie: a super class was changed, but the listener was not compiled again)
+        final HandlerIndex index = getIndex(messageClass);
+        if (index != null && isCurrent(messageClass, index)) {
+            final MessageHandler[] indexed = fromIndex(messageClass, index);
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+
+        return search(messageClass);
+    }
+
+    /**
+     * @return true if every class in the hierarchy has the same signature as when the index was generated
+     */
+    private static
+    boolean isCurrent(final Class<?> messageClass, final HandlerIndex index) {
+        final int[] signatures = index.getSignatures();
+
+        Class<?> current = messageClass;
+        for (int i = 0; i < signatures.length; i++) {
+            if (current == null || current == Object.class || signature(current) != signatures[i]) {
+                return false;
+            }
+            current = current.getSuperclass();
+        }
+
+        return current == Object.class;
+    }
+
+    /**
+     * @return the signature of the class, the same as the HandlerIndexProcessor calculates it (see HandlerIndex.getSignatures())
+     */
+    private static
+    int signature(final Class<?> type) {
+        int signature = type.getName().hashCode();
+
+        final StringBuilder builder = new StringBuilder(64);
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.isSynthetic()) {
+                // lambdas, bridges and accessors are not in the source
+                continue;
+            }
+
+            builder.setLength(0);
+            builder.append(method.getName()).append('(');
+
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+
+                // null for local and anonymous classes, which the index does not support
+                final String name = parameterTypes[i].getCanonicalName();
+                builder.append(name != null ? name : parameterTypes[i].getName());
+            }
+            builder.append(')');
+
+            // meta annotations are included, so a method that is now a handler via a meta annotation makes the index out of date
+            if (method.getDeclaredAnnotations().length > 0) {
+                final Handler handler = ReflectionUtils.getAnnotation(method, Handler.class);
+                if (handler != null) {
+                    builder.append(handler.enabled() ? "@Handler" : "@Handler(enabled = false)");
+                }
+            }
+
+            signature += builder.toString().hashCode();
+        }
+
+        return signature;
+    }
+
+    /**
+     * @return the handlers of the index, or null if a handler of the index no longer exists
+     */
+    private static
+    MessageHandler[] fromIndex(final Class<?> messageClass, final HandlerIndex index) {
+        final int size = index.size();
+        final MessageHandler[] handlers = new MessageHandler[size];
+
+        try {
+            for (int i = 0; i < size; i++) {
+                final String name = index.getName(i);
+                final Class<?>[] parameterTypes = index.getParameterTypes(i);
+
+                final Method method = index.getDeclaringClass(i).getDeclaredMethod(name, parameterTypes);
+                final Handler handler = index.getAnnotatedClass(i).getDeclaredMethod(name, parameterTypes).getAnnotation(Handler.class);
+                handlers[i] = new MessageHandler(messageClass, method, handler, index, i);
+            }
+        } catch (NoSuchMethodException ignored) {
+            return null;
+        }
+
+        return handlers;
+    }
 
+    // searches the class hierarchy for the handlers
+    private static
+    MessageHandler[] search(final Class<?> messageClass) {
         // publish all handlers (this will include all (inherited) methods directly annotated using @Handler)
         final Method[] allMethods = ReflectionUtils.getMethods(messageClass);
         final int length = allMethods.length;
@@ -100,13 +224,24 @@ class MessageHandler {
                 }
 
                 // if a handler is overwritten it inherits the configuration of its parent method
-                finalMethods.add(new MessageHandler(messageClass, overriddenHandler, handler));
+                finalMethods.add(new MessageHandler(messageClass, overriddenHandler, handler, null, -1));
             }
         }
 
         return finalMethods.toArray(EMPTY_MESSAGEHANDLERS);
     }
 
+    private static
+    HandlerIndex getIndex(final Class<?> listenerClass) {
+        try {
+            final Class<?> indexClass = Class.forName(listenerClass.getName() + HandlerIndex.SUFFIX, true, listenerClass.getClassLoader());
+            return (HandlerIndex) indexClass.getDeclaredConstructor().newInstance();
+        } catch (Exception ignored) {
+            // there is no index for this class
+            return null;
+        }
+    }
+
     public static final int WEAK = -1;
     public static final int UNDEFINED = 0;
     public static final int STRONG = 1;
@@ -116,21 +251,54 @@ class MessageHandler {
 
     private final Class<?>[] handledMessages;
     private final boolean acceptsSubtypes;
+    private final int priority;
 
     private final boolean isSynchronized;
+    private final IMessageFilter filter;
+    private final Field messageKey;
+    private final Field listenerKey;
     private final int referenceType;
 
+    private final HandlerIndex index;
+    private final int indexPosition;
+
     private
-    MessageHandler(final Class<?> clazz, final Method method, final Handler config) {
+    MessageHandler(final Class<?> clazz, final Method method, final Handler config, final HandlerIndex index, final int indexPosition) {
         if (method == null) {
             throw new IllegalArgumentException("The message method configuration may not be null");
         }
 
         this.method = method;
+        this.index = index;
+        this.indexPosition = indexPosition;
         this.acceptsSubtypes = config.acceptSubtypes();
+        this.priority = config.priority();
         this.handledMessages = method.getParameterTypes();
         this.isSynchronized = ReflectionUtils.getAnnotation(method, Synchronized.class) != null;
 
+        // the filter is compiled once here, and shared by every subscription for this handler
+        if (this.handledMessages.length > 0) {
+            this.filter = FieldFilter.compile(clazz, this.handledMessages[0], ReflectionUtils.getAnnotation(method, Filter.class));
+        }
+        else {
+            this.filter = null;
+        }
+
+        final String key = config.key();
+        if (key.isEmpty()) {
+            this.messageKey = null;
+            this.listenerKey = null;
+        }
+        else {
+            if (this.handledMessages.length == 0) {
+                throw new IllegalArgumentException("The handler " + method + " must accept a message in order to route by key.");
+            }
+
+            final String listenerKey = config.listenerKey();
+            this.messageKey = ReflectionUtils.getField(this.handledMessages[0], key);
+            this.listenerKey = ReflectionUtils.getField(clazz, listenerKey.isEmpty() ? key : listenerKey);
+        }
+
         Listener annotation = ReflectionUtils.getAnnotation(clazz, Listener.class);
         if (annotation == null || annotation.references() == null || annotation.references()
                                                                                .equals(References.Undefined)) {
@@ -145,11 +313,79 @@ class MessageHandler {
         }
     }
 
+    private
+    MessageHandler(final MessageHandler handler, final Class<?> messageType) {
+        this.method = handler.method;
+        this.index = handler.index;
+        this.indexPosition = handler.indexPosition;
+        this.acceptsSubtypes = handler.acceptsSubtypes;
+        this.priority = handler.priority;
+        this.handledMessages = new Class<?>[] {messageType};
+        this.isSynchronized = handler.isSynchronized;
+        this.filter = handler.filter;
+        this.messageKey = handler.messageKey;
+        this.listenerKey = handler.listenerKey;
+        this.referenceType = handler.referenceType;
+    }
+
+    /**
+     * @param messageType must be the same as, or a sub type of, the message that this (single message) handler accepts
+     *
+     * @return a copy of this handler, that is only subscribed to the given message type (and it's sub types)
+     */
+    public final
+    MessageHandler forMessageType(final Class<?> messageType) {
+        if (this.handledMessages.length != 1 || !this.handledMessages[0].isAssignableFrom(messageType)) {
+            throw new IllegalArgumentException("The handler " + this.method + " does not accept " + messageType.getName());
+        }
+        return new MessageHandler(this, messageType);
+    }
+
     public final
     boolean isSynchronized() {
         return this.isSynchronized;
     }
 
+    /**
+     * @return the filter that must accept a message before this handler is invoked, or null if every message is accepted
+     */
+    public final
+    IMessageFilter getFilter() {
+        return this.filter;
+    }
+
+    /**
+     * @return the field of the (first) message that is used to route the message to listeners, or null if this handler is not routed
+     */
+    public final
+    Field getMessageKey() {
+        return this.messageKey;
+    }
+
+    /**
+     * @return the field of the listener that supplies the key it is interested in, or null if this handler is not routed
+     */
+    public final
+    Field getListenerKey() {
+        return this.listenerKey;
+    }
+
+    /**
+     * @return the (generated) index that can invoke this handler directly, or null if the listener class does not have an index
+     */
+    public final
+    HandlerIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * @return the position of this handler in the index
+     */
+    public final
+    int getIndexPosition() {
+        return this.indexPosition;
+    }
+
     public final
     int getReferenceType() {
         // this is checked every time a new subscription is created.
@@ -171,6 +407,11 @@ class MessageHandler {
         return this.acceptsSubtypes;
     }
 
+    public final
+    int getPriority() {
+        return this.priority;
+    }
+
     @Override
     public final
     int hashCode() {
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.common;
+
+/**
+ * Creates a message on demand, so that expensive messages are only created when there is a listener for them.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+interface MessageSupplier<T> {
+    /**
+     * @return the message to publish. If null, nothing is published.
+     */
+    T get();
+}
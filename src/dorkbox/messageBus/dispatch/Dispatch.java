@@ -15,13 +15,29 @@
  */
 package dorkbox.messageBus.dispatch;
 
+import dorkbox.messageBus.request.ResponseCollector;
 
 /**
  * @author dorkbox, llc
  *         Date: 2/2/15
  */
 public interface Dispatch {
-    void publish(Object message1);
-    void publish(Object message1, Object message2);
-    void publish(Object message1, Object message2, Object message3);
+    // each returns how many handlers (subscriptions with listeners) the message was delivered to, 0 when it was a dead message
+    int publish(Object message1);
+    int publish(Object message1, Object message2);
+    int publish(Object message1, Object message2, Object message3);
+
+    // delivered to handlers of the primitive type without boxing, and (boxed) to the handlers of the wrapper type
+    int publish(int message1);
+    int publish(long message1);
+    int publish(double message1);
+
+    int request(ResponseCollector collector, Object message1);
+    int request(ResponseCollector collector, Object message1, Object message2);
+    int request(ResponseCollector collector, Object message1, Object message2, Object message3);
+
+    /**
+     * @return true if a message of this type would be delivered to at least one listener. This is a lock-free read.
+     */
+    boolean hasSubscribers(Class<?> messageClass);
 }
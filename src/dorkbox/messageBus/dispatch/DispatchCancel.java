@@ -18,10 +18,20 @@ package dorkbox.messageBus.dispatch;
 /**
  * Cancels the publication of the message (or messages). Only applicable for the currently running thread. No more subscribers for
  * this message will be called.
+ * <p/>
+ * This is used for control flow, so it does not capture a stack trace, and {@link #INSTANCE} is thrown by MessageBus.cancel() so
+ * that cancelling a message does not allocate anything. Suppressed exceptions are disabled, since the instance is shared by every
+ * thread.
  */
 public
 class DispatchCancel extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public static final DispatchCancel INSTANCE = new DispatchCancel();
+
     public
     DispatchCancel() {
+        // no suppressed exceptions, and no stack trace (because it is never used)
+        super(null, null, false, false);
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.dispatch;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dorkbox.messageBus.request.ResponseCollector;
+import dorkbox.messageBus.synchrony.Synchrony;
+
+/**
+ * Conflates asynchronous messages by key, so that only the newest message for a key is dispatched (latest-value-wins).
+ *
+ * Each key has a slot that holds the newest message that has not been dispatched yet. The slot (instead of the message) is what is
+ * queued by the async synchrony, and it is only queued when it was empty. Newer messages for the same key just replace the message in
+ * the slot, so nothing is allocated once a slot exists for a key.
+ *
+ * Slots are never removed, so the number of keys should be bounded (ie: symbols, not order ID's).
+ *
+ * @author dorkbox, llc
+ */
+public final
+class DispatchConflated implements Dispatch {
+    private static final
+    class Slot extends AtomicReference<Object> {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private final Dispatch dispatch;
+    private final ConcurrentMap<Object, Slot> slots = new ConcurrentHashMap<Object, Slot>();
+
+    public
+    DispatchConflated(final Dispatch dispatch) {
+        this.dispatch = dispatch;
+    }
+
+    /**
+     * Replaces any message with the same key that has not been dispatched yet, otherwise the message is queued by the synchrony.
+     */
+    public
+    void publish(final Synchrony synchrony, final Object key, final Object message) {
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            final Slot newSlot = new Slot();
+            slot = slots.putIfAbsent(key, newSlot);
+            if (slot == null) {
+                slot = newSlot;
+            }
+        }
+
+        if (slot.getAndSet(message) == null) {
+            // the slot was empty, so it is not already queued
+            synchrony.publish(this, slot);
+        }
+    }
+
+    /**
+     * @return the class of the message in a slot that was queued by the synchrony
+     */
+    public static
+    Class<?> getMessageType(final Object slot) {
+        final Object message = ((Slot) slot).get();
+        return message != null ? message.getClass() : slot.getClass();
+    }
+
+    /**
+     * Called by the synchrony with the slot that was queued
+     */
+    @Override
+    public
+    int publish(final Object message1) {
+        // once the slot is empty, a newer message will queue it again
+        final Object message = ((Slot) message1).getAndSet(null);
+        if (message != null) {
+            return dispatch.publish(message);
+        }
+        return 0;
+    }
+
+    @Override
+    public
+    int publish(final Object message1, final Object message2) {
+        throw new UnsupportedOperationException("Only single messages can be conflated");
+    }
+
+    @Override
+    public
+    int publish(final Object message1, final Object message2, final Object message3) {
+        throw new UnsupportedOperationException("Only single messages can be conflated");
+    }
+
+    @Override
+    public
+    int publish(final int message1) {
+        throw new UnsupportedOperationException("Only objects can be conflated");
+    }
+
+    @Override
+    public
+    int publish(final long message1) {
+        throw new UnsupportedOperationException("Only objects can be conflated");
+    }
+
+    @Override
+    public
+    int publish(final double message1) {
+        throw new UnsupportedOperationException("Only objects can be conflated");
+    }
+
+    @Override
+    public
+    boolean hasSubscribers(final Class<?> messageClass) {
+        return dispatch.hasSubscribers(messageClass);
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1) {
+        throw new UnsupportedOperationException("Requests cannot be conflated");
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2) {
+        throw new UnsupportedOperationException("Requests cannot be conflated");
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2, final Object message3) {
+        throw new UnsupportedOperationException("Requests cannot be conflated");
+    }
+}
@@ -17,8 +17,11 @@ package dorkbox.messageBus.dispatch;
 
 import dorkbox.messageBus.error.DeadMessage;
 import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.jfr.FlightRecorder;
+import dorkbox.messageBus.request.ResponseCollector;
 import dorkbox.messageBus.subscription.Subscription;
 import dorkbox.messageBus.subscription.SubscriptionManager;
+import dorkbox.messageBus.watchdog.InFlight;
 
 /**
  * By default, it is the calling thread that has to get the subscriptions, which the sync/async logic then uses.
@@ -42,7 +45,7 @@ class DispatchExact implements Dispatch {
 
     @Override
     public
-    void publish(final Object message1) {
+    int publish(final Object message1) {
         final ErrorHandler errorHandler = this.errorHandler;
         final SubscriptionManager subManager = this.subManager;
 
@@ -52,7 +55,8 @@ class DispatchExact implements Dispatch {
 
         Subscription sub;
         int subLength;
-        boolean hasSubs = false;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
 
         try {
             // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
@@ -61,29 +65,46 @@ class DispatchExact implements Dispatch {
                 // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
                 for (int i = 0; i < subLength; i++) {
                     sub = subscriptions[i];
-                    hasSubs |= sub.publish(errorHandler, message1);
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.publish(errorHandler, message1)) {
+                        handlers++;
+                    }
                 }
             }
 
-            if (!hasSubs) {
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 1);
+
                 // Dead Event must EXACTLY MATCH (no subclasses)
                 final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
                 if (deadSubscriptions != null) {
-                    final DeadMessage deadMessage = new DeadMessage(message1);
-                    for (int i = 0; i < deadSubscriptions.length; i++) {
-                        sub = deadSubscriptions[i];
-                        sub.publish(errorHandler, deadMessage);
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
                     }
                 }
             }
         } catch (DispatchCancel ignored) {
             // we wanted to cancel the dispatch for this specific message
         }
+
+        return handlers;
     }
 
     @Override
     public
-    void publish(final Object message1, final Object message2) {
+    int publish(final Object message1, final Object message2) {
         final ErrorHandler errorHandler = this.errorHandler;
         final SubscriptionManager subManager = this.subManager;
 
@@ -94,7 +115,8 @@ class DispatchExact implements Dispatch {
 
         Subscription sub;
         int subLength;
-        boolean hasSubs = false;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
 
         try {
             // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
@@ -103,29 +125,46 @@ class DispatchExact implements Dispatch {
                 // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
                 for (int i = 0; i < subLength; i++) {
                     sub = subscriptions[i];
-                    hasSubs |= sub.publish(errorHandler, message1, message2);
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.publish(errorHandler, message1, message2)) {
+                        handlers++;
+                    }
                 }
             }
 
-            if (!hasSubs) {
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 2);
+
                 // Dead Event must EXACTLY MATCH (no subclasses)
                 final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
                 if (deadSubscriptions != null) {
-                    final DeadMessage deadMessage = new DeadMessage(message1, message2);
-                    for (int i = 0; i < deadSubscriptions.length; i++) {
-                        sub = deadSubscriptions[i];
-                        sub.publish(errorHandler, deadMessage);
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1, message2);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
                     }
                 }
             }
         } catch (DispatchCancel ignored) {
             // we wanted to cancel the dispatch for these specific messages
         }
+
+        return handlers;
     }
 
     @Override
     public
-    void publish(final Object message1, final Object message2, final Object message3) {
+    int publish(final Object message1, final Object message2, final Object message3) {
         final ErrorHandler errorHandler = this.errorHandler;
         final SubscriptionManager subManager = this.subManager;
 
@@ -137,7 +176,8 @@ class DispatchExact implements Dispatch {
 
         Subscription sub;
         int subLength;
-        boolean hasSubs = false;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
 
         try {
             // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
@@ -146,23 +186,253 @@ class DispatchExact implements Dispatch {
                 // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
                 for (int i = 0; i < subLength; i++) {
                     sub = subscriptions[i];
-                    hasSubs |= sub.publish(errorHandler, message1, message2, message3);
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.publish(errorHandler, message1, message2, message3)) {
+                        handlers++;
+                    }
                 }
             }
 
-            if (!hasSubs) {
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 3);
+
                 // Dead Event must EXACTLY MATCH (no subclasses)
                 final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
                 if (deadSubscriptions != null) {
-                    final DeadMessage deadMessage = new DeadMessage(message1, message2, message3);
-                    for (int i = 0; i < deadSubscriptions.length; i++) {
-                        sub = deadSubscriptions[i];
-                        sub.publish(errorHandler, deadMessage);
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1, message2, message3);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
                     }
                 }
             }
         } catch (DispatchCancel ignored) {
             // we wanted to cancel the dispatch for these specific messages
         }
+
+        return handlers;
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1) {
+        final ErrorHandler errorHandler = this.errorHandler;
+        final SubscriptionManager subManager = this.subManager;
+
+        final Class<?> messageClass1 = message1.getClass();
+
+        final Subscription[] subscriptions = subManager.getSubs(messageClass1); // can return null
+
+        Subscription sub;
+        int subLength;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
+
+        try {
+            // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
+            if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+                // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+                // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+                for (int i = 0; i < subLength; i++) {
+                    sub = subscriptions[i];
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.request(errorHandler, collector, message1)) {
+                        handlers++;
+                    }
+                    if (collector.isComplete()) {
+                        return handlers;
+                    }
+                }
+            }
+
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 1);
+
+                // Dead Event must EXACTLY MATCH (no subclasses)
+                final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
+                if (deadSubscriptions != null) {
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
+                    }
+                }
+            }
+        } catch (DispatchCancel ignored) {
+            // we wanted to cancel the request for this specific message
+        }
+
+        return handlers;
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2) {
+        final ErrorHandler errorHandler = this.errorHandler;
+        final SubscriptionManager subManager = this.subManager;
+
+        final Class<?> messageClass1 = message1.getClass();
+        final Class<?> messageClass2 = message2.getClass();
+
+        final Subscription[] subscriptions = subManager.getSubs(messageClass1, messageClass2); // can return null
+
+        Subscription sub;
+        int subLength;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
+
+        try {
+            // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
+            if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+                // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+                // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+                for (int i = 0; i < subLength; i++) {
+                    sub = subscriptions[i];
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.request(errorHandler, collector, message1, message2)) {
+                        handlers++;
+                    }
+                    if (collector.isComplete()) {
+                        return handlers;
+                    }
+                }
+            }
+
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 2);
+
+                // Dead Event must EXACTLY MATCH (no subclasses)
+                final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
+                if (deadSubscriptions != null) {
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1, message2);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
+                    }
+                }
+            }
+        } catch (DispatchCancel ignored) {
+            // we wanted to cancel the request for these specific messages
+        }
+
+        return handlers;
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2, final Object message3) {
+        final ErrorHandler errorHandler = this.errorHandler;
+        final SubscriptionManager subManager = this.subManager;
+
+        final Class<?> messageClass1 = message1.getClass();
+        final Class<?> messageClass2 = message2.getClass();
+        final Class<?> messageClass3 = message3.getClass();
+
+        final Subscription[] subscriptions = subManager.getSubs(messageClass1, messageClass2, messageClass3); // can return null
+
+        Subscription sub;
+        int subLength;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
+
+        try {
+            // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
+            if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+                // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+                // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+                for (int i = 0; i < subLength; i++) {
+                    sub = subscriptions[i];
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.request(errorHandler, collector, message1, message2, message3)) {
+                        handlers++;
+                    }
+                    if (collector.isComplete()) {
+                        return handlers;
+                    }
+                }
+            }
+
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 3);
+
+                // Dead Event must EXACTLY MATCH (no subclasses)
+                final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
+                if (deadSubscriptions != null) {
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1, message2, message3);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
+                    }
+                }
+            }
+        } catch (DispatchCancel ignored) {
+            // we wanted to cancel the request for these specific messages
+        }
+
+        return handlers;
+    }
+
+    @Override
+    public
+    int publish(final int message1) {
+        return DispatchPrimitive.publish(this, errorHandler, subManager, message1);
+    }
+
+    @Override
+    public
+    int publish(final long message1) {
+        return DispatchPrimitive.publish(this, errorHandler, subManager, message1);
+    }
+
+    @Override
+    public
+    int publish(final double message1) {
+        return DispatchPrimitive.publish(this, errorHandler, subManager, message1);
+    }
+
+    @Override
+    public
+    boolean hasSubscribers(final Class<?> messageClass) {
+        return SubscriptionManager.hasListeners(subManager.getSubs(messageClass));
     }
 }
@@ -17,8 +17,11 @@ package dorkbox.messageBus.dispatch;
 
 import dorkbox.messageBus.error.DeadMessage;
 import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.jfr.FlightRecorder;
+import dorkbox.messageBus.request.ResponseCollector;
 import dorkbox.messageBus.subscription.Subscription;
 import dorkbox.messageBus.subscription.SubscriptionManager;
+import dorkbox.messageBus.watchdog.InFlight;
 
 /**
  * @author dorkbox, llc
@@ -39,18 +42,22 @@ class DispatchExactWithSuperTypes implements Dispatch {
 
     @Override
     public
-    void publish(final Object message1) {
+    int publish(final Object message1) {
         final ErrorHandler errorHandler = this.errorHandler;
         final SubscriptionManager subManager = this.subManager;
 
         final Class<?> messageClass1 = message1.getClass();
 
-        final Subscription[] subscriptions = subManager.getSubs(messageClass1); // can return null
         final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass1); // NOT return null
 
+        // types that nobody subscribed to (exact or super) are remembered, so they only cost the lookup above
+        final Subscription[] subscriptions = superSubscriptions == SubscriptionManager.DEAD_SUBS ? null :
+                                             subManager.getSubs(messageClass1); // can return null
+
         Subscription sub;
         int subLength;
-        boolean hasSubs = false;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
 
         try {
             // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
@@ -59,7 +66,12 @@ class DispatchExactWithSuperTypes implements Dispatch {
                 // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
                 for (int i = 0; i < subLength; i++) {
                     sub = subscriptions[i];
-                    hasSubs |= sub.publish(errorHandler, message1);
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.publish(errorHandler, message1)) {
+                        handlers++;
+                    }
                 }
             }
 
@@ -68,41 +80,62 @@ class DispatchExactWithSuperTypes implements Dispatch {
                 // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
                 for (int i = 0; i < subLength; i++) {
                     sub = superSubscriptions[i];
-                    hasSubs |= sub.publish(errorHandler, message1);
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.publish(errorHandler, message1)) {
+                        handlers++;
+                    }
                 }
             }
 
-            if (!hasSubs) {
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 1);
+
                 // Dead Event must EXACTLY MATCH (no subclasses)
                 final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
                 if (deadSubscriptions != null) {
-                    final DeadMessage deadMessage = new DeadMessage(message1);
-                    for (int i = 0; i < deadSubscriptions.length; i++) {
-                        sub = deadSubscriptions[i];
-                        sub.publish(errorHandler, deadMessage);
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
                     }
                 }
             }
         } catch (DispatchCancel ignored) {
             // we wanted to cancel the dispatch for this specific message
         }
+
+        return handlers;
     }
 
     @Override
     public
-    void publish(final Object message1, final Object message2) {
+    int publish(final Object message1, final Object message2) {
         final ErrorHandler errorHandler = this.errorHandler;
         final SubscriptionManager subManager = this.subManager;
 
         final Class<?> messageClass1 = message1.getClass();
         final Class<?> messageClass2 = message2.getClass();
 
-        final Subscription[] subscriptions = subManager.getSubs(messageClass1, messageClass2); // can return null
         final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass1, messageClass2); // NOT return null
 
+        // types that nobody subscribed to (exact or super) are remembered, so they only cost the lookup above
+        final Subscription[] subscriptions = superSubscriptions == SubscriptionManager.DEAD_SUBS ? null :
+                                             subManager.getSubs(messageClass1, messageClass2); // can return null
+
         Subscription sub;
         int subLength;
-        boolean hasSubs = false;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
 
         try {
             // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
@@ -111,7 +144,12 @@ class DispatchExactWithSuperTypes implements Dispatch {
                 // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
                 for (int i = 0; i < subLength; i++) {
                     sub = subscriptions[i];
-                    hasSubs |= sub.publish(errorHandler, message1, message2);
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.publish(errorHandler, message1, message2)) {
+                        handlers++;
+                    }
                 }
             }
 
@@ -120,29 +158,46 @@ class DispatchExactWithSuperTypes implements Dispatch {
                 // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
                 for (int i = 0; i < subLength; i++) {
                     sub = superSubscriptions[i];
-                    hasSubs |= sub.publish(errorHandler, message1, message2);
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.publish(errorHandler, message1, message2)) {
+                        handlers++;
+                    }
                 }
             }
 
-            if (!hasSubs) {
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 2);
+
                 // Dead Event must EXACTLY MATCH (no subclasses)
                 final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
                 if (deadSubscriptions != null) {
-                    final DeadMessage deadMessage = new DeadMessage(message1, message2);
-                    for (int i = 0; i < deadSubscriptions.length; i++) {
-                        sub = deadSubscriptions[i];
-                        sub.publish(errorHandler, deadMessage);
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1, message2);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
                     }
                 }
             }
         } catch (DispatchCancel ignored) {
             // we wanted to cancel the dispatch for these specific messages
         }
+
+        return handlers;
     }
 
     @Override
     public
-    void publish(final Object message1, final Object message2, final Object message3) {
+    int publish(final Object message1, final Object message2, final Object message3) {
         final ErrorHandler errorHandler = this.errorHandler;
         final SubscriptionManager subManager = this.subManager;
 
@@ -150,12 +205,16 @@ class DispatchExactWithSuperTypes implements Dispatch {
         final Class<?> messageClass2 = message2.getClass();
         final Class<?> messageClass3 = message3.getClass();
 
-        final Subscription[] subscriptions = subManager.getSubs(messageClass1, messageClass2, messageClass3); // can return null
         final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass1, messageClass2, messageClass3); // NOT return null
 
+        // types that nobody subscribed to (exact or super) are remembered, so they only cost the lookup above
+        final Subscription[] subscriptions = superSubscriptions == SubscriptionManager.DEAD_SUBS ? null :
+                                             subManager.getSubs(messageClass1, messageClass2, messageClass3); // can return null
+
         Subscription sub;
         int subLength;
-        boolean hasSubs = false;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
 
         try {
             // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
@@ -164,7 +223,12 @@ class DispatchExactWithSuperTypes implements Dispatch {
                 // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
                 for (int i = 0; i < subLength; i++) {
                     sub = subscriptions[i];
-                    hasSubs |= sub.publish(errorHandler, message1, message2, message3);
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.publish(errorHandler, message1, message2, message3)) {
+                        handlers++;
+                    }
                 }
             }
 
@@ -173,23 +237,324 @@ class DispatchExactWithSuperTypes implements Dispatch {
                 // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
                 for (int i = 0; i < subLength; i++) {
                     sub = superSubscriptions[i];
-                    hasSubs |= sub.publish(errorHandler, message1, message2, message3);
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.publish(errorHandler, message1, message2, message3)) {
+                        handlers++;
+                    }
                 }
             }
 
-            if (!hasSubs) {
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 3);
+
                 // Dead Event must EXACTLY MATCH (no subclasses)
                 final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
                 if (deadSubscriptions != null) {
-                    final DeadMessage deadMessage = new DeadMessage(message1, message2, message3);
-                    for (int i = 0; i < deadSubscriptions.length; i++) {
-                        sub = deadSubscriptions[i];
-                        sub.publish(errorHandler, deadMessage);
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1, message2, message3);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
                     }
                 }
             }
         } catch (DispatchCancel ignored) {
             // we wanted to cancel the dispatch for these specific messages
         }
+
+        return handlers;
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1) {
+        final ErrorHandler errorHandler = this.errorHandler;
+        final SubscriptionManager subManager = this.subManager;
+
+        final Class<?> messageClass1 = message1.getClass();
+
+        final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass1); // NOT return null
+
+        // types that nobody subscribed to (exact or super) are remembered, so they only cost the lookup above
+        final Subscription[] subscriptions = superSubscriptions == SubscriptionManager.DEAD_SUBS ? null :
+                                             subManager.getSubs(messageClass1); // can return null
+
+        Subscription sub;
+        int subLength;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
+
+        try {
+            // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
+            if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+                // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+                // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+                for (int i = 0; i < subLength; i++) {
+                    sub = subscriptions[i];
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.request(errorHandler, collector, message1)) {
+                        handlers++;
+                    }
+                    if (collector.isComplete()) {
+                        return handlers;
+                    }
+                }
+            }
+
+            if ((subLength = superSubscriptions.length) > 0) {
+                // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+                // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+                for (int i = 0; i < subLength; i++) {
+                    sub = superSubscriptions[i];
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.request(errorHandler, collector, message1)) {
+                        handlers++;
+                    }
+                    if (collector.isComplete()) {
+                        return handlers;
+                    }
+                }
+            }
+
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 1);
+
+                // Dead Event must EXACTLY MATCH (no subclasses)
+                final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
+                if (deadSubscriptions != null) {
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
+                    }
+                }
+            }
+        } catch (DispatchCancel ignored) {
+            // we wanted to cancel the request for this specific message
+        }
+
+        return handlers;
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2) {
+        final ErrorHandler errorHandler = this.errorHandler;
+        final SubscriptionManager subManager = this.subManager;
+
+        final Class<?> messageClass1 = message1.getClass();
+        final Class<?> messageClass2 = message2.getClass();
+
+        final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass1, messageClass2); // NOT return null
+
+        // types that nobody subscribed to (exact or super) are remembered, so they only cost the lookup above
+        final Subscription[] subscriptions = superSubscriptions == SubscriptionManager.DEAD_SUBS ? null :
+                                             subManager.getSubs(messageClass1, messageClass2); // can return null
+
+        Subscription sub;
+        int subLength;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
+
+        try {
+            // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
+            if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+                // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+                // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+                for (int i = 0; i < subLength; i++) {
+                    sub = subscriptions[i];
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.request(errorHandler, collector, message1, message2)) {
+                        handlers++;
+                    }
+                    if (collector.isComplete()) {
+                        return handlers;
+                    }
+                }
+            }
+
+            if ((subLength = superSubscriptions.length) > 0) {
+                // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+                // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+                for (int i = 0; i < subLength; i++) {
+                    sub = superSubscriptions[i];
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.request(errorHandler, collector, message1, message2)) {
+                        handlers++;
+                    }
+                    if (collector.isComplete()) {
+                        return handlers;
+                    }
+                }
+            }
+
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 2);
+
+                // Dead Event must EXACTLY MATCH (no subclasses)
+                final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
+                if (deadSubscriptions != null) {
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1, message2);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
+                    }
+                }
+            }
+        } catch (DispatchCancel ignored) {
+            // we wanted to cancel the request for these specific messages
+        }
+
+        return handlers;
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2, final Object message3) {
+        final ErrorHandler errorHandler = this.errorHandler;
+        final SubscriptionManager subManager = this.subManager;
+
+        final Class<?> messageClass1 = message1.getClass();
+        final Class<?> messageClass2 = message2.getClass();
+        final Class<?> messageClass3 = message3.getClass();
+
+        final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass1, messageClass2, messageClass3); // NOT return null
+
+        // types that nobody subscribed to (exact or super) are remembered, so they only cost the lookup above
+        final Subscription[] subscriptions = superSubscriptions == SubscriptionManager.DEAD_SUBS ? null :
+                                             subManager.getSubs(messageClass1, messageClass2, messageClass3); // can return null
+
+        Subscription sub;
+        int subLength;
+        int handlers = 0;
+        final InFlight inFlight = InFlight.current(); // only when the worker is watched
+
+        try {
+            // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
+            if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+                // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+                // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+                for (int i = 0; i < subLength; i++) {
+                    sub = subscriptions[i];
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.request(errorHandler, collector, message1, message2, message3)) {
+                        handlers++;
+                    }
+                    if (collector.isComplete()) {
+                        return handlers;
+                    }
+                }
+            }
+
+            if ((subLength = superSubscriptions.length) > 0) {
+                // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+                // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+                for (int i = 0; i < subLength; i++) {
+                    sub = superSubscriptions[i];
+                    if (inFlight != null) {
+                        inFlight.start(sub);
+                    }
+                    if (sub.request(errorHandler, collector, message1, message2, message3)) {
+                        handlers++;
+                    }
+                    if (collector.isComplete()) {
+                        return handlers;
+                    }
+                }
+            }
+
+            if (handlers == 0) {
+                FlightRecorder.deadMessage(messageClass1, 3);
+
+                // Dead Event must EXACTLY MATCH (no subclasses)
+                final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
+                if (deadSubscriptions != null) {
+                    final DeadMessage deadMessage = DeadMessage.acquire(message1, message2, message3);
+                    try {
+                        for (int i = 0; i < deadSubscriptions.length; i++) {
+                            sub = deadSubscriptions[i];
+                            if (inFlight != null) {
+                                inFlight.start(sub);
+                            }
+                            sub.publish(errorHandler, deadMessage);
+                        }
+                    } finally {
+                        // the dead message is reused by this thread
+                        deadMessage.release();
+                    }
+                }
+            }
+        } catch (DispatchCancel ignored) {
+            // we wanted to cancel the request for these specific messages
+        }
+
+        return handlers;
+    }
+
+    @Override
+    public
+    int publish(final int message1) {
+        return DispatchPrimitive.publish(this, errorHandler, subManager, message1);
+    }
+
+    @Override
+    public
+    int publish(final long message1) {
+        return DispatchPrimitive.publish(this, errorHandler, subManager, message1);
+    }
+
+    @Override
+    public
+    int publish(final double message1) {
+        return DispatchPrimitive.publish(this, errorHandler, subManager, message1);
+    }
+
+    @Override
+    public
+    boolean hasSubscribers(final Class<?> messageClass) {
+        final SubscriptionManager subManager = this.subManager;
+
+        final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass); // NOT return null
+        if (superSubscriptions == SubscriptionManager.DEAD_SUBS) {
+            return false;
+        }
+
+        return SubscriptionManager.hasListeners(subManager.getSubs(messageClass)) ||
+               SubscriptionManager.hasListeners(superSubscriptions);
     }
 }
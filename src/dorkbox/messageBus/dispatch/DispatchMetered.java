@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.dispatch;
+
+import dorkbox.messageBus.metrics.MetricsRecorder;
+import dorkbox.messageBus.request.ResponseCollector;
+
+/**
+ * Measures the dispatch of every message, and passes the metrics to the recorder. This is only used when the bus has a recorder, so
+ * there is no cost when metrics are disabled.
+ *
+ * The number of handlers is the one that the dispatch counted while it delivered the message, so the subscriptions are not looked up
+ * a second time.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@SuppressWarnings("Duplicates")
+public final
+class DispatchMetered implements Dispatch {
+    private final Dispatch dispatch;
+    private final MetricsRecorder recorder;
+
+    public
+    DispatchMetered(final Dispatch dispatch, final MetricsRecorder recorder) {
+        this.dispatch = dispatch;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public
+    int publish(final Object message1) {
+        final long start = System.nanoTime();
+
+        final int handlers = dispatch.publish(message1);
+
+        recorder.recordDispatch(message1.getClass(), handlers, System.nanoTime() - start);
+        return handlers;
+    }
+
+    @Override
+    public
+    int publish(final Object message1, final Object message2) {
+        final long start = System.nanoTime();
+
+        final int handlers = dispatch.publish(message1, message2);
+
+        recorder.recordDispatch(message1.getClass(), handlers, System.nanoTime() - start);
+        return handlers;
+    }
+
+    @Override
+    public
+    int publish(final Object message1, final Object message2, final Object message3) {
+        final long start = System.nanoTime();
+
+        final int handlers = dispatch.publish(message1, message2, message3);
+
+        recorder.recordDispatch(message1.getClass(), handlers, System.nanoTime() - start);
+        return handlers;
+    }
+
+    @Override
+    public
+    int publish(final int message1) {
+        final long start = System.nanoTime();
+
+        final int handlers = dispatch.publish(message1);
+
+        recorder.recordDispatch(int.class, handlers, System.nanoTime() - start);
+        return handlers;
+    }
+
+    @Override
+    public
+    int publish(final long message1) {
+        final long start = System.nanoTime();
+
+        final int handlers = dispatch.publish(message1);
+
+        recorder.recordDispatch(long.class, handlers, System.nanoTime() - start);
+        return handlers;
+    }
+
+    @Override
+    public
+    int publish(final double message1) {
+        final long start = System.nanoTime();
+
+        final int handlers = dispatch.publish(message1);
+
+        recorder.recordDispatch(double.class, handlers, System.nanoTime() - start);
+        return handlers;
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1) {
+        final long start = System.nanoTime();
+
+        final int handlers = dispatch.request(collector, message1);
+
+        recorder.recordDispatch(message1.getClass(), handlers, System.nanoTime() - start);
+        return handlers;
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2) {
+        final long start = System.nanoTime();
+
+        final int handlers = dispatch.request(collector, message1, message2);
+
+        recorder.recordDispatch(message1.getClass(), handlers, System.nanoTime() - start);
+        return handlers;
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2, final Object message3) {
+        final long start = System.nanoTime();
+
+        final int handlers = dispatch.request(collector, message1, message2, message3);
+
+        recorder.recordDispatch(message1.getClass(), handlers, System.nanoTime() - start);
+        return handlers;
+    }
+
+    @Override
+    public
+    boolean hasSubscribers(final Class<?> messageClass) {
+        return dispatch.hasSubscribers(messageClass);
+    }
+}
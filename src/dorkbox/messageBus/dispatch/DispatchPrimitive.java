@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.dispatch;
+
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.subscription.SubscriptionManager;
+import dorkbox.messageBus.subscription.SubscriptionPrimitive;
+import dorkbox.messageBus.watchdog.InFlight;
+
+/**
+ * Publishes int, long and double messages. Handlers for the primitive type are invoked without boxing. The message is only boxed when
+ * there are also handlers for the wrapper type (or its super types), or to publish a DeadMessage when nothing handles it.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@SuppressWarnings("Duplicates")
+final
+class DispatchPrimitive {
+
+    static
+    int publish(final Dispatch dispatch, final ErrorHandler errorHandler, final SubscriptionManager subManager, final int message) {
+        final Subscription[] subscriptions = subManager.getSubs(int.class); // can return null
+        int handlers = 0;
+
+        if (subscriptions != null) {
+            final InFlight inFlight = InFlight.current(); // only when the worker is watched
+
+            try {
+                for (int i = 0; i < subscriptions.length; i++) {
+                    if (inFlight != null) {
+                        inFlight.start(subscriptions[i]);
+                    }
+                    if (((SubscriptionPrimitive) subscriptions[i]).publish(errorHandler, message)) {
+                        handlers++;
+                    }
+                }
+            } catch (DispatchCancel ignored) {
+                // we wanted to cancel the dispatch for this specific message
+                return handlers;
+            } finally {
+                if (inFlight != null) {
+                    // so that the boxed dispatch records its own handlers
+                    inFlight.end();
+                }
+            }
+        }
+
+        if (handlers == 0 || dispatch.hasSubscribers(Integer.class)) {
+            handlers += dispatch.publish((Object) Integer.valueOf(message));
+        }
+
+        return handlers;
+    }
+
+    static
+    int publish(final Dispatch dispatch, final ErrorHandler errorHandler, final SubscriptionManager subManager, final long message) {
+        final Subscription[] subscriptions = subManager.getSubs(long.class); // can return null
+        int handlers = 0;
+
+        if (subscriptions != null) {
+            final InFlight inFlight = InFlight.current(); // only when the worker is watched
+
+            try {
+                for (int i = 0; i < subscriptions.length; i++) {
+                    if (inFlight != null) {
+                        inFlight.start(subscriptions[i]);
+                    }
+                    if (((SubscriptionPrimitive) subscriptions[i]).publish(errorHandler, message)) {
+                        handlers++;
+                    }
+                }
+            } catch (DispatchCancel ignored) {
+                // we wanted to cancel the dispatch for this specific message
+                return handlers;
+            } finally {
+                if (inFlight != null) {
+                    // so that the boxed dispatch records its own handlers
+                    inFlight.end();
+                }
+            }
+        }
+
+        if (handlers == 0 || dispatch.hasSubscribers(Long.class)) {
+            handlers += dispatch.publish((Object) Long.valueOf(message));
+        }
+
+        return handlers;
+    }
+
+    static
+    int publish(final Dispatch dispatch, final ErrorHandler errorHandler, final SubscriptionManager subManager, final double message) {
+        final Subscription[] subscriptions = subManager.getSubs(double.class); // can return null
+        int handlers = 0;
+
+        if (subscriptions != null) {
+            final InFlight inFlight = InFlight.current(); // only when the worker is watched
+
+            try {
+                for (int i = 0; i < subscriptions.length; i++) {
+                    if (inFlight != null) {
+                        inFlight.start(subscriptions[i]);
+                    }
+                    if (((SubscriptionPrimitive) subscriptions[i]).publish(errorHandler, message)) {
+                        handlers++;
+                    }
+                }
+            } catch (DispatchCancel ignored) {
+                // we wanted to cancel the dispatch for this specific message
+                return handlers;
+            } finally {
+                if (inFlight != null) {
+                    // so that the boxed dispatch records its own handlers
+                    inFlight.end();
+                }
+            }
+        }
+
+        if (handlers == 0 || dispatch.hasSubscribers(Double.class)) {
+            handlers += dispatch.publish((Object) Double.valueOf(message));
+        }
+
+        return handlers;
+    }
+
+    private
+    DispatchPrimitive() {
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.error;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves error handling off of the publishing threads. Errors are copied into preallocated records of a bounded, lock-free ring, and a
+ * single thread passes them to the error handlers. Publishing threads never block (if the ring is full, the error is counted and
+ * dropped), and the error handlers are only ever called by one thread.
+ * <p/>
+ * Errors of the same type (the class of the cause) are rate limited. Once more than the limit have been reported within one second,
+ * the rest are counted, and a summary ("N errors of type X") is reported at the end of that second.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+final
+class AsyncErrorPipeline implements Runnable {
+    private static final int PUBLICATION = 0;
+    private static final int ERROR = 1;
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final
+    class Record {
+        // the sequence is used to hand the record from the producers to the consumer
+        volatile long sequence;
+
+        int type;
+        String message;
+        Throwable cause;
+        Class<?> listenerClass;
+
+        Object[] published;
+        int count;
+        Object message1;
+        Object message2;
+        Object message3;
+
+        Record(final long sequence) {
+            this.sequence = sequence;
+        }
+
+        void clear() {
+            message = null;
+            cause = null;
+            listenerClass = null;
+            published = null;
+            message1 = null;
+            message2 = null;
+            message3 = null;
+        }
+    }
+
+    private final ErrorHandler errorHandler;
+    private final int maxErrorsPerType;
+
+    private final Record[] ring;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long head = 0L; // only used by the consumer thread
+
+    private final Thread thread;
+    private volatile boolean sleeping = false;
+    private volatile boolean shutdown = false;
+
+    // only used by the consumer thread. The error (and its arrays) are reused for every error.
+    private final PublicationError error = new PublicationError();
+    private final Object[] one = new Object[1];
+    private final Object[] two = new Object[2];
+    private final Object[] three = new Object[3];
+    private final Map<Object, int[]> errorsPerType = new HashMap<Object, int[]>();
+
+    AsyncErrorPipeline(final ErrorHandler errorHandler, int size, final int maxErrorsPerType) {
+        this.errorHandler = errorHandler;
+        this.maxErrorsPerType = maxErrorsPerType;
+
+        // round to the nearest power of 2
+        size = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(2, size) - 1));
+
+        this.ring = new Record[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.ring[i] = new Record(i);
+        }
+
+        this.thread = new Thread(this, "MessageBus-Errors");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return the record to fill, or null if the ring is full (the error is dropped)
+     */
+    private
+    Record claim() {
+        final Record[] ring = this.ring;
+        final AtomicLong tail = this.tail;
+
+        long position = tail.get();
+        while (true) {
+            final Record record = ring[(int) position & mask];
+            final long difference = record.sequence - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return record;
+                }
+                position = tail.get();
+            }
+            else if (difference < 0) {
+                // the consumer has not processed this record yet, so the ring is full
+                dropped.incrementAndGet();
+                return null;
+            }
+            else {
+                // another producer claimed this record
+                position = tail.get();
+            }
+        }
+    }
+
+    private
+    void publish(final Record record) {
+        // makes the record visible to the consumer
+        record.sequence = record.sequence + 1;
+
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * The dead message is reused by the publishing thread as soon as it's handlers return, so the record keeps a copy of it
+     */
+    private static
+    Object copyOf(final Object published) {
+        if (published instanceof DeadMessage) {
+            return ((DeadMessage) published).copy();
+        }
+        return published;
+    }
+
+    void offer(final String message, final Throwable cause, Object[] published) {
+        final Record record = claim();
+        if (record != null) {
+            if (published != null) {
+                published = published.clone();
+                for (int i = 0; i < published.length; i++) {
+                    published[i] = copyOf(published[i]);
+                }
+            }
+
+            record.type = PUBLICATION;
+            record.message = message;
+            record.cause = cause;
+            record.published = published;
+            publish(record);
+        }
+    }
+
+    void offer(final String message, final Throwable cause, final int count,
+               final Object message1, final Object message2, final Object message3) {
+        final Record record = claim();
+        if (record != null) {
+            record.type = PUBLICATION;
+            record.message = message;
+            record.cause = cause;
+            record.count = count;
+            record.message1 = copyOf(message1);
+            record.message2 = copyOf(message2);
+            record.message3 = copyOf(message3);
+            publish(record);
+        }
+    }
+
+    void offer(final String message, final Class<?> listenerClass) {
+        final Record record = claim();
+        if (record != null) {
+            record.type = ERROR;
+            record.message = message;
+            record.listenerClass = listenerClass;
+            publish(record);
+        }
+    }
+
+    /**
+     * Reports the remaining errors, and stops the thread
+     */
+    void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public
+    void run() {
+        final Record[] ring = this.ring;
+        final int mask = this.mask;
+
+        long windowStart = System.nanoTime();
+
+        while (true) {
+            final Record record = ring[(int) head & mask];
+
+            if (record.sequence == head + 1) {
+                try {
+                    process(record);
+                } catch (Throwable ignored) {
+                    // a broken error handler must not stop the error handling
+                } finally {
+                    record.clear();
+
+                    // the record can be used again once the ring has wrapped around
+                    record.sequence = head + mask + 1;
+                    head++;
+                }
+            }
+            else if (shutdown) {
+                break;
+            }
+            else {
+                sleeping = true;
+                if (record.sequence != head + 1 && !shutdown) {
+                    final long remaining = WINDOW_NANOS - (System.nanoTime() - windowStart);
+                    LockSupport.parkNanos(this, Math.max(1L, Math.min(remaining, MAX_PARK_NANOS)));
+                }
+                sleeping = false;
+            }
+
+            final long now = System.nanoTime();
+            if (now - windowStart >= WINDOW_NANOS) {
+                report(now - windowStart);
+                windowStart = now;
+            }
+        }
+
+        report(System.nanoTime() - windowStart);
+    }
+
+    private
+    void process(final Record record) {
+        final boolean isPublication = record.type == PUBLICATION;
+
+        if (maxErrorsPerType > 0) {
+            final Object key;
+            if (isPublication) {
+                key = record.cause != null ? record.cause.getClass() : record.message;
+            }
+            else {
+                key = record.listenerClass != null ? record.listenerClass : record.message;
+            }
+
+            int[] count = errorsPerType.get(key);
+            if (count == null) {
+                count = new int[1];
+                errorsPerType.put(key, count);
+            }
+
+            if (++count[0] > maxErrorsPerType) {
+                // this is reported (as a summary) at the end of the second
+                return;
+            }
+        }
+
+        if (isPublication) {
+            Object[] published = record.published;
+            if (published == null) {
+                switch (record.count) {
+                    case 1:
+                        published = one;
+                        published[0] = record.message1;
+                        break;
+                    case 2:
+                        published = two;
+                        published[0] = record.message1;
+                        published[1] = record.message2;
+                        break;
+                    default:
+                        published = three;
+                        published[0] = record.message1;
+                        published[1] = record.message2;
+                        published[2] = record.message3;
+                        break;
+                }
+            }
+
+            error.set(record.message, record.cause, published);
+            try {
+                errorHandler.dispatch(error);
+            } finally {
+                error.set(null, null, null);
+                if (published == one || published == two || published == three) {
+                    for (int i = 0; i < published.length; i++) {
+                        published[i] = null;
+                    }
+                }
+            }
+        }
+        else {
+            errorHandler.dispatch(record.message, record.listenerClass);
+        }
+    }
+
+    /**
+     * Reports how many errors were suppressed (per type) and dropped, since the last report
+     */
+    private
+    void report(final long elapsedNanos) {
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+
+        for (Map.Entry<Object, int[]> entry : errorsPerType.entrySet()) {
+            final int[] count = entry.getValue();
+            final int suppressed = count[0] - maxErrorsPerType;
+
+            if (suppressed > 0) {
+                final Object key = entry.getKey();
+                final Class<?> type = key instanceof Class ? (Class<?>) key : PublicationError.class;
+                final String description = key instanceof Class ? ((Class<?>) key).getName() : "'" + key + "'";
+
+                try {
+                    errorHandler.dispatch(count[0] + " errors of type " + description + " in " + elapsedMillis + "ms (" + suppressed +
+                                          " were not reported individually)", type);
+                } catch (Throwable ignored) {
+                    // a broken error handler must not stop the error handling
+                }
+            }
+        }
+        errorsPerType.clear();
+
+        final long dropped = this.dropped.getAndSet(0L);
+        if (dropped > 0) {
+            try {
+                errorHandler.dispatch(dropped + " errors were dropped in " + elapsedMillis + "ms, because the error queue was full",
+                                      PublicationError.class);
+            } catch (Throwable ignored) {
+                // a broken error handler must not stop the error handling
+            }
+        }
+    }
+}
@@ -37,8 +37,13 @@
  */
 package dorkbox.messageBus.error;
 
+import dorkbox.messageBus.util.FastThreadLocal;
+
 /**
  * The dead message event is published whenever no message handlers could be found for a given message publication.
+ * <p/>
+ * The bus reuses one instance per thread, so that misconfigured traffic does not create garbage. Handlers must not keep a reference
+ * to the dead message (or to the array returned by {@link #getMessages()}) after they return.
  *
  * @author bennidi
  *         Date: 1/18/13
@@ -48,29 +53,127 @@ package dorkbox.messageBus.error;
 public final
 class DeadMessage {
 
-    private final Object[] relatedMessages;
+    private static final FastThreadLocal<DeadMessage> pool = new FastThreadLocal<DeadMessage>() {
+        @Override
+        public
+        DeadMessage initialValue() {
+            return new DeadMessage();
+        }
+    };
+
+    /**
+     * @return the dead message for this thread, or a new one if it is already being published (a DeadMessage handler published a
+     *         message that nobody handles). Must be released after it was published.
+     */
+    public static
+    DeadMessage acquire(final Object message) {
+        final DeadMessage deadMessage = acquire();
+        deadMessage.relatedMessages = deadMessage.one;
+        deadMessage.one[0] = message;
+        return deadMessage;
+    }
+
+    /**
+     * @see #acquire(Object)
+     */
+    public static
+    DeadMessage acquire(final Object message1, final Object message2) {
+        final DeadMessage deadMessage = acquire();
+        deadMessage.relatedMessages = deadMessage.two;
+        deadMessage.two[0] = message1;
+        deadMessage.two[1] = message2;
+        return deadMessage;
+    }
+
+    /**
+     * @see #acquire(Object)
+     */
+    public static
+    DeadMessage acquire(final Object message1, final Object message2, final Object message3) {
+        final DeadMessage deadMessage = acquire();
+        deadMessage.relatedMessages = deadMessage.three;
+        deadMessage.three[0] = message1;
+        deadMessage.three[1] = message2;
+        deadMessage.three[2] = message3;
+        return deadMessage;
+    }
+
+    private static
+    DeadMessage acquire() {
+        DeadMessage deadMessage = pool.get();
+        if (deadMessage.inUse) {
+            deadMessage = new DeadMessage();
+        }
+        deadMessage.inUse = true;
+        return deadMessage;
+    }
+
+
+    private final Object[] one;
+    private final Object[] two;
+    private final Object[] three;
+
+    private Object[] relatedMessages;
+    private boolean inUse = false;
+
+    private
+    DeadMessage() {
+        this.one = new Object[1];
+        this.two = new Object[2];
+        this.three = new Object[3];
+    }
 
     public
     DeadMessage(Object message) {
-        this.relatedMessages = new Object[1];
+        this();
+        this.relatedMessages = this.one;
         this.relatedMessages[0] = message;
     }
 
     public
     DeadMessage(Object message1, Object message2) {
-        this.relatedMessages = new Object[2];
+        this();
+        this.relatedMessages = this.two;
         this.relatedMessages[0] = message1;
         this.relatedMessages[1] = message2;
     }
 
     public
     DeadMessage(Object message1, Object message2, Object message3) {
-        this.relatedMessages = new Object[3];
+        this();
+        this.relatedMessages = this.three;
         this.relatedMessages[0] = message1;
         this.relatedMessages[1] = message2;
         this.relatedMessages[2] = message3;
     }
 
+    /**
+     * Clears the messages (so they can be garbage collected), and makes this dead message available to be used again by this thread
+     */
+    public
+    void release() {
+        final Object[] messages = this.relatedMessages;
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = null;
+        }
+        this.inUse = false;
+    }
+
+    /**
+     * @return a new dead message with the same messages, which (unlike this one) is not reused
+     */
+    DeadMessage copy() {
+        final Object[] messages = this.relatedMessages;
+        switch (messages.length) {
+            case 1:
+                return new DeadMessage(messages[0]);
+            case 2:
+                return new DeadMessage(messages[0], messages[1]);
+            default:
+                return new DeadMessage(messages[0], messages[1], messages[2]);
+        }
+    }
+
     public
     Object[] getMessages() {
         return this.relatedMessages;
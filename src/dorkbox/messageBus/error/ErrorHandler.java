@@ -17,8 +17,15 @@ package dorkbox.messageBus.error;
 
 import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * Passes errors to all of the registered error handlers.
+ * <p/>
+ * By default, the error handlers are called on the thread that caused the error (one at a time). When asynchronous error handling is
+ * enabled, errors are queued (without locking or allocating) and the error handlers are called by a dedicated thread. In that case,
+ * the PublicationError passed to the error handlers is reused, and must not be kept after the error handler returns.
+ *
  * @author bennidi
  */
 @SuppressWarnings("Duplicates")
@@ -35,9 +42,27 @@ class ErrorHandler {
     private final Collection<IPublicationErrorHandler> errorHandlers = new ArrayDeque<IPublicationErrorHandler>();
     private boolean changedDefaults = false;
 
+    // null if errors are handled on the thread that caused them
+    private final AsyncErrorPipeline pipeline;
+
+    // how many errors were reported (including the errors that were dropped or suppressed when handled asynchronously)
+    private final LongAdder errorCount = new LongAdder();
+
 
     public
     ErrorHandler() {
+        this.pipeline = null;
+    }
+
+    /**
+     * Handles the errors asynchronously.
+     *
+     * @param queueSize how many errors can be waiting to be handled, before more errors are dropped
+     * @param maxErrorsPerType how many errors of the same type are handled per second. The rest are reported as a summary. 0 is no limit
+     */
+    public
+    ErrorHandler(final int queueSize, final int maxErrorsPerType) {
+        this.pipeline = new AsyncErrorPipeline(this, queueSize, maxErrorsPerType);
     }
 
     public synchronized
@@ -47,8 +72,113 @@ class ErrorHandler {
         this.errorHandlers.add(handler);
     }
 
-    public synchronized
+    public
     void handlePublicationError(PublicationError error) {
+        errorCount.increment();
+
+        final AsyncErrorPipeline pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.offer(error.getMessage(), error.getCause(), error.getPublishedObject());
+        }
+        else {
+            dispatch(error);
+        }
+    }
+
+    /**
+     * Same as handlePublicationError(PublicationError), however nothing is allocated when the errors are handled asynchronously
+     */
+    public
+    void handlePublicationError(final String message, final Throwable cause, final Object publishedObject) {
+        errorCount.increment();
+
+        final AsyncErrorPipeline pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.offer(message, cause, 1, publishedObject, null, null);
+        }
+        else {
+            dispatch(new PublicationError().setMessage(message)
+                                           .setCause(cause)
+                                           .setPublishedObject(publishedObject));
+        }
+    }
+
+    /**
+     * Same as handlePublicationError(PublicationError), however nothing is allocated when the errors are handled asynchronously
+     */
+    public
+    void handlePublicationError(final String message, final Throwable cause, final Object publishedObject1, final Object publishedObject2) {
+        errorCount.increment();
+
+        final AsyncErrorPipeline pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.offer(message, cause, 2, publishedObject1, publishedObject2, null);
+        }
+        else {
+            dispatch(new PublicationError().setMessage(message)
+                                           .setCause(cause)
+                                           .setPublishedObject(publishedObject1, publishedObject2));
+        }
+    }
+
+    /**
+     * Same as handlePublicationError(PublicationError), however nothing is allocated when the errors are handled asynchronously
+     */
+    public
+    void handlePublicationError(final String message, final Throwable cause,
+                                final Object publishedObject1, final Object publishedObject2, final Object publishedObject3) {
+        errorCount.increment();
+
+        final AsyncErrorPipeline pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.offer(message, cause, 3, publishedObject1, publishedObject2, publishedObject3);
+        }
+        else {
+            dispatch(new PublicationError().setMessage(message)
+                                           .setCause(cause)
+                                           .setPublishedObject(publishedObject1, publishedObject2, publishedObject3));
+        }
+    }
+
+    public
+    void handleError(final String error, final Class<?> listenerClass) {
+        errorCount.increment();
+
+        final AsyncErrorPipeline pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.offer(error, listenerClass);
+        }
+        else {
+            dispatch(error, listenerClass);
+        }
+    }
+
+    /**
+     * @return how many errors were reported, since the bus was created or the count was reset
+     */
+    public
+    long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public
+    void resetErrorCount() {
+        errorCount.reset();
+    }
+
+    /**
+     * Handles the errors that are still queued, and stops the error handling thread (if errors are handled asynchronously)
+     */
+    public
+    void shutdown() {
+        final AsyncErrorPipeline pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    synchronized
+    void dispatch(PublicationError error) {
         if (!changedDefaults) {
             changedDefaults = true;
 
@@ -64,8 +194,8 @@ class ErrorHandler {
         }
     }
 
-    public synchronized
-    void handleError(final String error, final Class<?> listenerClass) {
+    synchronized
+    void dispatch(final String error, final Class<?> listenerClass) {
         if (!changedDefaults) {
             changedDefaults = true;
 
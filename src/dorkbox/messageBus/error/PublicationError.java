@@ -130,6 +130,13 @@ class PublicationError {
         return this;
     }
 
+    // used to reuse the same error for the asynchronous error handling
+    void set(final String message, final Throwable cause, final Object[] publishedObjects) {
+        this.message = message;
+        this.cause = cause;
+        this.publishedObjects = publishedObjects;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.filter;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import dorkbox.messageBus.annotations.Filter;
+import dorkbox.messageBus.util.ReflectionUtils;
+
+/**
+ * Compares a field of the message to a constant, or to a field of the listener.
+ * <p/>
+ * Everything that can be done ahead of time (finding the fields, converting the constant to the type of the field) is done when the
+ * filter is created, so that during publication only the field is read and compared. Primitive fields are read without boxing.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class FieldFilter implements IMessageFilter {
+
+    private static final int OBJECT = 0;
+    private static final int INTEGRAL = 1;
+    private static final int FLOATING = 2;
+    private static final int BOOLEAN = 3;
+    private static final int FLOAT = 4;
+
+    /**
+     * Compiles the filter configuration of a handler.
+     *
+     * @param listenerClass the class that declares the handler
+     * @param messageType the (first) message type of the handler
+     *
+     * @return null if there is no filter configured, otherwise the filter to check before invoking the handler
+     *
+     * @throws IllegalArgumentException if the filter configuration is not valid
+     */
+    public static
+    IMessageFilter compile(final Class<?> listenerClass, final Class<?> messageType, final Filter config) {
+        if (config == null) {
+            return null;
+        }
+
+        final String fieldName = config.field();
+        if (fieldName.isEmpty()) {
+            Class<? extends IMessageFilter> filterClass = config.value();
+            if (filterClass == IMessageFilter.class) {
+                throw new IllegalArgumentException("@Filter on a handler in " + listenerClass.getName() +
+                                                   " must specify either a filter class or a field");
+            }
+
+            try {
+                Constructor<? extends IMessageFilter> constructor = filterClass.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor.newInstance();
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Unable to create the message filter " + filterClass.getName() +
+                                                   ". It must have a no-arg constructor.", e);
+            }
+        }
+
+        final Field messageField = ReflectionUtils.getField(messageType, fieldName);
+        final String listenerFieldName = config.listenerField();
+
+        if (!listenerFieldName.isEmpty()) {
+            final Field listenerField = ReflectionUtils.getField(listenerClass, listenerFieldName);
+            if (wrap(listenerField.getType()) != wrap(messageField.getType())) {
+                throw new IllegalArgumentException("Unable to compare " + messageType.getName() + "." + fieldName + " to " +
+                                                   listenerClass.getName() + "." + listenerFieldName + ", the types are different.");
+            }
+            return new FieldFilter(messageField, listenerField, null, 0L, 0.0D, 0.0F, false);
+        }
+
+        final String constant = config.equals();
+        final Class<?> type = messageField.getType();
+        try {
+            switch (kind(type)) {
+                case INTEGRAL:
+                    if (type == char.class) {
+                        if (constant.length() != 1) {
+                            throw new IllegalArgumentException("'" + constant + "' is not a single character");
+                        }
+                        return new FieldFilter(messageField, null, null, constant.charAt(0), 0.0D, 0.0F, false);
+                    }
+                    return new FieldFilter(messageField, null, null, Long.parseLong(constant), 0.0D, 0.0F, false);
+                case FLOATING:
+                    return new FieldFilter(messageField, null, null, 0L, Double.parseDouble(constant), 0.0F, false);
+                case FLOAT:
+                    // parsed as a float, because a float field widened to a double does not equal the same constant parsed as a double
+                    return new FieldFilter(messageField, null, null, 0L, 0.0D, Float.parseFloat(constant), false);
+                case BOOLEAN:
+                    return new FieldFilter(messageField, null, null, 0L, 0.0D, 0.0F, Boolean.parseBoolean(constant));
+                default:
+                    return new FieldFilter(messageField, null, convert(type, constant), 0L, 0.0D, 0.0F, false);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unable to convert '" + constant + "' to the type of " + messageType.getName() + "." +
+                                               fieldName, e);
+        }
+    }
+
+    private static
+    int kind(final Class<?> type) {
+        if (type == long.class || type == int.class || type == short.class || type == byte.class || type == char.class) {
+            return INTEGRAL;
+        }
+        if (type == double.class) {
+            return FLOATING;
+        }
+        if (type == float.class) {
+            return FLOAT;
+        }
+        if (type == boolean.class) {
+            return BOOLEAN;
+        }
+        return OBJECT;
+    }
+
+    private static
+    Class<?> wrap(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == long.class) return Long.class;
+        if (type == int.class) return Integer.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == char.class) return Character.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        return Boolean.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static
+    Object convert(final Class<?> type, final String constant) {
+        if (type == String.class || type == Object.class || type == CharSequence.class) {
+            return constant;
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, constant);
+        }
+        if (type == Character.class && constant.length() == 1) {
+            return constant.charAt(0);
+        }
+
+        // Integer, Long, Double, BigDecimal, etc...
+        try {
+            Method valueOf = type.getMethod("valueOf", String.class);
+            if (type.isAssignableFrom(valueOf.getReturnType())) {
+                return valueOf.invoke(null, constant);
+            }
+        } catch (NoSuchMethodException ignored) {
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unable to convert '" + constant + "' to " + type.getName(), e);
+        }
+
+        try {
+            return type.getConstructor(String.class).newInstance(constant);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unable to convert '" + constant + "' to " + type.getName(), e);
+        }
+    }
+
+
+    private final Field messageField;
+    private final Field listenerField;
+    private final int kind;
+
+    private final Object objectValue;
+    private final long longValue;
+    private final double doubleValue;
+    private final float floatValue;
+    private final boolean booleanValue;
+
+    private
+    FieldFilter(final Field messageField, final Field listenerField,
+                final Object objectValue, final long longValue, final double doubleValue, final float floatValue, final boolean booleanValue) {
+        this.messageField = messageField;
+        this.listenerField = listenerField;
+        this.kind = kind(messageField.getType());
+
+        this.objectValue = objectValue;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.floatValue = floatValue;
+        this.booleanValue = booleanValue;
+    }
+
+    @Override
+    public
+    boolean accepts(final Object listener, final Object message) {
+        final Field messageField = this.messageField;
+        final Field listenerField = this.listenerField;
+
+        try {
+            switch (this.kind) {
+                case INTEGRAL:
+                    if (listenerField != null) {
+                        return messageField.getLong(message) == listenerField.getLong(listener);
+                    }
+                    return messageField.getLong(message) == this.longValue;
+
+                case FLOATING:
+                    if (listenerField != null) {
+                        return messageField.getDouble(message) == listenerField.getDouble(listener);
+                    }
+                    return messageField.getDouble(message) == this.doubleValue;
+
+                case FLOAT:
+                    if (listenerField != null) {
+                        return messageField.getFloat(message) == listenerField.getFloat(listener);
+                    }
+                    return messageField.getFloat(message) == this.floatValue;
+
+                case BOOLEAN:
+                    if (listenerField != null) {
+                        return messageField.getBoolean(message) == listenerField.getBoolean(listener);
+                    }
+                    return messageField.getBoolean(message) == this.booleanValue;
+
+                default:
+                    final Object value = messageField.get(message);
+                    if (listenerField != null) {
+                        final Object expected = listenerField.get(listener);
+                        return value == null ? expected == null : value.equals(expected);
+                    }
+                    return this.objectValue.equals(value);
+            }
+        } catch (IllegalAccessException e) {
+            // not possible, the fields are accessible
+            return false;
+        }
+    }
+}
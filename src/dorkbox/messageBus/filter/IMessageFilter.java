@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.filter;
+
+/**
+ * Decides if a message is delivered to a handler annotated with {@link dorkbox.messageBus.annotations.Filter}.
+ * <p/>
+ * A single instance is created per handler, and it is called concurrently by every publishing thread, so it must be thread safe.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+interface IMessageFilter {
+    /**
+     * @return true if the message should be delivered to the listener
+     */
+    boolean accepts(Object listener, Object message);
+}
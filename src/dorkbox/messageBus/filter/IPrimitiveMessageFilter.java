@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.filter;
+
+/**
+ * A filter for handlers with a single int, long or double parameter, which checks the message without boxing it. The handlers of a
+ * primitive type use a filter that only implements {@link IMessageFilter} with the boxed message.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+interface IPrimitiveMessageFilter extends IMessageFilter {
+    /**
+     * @return true if the message should be delivered to the listener
+     */
+    boolean accepts(Object listener, int message);
+
+    /**
+     * @return true if the message should be delivered to the listener
+     */
+    boolean accepts(Object listener, long message);
+
+    /**
+     * @return true if the message should be delivered to the listener
+     */
+    boolean accepts(Object listener, double message);
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A message that was published, but did not have any handlers. This is an instant event, so it does not have a duration and the
+ * threshold is 0 (every dead message is recorded when the event is enabled).
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@Name("dorkbox.messageBus.DeadMessage")
+@Label("Dead Message")
+@Category("MessageBus")
+@Description("A message that did not have any handlers")
+@Threshold("0 ns")
+final
+class DeadMessageEvent extends Event {
+    @Label("Message Type")
+    @Description("The class of the (first) message")
+    Class<?> messageType;
+
+    @Label("Arity")
+    @Description("How many messages were published together")
+    int arity;
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.jfr;
+
+import java.lang.reflect.Method;
+
+/**
+ * Records the JFR events of the bus. This is the only class that the rest of the bus uses, and it does not link against jdk.jfr
+ * (the events are passed around as Object), so the bus still loads on a runtime without JFR (Android, or Java 8 before u262). The
+ * events are then never recorded.
+ * <p>
+ * Each event type is checked (via it's cached EventType) before the event is created, so nothing is allocated when the event is not
+ * enabled in a running recording.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class FlightRecorder {
+
+    /**
+     * True when the JFR API is available, this is checked once.
+     */
+    public static final boolean AVAILABLE = isAvailable();
+
+    private static
+    boolean isAvailable() {
+        try {
+            // initializing the events also looks up their event types
+            Class.forName("dorkbox.messageBus.jfr.FlightRecorderEvents");
+            return true;
+        } catch (Throwable ignored) {
+            return false;
+        }
+    }
+
+    private
+    FlightRecorder() {
+    }
+
+    /**
+     * @return a started publish event, or null if it is not enabled
+     */
+    public static
+    Object beginPublish() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        return FlightRecorderEvents.beginPublish();
+    }
+
+    public static
+    void endPublish(final Object event, final Class<?> messageType, final int arity, final boolean async) {
+        FlightRecorderEvents.endPublish(event, messageType, arity, async);
+    }
+
+    /**
+     * @return a started handler invocation event, or null if it is not enabled
+     */
+    public static
+    Object beginHandlerInvocation() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        return FlightRecorderEvents.beginHandlerInvocation();
+    }
+
+    public static
+    void endHandlerInvocation(final Object event, final Object listener, final Method method) {
+        FlightRecorderEvents.endHandlerInvocation(event, listener, method);
+    }
+
+    /**
+     * @return a started queue wait event, or null if it is not enabled
+     */
+    public static
+    Object beginQueueWait() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        return FlightRecorderEvents.beginQueueWait();
+    }
+
+    public static
+    void endQueueWait(final Object event, final Class<?> messageType) {
+        FlightRecorderEvents.endQueueWait(event, messageType);
+    }
+
+    /**
+     * @return a started ring buffer full event, or null if it is not enabled
+     */
+    public static
+    Object beginRingFull() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        return FlightRecorderEvents.beginRingFull();
+    }
+
+    public static
+    void endRingFull(final Object event, final int capacity) {
+        FlightRecorderEvents.endRingFull(event, capacity);
+    }
+
+    /**
+     * Records a message that did not have any handlers, if the event is enabled
+     */
+    public static
+    void deadMessage(final Class<?> messageType, final int arity) {
+        if (AVAILABLE) {
+            FlightRecorderEvents.deadMessage(messageType, arity);
+        }
+    }
+}
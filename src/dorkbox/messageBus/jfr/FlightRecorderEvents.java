@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.jfr;
+
+import java.lang.reflect.Method;
+
+import jdk.jfr.EventType;
+
+/**
+ * Holds the event types, and is only used (via FlightRecorder) when the JFR API is available.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+final
+class FlightRecorderEvents {
+
+    private static final EventType PUBLISH = EventType.getEventType(PublishEvent.class);
+    private static final EventType HANDLER_INVOCATION = EventType.getEventType(HandlerInvocationEvent.class);
+    private static final EventType QUEUE_WAIT = EventType.getEventType(QueueWaitEvent.class);
+    private static final EventType RING_FULL = EventType.getEventType(RingFullEvent.class);
+    private static final EventType DEAD_MESSAGE = EventType.getEventType(DeadMessageEvent.class);
+
+    private
+    FlightRecorderEvents() {
+    }
+
+    static
+    Object beginPublish() {
+        if (!PUBLISH.isEnabled()) {
+            return null;
+        }
+
+        final PublishEvent event = new PublishEvent();
+        event.begin();
+        return event;
+    }
+
+    static
+    void endPublish(final Object event, final Class<?> messageType, final int arity, final boolean async) {
+        ((PublishEvent) event).end(messageType, arity, async);
+    }
+
+    static
+    Object beginHandlerInvocation() {
+        if (!HANDLER_INVOCATION.isEnabled()) {
+            return null;
+        }
+
+        final HandlerInvocationEvent event = new HandlerInvocationEvent();
+        event.begin();
+        return event;
+    }
+
+    static
+    void endHandlerInvocation(final Object event, final Object listener, final Method method) {
+        ((HandlerInvocationEvent) event).end(listener, method);
+    }
+
+    static
+    Object beginQueueWait() {
+        if (!QUEUE_WAIT.isEnabled()) {
+            return null;
+        }
+
+        final QueueWaitEvent event = new QueueWaitEvent();
+        event.begin();
+        return event;
+    }
+
+    static
+    void endQueueWait(final Object event, final Class<?> messageType) {
+        ((QueueWaitEvent) event).end(messageType);
+    }
+
+    static
+    Object beginRingFull() {
+        if (!RING_FULL.isEnabled()) {
+            return null;
+        }
+
+        final RingFullEvent event = new RingFullEvent();
+        event.begin();
+        return event;
+    }
+
+    static
+    void endRingFull(final Object event, final int capacity) {
+        ((RingFullEvent) event).end(capacity);
+    }
+
+    static
+    void deadMessage(final Class<?> messageType, final int arity) {
+        if (DEAD_MESSAGE.isEnabled()) {
+            final DeadMessageEvent event = new DeadMessageEvent();
+            event.messageType = messageType;
+            event.arity = arity;
+            event.commit();
+        }
+    }
+}
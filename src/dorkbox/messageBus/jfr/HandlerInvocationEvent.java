@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.jfr;
+
+import java.lang.reflect.Method;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A message handler that was invoked, so that slow handlers have a name instead of only showing up as a MethodAccess frame
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@Name("dorkbox.messageBus.HandlerInvocation")
+@Label("Handler Invocation")
+@Category("MessageBus")
+@Description("A message handler that was invoked")
+@StackTrace(false)
+@Threshold("10 ms")
+final
+class HandlerInvocationEvent extends Event {
+    @Label("Listener Class")
+    Class<?> listenerClass;
+
+    @Label("Method")
+    String method;
+
+    /**
+     * Commits the event if it is enabled, and took longer than the threshold
+     */
+    void end(final Object listener, final Method method) {
+        end();
+        if (shouldCommit()) {
+            this.listenerClass = listener.getClass();
+            this.method = method.getName();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A message that was published. For a synchronous publication, this is how long it took to dispatch the message to all of the
+ * handlers. For an asynchronous publication, this is how long it took to queue the message.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@Name("dorkbox.messageBus.Publish")
+@Label("Publish")
+@Category("MessageBus")
+@Description("A message that was published")
+@StackTrace(false)
+@Threshold("10 ms")
+final
+class PublishEvent extends Event {
+    @Label("Message Type")
+    @Description("The class of the (first) message")
+    Class<?> messageType;
+
+    @Label("Arity")
+    @Description("How many messages were published together")
+    int arity;
+
+    @Label("Asynchronous")
+    boolean async;
+
+    /**
+     * Commits the event if it is enabled, and took longer than the threshold
+     */
+    void end(final Class<?> messageType, final int arity, final boolean async) {
+        end();
+        if (shouldCommit()) {
+            this.messageType = messageType;
+            this.arity = arity;
+            this.async = async;
+            commit();
+        }
+    }
+}
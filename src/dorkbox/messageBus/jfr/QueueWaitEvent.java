@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * How long an asynchronous message waited in the queue, from when it was queued until a worker started to dispatch it. The event is
+ * started by the publishing thread, and committed by the worker thread.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@Name("dorkbox.messageBus.QueueWait")
+@Label("Queue Wait")
+@Category("MessageBus")
+@Description("How long an asynchronous message waited to be dispatched")
+@StackTrace(false)
+@Threshold("10 ms")
+final
+class QueueWaitEvent extends Event {
+    @Label("Message Type")
+    @Description("The class of the (first) message that was queued")
+    Class<?> messageType;
+
+    /**
+     * Commits the event if it waited longer than the threshold
+     */
+    void end(final Class<?> messageType) {
+        end();
+        if (shouldCommit()) {
+            this.messageType = messageType;
+            commit();
+        }
+    }
+}
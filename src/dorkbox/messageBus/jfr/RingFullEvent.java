@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A publishing thread that had to wait, because the ring buffer for asynchronous messages was full. The stack trace is of the publisher.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@Name("dorkbox.messageBus.RingFull")
+@Label("Ring Buffer Full")
+@Category("MessageBus")
+@Description("A publisher waited for space in the ring buffer")
+@Threshold("1 ms")
+final
+class RingFullEvent extends Event {
+    @Label("Capacity")
+    @Description("The size of the ring buffer")
+    int capacity;
+
+    /**
+     * Commits the event if it is enabled, and the publisher waited longer than the threshold
+     */
+    void end(final int capacity) {
+        end();
+        if (shouldCommit()) {
+            this.capacity = capacity;
+            commit();
+        }
+    }
+}
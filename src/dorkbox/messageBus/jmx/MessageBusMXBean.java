@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.jmx;
+
+import java.util.Map;
+
+/**
+ * The live state of a message bus, registered (per bus) as "dorkbox.messageBus:type=MessageBus,name=..." when
+ * MessageBus.registerMBeans is true.
+ * <p>
+ * Every attribute is a lock-free read, so reading them does not slow down subscribing or publishing. The ring buffer attributes are
+ * only available when the disruptor (without shards) is used for asynchronous messages, otherwise they are -1 (or empty).
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+interface MessageBusMXBean {
+
+    /**
+     * @return the class that dispatches the asynchronous messages
+     */
+    String getAsyncType();
+
+    /**
+     * @return how many messages the ring buffer can hold
+     */
+    int getRingBufferSize();
+
+    /**
+     * @return the sequence of the last message that was claimed by a publisher
+     */
+    long getRingBufferCursor();
+
+    /**
+     * @return how many messages can be published before the publishers have to wait
+     */
+    long getRemainingCapacity();
+
+    /**
+     * @return how many asynchronous messages were queued, but have not finished processing
+     */
+    long getPendingCount();
+
+    /**
+     * @return the sequence that each worker is processing, or -1 for a worker that has not been started
+     */
+    long[] getWorkerSequences();
+
+    /**
+     * @return the state of the thread of each worker
+     */
+    String[] getWorkerThreadStates();
+
+    /**
+     * @return the message type(s) of the handlers, and how many subscriptions (with listeners) there are for them
+     */
+    Map<String, Integer> getSubscriptionsPerMessageType();
+
+    /**
+     * @return each subscription (listener class and handler), and how many listeners are subscribed to it
+     */
+    Map<String, Integer> getListenersPerSubscription();
+
+    /**
+     * @return how many listeners (weak references) were removed because they were garbage collected
+     */
+    long getWeakReferencesReaped();
+
+    /**
+     * @return how many errors were reported to the error handlers
+     */
+    long getErrorCount();
+
+    /**
+     * Removes the listeners that were garbage collected, instead of waiting for a publication to find them.
+     *
+     * @return how many listeners were removed
+     */
+    int compact();
+
+    /**
+     * Resets the weak references reaped and the error count to 0
+     */
+    void resetStatistics();
+}
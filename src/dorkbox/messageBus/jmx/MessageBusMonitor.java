@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.jmx;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.subscription.SubscriptionManager;
+import dorkbox.messageBus.synchrony.AsyncDisruptor;
+import dorkbox.messageBus.synchrony.Synchrony;
+
+/**
+ * Exposes the state of a message bus via JMX
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class MessageBusMonitor implements MessageBusMXBean {
+
+    private final Synchrony async;
+    private final SubscriptionManager subscriptionManager;
+    private final ErrorHandler errorHandler;
+
+    // the disruptor, or null if a different synchrony is used
+    private final AsyncDisruptor disruptor;
+
+    public
+    MessageBusMonitor(final Synchrony async, final SubscriptionManager subscriptionManager, final ErrorHandler errorHandler) {
+        this.async = async;
+        this.subscriptionManager = subscriptionManager;
+        this.errorHandler = errorHandler;
+        this.disruptor = async instanceof AsyncDisruptor ? (AsyncDisruptor) async : null;
+    }
+
+    /**
+     * Registers the monitor with the platform MBean server
+     */
+    public
+    void register(final ObjectName name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+    }
+
+    /**
+     * Removes the monitor from the platform MBean server
+     */
+    public static
+    void unregister(final ObjectName name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+
+    private static
+    String getTypes(final Class<?>[] types) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(types[i].getName());
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public
+    String getAsyncType() {
+        return async.getClass().getSimpleName();
+    }
+
+    @Override
+    public
+    int getRingBufferSize() {
+        final AsyncDisruptor disruptor = this.disruptor;
+        return disruptor == null ? -1 : disruptor.getBufferSize();
+    }
+
+    @Override
+    public
+    long getRingBufferCursor() {
+        final AsyncDisruptor disruptor = this.disruptor;
+        return disruptor == null ? -1L : disruptor.getCursor();
+    }
+
+    @Override
+    public
+    long getRemainingCapacity() {
+        final AsyncDisruptor disruptor = this.disruptor;
+        return disruptor == null ? -1L : disruptor.getRemainingCapacity();
+    }
+
+    @Override
+    public
+    long getPendingCount() {
+        final AsyncDisruptor disruptor = this.disruptor;
+        if (disruptor == null) {
+            // the other synchronies only know if there are pending messages
+            return async.hasPendingMessages() ? 1L : 0L;
+        }
+        return disruptor.getPendingCount();
+    }
+
+    @Override
+    public
+    long[] getWorkerSequences() {
+        final AsyncDisruptor disruptor = this.disruptor;
+        return disruptor == null ? new long[0] : disruptor.getWorkerSequences();
+    }
+
+    @Override
+    public
+    String[] getWorkerThreadStates() {
+        final AsyncDisruptor disruptor = this.disruptor;
+        if (disruptor == null) {
+            return new String[0];
+        }
+
+        final Thread.State[] states = disruptor.getWorkerStates();
+        final String[] names = new String[states.length];
+        for (int i = 0; i < states.length; i++) {
+            names[i] = states[i].name();
+        }
+        return names;
+    }
+
+    @Override
+    public
+    Map<String, Integer> getSubscriptionsPerMessageType() {
+        final Map<String, Integer> subscriptionsPerType = new TreeMap<String, Integer>();
+
+        for (Subscription subscription : subscriptionManager.getSubscriptions()) {
+            if (!subscription.hasListeners()) {
+                continue;
+            }
+
+            final String types = getTypes(subscription.getHandler().getHandledMessages());
+            final Integer count = subscriptionsPerType.get(types);
+            subscriptionsPerType.put(types, count == null ? 1 : count + 1);
+        }
+
+        return subscriptionsPerType;
+    }
+
+    @Override
+    public
+    Map<String, Integer> getListenersPerSubscription() {
+        final Map<String, Integer> listenersPerSubscription = new TreeMap<String, Integer>();
+
+        for (Subscription subscription : subscriptionManager.getSubscriptions()) {
+            final String name = subscription.getListenerClass().getName() + "." + subscription.getHandler().getMethod().getName() +
+                                "(" + getTypes(subscription.getHandler().getHandledMessages()) + ")";
+
+            // listeners that are subscribed to specific message types each have their own subscription (with the same name)
+            final Integer count = listenersPerSubscription.get(name);
+            final int listenerCount = subscription.getListenerCount();
+            listenersPerSubscription.put(name, count == null ? listenerCount : count + listenerCount);
+        }
+
+        return listenersPerSubscription;
+    }
+
+    @Override
+    public
+    long getWeakReferencesReaped() {
+        long count = 0L;
+        for (Subscription subscription : subscriptionManager.getSubscriptions()) {
+            count += subscription.getReapedCount();
+        }
+        return count;
+    }
+
+    @Override
+    public
+    long getErrorCount() {
+        return errorHandler.getErrorCount();
+    }
+
+    @Override
+    public
+    int compact() {
+        return subscriptionManager.compact();
+    }
+
+    @Override
+    public
+    void resetStatistics() {
+        for (Subscription subscription : subscriptionManager.getSubscriptions()) {
+            subscription.resetReapedCount();
+        }
+        errorHandler.resetErrorCount();
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.journal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dorkbox.messageBus.synchrony.disruptor.MessageType;
+
+/**
+ * A segmented, append-only log of messages, where each segment is a memory-mapped file.
+ * <p>
+ * Because the entries are written to memory-mapped files, they are kept by the operating system when the JVM dies. To also survive a
+ * crash of the operating system (or a power failure), the segment is flushed to disk once 'flushBatchSize' entries have been written,
+ * and the flush thread flushes the remaining entries every 'flushIntervalMillis'. This is a group commit, so many entries share the
+ * cost of one flush.
+ * <p>
+ * Entries are acknowledged (in-place) once they have been dispatched. When the journal is opened, the entries of the previous run that
+ * were never acknowledged can be recovered, and segments that only have acknowledged entries are deleted.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class Journal {
+    private static final String EXTENSION = ".journal";
+
+    private final File directory;
+    private final MessageCodec codec;
+    private final int segmentSize;
+    private final int flushBatchSize;
+    private final boolean retain;
+
+    // the segments from the previous run that have un-acknowledged entries
+    private final List<Segment> recovered = new ArrayList<Segment>();
+
+    private Segment active;
+    private long sequence = 0L;
+    private final AtomicInteger unflushed = new AtomicInteger(0);
+    private boolean closed = false;
+
+    private final Thread flusher;
+
+    /**
+     * @param directory where the segment files are kept. Existing segment files are opened (for recovery).
+     * @param codec converts the messages to and from bytes
+     * @param segmentSize the size of each segment file, which is also the max size of an entry
+     * @param flushBatchSize how many entries are written before the segment is flushed to disk (1 flushes every entry)
+     * @param flushIntervalMillis how often the flush thread flushes the segment (0 disables the flush thread)
+     */
+    public
+    Journal(final File directory, final MessageCodec codec, final int segmentSize, final int flushBatchSize,
+            final long flushIntervalMillis) throws IOException {
+        this(directory, codec, segmentSize, flushBatchSize, flushIntervalMillis, false);
+    }
+
+    /**
+     * @param directory where the segment files are kept. Existing segment files are opened (for recovery).
+     * @param codec converts the messages to and from bytes
+     * @param segmentSize the size of each segment file, which is also the max size of an entry
+     * @param flushBatchSize how many entries are written before the segment is flushed to disk (1 flushes every entry)
+     * @param flushIntervalMillis how often the flush thread flushes the segment (0 disables the flush thread)
+     * @param retain if the segment files are kept once every entry is acknowledged, so they can be replayed (the directory grows
+     *               without bound)
+     */
+    public
+    Journal(final File directory, final MessageCodec codec, final int segmentSize, final int flushBatchSize,
+            final long flushIntervalMillis, final boolean retain) throws IOException {
+
+        if (segmentSize <= Segment.HEADER_SIZE) {
+            throw new IllegalArgumentException("The segment size must be larger than " + Segment.HEADER_SIZE);
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the journal directory " + directory);
+        }
+
+        this.directory = directory;
+        this.codec = codec;
+        this.segmentSize = segmentSize;
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+        this.retain = retain;
+
+        long nextIndex = 0L;
+        for (File file : segmentFiles(directory)) {
+            final Segment segment = new Segment(file, indexOf(file), 0, retain);
+            scan(segment);
+
+            nextIndex = segment.index + 1;
+
+            if (segment.pending.get() > 0) {
+                recovered.add(segment);
+            }
+
+            // deletes the file if every entry was already acknowledged
+            segment.seal();
+        }
+
+        active = new Segment(segmentFile(nextIndex), nextIndex, segmentSize, retain);
+
+        if (flushIntervalMillis > 0L) {
+            flusher = new Thread(new Runnable() {
+                @Override
+                public
+                void run() {
+                    final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+
+                    while (!Thread.currentThread().isInterrupted()) {
+                        try {
+                            TimeUnit.NANOSECONDS.sleep(intervalNanos);
+                        } catch (InterruptedException ignored) {
+                            return;
+                        }
+
+                        flush();
+                    }
+                }
+            }, "MessageBus-Journal");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+        else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * @return the segment files (sorted by their index) in the directory
+     */
+    static
+    File[] segmentFiles(final File directory) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public
+            boolean accept(final File dir, final String name) {
+                return name.endsWith(EXTENSION);
+            }
+        });
+
+        if (files == null) {
+            return new File[0];
+        }
+
+        // the names are zero-padded, so they sort by their index
+        Arrays.sort(files);
+        return files;
+    }
+
+    static
+    long indexOf(final File file) {
+        final String name = file.getName();
+        return Long.parseLong(name.substring(0, name.length() - EXTENSION.length()));
+    }
+
+    private
+    File segmentFile(final long index) {
+        return new File(directory, String.format("%016d", index) + EXTENSION);
+    }
+
+    /**
+     * Finds the end of the segment, the last sequence, and how many entries are not acknowledged
+     */
+    private
+    void scan(final Segment segment) {
+        final ByteBuffer view = segment.buffer.duplicate();
+
+        int offset = 0;
+        int length;
+        while ((length = nextLength(view, offset, segment.size)) > 0) {
+            if (Segment.isPending(view, offset)) {
+                segment.pending.incrementAndGet();
+            }
+
+            sequence = view.getLong(offset + Segment.SEQUENCE) + 1;
+            offset += Segment.HEADER_SIZE + length;
+        }
+
+        segment.position = offset;
+    }
+
+    /**
+     * @return the length of the payload of the entry at the offset, or 0 if there is no (complete) entry
+     */
+    static
+    int nextLength(final ByteBuffer view, final int offset, final int size) {
+        if (offset + Segment.HEADER_SIZE > size) {
+            return 0;
+        }
+
+        final int length = view.getInt(offset + Segment.LENGTH);
+        if (length <= 0 || offset + Segment.HEADER_SIZE + length > size) {
+            return 0;
+        }
+
+        return length;
+    }
+
+    /**
+     * Writes the message(s) to the journal. Once this returns, the entry is kept if the JVM dies.
+     * <p>
+     * The message(s) are encoded (and written) by the calling thread, the lock is only held to reserve the space of the entry.
+     *
+     * @param type one of the MessageType values (ONE, TWO, THREE, INT, LONG or DOUBLE)
+     *
+     * @return the entry, which must be acknowledged once it has been dispatched
+     */
+    @SuppressWarnings("fallthrough")
+    public
+    JournalEntry append(final int type, final Object message1, final Object message2, final Object message3, final long primitive) {
+        byte[] bytes1 = null;
+        byte[] bytes2 = null;
+        byte[] bytes3 = null;
+        int length;
+
+        switch (type) {
+            case MessageType.THREE:
+                bytes3 = codec.encode(message3);
+                // fall through
+            case MessageType.TWO:
+                bytes2 = codec.encode(message2);
+                // fall through
+            case MessageType.ONE:
+                bytes1 = codec.encode(message1);
+                length = 4 + bytes1.length + (bytes2 == null ? 0 : 4 + bytes2.length) + (bytes3 == null ? 0 : 4 + bytes3.length);
+                break;
+
+            case MessageType.INT:
+            case MessageType.LONG:
+            case MessageType.DOUBLE:
+                length = 8;
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown message type " + type);
+        }
+
+        if (Segment.HEADER_SIZE + length > segmentSize) {
+            throw new IllegalArgumentException("The message (" + length + " bytes) is larger than the journal segment size");
+        }
+
+        final Segment segment;
+        final int offset;
+        final long sequence;
+
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The journal is closed");
+            }
+
+            Segment active = this.active;
+            if (active.position + Segment.HEADER_SIZE + length > active.size) {
+                active = roll();
+            }
+
+            segment = active;
+            offset = segment.position;
+            sequence = this.sequence++;
+
+            // the length and sequence are written while reserving, so the next entries can be found before this one is written
+            segment.buffer.putLong(offset + Segment.SEQUENCE, sequence);
+            segment.buffer.putInt(offset + Segment.LENGTH, length);
+
+            segment.position = offset + Segment.HEADER_SIZE + length;
+            segment.pending.incrementAndGet();
+        }
+
+        final long timestamp = System.currentTimeMillis();
+        final ByteBuffer buffer = segment.buffer.duplicate();
+
+        buffer.put(offset + Segment.TYPE, (byte) type);
+        buffer.putLong(offset + Segment.TIMESTAMP, timestamp);
+
+        buffer.position(offset + Segment.HEADER_SIZE);
+        if (bytes1 == null) {
+            buffer.putLong(primitive);
+        }
+        else {
+            put(buffer, bytes1);
+            put(buffer, bytes2);
+            put(buffer, bytes3);
+        }
+
+        // the state is written last, so the entry is only recovered once it is fully written
+        buffer.put(offset + Segment.STATE, Segment.PENDING);
+
+        // group commit. The segment might have been rolled while this entry was written, then it is flushed here
+        if (unflushed.incrementAndGet() >= flushBatchSize || segment.isSealed()) {
+            unflushed.set(0);
+            segment.force();
+        }
+
+        return new JournalEntry(segment, offset, sequence, timestamp, type, message1, message2, message3, primitive);
+    }
+
+    private static
+    void put(final ByteBuffer buffer, final byte[] bytes) {
+        if (bytes != null) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private
+    Segment roll() {
+        final Segment previous = active;
+        previous.force();
+        unflushed.set(0);
+
+        final long index = previous.index + 1;
+        try {
+            active = new Segment(segmentFile(index), index, segmentSize, retain);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create the journal segment " + segmentFile(index), e);
+        }
+
+        previous.seal();
+        return active;
+    }
+
+    /**
+     * Marks the entry as dispatched, so it is not recovered when the journal is opened again. This is lock-free.
+     */
+    public
+    void ack(final JournalEntry entry) {
+        entry.segment.ack(entry.offset);
+    }
+
+    /**
+     * Flushes the entries that have not been flushed to disk yet.
+     */
+    public synchronized
+    void flush() {
+        if (unflushed.getAndSet(0) > 0 && !closed) {
+            active.force();
+        }
+    }
+
+    /**
+     * Returns the entries of the previous run that were not acknowledged, in the order they were written. The entries are read from
+     * the segments as they are iterated, and can only be recovered once.
+     */
+    public synchronized
+    Iterator<JournalEntry> recover() {
+        final List<Segment> segments = new ArrayList<Segment>(recovered);
+        recovered.clear();
+
+        return new Iterator<JournalEntry>() {
+            private int segmentIndex = 0;
+            private ByteBuffer view = null;
+            private int offset = 0;
+
+            @Override
+            public
+            boolean hasNext() {
+                while (segmentIndex < segments.size()) {
+                    final Segment segment = segments.get(segmentIndex);
+                    if (view == null) {
+                        view = segment.buffer.duplicate();
+                        offset = 0;
+                    }
+
+                    int length;
+                    while ((length = nextLength(view, offset, segment.size)) > 0) {
+                        if (Segment.isPending(view, offset)) {
+                            return true;
+                        }
+                        offset += Segment.HEADER_SIZE + length;
+                    }
+
+                    segmentIndex++;
+                    view = null;
+                }
+
+                return false;
+            }
+
+            @Override
+            public
+            JournalEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final Segment segment = segments.get(segmentIndex);
+                final int entryOffset = offset;
+                offset += Segment.HEADER_SIZE + nextLength(view, entryOffset, segment.size);
+
+                try {
+                    return read(codec, segment, view, entryOffset);
+                } catch (RuntimeException e) {
+                    // the entry cannot be decoded, so it is skipped from now on
+                    segment.ack(entryOffset);
+                    throw e;
+                }
+            }
+
+            @Override
+            public
+            void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Decodes the entry at the offset, changing the position of the view
+     */
+    static
+    JournalEntry read(final MessageCodec codec, final Segment segment, final ByteBuffer view, final int offset) {
+        final int type = view.get(offset + Segment.TYPE);
+        final long sequence = view.getLong(offset + Segment.SEQUENCE);
+        final long timestamp = view.getLong(offset + Segment.TIMESTAMP);
+
+        final int payload = offset + Segment.HEADER_SIZE;
+        view.position(payload);
+
+        switch (type) {
+            case MessageType.ONE:
+                return new JournalEntry(segment, offset, sequence, timestamp, type, get(codec, view), null, null, 0L);
+            case MessageType.TWO: {
+                final Object message1 = get(codec, view);
+                return new JournalEntry(segment, offset, sequence, timestamp, type, message1, get(codec, view), null, 0L);
+            }
+            case MessageType.THREE: {
+                final Object message1 = get(codec, view);
+                final Object message2 = get(codec, view);
+                return new JournalEntry(segment, offset, sequence, timestamp, type, message1, message2, get(codec, view), 0L);
+            }
+            default:
+                return new JournalEntry(segment, offset, sequence, timestamp, type, null, null, null, view.getLong(payload));
+        }
+    }
+
+    private static
+    Object get(final MessageCodec codec, final ByteBuffer view) {
+        final byte[] bytes = new byte[view.getInt()];
+        view.get(bytes);
+        return codec.decode(bytes);
+    }
+
+    /**
+     * Flushes and closes the journal. Segments that still have un-acknowledged entries are kept, so they can be recovered.
+     */
+    public
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            active.force();
+            closed = true;
+
+            active.seal();
+            active.close();
+
+            for (Segment segment : recovered) {
+                segment.close();
+            }
+            recovered.clear();
+        }
+
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
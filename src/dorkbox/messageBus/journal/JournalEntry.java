@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.journal;
+
+import dorkbox.messageBus.dispatch.Dispatch;
+import dorkbox.messageBus.synchrony.MessageHolder;
+import dorkbox.messageBus.synchrony.disruptor.MessageType;
+
+/**
+ * A message that was written to the journal. The type is one of the MessageType values (ONE, TWO, THREE, INT, LONG or DOUBLE).
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class JournalEntry {
+    final Segment segment;
+    final int offset;
+
+    private final long sequence;
+    private final long timestamp;
+    private final int type;
+
+    private final Object message1;
+    private final Object message2;
+    private final Object message3;
+    private final long primitive;
+
+    JournalEntry(final Segment segment, final int offset, final long sequence, final long timestamp, final int type,
+                 final Object message1, final Object message2, final Object message3, final long primitive) {
+        this.segment = segment;
+        this.offset = offset;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.message1 = message1;
+        this.message2 = message2;
+        this.message3 = message3;
+        this.primitive = primitive;
+    }
+
+    /**
+     * @return the position of this entry in the journal. This always increases, and continues after the journal is reopened.
+     */
+    public
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the (wall clock) time in milliseconds when the entry was written
+     */
+    public
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    public
+    int getType() {
+        return type;
+    }
+
+    public
+    Object getMessage1() {
+        return message1;
+    }
+
+    public
+    Object getMessage2() {
+        return message2;
+    }
+
+    public
+    Object getMessage3() {
+        return message3;
+    }
+
+    /**
+     * @return the int, long or raw bits of the double, when the type is INT, LONG or DOUBLE
+     */
+    public
+    long getPrimitive() {
+        return primitive;
+    }
+
+    /**
+     * Publishes the message(s) of this entry to the dispatch
+     *
+     * @return how many handlers the message(s) were delivered to
+     */
+    public
+    int dispatch(final Dispatch dispatch) {
+        switch (type) {
+            case MessageType.ONE:
+                return dispatch.publish(message1);
+            case MessageType.TWO:
+                return dispatch.publish(message1, message2);
+            case MessageType.THREE:
+                return dispatch.publish(message1, message2, message3);
+            default:
+                return MessageHolder.publishPrimitive(dispatch, type, primitive);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import dorkbox.messageBus.dispatch.Dispatch;
+
+/**
+ * Replays the entries of a journal (in the order they were written) into a dispatch, for recovery or back-testing. The entries are not
+ * acknowledged.
+ * <p>
+ * The segments are read sequentially via memory-mapped files, and the next segment is loaded (by another thread) while the current one
+ * is replayed. Entries are decoded and dispatched in batches, so only one batch of messages is on the heap at a time.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class JournalReader {
+    private static final int BATCH_SIZE = 256;
+
+    private final MessageCodec codec;
+    private final File[] files;
+
+    /**
+     * @param directory where the segment files of the journal are kept
+     * @param codec converts the bytes back into messages, this must be compatible with the codec that wrote the journal
+     */
+    public
+    JournalReader(final File directory, final MessageCodec codec) throws IOException {
+        if (!directory.isDirectory()) {
+            throw new IOException("The journal directory " + directory + " does not exist");
+        }
+
+        this.codec = codec;
+        this.files = Journal.segmentFiles(directory);
+    }
+
+    private static
+    MappedByteBuffer map(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            // the mapping stays valid once the channel is closed
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * @return the sequence of the first entry of the segment, or Long.MAX_VALUE if it has no entries
+     */
+    private static
+    long firstSequence(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            if (randomAccessFile.length() < Segment.HEADER_SIZE) {
+                return Long.MAX_VALUE;
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(Segment.HEADER_SIZE);
+            randomAccessFile.getChannel().read(header, 0);
+
+            if (header.getInt(Segment.LENGTH) <= 0) {
+                return Long.MAX_VALUE;
+            }
+            return header.getLong(Segment.SEQUENCE);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * @return the index of the (last) segment whose first entry is at, or before, the sequence
+     */
+    private
+    int findSegment(final long sequence) throws IOException {
+        int low = 0;
+        int high = files.length - 1;
+        int found = 0;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (firstSequence(files[middle]) <= sequence) {
+                found = middle;
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Loads the pages of the segment into memory on another thread, so they are ready once the replay reaches them
+     */
+    private static
+    void readAhead(final MappedByteBuffer buffer) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public
+            void run() {
+                buffer.load();
+            }
+        }, "MessageBus-ReadAhead");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Publishes the entries from the 'from' sequence (inclusive) to the 'to' sequence (exclusive) to the dispatch, on this thread.
+     *
+     * @param speed 0 replays as fast as possible, 1.0 replays with the original timing between the entries, 2.0 twice as fast, etc.
+     */
+    public
+    ReplayResult replay(final Dispatch dispatch, final long fromSequence, final long toSequence, final double speed) throws IOException {
+        final long start = System.nanoTime();
+
+        if (files.length == 0 || fromSequence >= toSequence) {
+            return new ReplayResult(0L, 0L, 0L);
+        }
+
+        final JournalEntry[] batch = new JournalEntry[BATCH_SIZE];
+        int batchSize = 0;
+
+        long messages = 0L;
+        long bytes = 0L;
+        long firstTimestamp = -1L;
+
+        int index = findSegment(fromSequence);
+        MappedByteBuffer next = map(files[index]);
+
+        replay:
+        while (next != null) {
+            final ByteBuffer view = next;
+
+            index++;
+            if (index < files.length) {
+                next = map(files[index]);
+                readAhead(next);
+            }
+            else {
+                next = null;
+            }
+
+            final int size = view.capacity();
+            int offset = 0;
+            int length;
+            while ((length = Journal.nextLength(view, offset, size)) > 0) {
+                final long sequence = view.getLong(offset + Segment.SEQUENCE);
+
+                if (sequence >= toSequence) {
+                    break replay;
+                }
+
+                if (sequence >= fromSequence && Segment.isWritten(view, offset)) {
+                    batch[batchSize++] = Journal.read(codec, null, view, offset);
+                    bytes += Segment.HEADER_SIZE + length;
+
+                    if (batchSize == BATCH_SIZE) {
+                        firstTimestamp = dispatch(dispatch, batch, batchSize, speed, start, firstTimestamp);
+                        messages += batchSize;
+                        batchSize = 0;
+                    }
+                }
+
+                offset += Segment.HEADER_SIZE + length;
+            }
+        }
+
+        if (batchSize > 0) {
+            dispatch(dispatch, batch, batchSize, speed, start, firstTimestamp);
+            messages += batchSize;
+        }
+
+        return new ReplayResult(messages, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * @return the timestamp of the first replayed entry, which the timing of the other entries is relative to
+     */
+    private static
+    long dispatch(final Dispatch dispatch, final JournalEntry[] batch, final int batchSize, final double speed, final long start,
+                  long firstTimestamp) {
+
+        for (int i = 0; i < batchSize; i++) {
+            final JournalEntry entry = batch[i];
+            batch[i] = null;
+
+            if (speed > 0.0D) {
+                if (firstTimestamp == -1L) {
+                    firstTimestamp = entry.getTimestamp();
+                }
+
+                final long target = start + (long) (TimeUnit.MILLISECONDS.toNanos(entry.getTimestamp() - firstTimestamp) / speed);
+                long wait;
+                while ((wait = target - System.nanoTime()) > 0L) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+
+            entry.dispatch(dispatch);
+        }
+
+        return firstTimestamp;
+    }
+}
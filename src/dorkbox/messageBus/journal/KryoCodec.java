@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.journal;
+
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * The default codec for the journal. Classes do not have to be registered, and do not need a no-arg constructor. This is thread-safe.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+class KryoCodec implements MessageCodec {
+    // kryo is not thread-safe, so every thread has its own instance
+    private final ThreadLocal<Kryo> kryo = new ThreadLocal<Kryo>() {
+        @Override
+        protected
+        Kryo initialValue() {
+            return newKryo();
+        }
+    };
+
+    private final ThreadLocal<Output> output = new ThreadLocal<Output>() {
+        @Override
+        protected
+        Output initialValue() {
+            return new Output(1024, -1);
+        }
+    };
+
+    public
+    KryoCodec() {
+    }
+
+    /**
+     * Creates the kryo instance of a thread. Override this to configure kryo, for example to register the message classes.
+     */
+    protected
+    Kryo newKryo() {
+        final Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(false);
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        return kryo;
+    }
+
+    @Override
+    public
+    byte[] encode(final Object message) {
+        final Output output = this.output.get();
+        output.clear();
+        kryo.get().writeClassAndObject(output, message);
+        return output.toBytes();
+    }
+
+    @Override
+    public
+    Object decode(final byte[] bytes) {
+        return kryo.get().readClassAndObject(new Input(bytes));
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.journal;
+
+/**
+ * Converts messages to and from bytes, so they can be written to the journal.
+ * <p>
+ * The journal encodes the messages on the threads that publish them (without holding its lock), so a codec that is used by the
+ * journal must be thread-safe. The transports only use the codec while holding a lock.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+interface MessageCodec {
+    byte[] encode(Object message);
+
+    Object decode(byte[] bytes);
+}
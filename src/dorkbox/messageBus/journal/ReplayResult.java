@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.journal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many messages were replayed from a journal, and how fast.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class ReplayResult {
+    private final long messages;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    ReplayResult(final long messages, final long bytes, final long elapsedNanos) {
+        this.messages = messages;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public
+    long getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return the size of the replayed entries in the journal
+     */
+    public
+    long getBytes() {
+        return bytes;
+    }
+
+    public
+    long getElapsed(final TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public
+    double getMessagesPerSecond() {
+        return elapsedNanos == 0L ? 0.0D : messages * 1.0E9D / elapsedNanos;
+    }
+
+    public
+    double getBytesPerSecond() {
+        return elapsedNanos == 0L ? 0.0D : bytes * 1.0E9D / elapsedNanos;
+    }
+
+    @Override
+    public
+    String toString() {
+        return "Replayed " + messages + " messages (" + bytes + " bytes) in " + getElapsed(TimeUnit.MILLISECONDS) + "ms, " +
+               (long) getMessagesPerSecond() + " messages/s";
+    }
+}
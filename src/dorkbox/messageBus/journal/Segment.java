@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One memory-mapped file of the journal. Entries are only appended (the journal reserves the space while holding its lock, and the
+ * entry is written by the thread that appends it), and the state of an entry is changed in-place once it has been dispatched. Once the
+ * segment is sealed and every entry is acknowledged, the file is deleted (unless the segments are retained for replay).
+ * <p>
+ * Each entry is: [int length][byte state][byte type][2 bytes unused][long sequence][long timestamp][payload]. The length and sequence
+ * are written when the space is reserved, and the state is written last, so an entry that was only partially written when the JVM
+ * died is still WRITING, and is skipped.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+final
+class Segment {
+    static final int LENGTH = 0;
+    static final int STATE = 4;
+    static final int TYPE = 5;
+    static final int SEQUENCE = 8;
+    static final int TIMESTAMP = 16;
+    static final int HEADER_SIZE = 24;
+
+    // the file is zero-filled, so an entry is WRITING until its state is written
+    static final byte WRITING = 0;
+    static final byte PENDING = 1;
+    static final byte ACKED = 2;
+
+    final File file;
+    final long index;
+    final int size;
+    private final boolean retain;
+
+    // the position is only used by the journal (while holding its lock). Writers and readers use a duplicate.
+    final MappedByteBuffer buffer;
+    int position = 0;
+
+    // acks only do absolute writes, so they never change the position of the writer
+    private final ByteBuffer acks;
+    private final FileChannel channel;
+
+    final AtomicInteger pending = new AtomicInteger(0);
+    private volatile boolean sealed = false;
+    private final AtomicBoolean deleted = new AtomicBoolean(false);
+
+    /**
+     * @param size the size of a new segment, or 0 to use the size of an existing file
+     * @param retain if the file is kept once every entry is acknowledged (so it can be replayed)
+     */
+    Segment(final File file, final long index, int size, final boolean retain) throws IOException {
+        this.file = file;
+        this.index = index;
+        this.retain = retain;
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            if (size == 0) {
+                size = (int) randomAccessFile.length();
+            }
+            else {
+                randomAccessFile.setLength(size);
+            }
+
+            this.channel = randomAccessFile.getChannel();
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+
+        this.size = size;
+        this.acks = buffer.duplicate();
+    }
+
+    /**
+     * Marks the entry as dispatched, so it is skipped when the journal is recovered
+     */
+    void ack(final int offset) {
+        acks.put(offset + STATE, ACKED);
+
+        if (pending.decrementAndGet() == 0 && sealed) {
+            delete();
+        }
+    }
+
+    /**
+     * @return true if the entry was fully written, but not acknowledged yet
+     */
+    static
+    boolean isPending(final ByteBuffer view, final int offset) {
+        return view.get(offset + STATE) == PENDING;
+    }
+
+    /**
+     * @return true if the entry was fully written (acknowledged or not)
+     */
+    static
+    boolean isWritten(final ByteBuffer view, final int offset) {
+        return view.get(offset + STATE) != WRITING;
+    }
+
+    /**
+     * No more entries will be appended. The file is deleted once every entry is acknowledged (unless it is retained).
+     */
+    void seal() {
+        sealed = true;
+
+        if (pending.get() == 0) {
+            delete();
+        }
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    void force() {
+        if (!deleted.get()) {
+            buffer.force();
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private
+    void delete() {
+        if (deleted.compareAndSet(false, true)) {
+            close();
+
+            if (!retain) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of (positive) long values, such as durations in nanoseconds.
+ * <p>
+ * Values below 16 have their own bucket, larger values are in one of 8 buckets per power of 2, so a recorded value is accurate to
+ * within 12.5%. Recording a value does not allocate or lock.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR = SUB_BUCKETS * 2;
+
+    // 16 linear buckets, then 8 buckets for each power of 2 from 2^4 to 2^62
+    static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong(0L);
+
+    public
+    Histogram() {
+    }
+
+    static
+    int bucket(final long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the largest value that is in the bucket
+     */
+    static
+    long highestValue(final int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+
+        final int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        final int subBucket = (bucket - LINEAR) % SUB_BUCKETS;
+        final long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+
+    /**
+     * Records a value, negative values are recorded as 0
+     */
+    public
+    void record(long value) {
+        if (value < 0L) {
+            value = 0L;
+        }
+
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+
+        long current = max.get();
+        while (value > current) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return a copy of the recorded values. Values that are recorded while the copy is made might not be included.
+     */
+    public
+    HistogramSnapshot getSnapshot() {
+        final long[] buckets = new long[BUCKETS];
+        long total = 0L;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            final long value = counts.get(i);
+            buckets[i] = value;
+            total += value;
+        }
+
+        // the count is from the buckets, so the percentiles are consistent with the count
+        return new HistogramSnapshot(buckets, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Removes all of the recorded values. Values that are recorded at the same time might not be removed.
+     */
+    public
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        sum.reset();
+        max.set(0L);
+    }
+}
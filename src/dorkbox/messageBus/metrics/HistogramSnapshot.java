@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The values of a histogram at a point in time. Durations are in nanoseconds.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class HistogramSnapshot {
+    private final long[] buckets;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(final long[] buckets, final long count, final long sum, final long max) {
+        this.buckets = buckets;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * @return how many values were recorded
+     */
+    public
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the largest value that was recorded
+     */
+    public
+    long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the average of the recorded values, or 0 if nothing was recorded
+     */
+    public
+    double getMean() {
+        if (count == 0L) {
+            return 0.0D;
+        }
+        return (double) sum / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     *
+     * @return the value that the percentile of recorded values are less than (or equal to), or 0 if nothing was recorded
+     */
+    public
+    long getPercentile(final double percentile) {
+        if (count == 0L) {
+            return 0L;
+        }
+
+        final long target = Math.max(1L, (long) Math.ceil(count * (Math.min(100.0D, Math.max(0.0D, percentile)) / 100.0D)));
+
+        long total = 0L;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i];
+            if (total >= target) {
+                // never more than the max, since the bucket is wider than the values in it
+                return Math.min(max, Histogram.highestValue(i));
+            }
+        }
+
+        return max;
+    }
+
+    @Override
+    public
+    String toString() {
+        return "count=" + count +
+               ", mean=" + TimeUnit.NANOSECONDS.toMicros((long) getMean()) + "us" +
+               ", p50=" + TimeUnit.NANOSECONDS.toMicros(getPercentile(50.0D)) + "us" +
+               ", p99=" + TimeUnit.NANOSECONDS.toMicros(getPercentile(99.0D)) + "us" +
+               ", max=" + TimeUnit.NANOSECONDS.toMicros(max) + "us";
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a single message type. The counters are striped (LongAdder), so that many threads can record at the same time
+ * without contending on the same value.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+final
+class MessageMetrics {
+    final Class<?> messageType;
+
+    final LongAdder publications = new LongAdder();
+    final LongAdder deadMessages = new LongAdder();
+    final LongAdder handlerDeliveries = new LongAdder();
+
+    final Histogram dispatchTime = new Histogram();
+    final Histogram queueWait = new Histogram();
+
+    MessageMetrics(final Class<?> messageType) {
+        this.messageType = messageType;
+    }
+
+    MetricsSnapshot getSnapshot() {
+        return new MetricsSnapshot(messageType, publications.sum(), deadMessages.sum(), handlerDeliveries.sum(),
+                                   dispatchTime.getSnapshot(), queueWait.getSnapshot());
+    }
+
+    void reset() {
+        publications.reset();
+        deadMessages.reset();
+        handlerDeliveries.reset();
+        dispatchTime.reset();
+        queueWait.reset();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.metrics;
+
+/**
+ * Receives the metrics of a bus (set via MessageBus.metrics before the bus is created). When there is no recorder, the bus does not
+ * measure anything.
+ * <p>
+ * The message type is the class of the (first) message that was published, or int/long/double for primitive messages. These methods
+ * are called by the publishing (and worker) threads, so they must be thread safe and fast.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+interface MetricsRecorder {
+
+    /**
+     * Called after a message was dispatched.
+     *
+     * @param handlers how many handler methods (subscriptions with listeners) the message was delivered to, 0 when it is a dead message
+     * @param durationNanos how long it took to dispatch the message to all of the handlers
+     */
+    void recordDispatch(Class<?> messageType, int handlers, long durationNanos);
+
+    /**
+     * Called before an asynchronous message is dispatched.
+     *
+     * @param waitNanos how long the message waited in the queue
+     */
+    void recordQueueWait(Class<?> messageType, long waitNanos);
+}
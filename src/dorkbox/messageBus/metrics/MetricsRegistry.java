@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the metrics of every message type in memory, and provides snapshots of them.
+ * <p>
+ * <pre>
+ *  MetricsRegistry registry = new MetricsRegistry();
+ *  MessageBus.metrics = registry;
+ *  MessageBus bus = new MessageBus();
+ *  ...
+ *  MetricsSnapshot snapshot = registry.getSnapshot(MyMessage.class);
+ * </pre>
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+class MetricsRegistry implements MetricsRecorder {
+
+    private final ConcurrentMap<Class<?>, MessageMetrics> metrics = new ConcurrentHashMap<Class<?>, MessageMetrics>();
+
+    public
+    MetricsRegistry() {
+    }
+
+    private
+    MessageMetrics get(final Class<?> messageType) {
+        MessageMetrics messageMetrics = metrics.get(messageType);
+        if (messageMetrics == null) {
+            final MessageMetrics newMetrics = new MessageMetrics(messageType);
+            messageMetrics = metrics.putIfAbsent(messageType, newMetrics);
+            if (messageMetrics == null) {
+                messageMetrics = newMetrics;
+            }
+        }
+
+        return messageMetrics;
+    }
+
+    @Override
+    public
+    void recordDispatch(final Class<?> messageType, final int handlers, final long durationNanos) {
+        final MessageMetrics messageMetrics = get(messageType);
+
+        messageMetrics.publications.increment();
+        if (handlers == 0) {
+            messageMetrics.deadMessages.increment();
+        }
+        else {
+            messageMetrics.handlerDeliveries.add(handlers);
+        }
+        messageMetrics.dispatchTime.record(durationNanos);
+    }
+
+    @Override
+    public
+    void recordQueueWait(final Class<?> messageType, final long waitNanos) {
+        get(messageType).queueWait.record(waitNanos);
+    }
+
+    /**
+     * @return the metrics of the message type, or null if nothing was recorded for it
+     */
+    public
+    MetricsSnapshot getSnapshot(final Class<?> messageType) {
+        final MessageMetrics messageMetrics = metrics.get(messageType);
+        if (messageMetrics == null) {
+            return null;
+        }
+
+        return messageMetrics.getSnapshot();
+    }
+
+    /**
+     * @return the metrics of every message type that was recorded
+     */
+    public
+    List<MetricsSnapshot> getSnapshots() {
+        final List<MetricsSnapshot> snapshots = new ArrayList<MetricsSnapshot>(metrics.size());
+        for (MessageMetrics messageMetrics : metrics.values()) {
+            snapshots.add(messageMetrics.getSnapshot());
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * Resets the metrics of every message type to 0
+     */
+    public
+    void reset() {
+        for (MessageMetrics messageMetrics : metrics.values()) {
+            messageMetrics.reset();
+        }
+    }
+}
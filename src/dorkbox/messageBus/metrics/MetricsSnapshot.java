@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.metrics;
+
+/**
+ * The metrics of a message type at a point in time
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class MetricsSnapshot {
+    private final Class<?> messageType;
+    private final long publications;
+    private final long deadMessages;
+    private final long handlerDeliveries;
+    private final HistogramSnapshot dispatchTime;
+    private final HistogramSnapshot queueWait;
+
+    MetricsSnapshot(final Class<?> messageType, final long publications, final long deadMessages, final long handlerDeliveries,
+                    final HistogramSnapshot dispatchTime, final HistogramSnapshot queueWait) {
+        this.messageType = messageType;
+        this.publications = publications;
+        this.deadMessages = deadMessages;
+        this.handlerDeliveries = handlerDeliveries;
+        this.dispatchTime = dispatchTime;
+        this.queueWait = queueWait;
+    }
+
+    /**
+     * @return the class of the (first) message
+     */
+    public
+    Class<?> getMessageType() {
+        return messageType;
+    }
+
+    /**
+     * @return how many messages of this type were dispatched
+     */
+    public
+    long getPublications() {
+        return publications;
+    }
+
+    /**
+     * @return how many messages of this type did not have any handlers
+     */
+    public
+    long getDeadMessages() {
+        return deadMessages;
+    }
+
+    /**
+     * @return how many times (in total) the messages of this type were delivered to a handler method. A handler method is counted once,
+     *         no matter how many listeners it has.
+     */
+    public
+    long getHandlerDeliveries() {
+        return handlerDeliveries;
+    }
+
+    /**
+     * @return how long it took to dispatch the messages to all of their handlers
+     */
+    public
+    HistogramSnapshot getDispatchTime() {
+        return dispatchTime;
+    }
+
+    /**
+     * @return how long the asynchronous messages waited to be dispatched
+     */
+    public
+    HistogramSnapshot getQueueWait() {
+        return queueWait;
+    }
+
+    @Override
+    public
+    String toString() {
+        return messageType.getName() + ": publications=" + publications + ", dead=" + deadMessages + ", deliveries=" + handlerDeliveries +
+               ", dispatch=[" + dispatchTime + "], queueWait=[" + queueWait + "]";
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.common.HandlerIndex;
+
+/**
+ * Generates a HandlerIndex ('ListenerClass$$HandlerIndex') at build time for every class that declares @Handler methods, so the bus
+ * does not search the class hierarchy via reflection, and does not generate the method access at runtime.
+ * <p>
+ * The handlers are found the same way as MessageHandler.get(): the @Handler methods of the class and it's super classes, where a
+ * handler that is overridden by another @Handler method is ignored, and the bottom most override of a handler is invoked. A class is
+ * skipped (and uses reflection at runtime) if a handler cannot be invoked from generated code in the same package, or if a handler is
+ * annotated via a meta annotation. The index records the signature of every class in the hierarchy, so that it is not used once a
+ * class is changed (without compiling the listener again).
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@SupportedAnnotationTypes("dorkbox.messageBus.annotations.Handler")
+public
+class HandlerIndexProcessor extends AbstractProcessor {
+
+    private static
+    class IndexedHandler {
+        ExecutableElement method;     // bottom most override
+        ExecutableElement annotated;  // has the @Handler annotation
+    }
+
+    @Override
+    public
+    SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public
+    boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final Set<TypeElement> listeners = new LinkedHashSet<TypeElement>();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(Handler.class)) {
+            if (element.getKind() == ElementKind.METHOD && element.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                listeners.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+
+        for (TypeElement listener : listeners) {
+            final List<IndexedHandler> handlers = getHandlers(listener);
+            if (handlers == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                                                         "No handler index for " + listener + ", the handlers are found via reflection");
+                continue;
+            }
+
+            try {
+                write(listener, handlers);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write the handler index: " + e, listener);
+            }
+        }
+
+        // other processors can still process @Handler
+        return false;
+    }
+
+    private static
+    boolean isHandler(final ExecutableElement method) {
+        return method.getAnnotation(Handler.class) != null;
+    }
+
+    /**
+     * @return true if the method has an annotation that is meta-annotated with @Handler (which is only supported via reflection)
+     */
+    private static
+    boolean hasMetaHandler(final ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().asElement().getAnnotation(Handler.class) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private
+    List<TypeElement> getHierarchy(final TypeElement listener) {
+        final List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+
+        TypeElement current = listener;
+        while (current != null && !current.getQualifiedName().contentEquals("java.lang.Object")) {
+            hierarchy.add(current);
+
+            final TypeMirror superclass = current.getSuperclass();
+            if (superclass.getKind() != TypeKind.DECLARED) {
+                break;
+            }
+            current = (TypeElement) ((DeclaredType) superclass).asElement();
+        }
+
+        return hierarchy;
+    }
+
+    private
+    boolean sameSignature(final ExecutableElement method1, final ExecutableElement method2) {
+        if (!method1.getSimpleName().contentEquals(method2.getSimpleName())) {
+            return false;
+        }
+
+        final List<? extends VariableElement> parameters1 = method1.getParameters();
+        final List<? extends VariableElement> parameters2 = method2.getParameters();
+        if (parameters1.size() != parameters2.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < parameters1.size(); i++) {
+            if (!erasure(parameters1.get(i).asType()).equals(erasure(parameters2.get(i).asType()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the signature of the class, the same as MessageHandler calculates it at runtime (see HandlerIndex.getSignatures())
+     */
+    private
+    int signature(final TypeElement type) {
+        int signature = processingEnv.getElementUtils().getBinaryName(type).toString().hashCode();
+
+        final StringBuilder builder = new StringBuilder(64);
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            builder.setLength(0);
+            builder.append(method.getSimpleName()).append('(');
+
+            final List<? extends VariableElement> parameters = method.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(canonicalName(parameters.get(i).asType()));
+            }
+            builder.append(')');
+
+            final Handler handler = method.getAnnotation(Handler.class);
+            if (handler != null) {
+                builder.append(handler.enabled() ? "@Handler" : "@Handler(enabled = false)");
+            }
+
+            signature += builder.toString().hashCode();
+        }
+
+        return signature;
+    }
+
+    /**
+     * @return the same name as Class.getCanonicalName() of the erased type (without varargs or type annotations)
+     */
+    private
+    String canonicalName(final TypeMirror type) {
+        final TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+
+        switch (erased.getKind()) {
+            case ARRAY:
+                return canonicalName(((ArrayType) erased).getComponentType()) + "[]";
+            case DECLARED:
+                return ((TypeElement) ((DeclaredType) erased).asElement()).getQualifiedName().toString();
+            default:
+                // primitive
+                return erased.getKind().name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private
+    String erasure(final TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * @return the handlers of the listener, or null if the listener cannot be indexed
+     */
+    private
+    List<IndexedHandler> getHandlers(final TypeElement listener) {
+        if (!isAccessible(listener)) {
+            return null;
+        }
+
+        final String packageName = getPackage(listener);
+        final List<TypeElement> hierarchy = getHierarchy(listener);
+
+        // every @Handler method in the hierarchy, from the listener upwards (the same order as the reflection)
+        final List<ExecutableElement> annotated = new ArrayList<ExecutableElement>();
+        for (TypeElement type : hierarchy) {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (hasMetaHandler(method)) {
+                    return null;
+                }
+                if (isHandler(method)) {
+                    annotated.add(method);
+                }
+            }
+        }
+
+        final List<IndexedHandler> handlers = new ArrayList<IndexedHandler>();
+        for (ExecutableElement method : annotated) {
+            // ignored if it is overridden by another @Handler method (in a sub class)
+            boolean overridden = false;
+            for (ExecutableElement other : annotated) {
+                if (other != method && sameSignature(other, method) &&
+                    hierarchy.indexOf((TypeElement) other.getEnclosingElement()) < hierarchy.indexOf((TypeElement) method.getEnclosingElement())) {
+                    overridden = true;
+                    break;
+                }
+            }
+            if (overridden || !method.getAnnotation(Handler.class).enabled()) {
+                continue;
+            }
+
+            // the bottom most override inherits the configuration
+            ExecutableElement bottom = method;
+            search:
+            for (TypeElement type : hierarchy) {
+                for (ExecutableElement candidate : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                    if (sameSignature(candidate, method)) {
+                        bottom = candidate;
+                        break search;
+                    }
+                }
+            }
+
+            if (!isInvokable(bottom, packageName)) {
+                return null;
+            }
+
+            final IndexedHandler handler = new IndexedHandler();
+            handler.method = bottom;
+            handler.annotated = method;
+            handlers.add(handler);
+        }
+
+        return handlers;
+    }
+
+    private
+    String getPackage(final Element element) {
+        final PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(element);
+        return packageElement.getQualifiedName().toString();
+    }
+
+    /**
+     * @return true if the type (and it's enclosing types) can be used by a class in the same package
+     */
+    private static
+    boolean isAccessible(final TypeElement type) {
+        Element current = type;
+        while (current instanceof TypeElement) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            current = current.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private
+    boolean isInvokable(final ExecutableElement method, final String packageName) {
+        final Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+
+        if (!modifiers.contains(Modifier.PUBLIC) && !getPackage(method).equals(packageName)) {
+            return false;
+        }
+
+        if (method.getParameters().size() > 3) {
+            return false;
+        }
+
+        for (VariableElement parameter : method.getParameters()) {
+            final TypeMirror type = processingEnv.getTypeUtils().erasure(parameter.asType());
+            if (type.getKind() == TypeKind.DECLARED && !isAccessible((TypeElement) ((DeclaredType) type).asElement())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static
+    String boxed(final TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN: return "java.lang.Boolean";
+            case BYTE: return "java.lang.Byte";
+            case SHORT: return "java.lang.Short";
+            case CHAR: return "java.lang.Character";
+            case INT: return "java.lang.Integer";
+            case LONG: return "java.lang.Long";
+            case FLOAT: return "java.lang.Float";
+            case DOUBLE: return "java.lang.Double";
+            default: return null;
+        }
+    }
+
+    private
+    String argument(final TypeMirror parameterType, final String name) {
+        final TypeMirror type = processingEnv.getTypeUtils().erasure(parameterType);
+        final String boxed = boxed(type.getKind());
+
+        if (boxed != null) {
+            return "((" + boxed + ") " + name + ")." + type.toString() + "Value()";
+        }
+        return "(" + type.toString() + ") " + name;
+    }
+
+    private
+    void write(final TypeElement listener, final List<IndexedHandler> handlers) throws IOException {
+        final String packageName = getPackage(listener);
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(listener).toString();
+        final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + HandlerIndex.SUFFIX;
+        final String listenerType = processingEnv.getTypeUtils().erasure(listener.asType()).toString();
+
+        final StringBuilder code = new StringBuilder(4096);
+        if (!packageName.isEmpty()) {
+            code.append("package ").append(packageName).append(";\n\n");
+        }
+
+        code.append("/**\n * Generated by ").append(HandlerIndexProcessor.class.getName()).append(", do not edit.\n */\n");
+        code.append("public final class ").append(simpleName).append(" implements ").append(HandlerIndex.class.getName()).append(" {\n");
+
+        final StringBuilder declaring = new StringBuilder();
+        final StringBuilder annotatedClasses = new StringBuilder();
+        final StringBuilder names = new StringBuilder();
+        final StringBuilder parameters = new StringBuilder();
+
+        for (IndexedHandler handler : handlers) {
+            declaring.append(erasure(handler.method.getEnclosingElement().asType())).append(".class, ");
+            annotatedClasses.append(erasure(handler.annotated.getEnclosingElement().asType())).append(".class, ");
+            names.append('"').append(handler.method.getSimpleName()).append("\", ");
+
+            parameters.append("{");
+            for (VariableElement parameter : handler.method.getParameters()) {
+                parameters.append(erasure(parameter.asType())).append(".class, ");
+            }
+            parameters.append("}, ");
+        }
+
+        code.append("    private static final Class<?>[] DECLARING = {").append(declaring).append("};\n");
+        code.append("    private static final Class<?>[] ANNOTATED = {").append(annotatedClasses).append("};\n");
+        code.append("    private static final String[] NAMES = {").append(names).append("};\n");
+        code.append("    private static final Class<?>[][] PARAMETERS = {").append(parameters).append("};\n");
+
+        code.append("    private static final int[] SIGNATURES = {");
+        for (TypeElement type : getHierarchy(listener)) {
+            code.append(signature(type)).append(", ");
+        }
+        code.append("};\n\n");
+
+        code.append("    public int size() { return NAMES.length; }\n");
+        code.append("    public Class<?> getDeclaringClass(int handler) { return DECLARING[handler]; }\n");
+        code.append("    public Class<?> getAnnotatedClass(int handler) { return ANNOTATED[handler]; }\n");
+        code.append("    public String getName(int handler) { return NAMES[handler]; }\n");
+        code.append("    public Class<?>[] getParameterTypes(int handler) { return PARAMETERS[handler].clone(); }\n");
+        code.append("    public int[] getSignatures() { return SIGNATURES.clone(); }\n");
+
+        final String[] arguments = {"message1", "message2", "message3"};
+        for (int arity = 1; arity <= 3; arity++) {
+            code.append("\n    public Object invoke(int handler, Object listener");
+            for (int i = 0; i < arity; i++) {
+                code.append(", Object ").append(arguments[i]);
+            }
+            code.append(") throws Throwable {\n        switch (handler) {\n");
+
+            for (int index = 0; index < handlers.size(); index++) {
+                final ExecutableElement method = handlers.get(index).method;
+                final List<? extends VariableElement> methodParameters = method.getParameters();
+                if (methodParameters.size() != arity) {
+                    continue;
+                }
+
+                final boolean isVoid = method.getReturnType().getKind() == TypeKind.VOID;
+
+                code.append("            case ").append(index).append(":\n                ");
+                if (!isVoid) {
+                    code.append("return ");
+                }
+                code.append("((").append(listenerType).append(") listener).").append(method.getSimpleName()).append("(");
+                for (int i = 0; i < arity; i++) {
+                    if (i > 0) {
+                        code.append(", ");
+                    }
+                    code.append(argument(methodParameters.get(i).asType(), arguments[i]));
+                }
+                code.append(");\n");
+                if (isVoid) {
+                    code.append("                return null;\n");
+                }
+            }
+
+            code.append("            default:\n                throw new IllegalArgumentException(\"The handler \" + handler + \" does not have ")
+                .append(arity).append(" parameters\");\n        }\n    }\n");
+        }
+
+        code.append("}\n");
+
+        final String fileName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        final Writer writer = processingEnv.getFiler().createSourceFile(fileName, listener).openWriter();
+        try {
+            writer.write(code.toString());
+        } finally {
+            writer.close();
+        }
+    }
+}
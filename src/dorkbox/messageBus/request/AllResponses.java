@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.request;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps every response, in the order that the handlers were invoked.
+ *
+ * @author dorkbox, llc
+ */
+public
+class AllResponses<R> implements ResponseCollector<List<R>> {
+    private final ArrayList<R> responses = new ArrayList<R>(4);
+
+    public
+    AllResponses() {
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public
+    void collect(final Object response) {
+        this.responses.add((R) response);
+    }
+
+    @Override
+    public
+    boolean isComplete() {
+        return false;
+    }
+
+    @Override
+    public
+    List<R> getResult() {
+        return responses;
+    }
+}
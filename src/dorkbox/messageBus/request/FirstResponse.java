@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.request;
+
+/**
+ * Keeps the first response, and stops the request as soon as a handler returns a (non-null) value.
+ *
+ * @author dorkbox, llc
+ */
+public
+class FirstResponse<R> implements ResponseCollector<R> {
+    private R response = null;
+    private boolean complete = false;
+
+    public
+    FirstResponse() {
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public
+    void collect(final Object response) {
+        this.response = (R) response;
+        this.complete = true;
+    }
+
+    @Override
+    public
+    boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public
+    R getResult() {
+        return response;
+    }
+}
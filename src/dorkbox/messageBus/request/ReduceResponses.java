@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.request;
+
+/**
+ * Reduces every response into a single value, starting from an initial value. No intermediate collection of responses is created.
+ *
+ * @author dorkbox, llc
+ */
+public
+class ReduceResponses<R> implements ResponseCollector<R> {
+    private final Reducer<R> reducer;
+    private R accumulated;
+
+    public
+    ReduceResponses(final R initialValue, final Reducer<R> reducer) {
+        this.accumulated = initialValue;
+        this.reducer = reducer;
+    }
+
+    @Override
+    public
+    void collect(final Object response) {
+        this.accumulated = reducer.reduce(accumulated, response);
+    }
+
+    @Override
+    public
+    boolean isComplete() {
+        return false;
+    }
+
+    @Override
+    public
+    R getResult() {
+        return accumulated;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.request;
+
+/**
+ * Combines the responses of a request into a single value, see {@link ReduceResponses}
+ *
+ * @author dorkbox, llc
+ */
+public
+interface Reducer<R> {
+    /**
+     * @param accumulated the value reduced so far (this is the initial value for the first response)
+     * @param response the (non-null) value returned by a handler
+     *
+     * @return the new accumulated value
+     */
+    R reduce(R accumulated, Object response);
+}
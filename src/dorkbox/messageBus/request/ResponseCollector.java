@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.request;
+
+/**
+ * Aggregates the values returned by message handlers during a request. Handlers that are void (or that return null) do not produce a
+ * response, but they still receive the message.
+ *
+ * A collector is used for exactly ONE request, and is only ever touched by the thread that is dispatching that request.
+ *
+ * @author dorkbox, llc
+ */
+public
+interface ResponseCollector<R> {
+
+    /**
+     * Called for every non-null value returned by a handler
+     */
+    void collect(Object response);
+
+    /**
+     * @return true if no more responses are needed. The remaining handlers will not be invoked for this request.
+     */
+    boolean isComplete();
+
+    /**
+     * @return the aggregated result of all the responses that were collected
+     */
+    R getResult();
+}
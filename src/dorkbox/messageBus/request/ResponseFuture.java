@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.request;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The pending result of an asynchronous request. The request is finished once all of the handlers have been invoked (or the collector
+ * was completed), at which point the result of the collector is available.
+ *
+ * Requests cannot be cancelled once they have been queued. A request that is still queued when the bus is shut down is abandoned, and
+ * get() throws a CancellationException.
+ *
+ * @author dorkbox, llc
+ */
+public
+class ResponseFuture<R> implements Future<R> {
+    private final ResponseCollector<R> collector;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private volatile boolean abandoned = false;
+
+    public
+    ResponseFuture(final ResponseCollector<R> collector) {
+        this.collector = collector;
+    }
+
+    /**
+     * @return the collector that aggregates the responses. Only the dispatching thread may use this.
+     */
+    public
+    ResponseCollector<R> getCollector() {
+        return collector;
+    }
+
+    /**
+     * Called by the dispatching thread once the request has been delivered to all of the handlers
+     */
+    public
+    void done() {
+        if (completed.compareAndSet(false, true)) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Called when the request will never be dispatched (the bus was shut down while it was queued)
+     */
+    public
+    void abandon() {
+        if (completed.compareAndSet(false, true)) {
+            abandoned = true;
+            latch.countDown();
+        }
+    }
+
+    @Override
+    public
+    boolean cancel(final boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public
+    boolean isCancelled() {
+        return abandoned;
+    }
+
+    @Override
+    public
+    boolean isDone() {
+        return latch.getCount() == 0L;
+    }
+
+    @Override
+    public
+    R get() throws InterruptedException {
+        latch.await();
+        return getResult();
+    }
+
+    @Override
+    public
+    R get(final long timeout, final TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("Request was not completed within " + timeout + " " + unit);
+        }
+        return getResult();
+    }
+
+    private
+    R getResult() {
+        if (abandoned) {
+            throw new CancellationException("The bus was shut down before the request was dispatched");
+        }
+        return collector.getResult();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.schedule;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A message that is waiting in the timing wheel to be published. For messages that are published at a fixed rate, the same instance
+ * is re-used for every publication.
+ *
+ * The bucket links are only ever accessed by the timer thread.
+ *
+ * @author dorkbox, llc
+ */
+public final
+class ScheduledMessage {
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int DONE = 2;
+
+    private static final AtomicIntegerFieldUpdater<ScheduledMessage> stateREF =
+                    AtomicIntegerFieldUpdater.newUpdater(ScheduledMessage.class, "state");
+
+    private final TimingWheel wheel;
+
+    final Object message;
+    final long period;
+
+    // nanoseconds, relative to the start of the timing wheel
+    long deadline;
+    long remainingRounds;
+
+    ScheduledMessage bucketPrev;
+    ScheduledMessage bucketNext;
+    TimingWheel.Bucket bucket;
+
+    private volatile int state = WAITING;
+
+    ScheduledMessage(final TimingWheel wheel, final Object message, final long deadline, final long period) {
+        this.wheel = wheel;
+        this.message = message;
+        this.deadline = deadline;
+        this.period = period;
+    }
+
+    /**
+     * Cancels this message, so that it is no longer published. This is O(1).
+     *
+     * @return false if the message has already been published (if it is not published at a fixed rate), or was already cancelled
+     */
+    public
+    boolean cancel() {
+        if (!stateREF.compareAndSet(this, WAITING, CANCELLED)) {
+            return false;
+        }
+
+        // the timer thread is the only one that modifies the buckets
+        wheel.cancelled(this);
+        return true;
+    }
+
+    public
+    boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    /**
+     * @return true if the message has been published, and will not be published again
+     */
+    public
+    boolean isDone() {
+        return state == DONE;
+    }
+
+    boolean isWaiting() {
+        return state == WAITING;
+    }
+
+    void reject() {
+        state = CANCELLED;
+    }
+
+    boolean done() {
+        return stateREF.compareAndSet(this, WAITING, DONE);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.schedule;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import dorkbox.messageBus.dispatch.Dispatch;
+import dorkbox.messageBus.synchrony.Synchrony;
+import dorkbox.messageBus.util.NamedThreadFactory;
+
+/**
+ * A hashed timing wheel, that publishes messages (via the async synchrony) once their delay has expired.
+ *
+ * Inserting and cancelling a message is O(1), and only the messages in the current bucket are checked on each tick, so millions of
+ * pending messages are cheap. The downside is that messages are only published at the resolution of the tick duration.
+ *
+ * The buckets are only accessed by the timer thread, other threads hand new (and cancelled) messages to it via queues. The timer
+ * thread is started when the first message is scheduled.
+ *
+ * @author dorkbox, llc
+ */
+public final
+class TimingWheel {
+    static final
+    class Bucket {
+        private ScheduledMessage head;
+        private ScheduledMessage tail;
+
+        void add(final ScheduledMessage scheduled) {
+            scheduled.bucket = this;
+
+            if (head == null) {
+                head = tail = scheduled;
+            }
+            else {
+                tail.bucketNext = scheduled;
+                scheduled.bucketPrev = tail;
+                tail = scheduled;
+            }
+        }
+
+        ScheduledMessage remove(final ScheduledMessage scheduled) {
+            final ScheduledMessage next = scheduled.bucketNext;
+
+            if (scheduled.bucketPrev != null) {
+                scheduled.bucketPrev.bucketNext = next;
+            }
+            if (next != null) {
+                next.bucketPrev = scheduled.bucketPrev;
+            }
+
+            if (scheduled == head) {
+                if (scheduled == tail) {
+                    head = tail = null;
+                }
+                else {
+                    head = next;
+                }
+            }
+            else if (scheduled == tail) {
+                tail = scheduled.bucketPrev;
+            }
+
+            scheduled.bucketPrev = null;
+            scheduled.bucketNext = null;
+            scheduled.bucket = null;
+
+            return next;
+        }
+
+        /**
+         * Publishes all of the messages in this bucket that have expired (and are in the current round)
+         */
+        void expire(final TimingWheel wheel, final long tickDeadline) {
+            ScheduledMessage scheduled = head;
+
+            while (scheduled != null) {
+                if (scheduled.remainingRounds <= 0L && scheduled.deadline <= tickDeadline) {
+                    final ScheduledMessage next = remove(scheduled);
+                    wheel.expire(scheduled);
+                    scheduled = next;
+                }
+                else {
+                    scheduled.remainingRounds--;
+                    scheduled = scheduled.bucketNext;
+                }
+            }
+        }
+    }
+
+
+    private final Synchrony synchrony;
+    private final Dispatch dispatch;
+
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+
+    private final Queue<ScheduledMessage> pending = new ConcurrentLinkedQueue<ScheduledMessage>();
+    private final Queue<ScheduledMessage> cancelled = new ConcurrentLinkedQueue<ScheduledMessage>();
+
+    private final Object startLock = new Object();
+    private volatile Thread thread;
+    private volatile long startTime;
+    private volatile boolean running = true;
+
+    // only accessed by the timer thread
+    private long tick = 0L;
+
+    /**
+     * @param synchrony where the messages are published once they expire
+     * @param tickDuration the resolution of the timer
+     * @param ticksPerWheel the number of buckets, rounded up to the nearest power of 2
+     */
+    public
+    TimingWheel(final Synchrony synchrony, final Dispatch dispatch, final long tickDuration, final TimeUnit unit, final int ticksPerWheel) {
+        this.synchrony = synchrony;
+        this.dispatch = dispatch;
+        this.tickDuration = Math.max(1L, unit.toNanos(tickDuration));
+
+        // round to the nearest power of 2
+        final int size = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(2, ticksPerWheel) - 1));
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * @param delay how long to wait before the message is published
+     * @param period if greater than 0, the message is published again (at a fixed rate) until it is cancelled
+     */
+    public
+    ScheduledMessage schedule(final Object message, final long delay, final long period, final TimeUnit unit) {
+        final long periodNanos = period > 0L ? Math.max(tickDuration, unit.toNanos(period)) : 0L;
+
+        if (!running) {
+            // the wheel has been shutdown, so this will never be published
+            return rejected(message);
+        }
+
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(0L, delay)) - startTime;
+        if (deadline < 0L) {
+            // guard against overflow
+            deadline = Long.MAX_VALUE;
+        }
+
+        final ScheduledMessage scheduled = new ScheduledMessage(this, message, deadline, periodNanos);
+        pending.add(scheduled);
+
+        return scheduled;
+    }
+
+    /**
+     * @return a scheduled message that is already cancelled, for messages that are rejected
+     */
+    public
+    ScheduledMessage rejected(final Object message) {
+        final ScheduledMessage scheduled = new ScheduledMessage(this, message, 0L, 0L);
+        scheduled.reject();
+        return scheduled;
+    }
+
+    private
+    void start() {
+        if (thread != null) {
+            return;
+        }
+
+        synchronized (startLock) {
+            if (thread == null) {
+                startTime = System.nanoTime();
+
+                final Thread thread = new NamedThreadFactory("MessageBus-Timer").newThread(new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        TimingWheel.this.run();
+                    }
+                });
+                thread.start();
+
+                this.thread = thread;
+            }
+        }
+    }
+
+    void cancelled(final ScheduledMessage scheduled) {
+        cancelled.add(scheduled);
+    }
+
+    // called by the timer thread
+    void expire(final ScheduledMessage scheduled) {
+        if (scheduled.period > 0L) {
+            if (scheduled.isWaiting()) {
+                synchrony.publish(dispatch, scheduled.message);
+
+                // it is added to the wheel on the next tick (so it is not added to the bucket that is being expired)
+                scheduled.deadline += scheduled.period;
+                pending.add(scheduled);
+            }
+        }
+        else if (scheduled.done()) {
+            synchrony.publish(dispatch, scheduled.message);
+        }
+    }
+
+    private
+    void run() {
+        final long tickDuration = this.tickDuration;
+        final long startTime = this.startTime;
+
+        while (running) {
+            final long tickDeadline = tickDuration * (tick + 1L);
+
+            // wait for the next tick (without spinning)
+            long sleepTime;
+            while (running && (sleepTime = startTime + tickDeadline - System.nanoTime()) > 0L) {
+                LockSupport.parkNanos(this, sleepTime);
+            }
+
+            if (!running) {
+                break;
+            }
+
+            removeCancelled();
+            addPending();
+
+            wheel[(int) (tick & mask)].expire(this, tickDeadline);
+            tick++;
+        }
+    }
+
+    private
+    void removeCancelled() {
+        ScheduledMessage scheduled;
+        while ((scheduled = cancelled.poll()) != null) {
+            final Bucket bucket = scheduled.bucket;
+            if (bucket != null) {
+                bucket.remove(scheduled);
+            }
+        }
+    }
+
+    private
+    void addPending() {
+        ScheduledMessage scheduled;
+        while ((scheduled = pending.poll()) != null) {
+            if (!scheduled.isWaiting()) {
+                continue;
+            }
+
+            final long calculated = scheduled.deadline / tickDuration;
+            scheduled.remainingRounds = (calculated - tick) / wheel.length;
+
+            // messages that are already expired are published on this tick
+            final long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(scheduled);
+        }
+    }
+
+    /**
+     * Stops the timer thread. Messages that are still scheduled are never published.
+     */
+    public
+    void shutdown() {
+        running = false;
+
+        final Thread thread;
+        synchronized (startLock) {
+            thread = this.thread;
+        }
+
+        if (thread != null) {
+            LockSupport.unpark(thread);
+
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -31,6 +31,9 @@ class Entry<T> {
     private Entry<T> next;
     private Entry<T> prev;
 
+    // true once the (garbage collected) listener was removed. Only used by the single writer.
+    boolean reaped = false;
+
     public
     Entry(T value, Entry<T> next) {
         if (next != null) {
@@ -15,13 +15,16 @@
  */
 package dorkbox.messageBus.subscription;
 
+import java.lang.ref.WeakReference;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.esotericsoftware.kryo.util.IdentityMap;
 
 import dorkbox.messageBus.common.MessageHandler;
 import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.request.ResponseCollector;
 
 /**
  * A subscription is a container that manages exactly one message handler of all registered
@@ -49,11 +52,19 @@ class Subscription<T> {
     private final MessageHandler handler;
 
     // This is only touched by a single thread!
-    private final IdentityMap<Object, Entry> entries; // maintain a map of entries for FAST lookup during unsubscribe.
+    // maintain a map of entries for FAST lookup during unsubscribe. Null for weak references, because the map would keep the listeners
+    // from being garbage collected (the entries are searched instead)
+    private final IdentityMap<Object, Entry> entries;
+
+    // true if the entries have weak references to the listeners
+    private final boolean weak;
 
     // this is still inside the single-writer, and can use the same techniques as subscription manager (for thread safe publication)
     protected volatile Entry<T> head = null; // reference to the first element
 
+    // how many listeners were removed because they were garbage collected (weak references)
+    private final LongAdder reapedCount = new LongAdder();
+
     // Recommended for best performance while adhering to the "single writer principle". Must be static-final
     protected static final AtomicReferenceFieldUpdater<Subscription, Entry> headREF =
                     AtomicReferenceFieldUpdater.newUpdater(Subscription.class,
@@ -62,22 +73,33 @@ class Subscription<T> {
 
     protected
     Subscription(final Class<?> listenerClass, final MessageHandler handler) {
+        this(listenerClass, handler, false);
+    }
+
+    /**
+     * @param weak true if the entries (created by createEntry) have a WeakReference to the listener
+     */
+    protected
+    Subscription(final Class<?> listenerClass, final MessageHandler handler, final boolean weak) {
         this.listenerClass = listenerClass;
         this.handler = handler;
-        this.entries = new IdentityMap<Object, Entry>(32, SubscriptionManager.LOAD_FACTOR);
+        this.weak = weak;
+        this.entries = weak ? null : new IdentityMap<Object, Entry>(32, SubscriptionManager.LOAD_FACTOR);
     }
 
     /**
      * called on shutdown for GC purposes
      * called within SYNCHRONIZE
      */
-    public final
+    public
     void clear() {
-        this.entries.clear();
+        if (this.entries != null) {
+            this.entries.clear();
+        }
         this.head = null;
     }
 
-    // only used in unit tests to verify that the subscription manager is working correctly
+    // used by the watchdog, and in unit tests to verify that the subscription manager is working correctly
     public final
     Class<?> getListenerClass() {
         return listenerClass;
@@ -88,6 +110,14 @@ class Subscription<T> {
         return handler;
     }
 
+    /**
+     * @return true if the listeners are weak references, which are removed once they are garbage collected
+     */
+    public final
+    boolean isWeak() {
+        return weak;
+    }
+
     public abstract
     Entry<T> createEntry(final Object listener, final Entry<T> head);
 
@@ -101,10 +131,12 @@ class Subscription<T> {
     void subscribe(final Object listener) {
         Entry head = headREF.get(this);
 
-        if (!entries.containsKey(listener)) {
+        if (getEntry(listener) == null) {
             head = createEntry(listener, head);
 
-            entries.put(listener, head);
+            if (entries != null) {
+                entries.put(listener, head);
+            }
             headREF.lazySet(this, head);
         }
     }
@@ -117,15 +149,52 @@ class Subscription<T> {
      */
     public
     void unsubscribe(final Object listener) {
-        Entry entry = entries.get(listener);
+        Entry entry = getEntry(listener);
 
         if (entry != null) {
             removeNode(entry);
 
-            this.entries.remove(listener);
+            if (this.entries != null) {
+                this.entries.remove(listener);
+            }
         }
     }
 
+    /**
+     * single writer principle!
+     * called from within SYNCHRONIZE
+     *
+     * @return the entry that was created for the listener, or null if it is not subscribed
+     */
+    protected final
+    Entry getEntry(final Object listener) {
+        if (entries != null) {
+            return entries.get(listener);
+        }
+
+        // weak references are searched (the listeners that were garbage collected never match)
+        Entry current = headREF.get(this);
+        while (current != null) {
+            if (getSubscribedListener(current) == listener) {
+                return current;
+            }
+            current = current.next();
+        }
+        return null;
+    }
+
+    /**
+     * @return the listener of the entry, or null if it was garbage collected
+     */
+    protected
+    Object getSubscribedListener(final Entry entry) {
+        final Object value = entry.getValue();
+        if (weak) {
+            return ((WeakReference<?>) value).get();
+        }
+        return value;
+    }
+
     /**
      * single writer principle!
      * called from within SYNCHRONIZE
@@ -148,10 +217,83 @@ class Subscription<T> {
     }
 
     /**
-     * only used in unit tests
+     * single writer principle!
+     * Removes the entry of a listener that was garbage collected.
      */
-    public final
+    protected
+    void removeReaped(final Entry entry) {
+        // many publishers can find the same entry, but it is only removed (and counted) once
+        if (entry.reaped) {
+            return;
+        }
+        entry.reaped = true;
+
+        removeNode(entry);
+        reapedCount.increment();
+    }
+
+    /**
+     * Removes the listeners that were garbage collected, instead of waiting for a publication to find them.
+     *
+     * @return how many listeners were removed
+     */
+    public
+    int compact() {
+        // only weak references can be garbage collected
+        return 0;
+    }
+
+    /**
+     * This is a lock-free read, and is safe to call from any thread
+     *
+     * @return how many listeners were removed because they were garbage collected
+     */
+    public
+    long getReapedCount() {
+        return reapedCount.sum();
+    }
+
+    public
+    void resetReapedCount() {
+        reapedCount.reset();
+    }
+
+    /**
+     * This is a lock-free read, and is safe to call from any thread
+     *
+     * @return how many listeners are subscribed (which might include weak references that were already collected)
+     */
+    public
+    int getListenerCount() {
+        int count = 0;
+
+        Entry current = headREF.get(this);
+        while (current != null) {
+            count++;
+            current = current.next();
+        }
+
+        return count;
+    }
+
+    /**
+     * This is a lock-free read, and is safe to call from any thread
+     *
+     * @return true if there are listeners subscribed (which might be weak references that were already collected)
+     */
+    public
+    boolean hasListeners() {
+        return headREF.get(this) != null;
+    }
+
+    /**
+     * only used in unit tests. This is not safe to call while listeners are subscribed, see getListenerCount()
+     */
+    public
     int size() {
+        if (this.entries == null) {
+            return getListenerCount();
+        }
         return this.entries.size;
     }
 
@@ -164,6 +306,22 @@ class Subscription<T> {
     public abstract
     boolean publish(final ErrorHandler errorHandler, final Object message1, final Object message2, final Object message3);
 
+    /**
+     * Same as publish, however the (non-null) values returned by the handler are passed to the collector. Delivery to the remaining
+     * listeners stops once the collector is complete.
+     *
+     * @return true if there were listeners for this subscription
+     */
+    public abstract
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message);
+
+    public abstract
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2);
+
+    public abstract
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2,
+                    final Object message3);
+
 
     @Override
     public final
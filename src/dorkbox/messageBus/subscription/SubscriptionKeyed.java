@@ -0,0 +1,350 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import dorkbox.messageBus.common.MessageHandler;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.request.ResponseCollector;
+
+/**
+ * A subscription for a handler that routes by key (@Handler(key = "...")). The listeners are indexed by the value of their key
+ * field, and each key has its own (normal) subscription, so publishing a message only touches the listeners for that key.
+ * <p/>
+ * Listeners with a null key are kept in a separate subscription, and receive every message. The key of a listener is read once, when
+ * it is subscribed.
+ * <p/>
+ * This class uses the "single writer principle", the index is only MODIFIED by a single thread, but is READ by X number of threads.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class SubscriptionKeyed extends Subscription<Object> {
+    /**
+     * The value of the entry for each listener
+     */
+    private static final
+    class Subscribed {
+        final Object listener; // a WeakReference, when the listeners are weak references
+        final Object key;
+
+        Subscribed(final Object listener, final Object key) {
+            this.listener = listener;
+            this.key = key;
+        }
+    }
+
+
+    private final SubscriptionFactory factory;
+
+    private final Field messageKey;
+    private final Field listenerKey;
+
+    private final ConcurrentHashMap<Object, Subscription> index = new ConcurrentHashMap<Object, Subscription>();
+    private final Subscription wildcard;
+
+    // the garbage collected listeners that were counted by the subscriptions (for a key) that were removed
+    private final LongAdder removedReapedCount = new LongAdder();
+
+    /**
+     * @param weak must be the same as the subscriptions that the factory creates for the handler
+     */
+    public
+    SubscriptionKeyed(final SubscriptionFactory factory, final Class<?> listenerClass, final MessageHandler handler, final boolean weak) {
+        super(listenerClass, handler, weak);
+
+        this.factory = factory;
+        this.messageKey = handler.getMessageKey();
+        this.listenerKey = handler.getListenerKey();
+        this.wildcard = factory.create(listenerClass, handler);
+    }
+
+    /**
+     * The listeners are delivered to by the subscription for their key. The entry of a listener in this subscription only remembers the
+     * key that it was subscribed with, so it is unsubscribed from the same key even if the key field was changed in the meantime.
+     */
+    @Override
+    public
+    Entry<Object> createEntry(final Object listener, final Entry<Object> head) {
+        final Object reference = isWeak() ? new WeakReference<Object>(listener) : listener;
+        return new Entry<Object>(new Subscribed(reference, getKey(this.listenerKey, listener)), head);
+    }
+
+    @Override
+    protected
+    Object getSubscribedListener(final Entry entry) {
+        final Object listener = ((Subscribed) entry.getValue()).listener;
+        if (isWeak()) {
+            return ((WeakReference<?>) listener).get();
+        }
+        return listener;
+    }
+
+    private static
+    Object getKey(final Field field, final Object object) {
+        try {
+            return field.get(object);
+        } catch (IllegalAccessException e) {
+            // not possible, the field is accessible
+            return null;
+        }
+    }
+
+    /**
+     * single writer principle!
+     * called from within SYNCHRONIZE
+     */
+    @Override
+    public
+    void subscribe(final Object listener) {
+        if (getEntry(listener) != null) {
+            // already subscribed
+            return;
+        }
+
+        super.subscribe(listener);
+        final Object key = ((Subscribed) getEntry(listener).getValue()).key;
+
+        if (key == null) {
+            this.wildcard.subscribe(listener);
+            return;
+        }
+
+        Subscription subscription = this.index.get(key);
+        if (subscription == null) {
+            subscription = this.factory.create(getListenerClass(), getHandler());
+            subscription.subscribe(listener);
+
+            // only visible for publication once the listener is added
+            this.index.put(key, subscription);
+        }
+        else {
+            subscription.subscribe(listener);
+        }
+    }
+
+    /**
+     * single writer principle!
+     * called from within SYNCHRONIZE
+     */
+    @Override
+    public
+    void unsubscribe(final Object listener) {
+        final Entry entry = getEntry(listener);
+        if (entry == null) {
+            return;
+        }
+
+        // the key it was subscribed with, not the current value of the key field
+        final Object key = ((Subscribed) entry.getValue()).key;
+        super.unsubscribe(listener);
+
+        if (key == null) {
+            this.wildcard.unsubscribe(listener);
+            return;
+        }
+
+        final Subscription subscription = this.index.get(key);
+        if (subscription != null) {
+            subscription.unsubscribe(listener);
+
+            if (subscription.size() == 0) {
+                this.index.remove(key);
+                removedReapedCount.add(subscription.getReapedCount());
+            }
+        }
+    }
+
+    @Override
+    public
+    void clear() {
+        for (Subscription subscription : this.index.values()) {
+            subscription.clear();
+        }
+        this.index.clear();
+        this.wildcard.clear();
+        super.clear();
+    }
+
+    @Override
+    public
+    int size() {
+        int size = this.wildcard.size();
+        for (Subscription subscription : this.index.values()) {
+            size += subscription.size();
+        }
+        return size;
+    }
+
+    @Override
+    public
+    int getListenerCount() {
+        int count = this.wildcard.getListenerCount();
+        for (Subscription subscription : this.index.values()) {
+            count += subscription.getListenerCount();
+        }
+        return count;
+    }
+
+    @Override
+    public
+    int compact() {
+        int count = this.wildcard.compact();
+
+        final Iterator<Subscription> iterator = this.index.values().iterator();
+        while (iterator.hasNext()) {
+            final Subscription subscription = iterator.next();
+            count += subscription.compact();
+
+            if (subscription.size() == 0) {
+                // every listener for this key was garbage collected
+                iterator.remove();
+                removedReapedCount.add(subscription.getReapedCount());
+            }
+        }
+
+        if (isWeak()) {
+            // the entries of the listeners that were garbage collected. They were already counted by the subscription for their key.
+            Entry current = headREF.get(this);
+            while (current != null) {
+                final Entry next = current.next();
+                if (getSubscribedListener(current) == null) {
+                    removeNode(current);
+                }
+                current = next;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public
+    long getReapedCount() {
+        long count = this.wildcard.getReapedCount() + this.removedReapedCount.sum();
+        for (Subscription subscription : this.index.values()) {
+            count += subscription.getReapedCount();
+        }
+        return count;
+    }
+
+    @Override
+    public
+    void resetReapedCount() {
+        this.wildcard.resetReapedCount();
+        this.removedReapedCount.reset();
+        for (Subscription subscription : this.index.values()) {
+            subscription.resetReapedCount();
+        }
+    }
+
+    @Override
+    public
+    boolean hasListeners() {
+        return this.wildcard.hasListeners() || !this.index.isEmpty();
+    }
+
+    /**
+     * @return the subscription for the key of the message, or null if no listener has that key
+     */
+    private
+    Subscription get(final Object message) {
+        final Object key = getKey(this.messageKey, message);
+        if (key == null) {
+            return null;
+        }
+        return this.index.get(key);
+    }
+
+    @Override
+    public
+    boolean publish(final ErrorHandler errorHandler, final Object message) {
+        final Subscription subscription = get(message);
+
+        boolean hasSubs = this.wildcard.publish(errorHandler, message);
+        if (subscription != null) {
+            hasSubs |= subscription.publish(errorHandler, message);
+        }
+        return hasSubs;
+    }
+
+    @Override
+    public
+    boolean publish(final ErrorHandler errorHandler, final Object message1, final Object message2) {
+        final Subscription subscription = get(message1);
+
+        boolean hasSubs = this.wildcard.publish(errorHandler, message1, message2);
+        if (subscription != null) {
+            hasSubs |= subscription.publish(errorHandler, message1, message2);
+        }
+        return hasSubs;
+    }
+
+    @Override
+    public
+    boolean publish(final ErrorHandler errorHandler, final Object message1, final Object message2, final Object message3) {
+        final Subscription subscription = get(message1);
+
+        boolean hasSubs = this.wildcard.publish(errorHandler, message1, message2, message3);
+        if (subscription != null) {
+            hasSubs |= subscription.publish(errorHandler, message1, message2, message3);
+        }
+        return hasSubs;
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message) {
+        final Subscription subscription = get(message);
+
+        boolean hasSubs = this.wildcard.request(errorHandler, collector, message);
+        if (subscription != null && !collector.isComplete()) {
+            hasSubs |= subscription.request(errorHandler, collector, message);
+        }
+        return hasSubs;
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2) {
+        final Subscription subscription = get(message1);
+
+        boolean hasSubs = this.wildcard.request(errorHandler, collector, message1, message2);
+        if (subscription != null && !collector.isComplete()) {
+            hasSubs |= subscription.request(errorHandler, collector, message1, message2);
+        }
+        return hasSubs;
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2,
+                    final Object message3) {
+        final Subscription subscription = get(message1);
+
+        boolean hasSubs = this.wildcard.request(errorHandler, collector, message1, message2, message3);
+        if (subscription != null && !collector.isComplete()) {
+            hasSubs |= subscription.request(errorHandler, collector, message1, message2, message3);
+        }
+        return hasSubs;
+    }
+}
@@ -16,7 +16,9 @@
 package dorkbox.messageBus.subscription;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import com.esotericsoftware.kryo.util.IdentityMap;
@@ -46,8 +48,15 @@ class SubscriptionManager {
     public static final float LOAD_FACTOR = 0.8F;
     private static final Subscription[] EMPTY_SUBS = new Subscription[0];
 
+    /**
+     * Returned (by identity) from getSuperSubs() when there are no exact AND no super subscriptions for a message type, so the
+     * dispatch can skip every other lookup for messages that nobody is listening for.
+     */
+    public static final Subscription[] DEAD_SUBS = new Subscription[0];
+
     // controls if we use java reflection or ASM to access methods during publication
     private final SubscriptionFactory subscriptionFactory;
+    private final boolean useStrongReferencesByDefault;
 
 
     // ONLY used by SUB/UNSUB
@@ -60,6 +69,13 @@ class SubscriptionManager {
     // once a collection of subscriptions is stored it does not change
     private final IdentityMap<Class<?>, Subscription[]> subsPerListener;
 
+    // ONLY used by SUB/UNSUB
+    // the subscriptions of the listeners that were subscribed to specific message types, these are not shared with other listeners
+    private final IdentityMap<Object, Subscription[]> subsPerInstance;
+
+    // every subscription (of every listener class), for lock-free monitoring. Only replaced (copy-on-write) by SUB
+    private volatile Subscription[] allSubscriptions = EMPTY_SUBS;
+
     // We perpetually KEEP the types registered here, and just change what is sub/unsub
 
     // all subscriptions of a message type.
@@ -70,6 +86,10 @@ class SubscriptionManager {
     private volatile IdentityMap<Class<?>, Subscription[]> subsSuperSingle;
     private volatile IdentityMap<MultiClass, Subscription[]> subsSuperMulti;
 
+    // changed (by SUB/UNSUB) every time the super subscriptions are cleared, so a publisher that calculated the super subscriptions from an
+    // older snapshot does not keep them (especially DEAD_SUBS, which would hide the exact subscriptions)
+    private volatile int generation = 0;
+
     // In order to force the "single writer principle" for subscribe & unsubscribe, they are within SYNCHRONIZED.
     //
     // These methods **COULD** be dispatched via another thread (so it's only one thread ever touching them), however we do NOT want them
@@ -103,8 +123,22 @@ class SubscriptionManager {
                                                            IdentityMap.class,
                                                            "subsSuperMulti");
 
+    // higher priorities are first. The sort is stable, so subscriptions with the same priority stay in the order they were subscribed
+    private static final Comparator<Subscription> PRIORITY_ORDER = new Comparator<Subscription>() {
+        @Override
+        public
+        int compare(final Subscription o1, final Subscription o2) {
+            final int priority1 = o1.getHandler().getPriority();
+            final int priority2 = o2.getHandler().getPriority();
+
+            return priority1 < priority2 ? 1 : (priority1 == priority2 ? 0 : -1);
+        }
+    };
+
     public
     SubscriptionManager(final boolean useStrongReferencesByDefault) {
+        this.useStrongReferencesByDefault = useStrongReferencesByDefault;
+
         // not all platforms support ASM. ASM is our default, and is just-as-fast and directly invoking the method
         if (MessageBus.useAsmForDispatch) {
             this.subscriptionFactory = new AsmFactory(useStrongReferencesByDefault);
@@ -120,6 +154,7 @@ class SubscriptionManager {
         // modified ONLY during SUB/UNSUB
         nonListeners = new IdentityMap<Class<?>, Boolean>(16, LOAD_FACTOR);
         subsPerListener = new IdentityMap<Class<?>, Subscription[]>(32, LOAD_FACTOR);
+        subsPerInstance = new IdentityMap<Object, Subscription[]>(16, LOAD_FACTOR);
         subsSingle = new IdentityMap<Class<?>, Subscription[]>(32, LOAD_FACTOR);
         subsMulti = new IdentityMap<MultiClass, Subscription[]>(32, LOAD_FACTOR);
 
@@ -152,11 +187,19 @@ class SubscriptionManager {
                     }
                 }
             }
+
+            for (IdentityMap.Entry<Object, Subscription[]> entry : subsPerInstance.entries()) {
+                for (Subscription subscription : entry.value) {
+                    subscription.clear();
+                }
+            }
         }
 
         this.nonListeners.clear();
+        this.subsPerInstance.clear();
 
         this.subsPerListener.clear();
+        this.allSubscriptions = EMPTY_SUBS;
 
         this.subsSingle.clear();
         this.subsMulti.clear();
@@ -227,7 +270,7 @@ class SubscriptionManager {
                 for (int i = 0; i < handlersSize; i++) {
                     messageHandler = messageHandlers[i];
 
-                    subscription = subscriptionFactory.create(listenerClass, messageHandler);
+                    subscription = createSubscription(listenerClass, messageHandler);
                     subscription.subscribe(listener);  // register this callback listener to this subscription
                     subscriptions[i] = subscription;
 
@@ -243,18 +286,7 @@ class SubscriptionManager {
 
 
                             // makes this subscription visible for publication
-                            final Subscription[] newSubs;
-                            Subscription[] currentSubs = singleSubs.get(handlerType);
-                            if (currentSubs != null) {
-                                final int currentLength = currentSubs.length;
-
-                                // add the new subscription to the array
-                                newSubs = Arrays.copyOf(currentSubs, currentLength + 1, Subscription[].class);
-                                newSubs[currentLength] = subscription;
-                            } else {
-                                newSubs = new Subscription[1];
-                                newSubs[0] = subscription;
-                            }
+                            final Subscription[] newSubs = addByPriority(singleSubs.get(handlerType), subscription);
 
                             singleSubs.put(handlerType, newSubs);
                             break;
@@ -264,18 +296,7 @@ class SubscriptionManager {
                             handlerType = messageHandlerTypes[0];
 
                             // makes this subscription visible for publication
-                            final Subscription[] newSubs;
-                            Subscription[] currentSubs = singleSubs.get(handlerType);
-                            if (currentSubs != null) {
-                                final int currentLength = currentSubs.length;
-
-                                // add the new subscription to the array
-                                newSubs = Arrays.copyOf(currentSubs, currentLength + 1, Subscription[].class);
-                                newSubs[currentLength] = subscription;
-                            } else {
-                                newSubs = new Subscription[1];
-                                newSubs[0] = subscription;
-                            }
+                            final Subscription[] newSubs = addByPriority(singleSubs.get(handlerType), subscription);
 
                             singleSubs.put(handlerType, newSubs);
 
@@ -286,19 +307,7 @@ class SubscriptionManager {
                             multiClass = classTree.get(messageHandlerTypes[0], messageHandlerTypes[1]);
 
                             // makes this subscription visible for publication
-                            final Subscription[] newSubs;
-                            Subscription[] currentSubs = multiSubs.get(multiClass);
-
-                            if (currentSubs != null) {
-                                final int currentLength = currentSubs.length;
-
-                                // add the new subscription to the array
-                                newSubs = Arrays.copyOf(currentSubs, currentLength + 1, Subscription[].class);
-                                newSubs[currentLength] = subscription;
-                            } else {
-                                newSubs = new Subscription[1];
-                                newSubs[0] = subscription;
-                            }
+                            final Subscription[] newSubs = addByPriority(multiSubs.get(multiClass), subscription);
 
                             multiSubs.put(multiClass, newSubs);
                             break;
@@ -308,19 +317,7 @@ class SubscriptionManager {
                             multiClass = classTree.get(messageHandlerTypes[0], messageHandlerTypes[1], messageHandlerTypes[2]);
 
                             // makes this subscription visible for publication
-                            final Subscription[] newSubs;
-                            Subscription[] currentSubs = multiSubs.get(multiClass);
-
-                            if (currentSubs != null) {
-                                final int currentLength = currentSubs.length;
-
-                                // add the new subscription to the array
-                                newSubs = Arrays.copyOf(currentSubs, currentLength + 1, Subscription[].class);
-                                newSubs[currentLength] = subscription;
-                            } else {
-                                newSubs = new Subscription[1];
-                                newSubs[0] = subscription;
-                            }
+                            final Subscription[] newSubs = addByPriority(multiSubs.get(multiClass), subscription);
 
                             multiSubs.put(multiClass, newSubs);
                             break;
@@ -335,21 +332,7 @@ class SubscriptionManager {
                 // activates this sub for sub/unsub (only used by the subscription writer thread)
                 subsPerListener.put(listenerClass, subscriptions);
 
-
-                // save this snapshot back to the original (single writer principle)
-                subsSingleREF.lazySet(this, singleSubs);
-                subsMultiREF.lazySet(this, multiSubs);
-
-
-                // only dump the super subscriptions if it is a COMPLETELY NEW subscription.
-                // If it's not new, then the hierarchy isn't changing for super subscriptions
-                IdentityMap<Class<?>, Subscription[]> superSingleSubs = subsSuperSingleREF.get(this);
-                superSingleSubs.clear();
-                subsSuperSingleREF.lazySet(this, superSingleSubs);
-
-                IdentityMap<MultiClass, Subscription[]> superMultiSubs = subsSuperMultiREF.get(this);
-                superMultiSubs.clear();
-                subsSuperMultiREF.lazySet(this, superMultiSubs);
+                activate(subscriptions, singleSubs, multiSubs);
             }
             else {
                 // subscriptions already exist and must only be updated
@@ -363,9 +346,286 @@ class SubscriptionManager {
     }
 
 
+    /**
+     * Subscribes the single message handlers of a listener, but only for the given message types (and their sub types) instead of every
+     * message the handler accepts. For example, a handler for Object is only invoked for the given types, so the other messages still
+     * become dead messages. These subscriptions are only for this listener, and are removed (by unsubscribe) with it. Until then, the
+     * listener is strongly referenced (even if it's handlers use weak references).
+     *
+     * @param messageTypes each must be accepted by at least one of the handlers
+     */
+    public
+    void subscribe(final Object listener, final Class<?>[] messageTypes) {
+        final Class<?> listenerClass = listener.getClass();
+        final MessageHandler[] messageHandlers = MessageHandler.get(listenerClass);
+
+        for (Class<?> messageType : messageTypes) {
+            if (!accepts(messageHandlers, messageType)) {
+                throw new IllegalArgumentException(listenerClass.getName() + " does not have a handler for " + messageType.getName());
+            }
+        }
+
+        // synchronized is used here to ensure the "single writer principle"
+        synchronized (singleWriterLock) {
+            if (subsPerInstance.containsKey(listener)) {
+                // already subscribed
+                return;
+            }
+
+            final List<Subscription> subscriptions = new ArrayList<Subscription>();
+
+            // access a snapshot of the subscriptions (single-writer-principle)
+            final IdentityMap<Class<?>, Subscription[]> singleSubs = subsSingleREF.get(this);
+            final IdentityMap<MultiClass, Subscription[]> multiSubs = subsMultiREF.get(this);
+
+            for (Class<?> messageType : messageTypes) {
+                for (MessageHandler messageHandler : messageHandlers) {
+                    if (!accepts(messageHandler, messageType)) {
+                        continue;
+                    }
+
+                    final MessageHandler typedHandler = messageHandler.forMessageType(messageType);
+                    final Subscription subscription = createSubscription(listenerClass, typedHandler);
+                    subscription.subscribe(listener);
+                    subscriptions.add(subscription);
+
+                    // makes this subscription visible for publication
+                    singleSubs.put(messageType, addByPriority(singleSubs.get(messageType), subscription));
+                }
+            }
+
+            final Subscription[] newSubscriptions = subscriptions.toArray(new Subscription[subscriptions.size()]);
+            subsPerInstance.put(listener, newSubscriptions);
+
+            activate(newSubscriptions, singleSubs, multiSubs);
+        }
+    }
+
+    private static
+    boolean accepts(final MessageHandler messageHandler, final Class<?> messageType) {
+        final Class<?>[] handledMessages = messageHandler.getHandledMessages();
+        return handledMessages.length == 1 && handledMessages[0].isAssignableFrom(messageType);
+    }
+
+    private static
+    boolean accepts(final MessageHandler[] messageHandlers, final Class<?> messageType) {
+        for (MessageHandler messageHandler : messageHandlers) {
+            if (accepts(messageHandler, messageType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * single writer principle!
+     * Makes the new subscriptions (which were added to the snapshots) visible for publication
+     */
+    private
+    void activate(final Subscription[] subscriptions, final IdentityMap<Class<?>, Subscription[]> singleSubs,
+                  final IdentityMap<MultiClass, Subscription[]> multiSubs) {
+
+        final Subscription[] currentSubscriptions = this.allSubscriptions;
+        final Subscription[] newSubscriptions = new Subscription[currentSubscriptions.length + subscriptions.length];
+        System.arraycopy(currentSubscriptions, 0, newSubscriptions, 0, currentSubscriptions.length);
+        System.arraycopy(subscriptions, 0, newSubscriptions, currentSubscriptions.length, subscriptions.length);
+        this.allSubscriptions = newSubscriptions;
+
+
+        // save this snapshot back to the original (single writer principle)
+        subsSingleREF.lazySet(this, singleSubs);
+        subsMultiREF.lazySet(this, multiSubs);
+
+
+        // only dump the super subscriptions if it is a COMPLETELY NEW subscription.
+        // If it's not new, then the hierarchy isn't changing for super subscriptions
+        clearSuperSubs();
+    }
+
+    /**
+     * single writer principle!
+     * Removes the subscriptions (that were only for a single listener instance) so they are no longer used for publication
+     */
+    private
+    void deactivate(final Subscription[] subscriptions) {
+        // access a snapshot of the subscriptions (single-writer-principle)
+        final IdentityMap<Class<?>, Subscription[]> singleSubs = subsSingleREF.get(this);
+
+        for (int i = 0; i < subscriptions.length; i++) {
+            final Subscription subscription = subscriptions[i];
+            final Class<?> messageType = subscription.getHandler().getHandledMessages()[0];
+
+            final Subscription[] newSubs = remove(singleSubs.get(messageType), subscription);
+            if (newSubs == null) {
+                // so this type becomes a dead message (again)
+                singleSubs.remove(messageType);
+            }
+            else {
+                singleSubs.put(messageType, newSubs);
+            }
+        }
+
+        Subscription[] newSubscriptions = this.allSubscriptions;
+        for (int i = 0; i < subscriptions.length; i++) {
+            newSubscriptions = remove(newSubscriptions, subscriptions[i]);
+        }
+        this.allSubscriptions = newSubscriptions == null ? EMPTY_SUBS : newSubscriptions;
+
+
+        // save this snapshot back to the original (single writer principle)
+        subsSingleREF.lazySet(this, singleSubs);
+
+        // the super subscriptions might include the removed subscriptions
+        clearSuperSubs();
+    }
+
+    /**
+     * @param currentSubs can be null
+     *
+     * @return the subscriptions without the given subscription, or null if there are none left
+     */
+    private static
+    Subscription[] remove(final Subscription[] currentSubs, final Subscription subscription) {
+        if (currentSubs == null) {
+            return null;
+        }
+
+        final int currentLength = currentSubs.length;
+        for (int i = 0; i < currentLength; i++) {
+            if (currentSubs[i] == subscription) {
+                if (currentLength == 1) {
+                    return null;
+                }
+
+                final Subscription[] newSubs = new Subscription[currentLength - 1];
+                System.arraycopy(currentSubs, 0, newSubs, 0, i);
+                System.arraycopy(currentSubs, i + 1, newSubs, i, currentLength - i - 1);
+                return newSubs;
+            }
+        }
+
+        return currentSubs;
+    }
+
+    /**
+     * single writer principle!
+     * Called once the new subscriptions are visible, so the super subscriptions are calculated again
+     */
+    private
+    void clearSuperSubs() {
+        // first, so that a publisher that is still calculating from the previous snapshot does not keep it's result
+        generation++;
+
+        IdentityMap<Class<?>, Subscription[]> superSingleSubs = subsSuperSingleREF.get(this);
+        superSingleSubs.clear();
+        subsSuperSingleREF.lazySet(this, superSingleSubs);
+
+        IdentityMap<MultiClass, Subscription[]> superMultiSubs = subsSuperMultiREF.get(this);
+        superMultiSubs.clear();
+        subsSuperMultiREF.lazySet(this, superMultiSubs);
+    }
+
+    private
+    Subscription createSubscription(final Class<?> listenerClass, final MessageHandler messageHandler) {
+        // the same as the subscription factory
+        final int referenceType = messageHandler.getReferenceType();
+        final boolean weak = referenceType == MessageHandler.WEAK ||
+                             (referenceType == MessageHandler.UNDEFINED && !useStrongReferencesByDefault);
+
+        if (messageHandler.getMessageKey() != null) {
+            // routed by key, the subscription indexes the listeners by their key
+            return new SubscriptionKeyed(subscriptionFactory, listenerClass, messageHandler, weak);
+        }
+
+        if (SubscriptionPrimitive.isPrimitive(messageHandler)) {
+            // int, long and double handlers are invoked without boxing
+            return new SubscriptionPrimitive(listenerClass, messageHandler, weak);
+        }
+
+        return subscriptionFactory.create(listenerClass, messageHandler);
+    }
+
+    /**
+     * This is a lock-free read, and is safe to call from any thread
+     *
+     * @return every subscription (of every listener class that was subscribed). The array must not be modified.
+     */
+    public
+    Subscription[] getSubscriptions() {
+        return allSubscriptions;
+    }
+
+    /**
+     * Removes the listeners that were garbage collected (weak references) from every subscription, instead of waiting for a
+     * publication to find them.
+     *
+     * @return how many listeners were removed
+     */
+    public
+    int compact() {
+        int count = 0;
+
+        // synchronized is used here to ensure the "single writer principle"
+        synchronized (singleWriterLock) {
+            final Subscription[] subscriptions = this.allSubscriptions;
+            for (int i = 0; i < subscriptions.length; i++) {
+                count += subscriptions[i].compact();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param subscriptions can be null
+     *
+     * @return true if any of the subscriptions has a listener
+     */
+    public static
+    boolean hasListeners(final Subscription[] subscriptions) {
+        if (subscriptions != null) {
+            for (int i = 0; i < subscriptions.length; i++) {
+                if (subscriptions[i].hasListeners()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the subscription after all of the subscriptions with the same (or higher) priority
+     *
+     * @param currentSubs can be null
+     */
+    private static
+    Subscription[] addByPriority(final Subscription[] currentSubs, final Subscription subscription) {
+        if (currentSubs == null) {
+            return new Subscription[] {subscription};
+        }
+
+        final int priority = subscription.getHandler().getPriority();
+        final int currentLength = currentSubs.length;
+
+        int index = currentLength;
+        while (index > 0 && currentSubs[index - 1].getHandler().getPriority() < priority) {
+            index--;
+        }
+
+        final Subscription[] newSubs = new Subscription[currentLength + 1];
+        System.arraycopy(currentSubs, 0, newSubs, 0, index);
+        newSubs[index] = subscription;
+        System.arraycopy(currentSubs, index, newSubs, index + 1, currentLength - index);
+
+        return newSubs;
+    }
+
+
     /**
      * Un-subscribes a specific listener. The infrastructure for subscription never "shrinks", meaning that when a listener is un-subscribed,
-     * the listeners are only removed from the internal map -- the map itself is not cleaned up until a 'shutdown' is called.
+     * the listeners are only removed from the internal map -- the map itself is not cleaned up until a 'shutdown' is called. The only
+     * exception are the subscriptions for specific message types (see {@link #subscribe(Object, Class[])}), which are removed with their
+     * listener.
      *
      * This method uses the "single-writer-principle" for lock-free publication. Since there are only 2
      * methods to guarantee this method can only be called one-at-a-time (either it is only called by one thread, or only one thread can
@@ -380,6 +640,15 @@ class SubscriptionManager {
         // section. Because of this, we can have unlimited reader threads all going at the same time, without contention (which is our
         // use-case 99% of the time)
         synchronized (singleWriterLock) {
+            final Subscription[] instanceSubscriptions = subsPerInstance.remove(listener);
+            if (instanceSubscriptions != null) {
+                // subscribed to specific message types. These subscriptions are only for this listener, so they are removed as well
+                for (int i = 0; i < instanceSubscriptions.length; i++) {
+                    instanceSubscriptions[i].unsubscribe(listener);
+                }
+                deactivate(instanceSubscriptions);
+            }
+
             if (nonListeners.containsKey(listenerClass)) {
                 // early reject of known classes that do not define message handlers
                 return;
@@ -444,6 +713,7 @@ class SubscriptionManager {
         // the only time this is null, is when subscriptions DO NOT exist, and they haven't been calculated. Otherwise, if they are
         // calculated and if they do not exist - this will be an empty array.
         if (subscriptions == null) {
+            final int generation = this.generation;
             final Class<?>[] superClasses = this.classUtils.getSuperClasses(messageClass);  // never returns null, cached response
 
             final int length = superClasses.length;
@@ -489,10 +759,26 @@ class SubscriptionManager {
             }
 
             // subsAsList now contains ALL of the super-class subscriptions.
-            subscriptions = subsAsList.toArray(EMPTY_SUBS);
+            // the order is computed once, so it does not cost anything during publication
+            Collections.sort(subsAsList, PRIORITY_ORDER);
+            if (subsAsList.isEmpty() && localSubs.get(messageClass) == null) {
+                // nothing is subscribed to this type. It stays that way until a new listener class is subscribed
+                subscriptions = DEAD_SUBS;
+            }
+            else {
+                subscriptions = subsAsList.toArray(EMPTY_SUBS);
+            }
             localSuperSubs.put(messageClass, subscriptions);
 
             subsSuperSingleREF.lazySet(this, localSuperSubs);
+
+            if (generation != this.generation) {
+                // a listener class was subscribed while these were calculated, so they might be out of date
+                localSuperSubs.remove(messageClass);
+                if (subscriptions == DEAD_SUBS) {
+                    subscriptions = EMPTY_SUBS;
+                }
+            }
         }
 
         return subscriptions;
@@ -514,6 +800,7 @@ class SubscriptionManager {
         // the only time this is null, is when subscriptions DO NOT exist, and they haven't been calculated. Otherwise, if they are
         // calculated and if they do not exist - this will be an empty array.
         if (subscriptions == null) {
+            final int generation = this.generation;
             final IdentityMap<MultiClass, Subscription[]> localSubs = subsMultiREF.get(this);
 
             Class<?> superClass1;
@@ -581,10 +868,26 @@ class SubscriptionManager {
             }
 
             // subsAsList now contains ALL of the super-class subscriptions.
-            subscriptions = subsAsList.toArray(EMPTY_SUBS);
+            // the order is computed once, so it does not cost anything during publication
+            Collections.sort(subsAsList, PRIORITY_ORDER);
+            if (subsAsList.isEmpty() && localSubs.get(origMultiClass) == null) {
+                // nothing is subscribed to this type. It stays that way until a new listener class is subscribed
+                subscriptions = DEAD_SUBS;
+            }
+            else {
+                subscriptions = subsAsList.toArray(EMPTY_SUBS);
+            }
             localSuperSubs.put(origMultiClass, subscriptions);
 
             subsSuperMultiREF.lazySet(this, localSuperSubs);
+
+            if (generation != this.generation) {
+                // a listener class was subscribed while these were calculated, so they might be out of date
+                localSuperSubs.remove(origMultiClass);
+                if (subscriptions == DEAD_SUBS) {
+                    subscriptions = EMPTY_SUBS;
+                }
+            }
         }
 
         return subscriptions;
@@ -607,6 +910,7 @@ class SubscriptionManager {
         // the only time this is null, is when subscriptions DO NOT exist, and they haven't been calculated. Otherwise, if they are
         // calculated and if they do not exist - this will be an empty array.
         if (subscriptions == null) {
+            final int generation = this.generation;
             final IdentityMap<MultiClass, Subscription[]> localSubs = subsMultiREF.get(this);
 
             Class<?> superClass1;
@@ -691,10 +995,26 @@ class SubscriptionManager {
             }
 
             // subsAsList now contains ALL of the super-class subscriptions.
-            subscriptions = subsAsList.toArray(EMPTY_SUBS);
+            // the order is computed once, so it does not cost anything during publication
+            Collections.sort(subsAsList, PRIORITY_ORDER);
+            if (subsAsList.isEmpty() && localSubs.get(origMultiClass) == null) {
+                // nothing is subscribed to this type. It stays that way until a new listener class is subscribed
+                subscriptions = DEAD_SUBS;
+            }
+            else {
+                subscriptions = subsAsList.toArray(EMPTY_SUBS);
+            }
             localSuperSubs.put(origMultiClass, subscriptions);
 
             subsSuperMultiREF.lazySet(this, localSuperSubs);
+
+            if (generation != this.generation) {
+                // a listener class was subscribed while these were calculated, so they might be out of date
+                localSuperSubs.remove(origMultiClass);
+                if (subscriptions == DEAD_SUBS) {
+                    subscriptions = EMPTY_SUBS;
+                }
+            }
         }
 
         return subscriptions;
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+
+import dorkbox.messageBus.common.MessageHandler;
+import dorkbox.messageBus.dispatch.DispatchCancel;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.filter.IMessageFilter;
+import dorkbox.messageBus.filter.IPrimitiveMessageFilter;
+import dorkbox.messageBus.request.ResponseCollector;
+
+/**
+ * A subscription for a handler with a single int, long or double parameter. The handler is invoked via a method handle of the exact
+ * type (listener, primitive), so the message is never boxed.
+ * <p/>
+ * These subscriptions are registered for the primitive class (ie: int.class), and only receive messages from publish(int),
+ * publish(long) and publish(double).
+ * <p/>
+ * This class uses the "single writer principle", so that the subscription are only MODIFIED by a single thread,
+ * but are READ by X number of threads (in a safe way). This uses object thread visibility/publication to work.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+@SuppressWarnings("Duplicates")
+public final
+class SubscriptionPrimitive extends Subscription<Object> {
+
+    /**
+     * @return true if the handler can be invoked without boxing
+     */
+    public static
+    boolean isPrimitive(final MessageHandler handler) {
+        final Class<?>[] handledMessages = handler.getHandledMessages();
+        if (handledMessages.length != 1) {
+            return false;
+        }
+
+        final Class<?> type = handledMessages[0];
+        return type == int.class || type == long.class || type == double.class;
+    }
+
+    private final Object singleWriterLock = new Object();
+
+    private final MethodHandle handle;
+    private final boolean weak;
+    private final boolean isSynchronized;
+    private final IMessageFilter filter;
+    private final IPrimitiveMessageFilter primitiveFilter; // null if the filter only accepts (boxed) objects
+
+    public
+    SubscriptionPrimitive(final Class<?> listenerClass, final MessageHandler handler, final boolean weak) {
+        super(listenerClass, handler, weak);
+
+        this.weak = weak;
+        this.isSynchronized = handler.isSynchronized();
+        this.filter = handler.getFilter();
+        this.primitiveFilter = filter instanceof IPrimitiveMessageFilter ? (IPrimitiveMessageFilter) filter : null;
+
+        final Method method = handler.getMethod();
+        try {
+            method.setAccessible(true);
+            this.handle = MethodHandles.lookup()
+                                       .unreflect(method)
+                                       .asType(MethodType.methodType(void.class, Object.class, handler.getHandledMessages()[0]));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unable to access the handler " + method, e);
+        }
+    }
+
+    @Override
+    public
+    Entry<Object> createEntry(final Object listener, final Entry<Object> head) {
+        if (weak) {
+            return new Entry<Object>(new WeakReference<Object>(listener), head);
+        }
+        return new Entry<Object>(listener, head);
+    }
+
+    @Override
+    public
+    void subscribe(final Object listener) {
+        // extra locking to ensure the single-writer-principle (with regards to how cleaning up orphans works)
+        synchronized (singleWriterLock) {
+            super.subscribe(listener);
+        }
+    }
+
+    @Override
+    public
+    void unsubscribe(final Object listener) {
+        // extra locking to ensure the single-writer-principle (with regards to how cleaning up orphans works)
+        synchronized (singleWriterLock) {
+            super.unsubscribe(listener);
+        }
+    }
+
+    /**
+     * @return the listener of the entry, or null if it was garbage collected (the entry is then removed)
+     */
+    private
+    Object getListener(final Entry entry) {
+        if (!weak) {
+            return entry.getValue();
+        }
+
+        final Object listener = ((WeakReference<?>) entry.getValue()).get();
+        if (listener == null) {
+            synchronized (singleWriterLock) {
+                removeReaped(entry); // this means it has been garbage collected!! we need to clean up ourselves
+            }
+        }
+        return listener;
+    }
+
+    @Override
+    public
+    int compact() {
+        if (!weak) {
+            return 0;
+        }
+
+        int count = 0;
+
+        // extra locking to ensure the single-writer-principle (with regards to how cleaning up orphans works)
+        synchronized (singleWriterLock) {
+            Entry current = headREF.get(this);
+            while (current != null) {
+                final Entry next = current.next();
+                if (((WeakReference<?>) current.getValue()).get() == null) {
+                    removeReaped(current);
+                    count++;
+                }
+                current = next;
+            }
+        }
+
+        return count;
+    }
+
+    private
+    boolean accepts(final Object listener, final int message) {
+        if (primitiveFilter != null) {
+            return primitiveFilter.accepts(listener, message);
+        }
+        return filter.accepts(listener, Integer.valueOf(message));
+    }
+
+    private
+    boolean accepts(final Object listener, final long message) {
+        if (primitiveFilter != null) {
+            return primitiveFilter.accepts(listener, message);
+        }
+        return filter.accepts(listener, Long.valueOf(message));
+    }
+
+    private
+    boolean accepts(final Object listener, final double message) {
+        if (primitiveFilter != null) {
+            return primitiveFilter.accepts(listener, message);
+        }
+        return filter.accepts(listener, Double.valueOf(message));
+    }
+
+    public
+    boolean publish(final ErrorHandler errorHandler, final int message) {
+        final MethodHandle handle = this.handle;
+
+        Entry head = headREF.get(this);
+        Entry current = head;
+        Entry entry;
+        Object listener;
+        while (current != null) {
+            entry = current;
+            current = current.next();
+
+            listener = getListener(entry);
+            if (listener == null || (filter != null && !accepts(listener, message))) {
+                continue;
+            }
+
+            try {
+                if (isSynchronized) {
+                    synchronized (listener) {
+                        handle.invokeExact(listener, message);
+                    }
+                }
+                else {
+                    handle.invokeExact(listener, message);
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during publication of message.", e, message);
+            }
+        }
+
+        return head != null;  // true if we have something to publish to, otherwise false
+    }
+
+    public
+    boolean publish(final ErrorHandler errorHandler, final long message) {
+        final MethodHandle handle = this.handle;
+
+        Entry head = headREF.get(this);
+        Entry current = head;
+        Entry entry;
+        Object listener;
+        while (current != null) {
+            entry = current;
+            current = current.next();
+
+            listener = getListener(entry);
+            if (listener == null || (filter != null && !accepts(listener, message))) {
+                continue;
+            }
+
+            try {
+                if (isSynchronized) {
+                    synchronized (listener) {
+                        handle.invokeExact(listener, message);
+                    }
+                }
+                else {
+                    handle.invokeExact(listener, message);
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during publication of message.", e, message);
+            }
+        }
+
+        return head != null;  // true if we have something to publish to, otherwise false
+    }
+
+    public
+    boolean publish(final ErrorHandler errorHandler, final double message) {
+        final MethodHandle handle = this.handle;
+
+        Entry head = headREF.get(this);
+        Entry current = head;
+        Entry entry;
+        Object listener;
+        while (current != null) {
+            entry = current;
+            current = current.next();
+
+            listener = getListener(entry);
+            if (listener == null || (filter != null && !accepts(listener, message))) {
+                continue;
+            }
+
+            try {
+                if (isSynchronized) {
+                    synchronized (listener) {
+                        handle.invokeExact(listener, message);
+                    }
+                }
+                else {
+                    handle.invokeExact(listener, message);
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during publication of message.", e, message);
+            }
+        }
+
+        return head != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean publish(final ErrorHandler errorHandler, final Object message) {
+        // only used if the message was boxed, the dispatch never registers these subscriptions for the wrapper types
+        final Class<?> type = getHandler().getHandledMessages()[0];
+        if (type == int.class && message instanceof Integer) {
+            return publish(errorHandler, ((Integer) message).intValue());
+        }
+        if (type == long.class && message instanceof Long) {
+            return publish(errorHandler, ((Long) message).longValue());
+        }
+        if (type == double.class && message instanceof Double) {
+            return publish(errorHandler, ((Double) message).doubleValue());
+        }
+        return false;
+    }
+
+    @Override
+    public
+    boolean publish(final ErrorHandler errorHandler, final Object message1, final Object message2) {
+        return false;
+    }
+
+    @Override
+    public
+    boolean publish(final ErrorHandler errorHandler, final Object message1, final Object message2, final Object message3) {
+        return false;
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message) {
+        return false;
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2) {
+        return false;
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2,
+                    final Object message3) {
+        return false;
+    }
+}
@@ -15,6 +15,8 @@
  */
 package dorkbox.messageBus.subscription.asm;
 
+import com.esotericsoftware.reflectasm.MethodAccess;
+
 import dorkbox.messageBus.common.MessageHandler;
 import dorkbox.messageBus.subscription.Subscription;
 import dorkbox.messageBus.subscription.SubscriptionFactory;
@@ -25,6 +27,20 @@ import dorkbox.messageBus.subscription.SubscriptionFactory;
 public
 class AsmFactory implements SubscriptionFactory {
 
+    // the generated access for a class is shared by every bus in the JVM, so the class is only generated (and searched) once
+    private static final ClassValue<MethodAccess> METHOD_ACCESS = new ClassValue<MethodAccess>() {
+        @Override
+        protected
+        MethodAccess computeValue(final Class<?> type) {
+            return MethodAccess.get(type);
+        }
+    };
+
+    static
+    MethodAccess getMethodAccess(final Class<?> type) {
+        return METHOD_ACCESS.get(type);
+    }
+
     private final boolean useStrongReferencesByDefault;
 
     public
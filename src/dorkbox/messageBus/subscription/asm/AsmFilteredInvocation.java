@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription.asm;
+
+import com.esotericsoftware.reflectasm.MethodAccess;
+
+import dorkbox.messageBus.filter.IMessageFilter;
+
+/**
+ * Only invokes the handler if the (first) message is accepted by the handler's @Filter. Rejected messages are not delivered, and
+ * do not produce a response.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+class AsmFilteredInvocation implements AsmInvocation {
+
+    private final AsmInvocation delegate;
+    private final IMessageFilter filter;
+
+    public
+    AsmFilteredInvocation(final AsmInvocation delegate, final IMessageFilter filter) {
+        this.delegate = delegate;
+        this.filter = filter;
+    }
+
+    @Override
+    public
+    Object invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message) throws Throwable {
+        if (this.filter.accepts(listener, message)) {
+            return this.delegate.invoke(listener, handler, methodIndex, message);
+        }
+        return null;
+    }
+
+    @Override
+    public
+    Object invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message1, final Object message2) throws Throwable {
+        if (this.filter.accepts(listener, message1)) {
+            return this.delegate.invoke(listener, handler, methodIndex, message1, message2);
+        }
+        return null;
+    }
+
+    @Override
+    public
+    Object invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message1, final Object message2, final Object message3) throws Throwable {
+        if (this.filter.accepts(listener, message1)) {
+            return this.delegate.invoke(listener, handler, methodIndex, message1, message2, message3);
+        }
+        return null;
+    }
+}
@@ -37,8 +37,12 @@
  */
 package dorkbox.messageBus.subscription.asm;
 
+import java.lang.reflect.Method;
+
 import com.esotericsoftware.reflectasm.MethodAccess;
 
+import dorkbox.messageBus.jfr.FlightRecorder;
+
 /**
  * Uses reflection to invoke a message handler for a given message.
  *
@@ -50,26 +54,54 @@ import com.esotericsoftware.reflectasm.MethodAccess;
 public
 class AsmReflectiveInvocation implements AsmInvocation {
 
+    // only used to name the handler in the JFR event
+    private final Method method;
+
     public
-    AsmReflectiveInvocation() {
+    AsmReflectiveInvocation(final Method method) {
         super();
+        this.method = method;
     }
 
     @Override
     public
-    void invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message) throws Throwable {
-        handler.invoke(listener, methodIndex, message);
+    Object invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message) throws Throwable {
+        final Object event = FlightRecorder.beginHandlerInvocation();
+
+        try {
+            return handler.invoke(listener, methodIndex, message);
+        } finally {
+            if (event != null) {
+                FlightRecorder.endHandlerInvocation(event, listener, method);
+            }
+        }
     }
 
     @Override
     public
-    void invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message1, final Object message2) throws Throwable {
-        handler.invoke(listener, methodIndex, message1, message2);
+    Object invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message1, final Object message2) throws Throwable {
+        final Object event = FlightRecorder.beginHandlerInvocation();
+
+        try {
+            return handler.invoke(listener, methodIndex, message1, message2);
+        } finally {
+            if (event != null) {
+                FlightRecorder.endHandlerInvocation(event, listener, method);
+            }
+        }
     }
 
     @Override
     public
-    void invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message1, final Object message2, final Object message3) throws Throwable {
-        handler.invoke(listener, methodIndex, message1, message2, message3);
+    Object invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message1, final Object message2, final Object message3) throws Throwable {
+        final Object event = FlightRecorder.beginHandlerInvocation();
+
+        try {
+            return handler.invoke(listener, methodIndex, message1, message2, message3);
+        } finally {
+            if (event != null) {
+                FlightRecorder.endHandlerInvocation(event, listener, method);
+            }
+        }
     }
 }
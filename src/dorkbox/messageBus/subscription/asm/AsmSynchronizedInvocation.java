@@ -59,25 +59,25 @@ class AsmSynchronizedInvocation implements AsmInvocation {
 
     @Override
     public
-    void invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message) throws Throwable {
+    Object invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message) throws Throwable {
         synchronized (listener) {
-            this.delegate.invoke(listener, handler, methodIndex, message);
+            return this.delegate.invoke(listener, handler, methodIndex, message);
         }
     }
 
     @Override
     public
-    void invoke(final Object listener, final MethodAccess handler, int methodIndex, final Object message1, final Object message2) throws Throwable {
+    Object invoke(final Object listener, final MethodAccess handler, int methodIndex, final Object message1, final Object message2) throws Throwable {
         synchronized (listener) {
-            this.delegate.invoke(listener, handler, methodIndex, message1, message2);
+            return this.delegate.invoke(listener, handler, methodIndex, message1, message2);
         }
     }
 
     @Override
     public
-    void invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message1, final Object message2, final Object message3) throws Throwable {
+    Object invoke(final Object listener, final MethodAccess handler, final int methodIndex, final Object message1, final Object message2, final Object message3) throws Throwable {
         synchronized (listener) {
-            this.delegate.invoke(listener, handler, methodIndex, message1, message2, message3);
+            return this.delegate.invoke(listener, handler, methodIndex, message1, message2, message3);
         }
     }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription.asm;
+
+import com.esotericsoftware.reflectasm.MethodAccess;
+
+import dorkbox.messageBus.common.HandlerIndex;
+
+/**
+ * Invokes the handlers via the index that was generated at build time, instead of generating the method access at runtime. Only
+ * invoke(Object, int, Object...) is supported, where the method index is the position of the handler in the index.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+final
+class IndexMethodAccess extends MethodAccess {
+    private final HandlerIndex index;
+
+    IndexMethodAccess(final HandlerIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public
+    Object invoke(final Object object, final int methodIndex, final Object... args) {
+        try {
+            switch (args.length) {
+                case 1:
+                    return index.invoke(methodIndex, object, args[0]);
+                case 2:
+                    return index.invoke(methodIndex, object, args[0], args[1]);
+                case 3:
+                    return index.invoke(methodIndex, object, args[0], args[1], args[2]);
+                default:
+                    throw new IllegalArgumentException("Handlers with " + args.length + " parameters are not supported");
+            }
+        } catch (Throwable e) {
+            // checked exceptions are rethrown as-is, the same as a method access that is generated at runtime
+            throw IndexMethodAccess.<RuntimeException>rethrow(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static
+    <T extends Throwable> T rethrow(final Throwable throwable) throws T {
+        throw (T) throwable;
+    }
+}
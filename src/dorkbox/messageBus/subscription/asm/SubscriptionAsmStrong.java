@@ -45,6 +45,7 @@ import dorkbox.messageBus.common.MessageHandler;
 import dorkbox.messageBus.dispatch.DispatchCancel;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.request.ResponseCollector;
 import dorkbox.messageBus.subscription.Entry;
 import dorkbox.messageBus.subscription.Subscription;
 
@@ -76,17 +77,28 @@ class SubscriptionAsmStrong extends Subscription<Object> {
         // we use ASM here
         super(listenerClass, handler);
 
-        AsmInvocation invocation = new AsmReflectiveInvocation();
+        AsmInvocation invocation = new AsmReflectiveInvocation(handler.getMethod());
         if (handler.isSynchronized()) {
             invocation = new AsmSynchronizedInvocation(invocation);
         }
+        if (handler.getFilter() != null) {
+            // checked before acquiring the lock (if any), so rejected messages are as cheap as possible
+            invocation = new AsmFilteredInvocation(invocation, handler.getFilter());
+        }
 
         this.invocation = invocation;
 
         // we use ASM here
         Method method = handler.getMethod();
-        this.handlerAccess = MethodAccess.get(method.getDeclaringClass());
-        this.methodIndex = this.handlerAccess.getIndex(method.getName(), handler.getHandledMessages());
+        if (handler.getIndex() != null) {
+            // generated at build time, so nothing has to be generated here
+            this.handlerAccess = new IndexMethodAccess(handler.getIndex());
+            this.methodIndex = handler.getIndexPosition();
+        }
+        else {
+            this.handlerAccess = AsmFactory.getMethodAccess(method.getDeclaringClass());
+            this.methodIndex = this.handlerAccess.getIndex(method.getName(), method.getParameterTypes());
+        }
     }
 
     @Override
@@ -115,9 +127,7 @@ class SubscriptionAsmStrong extends Subscription<Object> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message);
             }
         }
 
@@ -144,9 +154,7 @@ class SubscriptionAsmStrong extends Subscription<Object> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message1, message2));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message1, message2);
             }
         }
 
@@ -173,9 +181,109 @@ class SubscriptionAsmStrong extends Subscription<Object> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message1, message2, message3));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message1, message2, message3);
+            }
+        }
+
+        return head != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message) {
+        final MethodAccess handler = this.handlerAccess;
+        final int handleIndex = this.methodIndex;
+        final AsmInvocation invocation = this.invocation;
+
+        Entry head = headREF.get(this);
+        Entry current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue();
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, handler, handleIndex, message);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message);
+            }
+        }
+
+        return head != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2) {
+        final MethodAccess handler = this.handlerAccess;
+        final int handleIndex = this.methodIndex;
+        final AsmInvocation invocation = this.invocation;
+
+        Entry head = headREF.get(this);
+        Entry current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue();
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, handler, handleIndex, message1, message2);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message1, message2);
+            }
+        }
+
+        return head != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2, final Object message3) {
+        final MethodAccess handler = this.handlerAccess;
+        final int handleIndex = this.methodIndex;
+        final AsmInvocation invocation = this.invocation;
+
+        Entry head = headREF.get(this);
+        Entry current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue();
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, handler, handleIndex, message1, message2, message3);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message1, message2, message3);
             }
         }
 
@@ -46,6 +46,7 @@ import dorkbox.messageBus.common.MessageHandler;
 import dorkbox.messageBus.dispatch.DispatchCancel;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.request.ResponseCollector;
 import dorkbox.messageBus.subscription.Entry;
 import dorkbox.messageBus.subscription.Subscription;
 
@@ -77,19 +78,30 @@ class SubscriptionAsmWeak extends Subscription<WeakReference<Object>> {
     public
     SubscriptionAsmWeak(final Class<?> listenerClass, final MessageHandler handler) {
         // we use ASM here
-        super(listenerClass, handler);
+        super(listenerClass, handler, true);
 
-        AsmInvocation invocation = new AsmReflectiveInvocation();
+        AsmInvocation invocation = new AsmReflectiveInvocation(handler.getMethod());
         if (handler.isSynchronized()) {
             invocation = new AsmSynchronizedInvocation(invocation);
         }
+        if (handler.getFilter() != null) {
+            // checked before acquiring the lock (if any), so rejected messages are as cheap as possible
+            invocation = new AsmFilteredInvocation(invocation, handler.getFilter());
+        }
 
         this.invocation = invocation;
 
         // we use ASM here
         Method method = handler.getMethod();
-        this.handlerAccess = MethodAccess.get(method.getDeclaringClass());
-        this.methodIndex = this.handlerAccess.getIndex(method.getName(), handler.getHandledMessages());
+        if (handler.getIndex() != null) {
+            // generated at build time, so nothing has to be generated here
+            this.handlerAccess = new IndexMethodAccess(handler.getIndex());
+            this.methodIndex = handler.getIndexPosition();
+        }
+        else {
+            this.handlerAccess = AsmFactory.getMethodAccess(method.getDeclaringClass());
+            this.methodIndex = this.handlerAccess.getIndex(method.getName(), method.getParameterTypes());
+        }
     }
 
     @Override
@@ -116,6 +128,27 @@ class SubscriptionAsmWeak extends Subscription<WeakReference<Object>> {
         }
     }
 
+    @Override
+    public
+    int compact() {
+        int count = 0;
+
+        // extra locking to ensure the single-writer-principle (with regards to how cleaning up orphans works)
+        synchronized (singleWriterLock) {
+            Entry<WeakReference<Object>> current = cast(headREF.get(this));
+            while (current != null) {
+                final Entry<WeakReference<Object>> next = current.next();
+                if (current.getValue().get() == null) {
+                    removeReaped(current);
+                    count++;
+                }
+                current = next;
+            }
+        }
+
+        return count;
+    }
+
     @Override
     public
     boolean publish(final ErrorHandler errorHandler, final Object message) {
@@ -132,7 +165,7 @@ class SubscriptionAsmWeak extends Subscription<WeakReference<Object>> {
                 Entry<WeakReference<Object>> next = current.next();
 
                 synchronized (singleWriterLock) {
-                    removeNode(current); // this means it has been garbage collected!! we need to clean up ourselves
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
                 }
                 current = next;
                 continue;
@@ -145,9 +178,7 @@ class SubscriptionAsmWeak extends Subscription<WeakReference<Object>> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message);
             }
         }
 
@@ -171,7 +202,7 @@ class SubscriptionAsmWeak extends Subscription<WeakReference<Object>> {
                 Entry<WeakReference<Object>> next = current.next();
 
                 synchronized (singleWriterLock) {
-                    removeNode(current); // this means it has been garbage collected!! we need to clean up ourselves
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
                 }
                 current = next;
                 continue;
@@ -184,9 +215,7 @@ class SubscriptionAsmWeak extends Subscription<WeakReference<Object>> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message1, message2));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message1, message2);
             }
         }
 
@@ -210,7 +239,7 @@ class SubscriptionAsmWeak extends Subscription<WeakReference<Object>> {
                 Entry<WeakReference<Object>> next = current.next();
 
                 synchronized (singleWriterLock) {
-                    removeNode(current); // this means it has been garbage collected!! we need to clean up ourselves
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
                 }
                 current = next;
                 continue;
@@ -223,9 +252,139 @@ class SubscriptionAsmWeak extends Subscription<WeakReference<Object>> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message1, message2, message3));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message1, message2, message3);
+            }
+        }
+
+        // because the value can be GC'd at any time, this is the best guess possible
+        return head != null && head.getValue() != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message) {
+        final MethodAccess handler = this.handlerAccess;
+        final int handleIndex = this.methodIndex;
+        final AsmInvocation invocation = this.invocation;
+
+        Entry<WeakReference<Object>> head = cast(headREF.get(this));
+        Entry<WeakReference<Object>> current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue().get();
+            if (listener == null) {
+                Entry<WeakReference<Object>> next = current.next();
+
+                synchronized (singleWriterLock) {
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
+                }
+                current = next;
+                continue;
+            }
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, handler, handleIndex, message);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message);
+            }
+        }
+
+        // because the value can be GC'd at any time, this is the best guess possible
+        return head != null && head.getValue() != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2) {
+        final MethodAccess handler = this.handlerAccess;
+        final int handleIndex = this.methodIndex;
+        final AsmInvocation invocation = this.invocation;
+
+        Entry<WeakReference<Object>> head = cast(headREF.get(this));
+        Entry<WeakReference<Object>> current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue().get();
+            if (listener == null) {
+                Entry<WeakReference<Object>> next = current.next();
+
+                synchronized (singleWriterLock) {
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
+                }
+                current = next;
+                continue;
+            }
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, handler, handleIndex, message1, message2);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message1, message2);
+            }
+        }
+
+        // because the value can be GC'd at any time, this is the best guess possible
+        return head != null && head.getValue() != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2, final Object message3) {
+        final MethodAccess handler = this.handlerAccess;
+        final int handleIndex = this.methodIndex;
+        final AsmInvocation invocation = this.invocation;
+
+        Entry<WeakReference<Object>> head = cast(headREF.get(this));
+        Entry<WeakReference<Object>> current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue().get();
+            if (listener == null) {
+                Entry<WeakReference<Object>> next = current.next();
+
+                synchronized (singleWriterLock) {
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
+                }
+                current = next;
+                continue;
+            }
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, handler, handleIndex, message1, message2, message3);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message1, message2, message3);
             }
         }
 
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription.reflection;
+
+import java.lang.reflect.Method;
+
+import dorkbox.messageBus.filter.IMessageFilter;
+
+/**
+ * Only invokes the handler if the (first) message is accepted by the handler's @Filter. Rejected messages are not delivered, and
+ * do not produce a response.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public
+class ReflectionFilteredInvocation implements ReflectionInvocation {
+
+    private final ReflectionInvocation delegate;
+    private final IMessageFilter filter;
+
+    public
+    ReflectionFilteredInvocation(final ReflectionInvocation delegate, final IMessageFilter filter) {
+        this.delegate = delegate;
+        this.filter = filter;
+    }
+
+    @Override
+    public
+    Object invoke(final Object listener, final Method handler, final Object message) throws Throwable {
+        if (this.filter.accepts(listener, message)) {
+            return this.delegate.invoke(listener, handler, message);
+        }
+        return null;
+    }
+
+    @Override
+    public
+    Object invoke(final Object listener, final Method handler, final Object message1, final Object message2) throws Throwable {
+        if (this.filter.accepts(listener, message1)) {
+            return this.delegate.invoke(listener, handler, message1, message2);
+        }
+        return null;
+    }
+
+    @Override
+    public
+    Object invoke(final Object listener, final Method handler, final Object message1, final Object message2, final Object message3) throws Throwable {
+        if (this.filter.accepts(listener, message1)) {
+            return this.delegate.invoke(listener, handler, message1, message2, message3);
+        }
+        return null;
+    }
+}
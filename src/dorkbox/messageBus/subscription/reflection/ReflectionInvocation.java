@@ -64,8 +64,10 @@ interface ReflectionInvocation {
      * @param message  The message to be delivered to the handler. This can be any object compatible with the object
      *                 type that the handler consumes
      * @param handler  The handler (method) that will be called via reflection
+     *
+     * @return the value returned by the handler, or null if the handler is void
      */
-    void invoke(Object listener, Method handler, Object message) throws Throwable;
+    Object invoke(Object listener, Method handler, Object message) throws Throwable;
 
     /**
      * Invoke the message delivery logic of this handler
@@ -75,8 +77,10 @@ interface ReflectionInvocation {
      * @param message1  The message to be delivered to the handler. This can be any object compatible with the object
      *                 type that the handler consumes
      * @param handler  The handler (method) that will be called via reflection
+     *
+     * @return the value returned by the handler, or null if the handler is void
      */
-    void invoke(Object listener, Method handler, Object message1, Object message2) throws Throwable;
+    Object invoke(Object listener, Method handler, Object message1, Object message2) throws Throwable;
 
     /**
      * Invoke the message delivery logic of this handler
@@ -86,6 +90,8 @@ interface ReflectionInvocation {
      * @param message1  The message to be delivered to the handler. This can be any object compatible with the object
      *                 type that the handler consumes
      * @param handler  The handler (method) that will be called via reflection
+     *
+     * @return the value returned by the handler, or null if the handler is void
      */
-    void invoke(Object listener, Method handler, Object message1, Object message2, Object message3) throws Throwable;
+    Object invoke(Object listener, Method handler, Object message1, Object message2, Object message3) throws Throwable;
 }
@@ -37,8 +37,12 @@
  */
 package dorkbox.messageBus.subscription.reflection;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
+import dorkbox.messageBus.dispatch.DispatchCancel;
+import dorkbox.messageBus.jfr.FlightRecorder;
+
 /**
  * Uses reflection to invoke a message handler for a given message.
  *
@@ -55,21 +59,62 @@ class ReflectionReflectiveInvocation implements ReflectionInvocation {
         super();
     }
 
+    /**
+     * MessageBus.cancel() must reach the subscription as-is, otherwise it is reported as an error
+     */
+    private static
+    Throwable unwrap(final InvocationTargetException e) {
+        if (e.getCause() instanceof DispatchCancel) {
+            return e.getCause();
+        }
+        return e;
+    }
+
     @Override
     public
-    void invoke(final Object listener, final Method handler, final Object message) throws Throwable {
-        handler.invoke(listener, message);
+    Object invoke(final Object listener, final Method handler, final Object message) throws Throwable {
+        final Object event = FlightRecorder.beginHandlerInvocation();
+
+        try {
+            return handler.invoke(listener, message);
+        } catch (InvocationTargetException e) {
+            throw unwrap(e);
+        } finally {
+            if (event != null) {
+                FlightRecorder.endHandlerInvocation(event, listener, handler);
+            }
+        }
     }
 
     @Override
     public
-    void invoke(final Object listener, final Method handler, final Object message1, final Object message2) throws Throwable {
-        handler.invoke(listener, message1, message2);
+    Object invoke(final Object listener, final Method handler, final Object message1, final Object message2) throws Throwable {
+        final Object event = FlightRecorder.beginHandlerInvocation();
+
+        try {
+            return handler.invoke(listener, message1, message2);
+        } catch (InvocationTargetException e) {
+            throw unwrap(e);
+        } finally {
+            if (event != null) {
+                FlightRecorder.endHandlerInvocation(event, listener, handler);
+            }
+        }
     }
 
     @Override
     public
-    void invoke(final Object listener, final Method handler, final Object message1, final Object message2, final Object message3) throws Throwable {
-        handler.invoke(listener, message1, message2, message3);
+    Object invoke(final Object listener, final Method handler, final Object message1, final Object message2, final Object message3) throws Throwable {
+        final Object event = FlightRecorder.beginHandlerInvocation();
+
+        try {
+            return handler.invoke(listener, message1, message2, message3);
+        } catch (InvocationTargetException e) {
+            throw unwrap(e);
+        } finally {
+            if (event != null) {
+                FlightRecorder.endHandlerInvocation(event, listener, handler);
+            }
+        }
     }
 }
@@ -59,25 +59,25 @@ class ReflectionSynchronizedInvocation implements ReflectionInvocation {
 
     @Override
     public
-    void invoke(final Object listener, final Method handler, final Object message) throws Throwable {
+    Object invoke(final Object listener, final Method handler, final Object message) throws Throwable {
         synchronized (listener) {
-            this.delegate.invoke(listener, handler, message);
+            return this.delegate.invoke(listener, handler, message);
         }
     }
 
     @Override
     public
-    void invoke(final Object listener, Method handler, final Object message1, final Object message2) throws Throwable {
+    Object invoke(final Object listener, Method handler, final Object message1, final Object message2) throws Throwable {
         synchronized (listener) {
-            this.delegate.invoke(listener, handler, message1, message2);
+            return this.delegate.invoke(listener, handler, message1, message2);
         }
     }
 
     @Override
     public
-    void invoke(final Object listener, final Method handler, final Object message1, final Object message2, final Object message3) throws Throwable {
+    Object invoke(final Object listener, final Method handler, final Object message1, final Object message2, final Object message3) throws Throwable {
         synchronized (listener) {
-            this.delegate.invoke(listener, handler, message1, message2, message3);
+            return this.delegate.invoke(listener, handler, message1, message2, message3);
         }
     }
 }
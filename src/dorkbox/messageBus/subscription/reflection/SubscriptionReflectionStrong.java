@@ -43,6 +43,7 @@ import dorkbox.messageBus.common.MessageHandler;
 import dorkbox.messageBus.dispatch.DispatchCancel;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.request.ResponseCollector;
 import dorkbox.messageBus.subscription.Entry;
 import dorkbox.messageBus.subscription.Subscription;
 
@@ -76,6 +77,10 @@ class SubscriptionReflectionStrong extends Subscription<Object> {
         if (handler.isSynchronized()) {
             invocation = new ReflectionSynchronizedInvocation(invocation);
         }
+        if (handler.getFilter() != null) {
+            // checked before acquiring the lock (if any), so rejected messages are as cheap as possible
+            invocation = new ReflectionFilteredInvocation(invocation, handler.getFilter());
+        }
 
         this.invocation = invocation;
         method = handler.getMethod();
@@ -106,9 +111,7 @@ class SubscriptionReflectionStrong extends Subscription<Object> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message);
             }
         }
 
@@ -134,9 +137,7 @@ class SubscriptionReflectionStrong extends Subscription<Object> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message1, message2));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message1, message2);
             }
         }
 
@@ -162,9 +163,106 @@ class SubscriptionReflectionStrong extends Subscription<Object> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message1, message2, message3));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message1, message2, message3);
+            }
+        }
+
+        return head != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message) {
+        final Method method = this.method;
+        final ReflectionInvocation invocation = this.invocation;
+
+        Entry head = headREF.get(this);
+        Entry current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue();
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, method, message);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message);
+            }
+        }
+
+        return head != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2) {
+        final Method method = this.method;
+        final ReflectionInvocation invocation = this.invocation;
+
+        Entry head = headREF.get(this);
+        Entry current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue();
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, method, message1, message2);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message1, message2);
+            }
+        }
+
+        return head != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2, final Object message3) {
+        final Method method = this.method;
+        final ReflectionInvocation invocation = this.invocation;
+
+        Entry head = headREF.get(this);
+        Entry current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue();
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, method, message1, message2, message3);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message1, message2, message3);
             }
         }
 
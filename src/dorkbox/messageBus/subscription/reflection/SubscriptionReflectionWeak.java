@@ -44,6 +44,7 @@ import dorkbox.messageBus.common.MessageHandler;
 import dorkbox.messageBus.dispatch.DispatchCancel;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.request.ResponseCollector;
 import dorkbox.messageBus.subscription.Entry;
 import dorkbox.messageBus.subscription.Subscription;
 
@@ -73,12 +74,16 @@ class SubscriptionReflectionWeak extends Subscription<WeakReference<Object>> {
     public
     SubscriptionReflectionWeak(final Class<?> listenerClass, final MessageHandler handler) {
         // we use "normal java" here
-        super(listenerClass, handler);
+        super(listenerClass, handler, true);
 
         ReflectionInvocation invocation = new ReflectionReflectiveInvocation();
         if (handler.isSynchronized()) {
             invocation = new ReflectionSynchronizedInvocation(invocation);
         }
+        if (handler.getFilter() != null) {
+            // checked before acquiring the lock (if any), so rejected messages are as cheap as possible
+            invocation = new ReflectionFilteredInvocation(invocation, handler.getFilter());
+        }
 
         this.invocation = invocation;
         method = handler.getMethod();
@@ -108,6 +113,27 @@ class SubscriptionReflectionWeak extends Subscription<WeakReference<Object>> {
         }
     }
 
+    @Override
+    public
+    int compact() {
+        int count = 0;
+
+        // extra locking to ensure the single-writer-principle (with regards to how cleaning up orphans works)
+        synchronized (singleWriterLock) {
+            Entry<WeakReference<Object>> current = cast(headREF.get(this));
+            while (current != null) {
+                final Entry<WeakReference<Object>> next = current.next();
+                if (current.getValue().get() == null) {
+                    removeReaped(current);
+                    count++;
+                }
+                current = next;
+            }
+        }
+
+        return count;
+    }
+
     @Override
     public
     boolean publish(final ErrorHandler errorHandler, final Object message) {
@@ -123,7 +149,7 @@ class SubscriptionReflectionWeak extends Subscription<WeakReference<Object>> {
                 Entry<WeakReference<Object>> next = current.next();
 
                 synchronized (singleWriterLock) {
-                    removeNode(current); // this means it has been garbage collected!! we need to clean up ourselves
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
                 }
                 current = next;
                 continue;
@@ -136,9 +162,7 @@ class SubscriptionReflectionWeak extends Subscription<WeakReference<Object>> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message);
             }
         }
 
@@ -161,7 +185,7 @@ class SubscriptionReflectionWeak extends Subscription<WeakReference<Object>> {
                 Entry<WeakReference<Object>> next = current.next();
 
                 synchronized (singleWriterLock) {
-                    removeNode(current); // this means it has been garbage collected!! we need to clean up ourselves
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
                 }
                 current = next;
                 continue;
@@ -174,9 +198,7 @@ class SubscriptionReflectionWeak extends Subscription<WeakReference<Object>> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message1, message2));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message1, message2);
             }
         }
 
@@ -199,7 +221,7 @@ class SubscriptionReflectionWeak extends Subscription<WeakReference<Object>> {
                 Entry<WeakReference<Object>> next = current.next();
 
                 synchronized (singleWriterLock) {
-                    removeNode(current); // this means it has been garbage collected!! we need to clean up ourselves
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
                 }
                 current = next;
                 continue;
@@ -212,9 +234,136 @@ class SubscriptionReflectionWeak extends Subscription<WeakReference<Object>> {
                 // we want to cancel the dispatch for this specific message
                 throw e;
             } catch (Throwable e) {
-                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
-                                                                          .setCause(e)
-                                                                          .setPublishedObject(message1, message2, message3));
+                errorHandler.handlePublicationError("Error during publication of message.", e, message1, message2, message3);
+            }
+        }
+
+        // because the value can be GC'd at any time, this is the best guess possible
+        return head != null && head.getValue() != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message) {
+        final Method method = this.method;
+        final ReflectionInvocation invocation = this.invocation;
+
+        Entry<WeakReference<Object>> head = cast(headREF.get(this));
+        Entry<WeakReference<Object>> current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue().get();
+            if (listener == null) {
+                Entry<WeakReference<Object>> next = current.next();
+
+                synchronized (singleWriterLock) {
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
+                }
+                current = next;
+                continue;
+            }
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, method, message);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message);
+            }
+        }
+
+        // because the value can be GC'd at any time, this is the best guess possible
+        return head != null && head.getValue() != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2) {
+        final Method method = this.method;
+        final ReflectionInvocation invocation = this.invocation;
+
+        Entry<WeakReference<Object>> head = cast(headREF.get(this));
+        Entry<WeakReference<Object>> current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue().get();
+            if (listener == null) {
+                Entry<WeakReference<Object>> next = current.next();
+
+                synchronized (singleWriterLock) {
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
+                }
+                current = next;
+                continue;
+            }
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, method, message1, message2);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message1, message2);
+            }
+        }
+
+        // because the value can be GC'd at any time, this is the best guess possible
+        return head != null && head.getValue() != null;  // true if we have something to publish to, otherwise false
+    }
+
+    @Override
+    public
+    boolean request(final ErrorHandler errorHandler, final ResponseCollector collector, final Object message1, final Object message2, final Object message3) {
+        final Method method = this.method;
+        final ReflectionInvocation invocation = this.invocation;
+
+        Entry<WeakReference<Object>> head = cast(headREF.get(this));
+        Entry<WeakReference<Object>> current = head;
+        Object listener;
+        Object response;
+        while (current != null) {
+            listener = current.getValue().get();
+            if (listener == null) {
+                Entry<WeakReference<Object>> next = current.next();
+
+                synchronized (singleWriterLock) {
+                    removeReaped(current); // this means it has been garbage collected!! we need to clean up ourselves
+                }
+                current = next;
+                continue;
+            }
+            current = current.next();
+
+            try {
+                response = invocation.invoke(listener, method, message1, message2, message3);
+                if (response != null) {
+                    collector.collect(response);
+                    if (collector.isComplete()) {
+                        break;
+                    }
+                }
+            } catch (DispatchCancel e) {
+                // we want to cancel the dispatch for this specific message
+                throw e;
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError("Error during request of message.", e, message1, message2, message3);
             }
         }
 
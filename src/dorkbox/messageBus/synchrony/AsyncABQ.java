@@ -16,14 +16,15 @@
 package dorkbox.messageBus.synchrony;
 
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import dorkbox.messageBus.dispatch.Dispatch;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.request.ResponseFuture;
 import dorkbox.messageBus.synchrony.disruptor.MessageType;
 import dorkbox.messageBus.util.NamedThreadFactory;
 
@@ -44,9 +45,18 @@ class AsyncABQ implements Synchrony {
 
     private final ArrayBlockingQueue<MessageHolder> dispatchQueue;
     private final Collection<Thread> threads;
-    private final Collection<Boolean> shutdown;
     private final ErrorHandler errorHandler;
 
+    // messages that have been queued, but have not finished being processed
+    private final AtomicLong pending = new AtomicLong();
+    private final Quiescence quiescence = new Quiescence() {
+        @Override
+        public
+        long getPendingCount() {
+            return pending.get();
+        }
+    };
+
     /**
      * Notifies the consumers during shutdown that it's on purpose.
      */
@@ -71,15 +81,10 @@ class AsyncABQ implements Synchrony {
                 while (!AsyncABQ.this.shuttingDown) {
                     process(IN_QUEUE, errorHandler1);
                 }
-
-                synchronized (shutdown) {
-                    shutdown.add(Boolean.TRUE);
-                }
             }
         };
 
         this.threads = new ArrayDeque<Thread>(numberOfThreads);
-        this.shutdown = new ArrayList<Boolean>();
 
         final NamedThreadFactory threadFactory = new NamedThreadFactory("MessageBus");
         for (int i = 0; i < numberOfThreads; i++) {
@@ -99,6 +104,8 @@ class AsyncABQ implements Synchrony {
         Object message1 = null;
         Object message2 = null;
         Object message3 = null;
+        ResponseFuture<?> future;
+        long primitive;
 
         try {
             event = queue.take();
@@ -108,21 +115,58 @@ class AsyncABQ implements Synchrony {
             message1 = event.message1;
             message2 = event.message2;
             message3 = event.message3;
+            future = event.future;
+            primitive = event.primitive;
 
-            switch (messageType) {
-                case MessageType.ONE: {
-                    dispatch.publish(message1);
-                    return;
-                }
-                case MessageType.TWO: {
-                    dispatch.publish(message1, message2);
-                    return;
-                }
-                case MessageType.THREE: {
-                    dispatch.publish(message1, message2, message3);
-                    //noinspection UnnecessaryReturnStatement
-                    return;
+            try {
+                switch (messageType) {
+                    case MessageType.ONE: {
+                        dispatch.publish(message1);
+                        return;
+                    }
+                    case MessageType.TWO: {
+                        dispatch.publish(message1, message2);
+                        return;
+                    }
+                    case MessageType.THREE: {
+                        dispatch.publish(message1, message2, message3);
+                        return;
+                    }
+                    case MessageType.INT:
+                    case MessageType.LONG:
+                    case MessageType.DOUBLE: {
+                        MessageHolder.publishPrimitive(dispatch, messageType, primitive);
+                        return;
+                    }
+                    case MessageType.REQUEST_ONE: {
+                        try {
+                            dispatch.request(future.getCollector(), message1);
+                        } finally {
+                            future.done();
+                        }
+                        return;
+                    }
+                    case MessageType.REQUEST_TWO: {
+                        try {
+                            dispatch.request(future.getCollector(), message1, message2);
+                        } finally {
+                            future.done();
+                        }
+                        return;
+                    }
+                    case MessageType.REQUEST_THREE: {
+                        try {
+                            dispatch.request(future.getCollector(), message1, message2, message3);
+                        } finally {
+                            future.done();
+                        }
+                        //noinspection UnnecessaryReturnStatement
+                        return;
+                    }
                 }
+            } finally {
+                pending.decrementAndGet();
+                quiescence.signal();
             }
         } catch (InterruptedException e) {
             if (!this.shuttingDown) {
@@ -151,6 +195,19 @@ class AsyncABQ implements Synchrony {
         }
     }
 
+    private
+    void enqueue(final MessageHolder job) throws InterruptedException {
+        pending.incrementAndGet();
+
+        try {
+            this.dispatchQueue.put(job);
+        } catch (InterruptedException e) {
+            pending.decrementAndGet();
+            quiescence.signal();
+            throw e;
+        }
+    }
+
     @Override
     public
     void publish(final Dispatch dispatch, final Object message1) {
@@ -162,7 +219,7 @@ class AsyncABQ implements Synchrony {
         job.message1 = message1;
 
         try {
-            this.dispatchQueue.put(job);
+            enqueue(job);
         } catch (InterruptedException e) {
             errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
                                                                       .setCause(e)
@@ -182,7 +239,7 @@ class AsyncABQ implements Synchrony {
         job.message2 = message2;
 
         try {
-            this.dispatchQueue.put(job);
+            enqueue(job);
         } catch (InterruptedException e) {
             errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
                                                                       .setCause(e)
@@ -203,7 +260,7 @@ class AsyncABQ implements Synchrony {
         job.message3 = message3;
 
         try {
-            this.dispatchQueue.put(job);
+            enqueue(job);
         } catch (InterruptedException e) {
             errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
                                                                       .setCause(e)
@@ -211,13 +268,103 @@ class AsyncABQ implements Synchrony {
         }
     }
 
+    @Override
+    public
+    void publishPrimitive(final Dispatch dispatch, final int type, final long value) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = type;
+        job.dispatch = dispatch;
+
+        job.primitive = value;
+
+        try {
+            enqueue(job);
+        } catch (InterruptedException e) {
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(value));
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = MessageType.REQUEST_ONE;
+        job.dispatch = dispatch;
+        job.future = future;
+
+        job.message1 = message1;
+
+        try {
+            enqueue(job);
+        } catch (InterruptedException e) {
+            future.done();
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during request queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1));
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = MessageType.REQUEST_TWO;
+        job.dispatch = dispatch;
+        job.future = future;
+
+        job.message1 = message1;
+        job.message2 = message2;
+
+        try {
+            enqueue(job);
+        } catch (InterruptedException e) {
+            future.done();
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during request queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1, message2));
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2, final Object message3) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = MessageType.REQUEST_THREE;
+        job.dispatch = dispatch;
+        job.future = future;
+
+        job.message1 = message1;
+        job.message2 = message2;
+        job.message3 = message3;
+
+        try {
+            enqueue(job);
+        } catch (InterruptedException e) {
+            future.done();
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during request queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1, message2, message3));
+        }
+    }
+
     @Override
     public
     boolean hasPendingMessages() {
         return !this.dispatchQueue.isEmpty();
     }
 
-    @SuppressWarnings("Duplicates")
+    @Override
+    public
+    boolean awaitQuiescence(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return quiescence.await(timeout, unit);
+    }
+
     @Override
     public
     void shutdown() {
@@ -227,13 +374,40 @@ class AsyncABQ implements Synchrony {
             t.interrupt();
         }
 
-        while (true) {
-            synchronized (shutdown) {
-                if (shutdown.size() == threads.size()) {
-                    return;
+        boolean interrupted = false;
+        for (Thread t : this.threads) {
+            while (true) {
+                try {
+                    t.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
                 }
-                LockSupport.parkNanos(100L); // wait 100ms for threads to quit
             }
         }
+
+        // the workers are stopped, so the messages that are still queued will never be dispatched
+        MessageHolder job;
+        while ((job = dispatchQueue.poll()) != null) {
+            job.abandon();
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public
+    int shutdown(final long drainTimeout, final TimeUnit unit) {
+        try {
+            quiescence.await(drainTimeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        shutdown();
+
+        return (int) Math.min(Integer.MAX_VALUE, pending.get());
     }
 }
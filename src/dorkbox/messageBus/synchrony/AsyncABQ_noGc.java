@@ -16,14 +16,15 @@
 package dorkbox.messageBus.synchrony;
 
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import dorkbox.messageBus.dispatch.Dispatch;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.request.ResponseFuture;
 import dorkbox.messageBus.synchrony.disruptor.MessageType;
 import dorkbox.messageBus.util.NamedThreadFactory;
 
@@ -48,9 +49,18 @@ class AsyncABQ_noGc implements Synchrony {
     private final ArrayBlockingQueue<MessageHolder> gcQueue;
 
     private final Collection<Thread> threads;
-    private final Collection<Boolean> shutdown;
     private final ErrorHandler errorHandler;
 
+    // messages that have been queued, but have not finished being processed
+    private final AtomicLong pending = new AtomicLong();
+    private final Quiescence quiescence = new Quiescence() {
+        @Override
+        public
+        long getPendingCount() {
+            return pending.get();
+        }
+    };
+
     /**
      * Notifies the consumers during shutdown that it's on purpose.
      */
@@ -83,15 +93,10 @@ class AsyncABQ_noGc implements Synchrony {
                 while (!AsyncABQ_noGc.this.shuttingDown) {
                     process(IN_QUEUE, OUT_QUEUE, errorHandler1);
                 }
-
-                synchronized (shutdown) {
-                    shutdown.add(Boolean.TRUE);
-                }
             }
         };
 
         this.threads = new ArrayDeque<Thread>(numberOfThreads);
-        this.shutdown = new ArrayList<Boolean>();
 
         final NamedThreadFactory threadFactory = new NamedThreadFactory("MessageBus");
         for (int i = 0; i < numberOfThreads; i++) {
@@ -113,6 +118,8 @@ class AsyncABQ_noGc implements Synchrony {
         Object message1 = null;
         Object message2 = null;
         Object message3 = null;
+        ResponseFuture<?> future;
+        long primitive;
 
         try {
             event = queue.take();
@@ -122,23 +129,62 @@ class AsyncABQ_noGc implements Synchrony {
             message1 = event.message1;
             message2 = event.message2;
             message3 = event.message3;
+            future = event.future;
+            primitive = event.primitive;
 
-            gcQueue.put(event);
+            try {
+                // the holder is reused, so it must not keep the message(s) alive
+                event.clear();
+                gcQueue.put(event);
 
-            switch (messageType) {
-                case MessageType.ONE: {
-                    dispatch.publish(message1);
-                    return;
-                }
-                case MessageType.TWO: {
-                    dispatch.publish(message1, message2);
-                    return;
-                }
-                case MessageType.THREE: {
-                    dispatch.publish(message1, message2, message3);
-                    //noinspection UnnecessaryReturnStatement
-                    return;
+                switch (messageType) {
+                    case MessageType.ONE: {
+                        dispatch.publish(message1);
+                        return;
+                    }
+                    case MessageType.TWO: {
+                        dispatch.publish(message1, message2);
+                        return;
+                    }
+                    case MessageType.THREE: {
+                        dispatch.publish(message1, message2, message3);
+                        return;
+                    }
+                    case MessageType.INT:
+                    case MessageType.LONG:
+                    case MessageType.DOUBLE: {
+                        MessageHolder.publishPrimitive(dispatch, messageType, primitive);
+                        return;
+                    }
+                    case MessageType.REQUEST_ONE: {
+                        try {
+                            dispatch.request(future.getCollector(), message1);
+                        } finally {
+                            future.done();
+                        }
+                        return;
+                    }
+                    case MessageType.REQUEST_TWO: {
+                        try {
+                            dispatch.request(future.getCollector(), message1, message2);
+                        } finally {
+                            future.done();
+                        }
+                        return;
+                    }
+                    case MessageType.REQUEST_THREE: {
+                        try {
+                            dispatch.request(future.getCollector(), message1, message2, message3);
+                        } finally {
+                            future.done();
+                        }
+                        //noinspection UnnecessaryReturnStatement
+                        return;
+                    }
                 }
+            } finally {
+                pending.decrementAndGet();
+                quiescence.signal();
             }
         } catch (InterruptedException e) {
             if (!this.shuttingDown) {
@@ -167,6 +213,19 @@ class AsyncABQ_noGc implements Synchrony {
         }
     }
 
+    private
+    void enqueue(final MessageHolder job) throws InterruptedException {
+        pending.incrementAndGet();
+
+        try {
+            this.dispatchQueue.put(job);
+        } catch (InterruptedException e) {
+            pending.decrementAndGet();
+            quiescence.signal();
+            throw e;
+        }
+    }
+
     @Override
     public
     void publish(final Dispatch dispatch, final Object message1) {
@@ -178,7 +237,7 @@ class AsyncABQ_noGc implements Synchrony {
 
             job.message1 = message1;
 
-            this.dispatchQueue.put(job);
+            enqueue(job);
         } catch (InterruptedException e) {
             errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
                                                                       .setCause(e)
@@ -198,7 +257,7 @@ class AsyncABQ_noGc implements Synchrony {
             job.message1 = message1;
             job.message2 = message2;
 
-            this.dispatchQueue.put(job);
+            enqueue(job);
         } catch (InterruptedException e) {
             errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
                                                                       .setCause(e)
@@ -219,7 +278,7 @@ class AsyncABQ_noGc implements Synchrony {
             job.message2 = message2;
             job.message3 = message3;
 
-            this.dispatchQueue.put(job);
+            enqueue(job);
         } catch (InterruptedException e) {
             errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
                                                                       .setCause(e)
@@ -227,13 +286,103 @@ class AsyncABQ_noGc implements Synchrony {
         }
     }
 
+    @Override
+    public
+    void publishPrimitive(final Dispatch dispatch, final int type, final long value) {
+        try {
+            MessageHolder job = gcQueue.take();
+
+            job.type = type;
+            job.dispatch = dispatch;
+
+            job.primitive = value;
+
+            enqueue(job);
+        } catch (InterruptedException e) {
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(value));
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1) {
+        try {
+            MessageHolder job = gcQueue.take();
+
+            job.type = MessageType.REQUEST_ONE;
+            job.dispatch = dispatch;
+            job.future = future;
+
+            job.message1 = message1;
+
+            enqueue(job);
+        } catch (InterruptedException e) {
+            future.done();
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during request queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1));
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2) {
+        try {
+            MessageHolder job = gcQueue.take();
+
+            job.type = MessageType.REQUEST_TWO;
+            job.dispatch = dispatch;
+            job.future = future;
+
+            job.message1 = message1;
+            job.message2 = message2;
+
+            enqueue(job);
+        } catch (InterruptedException e) {
+            future.done();
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during request queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1, message2));
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2, final Object message3) {
+        try {
+            MessageHolder job = gcQueue.take();
+
+            job.type = MessageType.REQUEST_THREE;
+            job.dispatch = dispatch;
+            job.future = future;
+
+            job.message1 = message1;
+            job.message2 = message2;
+            job.message3 = message3;
+
+            enqueue(job);
+        } catch (InterruptedException e) {
+            future.done();
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during request queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1, message2, message3));
+        }
+    }
+
     @Override
     public
     boolean hasPendingMessages() {
         return !this.dispatchQueue.isEmpty();
     }
 
-    @SuppressWarnings("Duplicates")
+    @Override
+    public
+    boolean awaitQuiescence(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return quiescence.await(timeout, unit);
+    }
+
     @Override
     public
     void shutdown() {
@@ -243,13 +392,40 @@ class AsyncABQ_noGc implements Synchrony {
             t.interrupt();
         }
 
-        while (true) {
-            synchronized (shutdown) {
-                if (shutdown.size() == threads.size()) {
-                    return;
+        boolean interrupted = false;
+        for (Thread t : this.threads) {
+            while (true) {
+                try {
+                    t.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
                 }
-                LockSupport.parkNanos(100L); // wait 100ms for threads to quit
             }
         }
+
+        // the workers are stopped, so the messages that are still queued will never be dispatched
+        MessageHolder job;
+        while ((job = dispatchQueue.poll()) != null) {
+            job.abandon();
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public
+    int shutdown(final long drainTimeout, final TimeUnit unit) {
+        try {
+            quiescence.await(drainTimeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        shutdown();
+
+        return (int) Math.min(Integer.MAX_VALUE, pending.get());
     }
 }
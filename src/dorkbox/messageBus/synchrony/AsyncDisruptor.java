@@ -15,28 +15,31 @@
  */
 package dorkbox.messageBus.synchrony;
 
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
 
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.LiteBlockingWaitStrategy;
 import com.lmax.disruptor.PhasedBackoffWaitStrategy;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.Sequence;
-import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.Sequencer;
 import com.lmax.disruptor.WaitStrategy;
-import com.lmax.disruptor.WorkProcessor;
 
 import dorkbox.messageBus.dispatch.Dispatch;
 import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.jfr.FlightRecorder;
+import dorkbox.messageBus.metrics.MetricsRecorder;
+import dorkbox.messageBus.request.ResponseFuture;
+import dorkbox.messageBus.synchrony.disruptor.ElasticWorkProcessor;
 import dorkbox.messageBus.synchrony.disruptor.EventBusFactory;
 import dorkbox.messageBus.synchrony.disruptor.MessageHandler;
 import dorkbox.messageBus.synchrony.disruptor.MessageType;
 import dorkbox.messageBus.synchrony.disruptor.PublicationExceptionHandler;
 import dorkbox.messageBus.util.NamedThreadFactory;
+import dorkbox.messageBus.watchdog.Watchdog;
 
 /**
  * By default, it is the calling thread that has to get the subscriptions, which the sync/async logic then uses.
@@ -49,27 +52,106 @@ import dorkbox.messageBus.util.NamedThreadFactory;
 public final
 class AsyncDisruptor implements Synchrony {
 
-    private final WorkProcessor<MessageHolder>[] workProcessors;
+    // how often the queue depth is checked in order to grow or shrink the number of active workers
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+
+    // a worker is retired after the ring buffer has been empty for this many consecutive samples (1 second)
+    private static final int IDLE_SAMPLES_BEFORE_SHRINK = 100;
+
+    private final int minThreads;
+    private final int maxThreads;
+
+    // each slot has a permanent handler (so the processed counts are never lost), and the processor that is (or was) using it
     private final MessageHandler[] handlers;
+    private final ElasticWorkProcessor[] workProcessors;
+
     private final RingBuffer<MessageHolder> ringBuffer;
     private final Sequence workSequence;
+    private final ThreadPoolExecutor executor;
+    private final PublicationExceptionHandler<MessageHolder> exceptionHandler;
+
+    private final Thread monitor;
+    private volatile boolean monitoring = true;
+
+    // only modified by the constructor and the monitor thread
+    private volatile int activeThreads = 0;
+
+    // when true, every message is timestamped when it is queued (so the metrics can record how long it waited)
+    private final boolean timestamps;
+
+    private final long initialCursor;
+    private final Quiescence quiescence = new Quiescence() {
+        @Override
+        public
+        long getPendingCount() {
+            long processed = 0L;
+            for (MessageHandler handler : handlers) {
+                processed += handler.getProcessedCount();
+            }
 
+            // the cursor is the last CLAIMED sequence, so messages that are still being written by a publisher are pending as well
+            return (ringBuffer.getCursor() - initialCursor) - processed;
+        }
+    };
+
+    /**
+     * @param numberOfThreads how many threads to use for dispatching async messages
+     */
     public
     AsyncDisruptor(final int numberOfThreads, final ErrorHandler errorHandler) {
+        this(numberOfThreads, numberOfThreads, errorHandler);
+    }
+
+    /**
+     * When the min and max number of threads are different, the number of active threads will grow when messages are queued faster than
+     * the active threads can process them, and will shrink (down to the min) when the ring buffer is idle.
+     *
+     * @param minThreads the number of threads that are always active
+     * @param maxThreads the max number of threads to use for dispatching async messages
+     */
+    public
+    AsyncDisruptor(final int minThreads, final int maxThreads, final ErrorHandler errorHandler) {
+        this(minThreads, maxThreads, null, errorHandler);
+    }
+
+    /**
+     * @param minThreads the number of threads that are always active
+     * @param maxThreads the max number of threads to use for dispatching async messages
+     * @param metrics records how long every message waited to be dispatched, or null
+     */
+    public
+    AsyncDisruptor(final int minThreads, final int maxThreads, final MetricsRecorder metrics, final ErrorHandler errorHandler) {
+        this(minThreads, maxThreads, metrics, null, errorHandler);
+    }
+
+    /**
+     * @param minThreads the number of threads that are always active
+     * @param maxThreads the max number of threads to use for dispatching async messages
+     * @param metrics records how long every message waited to be dispatched, or null
+     * @param watchdog watches for handlers that are stuck, or null
+     */
+    public
+    AsyncDisruptor(final int minThreads, final int maxThreads, final MetricsRecorder metrics, final Watchdog watchdog,
+                   final ErrorHandler errorHandler) {
+        this.minThreads = minThreads;
+        this.timestamps = metrics != null;
+        this.maxThreads = maxThreads;
+
         // Now we setup the disruptor and work handlers
 
-        ExecutorService executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads,
-                                                          0, TimeUnit.NANOSECONDS, // handlers are never idle, so this doesn't matter
-                                                          new LinkedBlockingQueue<Runnable>(),  // also, this doesn't matter
-                                                          new NamedThreadFactory("MessageBus"));
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads,
+                                          60L, TimeUnit.SECONDS, // only matters when the number of active threads shrinks
+                                          new LinkedBlockingQueue<Runnable>(),  // this doesn't matter
+                                          watchdog != null ? watchdog.newThreadFactory("MessageBus") : new NamedThreadFactory("MessageBus"));
+        executor.allowCoreThreadTimeOut(minThreads != maxThreads);
 
-        final PublicationExceptionHandler<MessageHolder> exceptionHandler = new PublicationExceptionHandler<MessageHolder>(errorHandler);
+        exceptionHandler = new PublicationExceptionHandler<MessageHolder>(errorHandler);
         EventBusFactory factory = new EventBusFactory();
 
         // setup the work handlers
-        handlers = new MessageHandler[numberOfThreads];
+        handlers = new MessageHandler[maxThreads];
         for (int i = 0; i < handlers.length; i++) {
-            handlers[i] = new MessageHandler();  // exactly one per thread is used
+            handlers[i] = new MessageHandler(quiescence, metrics);  // exactly one per thread is used
         }
 
 
@@ -94,42 +176,135 @@ class AsyncDisruptor implements Synchrony {
 
 
         ringBuffer = RingBuffer.createMultiProducer(factory, BUFFER_SIZE, consumerWaitStrategy);
-        SequenceBarrier sequenceBarrier = ringBuffer.newBarrier();
-
 
-        // setup the WorkProcessors (these consume from the ring buffer -- one at a time) and tell the "handler" to execute the item
+        // setup the work processors (these consume from the ring buffer -- one at a time) and tell the "handler" to execute the item
         workSequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+        workProcessors = new ElasticWorkProcessor[maxThreads];
 
-        final int numWorkers = handlers.length;
-        workProcessors = new WorkProcessor[numWorkers];
+        // configure the start position for the work processors
+        final long cursor = ringBuffer.getCursor();
+        initialCursor = cursor;
+        workSequence.set(cursor);
+        ringBuffer.addGatingSequences(workSequence);
 
-        for (int i = 0; i < numWorkers; i++) {
-            workProcessors[i] = new WorkProcessor<MessageHolder>(ringBuffer,
-                                                                 sequenceBarrier,
-                                                                 handlers[i],
-                                                                 exceptionHandler, workSequence);
+        for (int i = 0; i < minThreads; i++) {
+            startProcessor(i);
         }
+        activeThreads = minThreads;
+
+        if (minThreads != maxThreads) {
+            monitor = new NamedThreadFactory("MessageBus-Monitor").newThread(new Runnable() {
+                @Override
+                public
+                void run() {
+                    monitor();
+                }
+            });
+            monitor.start();
+        }
+        else {
+            monitor = null;
+        }
+    }
 
-        // setup the WorkProcessor sequences (control what is consumed from the ring buffer)
-        final Sequence[] sequences = getSequences();
-        ringBuffer.addGatingSequences(sequences);
+    private
+    void startProcessor(final int index) {
+        final ElasticWorkProcessor processor = new ElasticWorkProcessor(ringBuffer, handlers[index], exceptionHandler, workSequence);
 
+        // start from where the other processors are, and make sure the publishers wait for this processor
+        final Sequence sequence = processor.getSequence();
+        sequence.set(workSequence.get());
+        ringBuffer.addGatingSequences(sequence);
 
-        // configure the start position for the WorkProcessors, and start them
-        final long cursor = ringBuffer.getCursor();
-        workSequence.set(cursor);
+        workProcessors[index] = processor;
+        executor.execute(processor);
+    }
+
+    /**
+     * Grows the active threads when there are more messages queued than there are active threads (which means that either messages are
+     * published faster than they can be processed, or that the handlers are slow), and shrinks them when the ring buffer is idle.
+     */
+    private
+    void monitor() {
+        int idleSamples = 0;
+
+        while (monitoring) {
+            LockSupport.parkNanos(SAMPLE_INTERVAL_NANOS);
+
+            final long pending = quiescence.getPendingCount();
+            final int active = activeThreads;
+
+            if (pending > active) {
+                idleSamples = 0;
+
+                if (active < maxThreads) {
+                    for (int i = 0; i < maxThreads; i++) {
+                        final ElasticWorkProcessor processor = workProcessors[i];
+
+                        // a retired processor might still be finishing it's last message
+                        if (processor == null || processor.isStopped()) {
+                            startProcessor(i);
+                            activeThreads = active + 1;
+                            break;
+                        }
+                    }
+                }
+            }
+            else if (pending == 0L) {
+                if (++idleSamples >= IDLE_SAMPLES_BEFORE_SHRINK) {
+                    idleSamples = 0;
+
+                    if (active > minThreads) {
+                        // retire the last active processor. It will stop after it processes the message it is waiting for
+                        for (int i = maxThreads - 1; i >= 0; i--) {
+                            final ElasticWorkProcessor processor = workProcessors[i];
+
+                            if (processor != null && !processor.isRetired()) {
+                                processor.retire();
+                                activeThreads = active - 1;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            else {
+                idleSamples = 0;
+            }
+        }
+    }
+
+    /**
+     * @return how many threads are currently processing messages
+     */
+    public
+    int getActiveThreads() {
+        return activeThreads;
+    }
+
+    /**
+     * Claims the next slot in the ring buffer, and records a JFR event when the publisher has to wait because the ring buffer is full
+     */
+    private
+    long next() {
+        try {
+            return ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            final Object event = FlightRecorder.beginRingFull();
 
-        for (WorkProcessor<?> processor : workProcessors) {
-            processor.getSequence()
-                     .set(cursor);
-            executor.execute(processor);
+            final long sequence = ringBuffer.next();
+
+            if (event != null) {
+                FlightRecorder.endRingFull(event, ringBuffer.getBufferSize());
+            }
+            return sequence;
         }
     }
 
     @Override
     public
     void publish(final Dispatch dispatch, final Object message1) {
-        long seq = ringBuffer.next();
+        long seq = next();
 
         MessageHolder job = ringBuffer.get(seq);
 
@@ -138,13 +313,18 @@ class AsyncDisruptor implements Synchrony {
 
         job.message1 = message1;
 
+        if (timestamps) {
+            job.timestamp = System.nanoTime();
+        }
+        job.queueWait = FlightRecorder.beginQueueWait();
+
         ringBuffer.publish(seq);
     }
 
     @Override
     public
     void publish(final Dispatch dispatch, final Object message1, final Object message2) {
-        long seq = ringBuffer.next();
+        long seq = next();
 
         MessageHolder job = ringBuffer.get(seq);
 
@@ -154,13 +334,18 @@ class AsyncDisruptor implements Synchrony {
         job.message1 = message1;
         job.message2 = message2;
 
+        if (timestamps) {
+            job.timestamp = System.nanoTime();
+        }
+        job.queueWait = FlightRecorder.beginQueueWait();
+
         ringBuffer.publish(seq);
     }
 
     @Override
     public
     void publish(final Dispatch dispatch, final Object message1, final Object message2, final Object message3) {
-        long seq = ringBuffer.next();
+        long seq = next();
 
         MessageHolder job = ringBuffer.get(seq);
 
@@ -168,50 +353,264 @@ class AsyncDisruptor implements Synchrony {
         job.dispatch = dispatch;
 
         job.message1 = message1;
-        job.message3 = message2;
-        job.message2 = message3;
+        job.message2 = message2;
+        job.message3 = message3;
+
+        if (timestamps) {
+            job.timestamp = System.nanoTime();
+        }
+        job.queueWait = FlightRecorder.beginQueueWait();
 
         ringBuffer.publish(seq);
     }
 
-    // gets the sequences used for processing work
-    private
-    Sequence[] getSequences() {
-        final Sequence[] sequences = new Sequence[workProcessors.length + 1];
-        for (int i = 0, size = workProcessors.length; i < size; i++) {
-            sequences[i] = workProcessors[i].getSequence();
+    @Override
+    public
+    void publishPrimitive(final Dispatch dispatch, final int type, final long value) {
+        long seq = next();
+
+        MessageHolder job = ringBuffer.get(seq);
+
+        job.type = type;
+        job.dispatch = dispatch;
+
+        // stored in the (preallocated) slot, so the value is never boxed
+        job.primitive = value;
+
+        if (timestamps) {
+            job.timestamp = System.nanoTime();
         }
-        sequences[sequences.length - 1] = workSequence;   // always add the work sequence
-        return sequences;
+        job.queueWait = FlightRecorder.beginQueueWait();
+
+        ringBuffer.publish(seq);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1) {
+        long seq = next();
+
+        MessageHolder job = ringBuffer.get(seq);
+
+        job.type = MessageType.REQUEST_ONE;
+        job.dispatch = dispatch;
+        job.future = future;
+
+        job.message1 = message1;
+
+        if (timestamps) {
+            job.timestamp = System.nanoTime();
+        }
+        job.queueWait = FlightRecorder.beginQueueWait();
+
+        ringBuffer.publish(seq);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2) {
+        long seq = next();
+
+        MessageHolder job = ringBuffer.get(seq);
+
+        job.type = MessageType.REQUEST_TWO;
+        job.dispatch = dispatch;
+        job.future = future;
+
+        job.message1 = message1;
+        job.message2 = message2;
+
+        if (timestamps) {
+            job.timestamp = System.nanoTime();
+        }
+        job.queueWait = FlightRecorder.beginQueueWait();
+
+        ringBuffer.publish(seq);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2, final Object message3) {
+        long seq = next();
+
+        MessageHolder job = ringBuffer.get(seq);
+
+        job.type = MessageType.REQUEST_THREE;
+        job.dispatch = dispatch;
+        job.future = future;
+
+        job.message1 = message1;
+        job.message2 = message2;
+        job.message3 = message3;
+
+        if (timestamps) {
+            job.timestamp = System.nanoTime();
+        }
+        job.queueWait = FlightRecorder.beginQueueWait();
+
+        ringBuffer.publish(seq);
     }
 
 
     @Override
     public
     boolean hasPendingMessages() {
-        // from workerPool.drainAndHalt()
-        Sequence[] workerSequences = getSequences();
-        final long cursor = ringBuffer.getCursor();
-        for (Sequence s : workerSequences) {
-            if (cursor > s.get()) {
-                return true;
-            }
+        return quiescence.getPendingCount() > 0L;
+    }
+
+    /**
+     * @return true if a message can be published without waiting for the ring buffer to have space
+     */
+    public
+    boolean hasRemainingCapacity() {
+        return ringBuffer.hasAvailableCapacity(1);
+    }
+
+    /**
+     * @return how many messages the ring buffer can hold
+     */
+    public
+    int getBufferSize() {
+        return ringBuffer.getBufferSize();
+    }
+
+    /**
+     * @return how many messages can be published before the publishers have to wait
+     */
+    public
+    long getRemainingCapacity() {
+        return ringBuffer.remainingCapacity();
+    }
+
+    /**
+     * @return the sequence of the last message that was claimed by a publisher
+     */
+    public
+    long getCursor() {
+        return ringBuffer.getCursor();
+    }
+
+    /**
+     * @return how many messages were queued, but have not finished processing
+     */
+    public
+    long getPendingCount() {
+        return quiescence.getPendingCount();
+    }
+
+    /**
+     * @return the sequence that each worker is processing, or -1 for a worker that has not been started
+     */
+    public
+    long[] getWorkerSequences() {
+        final long[] sequences = new long[workProcessors.length];
+        for (int i = 0; i < sequences.length; i++) {
+            final ElasticWorkProcessor processor = workProcessors[i];
+            sequences[i] = processor == null ? -1L : processor.getSequence().get();
         }
+        return sequences;
+    }
 
-        return false;
+    /**
+     * @return the state of the thread of each worker
+     */
+    public
+    Thread.State[] getWorkerStates() {
+        final Thread.State[] states = new Thread.State[workProcessors.length];
+        for (int i = 0; i < states.length; i++) {
+            final ElasticWorkProcessor processor = workProcessors[i];
+            states[i] = processor == null ? Thread.State.NEW : processor.getThreadState();
+        }
+        return states;
+    }
+
+    @Override
+    public
+    boolean awaitQuiescence(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return quiescence.await(timeout, unit);
     }
 
     @Override
     public
     void shutdown() {
-        for (WorkProcessor<?> processor : workProcessors) {
+        boolean interrupted = false;
+
+        // stop the monitor first, so that the processors do not change
+        if (monitor != null) {
+            monitoring = false;
+            LockSupport.unpark(monitor);
+
+            while (true) {
+                try {
+                    monitor.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        for (ElasticWorkProcessor processor : workProcessors) {
+            if (processor == null) {
+                continue;
+            }
+
+            // halting a processor before it is running does nothing, so we have to wait for them to start first
+            while (true) {
+                try {
+                    processor.awaitStart();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
             processor.halt();
         }
 
-        for (MessageHandler handler : handlers) {
-            while (!handler.isShutdown()) {
-                LockSupport.parkNanos(100L); // wait 100ms for handlers to quit
+        // every processor is halted before waiting, otherwise the others would keep dispatching while the first one finishes
+        for (ElasticWorkProcessor processor : workProcessors) {
+            if (processor == null) {
+                continue;
+            }
+
+            while (true) {
+                try {
+                    processor.awaitStop();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        executor.shutdown();
+
+        // the processors are stopped, so the slots that were not processed (their holder was not cleared) will never be dispatched
+        final long cursor = ringBuffer.getCursor();
+        for (long sequence = Math.max(initialCursor + 1L, cursor - ringBuffer.getBufferSize() + 1L); sequence <= cursor; sequence++) {
+            final MessageHolder holder = ringBuffer.get(sequence);
+            if (holder.future != null) {
+                holder.abandon();
             }
         }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public
+    int shutdown(final long drainTimeout, final TimeUnit unit) {
+        try {
+            quiescence.await(drainTimeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        shutdown();
+
+        return (int) Math.min(Integer.MAX_VALUE, quiescence.getPendingCount());
     }
 }
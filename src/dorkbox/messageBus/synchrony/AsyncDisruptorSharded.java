@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.synchrony;
+
+import java.util.concurrent.TimeUnit;
+
+import dorkbox.messageBus.dispatch.Dispatch;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.metrics.MetricsRecorder;
+import dorkbox.messageBus.request.ResponseFuture;
+import dorkbox.messageBus.watchdog.Watchdog;
+
+/**
+ * Splits the asynchronous publication across multiple disruptors (shards), each with it's own ring buffer and worker threads. This is
+ * so that many publishing threads do not all contend on the same ring buffer cursor.
+ *
+ * Publishing threads are mapped to a shard by their thread ID, so messages published by the same thread are delivered in order.
+ *
+ * When overflow is enabled, and the shard for the publishing thread is full, the message is published to a different shard that
+ * has space (so the idle workers of that shard process it). In this case, messages published by the same thread can be delivered
+ * out of order. The workers never take messages from the ring of a different shard.
+ *
+ * @author dorkbox, llc
+ */
+public final
+class AsyncDisruptorSharded implements Synchrony {
+
+    private final AsyncDisruptor[] shards;
+    private final int mask;
+    private final boolean overflow;
+
+    /**
+     * @param numberOfShards how many ring buffers to use, must be a power of 2
+     * @param numberOfThreads how many threads to use (in total) for dispatching async messages, this is divided between the shards
+     * @param overflow if a message should be published to a different shard when the shard for the publishing thread is full
+     */
+    public
+    AsyncDisruptorSharded(final int numberOfShards, final int numberOfThreads, final boolean overflow, final ErrorHandler errorHandler) {
+        this(numberOfShards, numberOfThreads, overflow, null, errorHandler);
+    }
+
+    /**
+     * @param numberOfShards how many ring buffers to use, must be a power of 2
+     * @param numberOfThreads how many threads to use (in total) for dispatching async messages, this is divided between the shards
+     * @param overflow if a message should be published to a different shard when the shard for the publishing thread is full
+     * @param metrics records how long every message waited to be dispatched, or null
+     */
+    public
+    AsyncDisruptorSharded(final int numberOfShards, final int numberOfThreads, final boolean overflow, final MetricsRecorder metrics,
+                          final ErrorHandler errorHandler) {
+        this(numberOfShards, numberOfThreads, overflow, metrics, null, errorHandler);
+    }
+
+    /**
+     * @param numberOfShards how many ring buffers to use, must be a power of 2
+     * @param numberOfThreads how many threads to use (in total) for dispatching async messages, this is divided between the shards
+     * @param overflow if a message should be published to a different shard when the shard for the publishing thread is full
+     * @param metrics records how long every message waited to be dispatched, or null
+     * @param watchdog watches for handlers that are stuck, or null
+     */
+    public
+    AsyncDisruptorSharded(final int numberOfShards, final int numberOfThreads, final boolean overflow, final MetricsRecorder metrics,
+                          final Watchdog watchdog, final ErrorHandler errorHandler) {
+        this.mask = numberOfShards - 1;
+        this.overflow = overflow;
+
+        // every shard has at least 1 thread
+        final int threadsPerShard = Math.max(1, numberOfThreads / numberOfShards);
+
+        shards = new AsyncDisruptor[numberOfShards];
+        for (int i = 0; i < numberOfShards; i++) {
+            shards[i] = new AsyncDisruptor(threadsPerShard, threadsPerShard, metrics, watchdog, errorHandler);
+        }
+    }
+
+    private
+    AsyncDisruptor shard() {
+        final int index = (int) Thread.currentThread().getId() & mask;
+        final AsyncDisruptor shard = shards[index];
+
+        if (overflow && !shard.hasRemainingCapacity()) {
+            final AsyncDisruptor[] shards = this.shards;
+            for (int i = 1; i < shards.length; i++) {
+                final AsyncDisruptor other = shards[(index + i) & mask];
+                if (other.hasRemainingCapacity()) {
+                    return other;
+                }
+            }
+        }
+
+        // if all the shards are full, we wait for our own
+        return shard;
+    }
+
+    @Override
+    public
+    void publish(final Dispatch dispatch, final Object message1) {
+        shard().publish(dispatch, message1);
+    }
+
+    @Override
+    public
+    void publish(final Dispatch dispatch, final Object message1, final Object message2) {
+        shard().publish(dispatch, message1, message2);
+    }
+
+    @Override
+    public
+    void publish(final Dispatch dispatch, final Object message1, final Object message2, final Object message3) {
+        shard().publish(dispatch, message1, message2, message3);
+    }
+
+    @Override
+    public
+    void publishPrimitive(final Dispatch dispatch, final int type, final long value) {
+        shard().publishPrimitive(dispatch, type, value);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1) {
+        shard().request(dispatch, future, message1);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2) {
+        shard().request(dispatch, future, message1, message2);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2, final Object message3) {
+        shard().request(dispatch, future, message1, message2, message3);
+    }
+
+    @Override
+    public
+    boolean hasPendingMessages() {
+        for (AsyncDisruptor shard : shards) {
+            if (shard.hasPendingMessages()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public
+    boolean awaitQuiescence(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        for (AsyncDisruptor shard : shards) {
+            if (!shard.awaitQuiescence(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public
+    void shutdown() {
+        for (AsyncDisruptor shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    @Override
+    public
+    int shutdown(final long drainTimeout, final TimeUnit unit) {
+        final long deadline = System.nanoTime() + unit.toNanos(drainTimeout);
+
+        int abandoned = 0;
+        for (AsyncDisruptor shard : shards) {
+            abandoned += shard.shutdown(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+
+        return abandoned;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.synchrony;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import dorkbox.messageBus.dispatch.Dispatch;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.journal.Journal;
+import dorkbox.messageBus.journal.JournalEntry;
+import dorkbox.messageBus.request.ResponseFuture;
+import dorkbox.messageBus.synchrony.disruptor.MessageType;
+
+/**
+ * Writes every asynchronous message to a (memory-mapped) journal before it is queued for the workers, and acknowledges it in the
+ * journal once it has been dispatched. Messages that were still queued when the JVM died are recovered from the journal.
+ *
+ * Only the messages for the dispatch of the bus are journaled. Requests (which wait for a response) and conflated messages are queued
+ * without being journaled.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class AsyncJournaled implements Synchrony {
+
+    private final Synchrony async;
+    private final Dispatch dispatch;
+    private final Journal journal;
+    private final ErrorHandler errorHandler;
+
+    private final JournalDispatch journalDispatch;
+
+    /**
+     * @param async the asynchronous publication that the (journaled) messages are queued to
+     * @param dispatch the dispatch of the bus, only messages for this dispatch are journaled
+     */
+    public
+    AsyncJournaled(final Synchrony async, final Dispatch dispatch, final Journal journal, final ErrorHandler errorHandler) {
+        this.async = async;
+        this.dispatch = dispatch;
+        this.journal = journal;
+        this.errorHandler = errorHandler;
+
+        this.journalDispatch = new JournalDispatch(dispatch, journal);
+    }
+
+    /**
+     * @return the entry, or null if the message could not be written to the journal (it is still published)
+     */
+    private
+    JournalEntry append(final int type, final Object message1, final Object message2, final Object message3, final long primitive) {
+        try {
+            return journal.append(type, message1, message2, message3, primitive);
+        } catch (Exception e) {
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Unable to write the message to the journal.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1, message2, message3));
+            return null;
+        }
+    }
+
+    /**
+     * Publishes the messages of the previous run that were never dispatched (in the order they were published). This should be
+     * called once the listeners are subscribed.
+     *
+     * @return how many messages were recovered
+     */
+    public
+    int recover() {
+        int count = 0;
+
+        final Iterator<JournalEntry> entries = journal.recover();
+        while (true) {
+            try {
+                if (!entries.hasNext()) {
+                    return count;
+                }
+
+                async.publish(journalDispatch, entries.next());
+                count++;
+            } catch (Exception e) {
+                errorHandler.handlePublicationError(new PublicationError().setMessage("Unable to recover the message from the journal.")
+                                                                          .setCause(e));
+            }
+        }
+    }
+
+    @Override
+    public
+    void publish(final Dispatch dispatch, final Object message1) {
+        if (dispatch == this.dispatch) {
+            final JournalEntry entry = append(MessageType.ONE, message1, null, null, 0L);
+            if (entry != null) {
+                async.publish(journalDispatch, entry);
+                return;
+            }
+        }
+
+        async.publish(dispatch, message1);
+    }
+
+    @Override
+    public
+    void publish(final Dispatch dispatch, final Object message1, final Object message2) {
+        if (dispatch == this.dispatch) {
+            final JournalEntry entry = append(MessageType.TWO, message1, message2, null, 0L);
+            if (entry != null) {
+                async.publish(journalDispatch, entry);
+                return;
+            }
+        }
+
+        async.publish(dispatch, message1, message2);
+    }
+
+    @Override
+    public
+    void publish(final Dispatch dispatch, final Object message1, final Object message2, final Object message3) {
+        if (dispatch == this.dispatch) {
+            final JournalEntry entry = append(MessageType.THREE, message1, message2, message3, 0L);
+            if (entry != null) {
+                async.publish(journalDispatch, entry);
+                return;
+            }
+        }
+
+        async.publish(dispatch, message1, message2, message3);
+    }
+
+    @Override
+    public
+    void publishPrimitive(final Dispatch dispatch, final int type, final long value) {
+        if (dispatch == this.dispatch) {
+            final JournalEntry entry = append(type, null, null, null, value);
+            if (entry != null) {
+                async.publish(journalDispatch, entry);
+                return;
+            }
+        }
+
+        async.publishPrimitive(dispatch, type, value);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1) {
+        async.request(dispatch, future, message1);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2) {
+        async.request(dispatch, future, message1, message2);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2,
+                 final Object message3) {
+        async.request(dispatch, future, message1, message2, message3);
+    }
+
+    @Override
+    public
+    boolean hasPendingMessages() {
+        return async.hasPendingMessages();
+    }
+
+    @Override
+    public
+    boolean awaitQuiescence(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return async.awaitQuiescence(timeout, unit);
+    }
+
+    @Override
+    public
+    void shutdown() {
+        async.shutdown();
+        journal.close();
+    }
+
+    /**
+     * The abandoned messages are not acknowledged, so they are recovered when the journal is opened again.
+     */
+    @Override
+    public
+    int shutdown(final long drainTimeout, final TimeUnit unit) {
+        final int abandoned = async.shutdown(drainTimeout, unit);
+        journal.close();
+        return abandoned;
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.synchrony;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dorkbox.messageBus.dispatch.Dispatch;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.request.ResponseFuture;
+import dorkbox.messageBus.synchrony.disruptor.MessageHandler;
+import dorkbox.messageBus.synchrony.disruptor.MessageType;
+import dorkbox.messageBus.util.NamedThreadFactory;
+
+/**
+ * Asynchronous publication with priority lanes, where the workers always take messages from the highest priority lane first. This is
+ * so that (for example) control messages do not wait behind thousands of bulk messages.
+ *
+ * To bound the starvation of the lower priority lanes, every Nth message a worker takes is from the lowest priority lane that has
+ * messages (instead of the highest).
+ *
+ * Messages that are published without a priority are in the lowest priority lane (0).
+ *
+ * @author dorkbox, llc
+ */
+public final
+class AsyncPriorityLanes implements Synchrony {
+
+    private final ArrayBlockingQueue<MessageHolder>[] lanes;
+    private final int starvationLimit;
+
+    // one permit for every message in the lanes, so the workers can wait for a message (without spinning) in any of the lanes
+    private final Semaphore available = new Semaphore(0);
+
+    private final Collection<Thread> threads;
+    private final ErrorHandler errorHandler;
+
+    // messages that have been queued, but have not finished being processed
+    private final AtomicLong pending = new AtomicLong();
+    private final Quiescence quiescence = new Quiescence() {
+        @Override
+        public
+        long getPendingCount() {
+            return pending.get();
+        }
+    };
+
+    /**
+     * Notifies the consumers during shutdown that it's on purpose.
+     */
+    private volatile boolean shuttingDown = false;
+
+
+    /**
+     * @param numberOfLanes how many priorities there are. Higher priorities are processed first.
+     * @param starvationLimit every Nth message is taken from the lowest priority lane that has messages
+     */
+    @SuppressWarnings("unchecked")
+    public
+    AsyncPriorityLanes(final int numberOfLanes, final int starvationLimit, final int numberOfThreads, final ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+        this.starvationLimit = Math.max(1, starvationLimit);
+
+        this.lanes = new ArrayBlockingQueue[numberOfLanes];
+        for (int i = 0; i < numberOfLanes; i++) {
+            lanes[i] = new ArrayBlockingQueue<MessageHolder>(1024);
+        }
+
+        this.threads = new ArrayDeque<Thread>(numberOfThreads);
+
+        final NamedThreadFactory threadFactory = new NamedThreadFactory("MessageBus");
+        for (int i = 0; i < numberOfThreads; i++) {
+            // each thread will run forever and process incoming message publication requests
+            Thread thread = threadFactory.newThread(new Runnable() {
+                // how many messages this worker has taken since it last took one from the lowest lane
+                private int taken = 0;
+
+                @Override
+                public
+                void run() {
+                    while (!AsyncPriorityLanes.this.shuttingDown) {
+                        try {
+                            available.acquire();
+                        } catch (InterruptedException e) {
+                            continue;
+                        }
+
+                        final MessageHolder event;
+                        if (++taken >= starvationLimit) {
+                            taken = 0;
+                            event = take(false);
+                        }
+                        else {
+                            event = take(true);
+                        }
+
+                        try {
+                            MessageHandler.dispatch(event);
+                        } finally {
+                            pending.decrementAndGet();
+                            quiescence.signal();
+                        }
+                    }
+                }
+            });
+            this.threads.add(thread);
+            thread.start();
+        }
+    }
+
+    // there is always a message for the worker, because it has a permit
+    private
+    MessageHolder take(final boolean highestFirst) {
+        final ArrayBlockingQueue<MessageHolder>[] lanes = this.lanes;
+        final int length = lanes.length;
+
+        while (true) {
+            for (int i = 0; i < length; i++) {
+                final MessageHolder event = lanes[highestFirst ? length - 1 - i : i].poll();
+                if (event != null) {
+                    return event;
+                }
+            }
+            // another worker took the message we saw, but there is one in a lane that we have already checked
+        }
+    }
+
+    private
+    void enqueue(final int priority, final MessageHolder job) throws InterruptedException {
+        final int lane = Math.max(0, Math.min(priority, lanes.length - 1));
+
+        pending.incrementAndGet();
+
+        try {
+            lanes[lane].put(job);
+        } catch (InterruptedException e) {
+            pending.decrementAndGet();
+            quiescence.signal();
+            throw e;
+        }
+
+        available.release();
+    }
+
+    /**
+     * Publish the message in the lane for the priority. Higher priorities are processed first.
+     */
+    public
+    void publish(final int priority, final Dispatch dispatch, final Object message1) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = MessageType.ONE;
+        job.dispatch = dispatch;
+
+        job.message1 = message1;
+
+        try {
+            enqueue(priority, job);
+        } catch (InterruptedException e) {
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1));
+        }
+    }
+
+    /**
+     * Publish <b>TWO</b> messages in the lane for the priority. Higher priorities are processed first.
+     */
+    public
+    void publish(final int priority, final Dispatch dispatch, final Object message1, final Object message2) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = MessageType.TWO;
+        job.dispatch = dispatch;
+
+        job.message1 = message1;
+        job.message2 = message2;
+
+        try {
+            enqueue(priority, job);
+        } catch (InterruptedException e) {
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1, message2));
+        }
+    }
+
+    /**
+     * Publish <b>THREE</b> messages in the lane for the priority. Higher priorities are processed first.
+     */
+    public
+    void publish(final int priority, final Dispatch dispatch, final Object message1, final Object message2, final Object message3) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = MessageType.THREE;
+        job.dispatch = dispatch;
+
+        job.message1 = message1;
+        job.message2 = message2;
+        job.message3 = message3;
+
+        try {
+            enqueue(priority, job);
+        } catch (InterruptedException e) {
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1, message2, message3));
+        }
+    }
+
+    @Override
+    public
+    void publish(final Dispatch dispatch, final Object message1) {
+        publish(0, dispatch, message1);
+    }
+
+    @Override
+    public
+    void publish(final Dispatch dispatch, final Object message1, final Object message2) {
+        publish(0, dispatch, message1, message2);
+    }
+
+    @Override
+    public
+    void publish(final Dispatch dispatch, final Object message1, final Object message2, final Object message3) {
+        publish(0, dispatch, message1, message2, message3);
+    }
+
+    @Override
+    public
+    void publishPrimitive(final Dispatch dispatch, final int type, final long value) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = type;
+        job.dispatch = dispatch;
+
+        job.primitive = value;
+
+        try {
+            enqueue(0, job);
+        } catch (InterruptedException e) {
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during message queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(value));
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = MessageType.REQUEST_ONE;
+        job.dispatch = dispatch;
+        job.future = future;
+
+        job.message1 = message1;
+
+        try {
+            enqueue(0, job);
+        } catch (InterruptedException e) {
+            future.done();
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during request queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1));
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = MessageType.REQUEST_TWO;
+        job.dispatch = dispatch;
+        job.future = future;
+
+        job.message1 = message1;
+        job.message2 = message2;
+
+        try {
+            enqueue(0, job);
+        } catch (InterruptedException e) {
+            future.done();
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during request queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1, message2));
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2, final Object message3) {
+        MessageHolder job = new MessageHolder();
+
+        job.type = MessageType.REQUEST_THREE;
+        job.dispatch = dispatch;
+        job.future = future;
+
+        job.message1 = message1;
+        job.message2 = message2;
+        job.message3 = message3;
+
+        try {
+            enqueue(0, job);
+        } catch (InterruptedException e) {
+            future.done();
+            errorHandler.handlePublicationError(new PublicationError().setMessage("Interrupted error during request queue.")
+                                                                      .setCause(e)
+                                                                      .setPublishedObject(message1, message2, message3));
+        }
+    }
+
+    @Override
+    public
+    boolean hasPendingMessages() {
+        return pending.get() > 0L;
+    }
+
+    @Override
+    public
+    boolean awaitQuiescence(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return quiescence.await(timeout, unit);
+    }
+
+    @Override
+    public
+    void shutdown() {
+        this.shuttingDown = true;
+
+        for (Thread t : this.threads) {
+            t.interrupt();
+        }
+
+        boolean interrupted = false;
+        for (Thread t : this.threads) {
+            while (true) {
+                try {
+                    t.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        // the workers are stopped, so the messages that are still queued will never be dispatched
+        for (ArrayBlockingQueue<MessageHolder> lane : lanes) {
+            MessageHolder job;
+            while ((job = lane.poll()) != null) {
+                job.abandon();
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public
+    int shutdown(final long drainTimeout, final TimeUnit unit) {
+        try {
+            quiescence.await(drainTimeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        shutdown();
+
+        return (int) Math.min(Integer.MAX_VALUE, pending.get());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.synchrony;
+
+import dorkbox.messageBus.dispatch.Dispatch;
+import dorkbox.messageBus.journal.Journal;
+import dorkbox.messageBus.journal.JournalEntry;
+import dorkbox.messageBus.request.ResponseCollector;
+
+/**
+ * Dispatches a journal entry (which is queued instead of the message), and then acknowledges it in the journal.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+final
+class JournalDispatch implements Dispatch {
+    private final Dispatch dispatch;
+    private final Journal journal;
+
+    JournalDispatch(final Dispatch dispatch, final Journal journal) {
+        this.dispatch = dispatch;
+        this.journal = journal;
+    }
+
+    @Override
+    public
+    int publish(final Object message1) {
+        final JournalEntry entry = (JournalEntry) message1;
+        try {
+            return entry.dispatch(dispatch);
+        } finally {
+            // errors in the handlers are reported by the dispatch, so the entry was delivered
+            journal.ack(entry);
+        }
+    }
+
+    @Override
+    public
+    int publish(final Object message1, final Object message2) {
+        return dispatch.publish(message1, message2);
+    }
+
+    @Override
+    public
+    int publish(final Object message1, final Object message2, final Object message3) {
+        return dispatch.publish(message1, message2, message3);
+    }
+
+    @Override
+    public
+    int publish(final int message1) {
+        return dispatch.publish(message1);
+    }
+
+    @Override
+    public
+    int publish(final long message1) {
+        return dispatch.publish(message1);
+    }
+
+    @Override
+    public
+    int publish(final double message1) {
+        return dispatch.publish(message1);
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1) {
+        return dispatch.request(collector, message1);
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2) {
+        return dispatch.request(collector, message1, message2);
+    }
+
+    @Override
+    public
+    int request(final ResponseCollector collector, final Object message1, final Object message2, final Object message3) {
+        return dispatch.request(collector, message1, message2, message3);
+    }
+
+    @Override
+    public
+    boolean hasSubscribers(final Class<?> messageClass) {
+        return dispatch.hasSubscribers(messageClass);
+    }
+}
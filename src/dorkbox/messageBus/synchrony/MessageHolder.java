@@ -16,6 +16,7 @@
 package dorkbox.messageBus.synchrony;
 
 import dorkbox.messageBus.dispatch.Dispatch;
+import dorkbox.messageBus.request.ResponseFuture;
 import dorkbox.messageBus.synchrony.disruptor.MessageType;
 
 /**
@@ -30,6 +31,58 @@ class MessageHolder {
     public Object message2 = null;
     public Object message3 = null;
 
+    // only used for requests, where the handler responses are collected
+    public ResponseFuture<?> future = null;
+
+    // only used for int, long and double messages (the double is stored as its raw bits)
+    public long primitive = 0L;
+
+    // when the message was queued (System.nanoTime), only set when the bus records metrics
+    public long timestamp = 0L;
+
+    // started when the message was queued, only when the JFR event is enabled
+    public Object queueWait = null;
+
     public
     MessageHolder() {}
+
+    /**
+     * Releases the message(s) and the future once they were dispatched, so they are not kept alive while the holder waits to be reused
+     */
+    public
+    void clear() {
+        message1 = null;
+        message2 = null;
+        message3 = null;
+        future = null;
+    }
+
+    /**
+     * Called for a holder that was queued, but will never be dispatched (because the synchrony was shut down), so that the caller of a
+     * request does not wait forever
+     */
+    public
+    void abandon() {
+        final ResponseFuture<?> future = this.future;
+        clear();
+
+        if (future != null) {
+            future.abandon();
+        }
+    }
+
+    /**
+     * Publishes an int, long or double message (as stored in a MessageHolder) without boxing it
+     */
+    public static
+    int publishPrimitive(final Dispatch dispatch, final int type, final long value) {
+        switch (type) {
+            case MessageType.INT:
+                return dispatch.publish((int) value);
+            case MessageType.LONG:
+                return dispatch.publish(value);
+            default:
+                return dispatch.publish(Double.longBitsToDouble(value));
+        }
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.synchrony;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Permits threads to wait (without spinning) until all of the queued messages have been processed.
+ *
+ * The worker threads call {@link #signal()} after processing each message, which only costs a volatile read when nobody is waiting.
+ *
+ * @author dorkbox, llc
+ */
+public abstract
+class Quiescence {
+    // a signal can race with a thread that is starting to wait, so waiting threads will always re-check after this much time
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition idle = lock.newCondition();
+
+    private volatile int waiters = 0;
+
+    protected
+    Quiescence() {
+    }
+
+    /**
+     * @return how many messages have been queued, but have not finished being processed
+     */
+    public abstract
+    long getPendingCount();
+
+    /**
+     * Called by the worker threads after a message has been processed.
+     */
+    public final
+    void signal() {
+        if (waiters > 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                idle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits until all of the queued messages have been processed, or the timeout expires.
+     *
+     * @return true if there are no more pending messages
+     */
+    public final
+    boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (getPendingCount() <= 0L) {
+            return true;
+        }
+
+        long remaining = unit.toNanos(timeout);
+
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            waiters++;
+
+            while (getPendingCount() > 0L) {
+                if (remaining <= 0L) {
+                    return false;
+                }
+
+                final long waitTime = Math.min(remaining, MAX_WAIT_NANOS);
+                remaining -= waitTime - idle.awaitNanos(waitTime);
+            }
+
+            return true;
+        } finally {
+            waiters--;
+            lock.unlock();
+        }
+    }
+}
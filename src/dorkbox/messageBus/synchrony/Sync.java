@@ -15,7 +15,10 @@
  */
 package dorkbox.messageBus.synchrony;
 
+import java.util.concurrent.TimeUnit;
+
 import dorkbox.messageBus.dispatch.Dispatch;
+import dorkbox.messageBus.request.ResponseFuture;
 
 
 /**
@@ -47,6 +50,42 @@ class Sync implements Synchrony {
         dispatch.publish(message1, message2, message3);
     }
 
+    @Override
+    public
+    void publishPrimitive(final Dispatch dispatch, final int type, final long value) {
+        MessageHolder.publishPrimitive(dispatch, type, value);
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1) {
+        try {
+            dispatch.request(future.getCollector(), message1);
+        } finally {
+            future.done();
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2) {
+        try {
+            dispatch.request(future.getCollector(), message1, message2);
+        } finally {
+            future.done();
+        }
+    }
+
+    @Override
+    public
+    void request(final Dispatch dispatch, final ResponseFuture<?> future, final Object message1, final Object message2, final Object message3) {
+        try {
+            dispatch.request(future.getCollector(), message1, message2, message3);
+        } finally {
+            future.done();
+        }
+    }
+
     @Override
     public
     void shutdown() {
@@ -57,4 +96,16 @@ class Sync implements Synchrony {
     boolean hasPendingMessages() {
         return false;
     }
+
+    @Override
+    public
+    boolean awaitQuiescence(final long timeout, final TimeUnit unit) {
+        return true;
+    }
+
+    @Override
+    public
+    int shutdown(final long drainTimeout, final TimeUnit unit) {
+        return 0;
+    }
 }
@@ -15,7 +15,10 @@
  */
 package dorkbox.messageBus.synchrony;
 
+import java.util.concurrent.TimeUnit;
+
 import dorkbox.messageBus.dispatch.Dispatch;
+import dorkbox.messageBus.request.ResponseFuture;
 
 /**
  * @author dorkbox, llc Date: 2/3/16
@@ -26,6 +29,33 @@ interface Synchrony {
     void publish(Dispatch dispatch, Object message1, Object message2);
     void publish(Dispatch dispatch, Object message1, Object message2, Object message3);
 
+    /**
+     * Publish an int, long or double message without boxing it
+     *
+     * @param type MessageType.INT, MessageType.LONG or MessageType.DOUBLE
+     * @param value the message (a double is passed as its raw bits)
+     */
+    void publishPrimitive(Dispatch dispatch, int type, long value);
+
+    void request(Dispatch dispatch, ResponseFuture<?> future, Object message1);
+    void request(Dispatch dispatch, ResponseFuture<?> future, Object message1, Object message2);
+    void request(Dispatch dispatch, ResponseFuture<?> future, Object message1, Object message2, Object message3);
+
     void shutdown();
     boolean hasPendingMessages();
+
+    /**
+     * Waits (without spinning) until all of the messages that were published have been processed.
+     *
+     * @return true if there are no more pending messages, false if the timeout expired first
+     */
+    boolean awaitQuiescence(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Waits for the pending messages to be processed (up to the timeout), and then stops the threads. Messages that are still
+     * pending when the timeout expires are abandoned.
+     *
+     * @return the number of messages that were abandoned
+     */
+    int shutdown(long drainTimeout, TimeUnit unit);
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.synchrony.disruptor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.TimeoutException;
+
+import dorkbox.messageBus.synchrony.MessageHolder;
+
+/**
+ * This is the same as the disruptor {@link com.lmax.disruptor.WorkProcessor}, except that it can be retired while the ring buffer is
+ * in use. A retired processor finishes the message it has claimed, and then stops (instead of claiming another one).
+ *
+ * Because halting a processor alerts the sequence barrier, every processor must have it's own barrier.
+ *
+ * @author dorkbox, llc
+ */
+public final
+class ElasticWorkProcessor implements Runnable {
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+
+    private final RingBuffer<MessageHolder> ringBuffer;
+    private final SequenceBarrier sequenceBarrier;
+    private final MessageHandler handler;
+    private final ExceptionHandler<? super MessageHolder> exceptionHandler;
+    private final Sequence workSequence;
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private volatile boolean retired = false;
+
+    // the thread that is running this processor (for monitoring)
+    private volatile Thread thread = null;
+
+    public
+    ElasticWorkProcessor(final RingBuffer<MessageHolder> ringBuffer,
+                         final MessageHandler handler,
+                         final ExceptionHandler<? super MessageHolder> exceptionHandler,
+                         final Sequence workSequence) {
+        this.ringBuffer = ringBuffer;
+        this.sequenceBarrier = ringBuffer.newBarrier();
+        this.handler = handler;
+        this.exceptionHandler = exceptionHandler;
+        this.workSequence = workSequence;
+    }
+
+    public
+    Sequence getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Stops this processor after it has processed the message it has already claimed.
+     */
+    public
+    void retire() {
+        retired = true;
+    }
+
+    /**
+     * Stops this processor immediately, the message it has claimed (if any) is not processed.
+     */
+    public
+    void halt() {
+        retired = true;
+        running.set(false);
+        sequenceBarrier.alert();
+    }
+
+    /**
+     * @return true if this processor has been retired (or halted)
+     */
+    public
+    boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * @return true if this processor has finished running
+     */
+    public
+    boolean isStopped() {
+        return stopped.getCount() == 0L;
+    }
+
+    /**
+     * @return the state of the thread that is running this processor (a stopped processor is TERMINATED, even though the thread might
+     *         be running something else)
+     */
+    public
+    Thread.State getThreadState() {
+        if (isStopped()) {
+            return Thread.State.TERMINATED;
+        }
+
+        final Thread thread = this.thread;
+        if (thread == null) {
+            return Thread.State.NEW;
+        }
+        return thread.getState();
+    }
+
+    /**
+     * Waits for the worker thread to start, because halting the processor before it runs has no effect.
+     */
+    public
+    void awaitStart() throws InterruptedException {
+        started.await();
+    }
+
+    /**
+     * Waits for the worker thread to stop
+     */
+    public
+    void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public
+    void run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Thread is already running");
+        }
+        sequenceBarrier.clearAlert();
+        thread = Thread.currentThread();
+        started.countDown();
+
+        boolean processedSequence = true;
+        long cachedAvailableSequence = Long.MIN_VALUE;
+        long nextSequence = sequence.get();
+        MessageHolder event = null;
+
+        try {
+            while (true) {
+                try {
+                    if (processedSequence) {
+                        // this is the only place where we do not have a claimed message, so it's the only safe place to stop
+                        if (retired) {
+                            break;
+                        }
+
+                        processedSequence = false;
+                        do {
+                            nextSequence = workSequence.get() + 1L;
+                            sequence.set(nextSequence - 1L);
+                        } while (!workSequence.compareAndSet(nextSequence - 1L, nextSequence));
+                    }
+
+                    if (cachedAvailableSequence >= nextSequence) {
+                        event = ringBuffer.get(nextSequence);
+                        handler.onEvent(event);
+                        processedSequence = true;
+                    }
+                    else {
+                        cachedAvailableSequence = sequenceBarrier.waitFor(nextSequence);
+                    }
+                } catch (final TimeoutException ignored) {
+                    // only happens with a timeout wait strategy
+                } catch (final AlertException ex) {
+                    if (!running.get()) {
+                        break;
+                    }
+                } catch (final Throwable ex) {
+                    exceptionHandler.handleEventException(ex, nextSequence, event);
+                    processedSequence = true;
+                }
+            }
+        } finally {
+            // this processor no longer holds back the publishers
+            ringBuffer.removeGatingSequence(sequence);
+
+            running.set(false);
+            stopped.countDown();
+        }
+    }
+}
@@ -15,28 +15,101 @@
  */
 package dorkbox.messageBus.synchrony.disruptor;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-
-import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.WorkHandler;
 
+import dorkbox.messageBus.dispatch.DispatchConflated;
+import dorkbox.messageBus.jfr.FlightRecorder;
+import dorkbox.messageBus.metrics.MetricsRecorder;
+import dorkbox.messageBus.request.ResponseFuture;
 import dorkbox.messageBus.synchrony.MessageHolder;
+import dorkbox.messageBus.synchrony.Quiescence;
+import dorkbox.messageBus.watchdog.InFlight;
 
 /**
  * @author dorkbox, llc Date: 2/2/15
  */
 public
-class MessageHandler implements WorkHandler<MessageHolder>, LifecycleAware {
+class MessageHandler implements WorkHandler<MessageHolder> {
+
+    private final Quiescence quiescence;
+    private final MetricsRecorder metrics;
+
+    // only written by the worker thread, and is padded to prevent false sharing with the other workers
+    private final Sequence processed = new Sequence(0L);
 
-    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    public
+    MessageHandler(final Quiescence quiescence) {
+        this(quiescence, null);
+    }
 
+    /**
+     * @param metrics records how long the (timestamped) messages waited to be dispatched, or null
+     */
     public
-    MessageHandler() {
+    MessageHandler(final Quiescence quiescence, final MetricsRecorder metrics) {
+        this.quiescence = quiescence;
+        this.metrics = metrics;
     }
 
     @Override
     public
     void onEvent(final MessageHolder event) throws Exception {
+        final long timestamp = event.timestamp;
+        if (timestamp != 0L) {
+            // only when the bus records metrics
+            metrics.recordQueueWait(getMessageType(event), System.nanoTime() - timestamp);
+        }
+
+        final Object queueWait = event.queueWait;
+        if (queueWait != null) {
+            // only when the JFR event is enabled
+            event.queueWait = null;
+            FlightRecorder.endQueueWait(queueWait, getMessageType(event));
+        }
+
+        // the dispatch records each handler it invokes (when the worker is watched)
+        final InFlight inFlight = InFlight.current();
+
+        try {
+            dispatch(event);
+        } finally {
+            event.clear();
+
+            if (inFlight != null) {
+                inFlight.end();
+            }
+            processed.set(processed.get() + 1L);
+            quiescence.signal();
+        }
+    }
+
+    /**
+     * @return the class of the (first) message held by the event
+     */
+    private static
+    Class<?> getMessageType(final MessageHolder event) {
+        switch (event.type) {
+            case MessageType.INT:
+                return int.class;
+            case MessageType.LONG:
+                return long.class;
+            case MessageType.DOUBLE:
+                return double.class;
+            default:
+                if (event.dispatch instanceof DispatchConflated) {
+                    // the slot of the conflated message was queued
+                    return DispatchConflated.getMessageType(event.message1);
+                }
+                return event.message1.getClass();
+        }
+    }
+
+    /**
+     * Dispatches the message(s) held by the event, according to it's message type
+     */
+    public static
+    void dispatch(final MessageHolder event) {
         final int messageType = event.type;
 
         switch (messageType) {
@@ -50,25 +123,50 @@ class MessageHandler implements WorkHandler<MessageHolder>, LifecycleAware {
             }
             case MessageType.THREE: {
                 event.dispatch.publish(event.message1, event.message2, event.message3);
+                return;
+            }
+            case MessageType.INT:
+            case MessageType.LONG:
+            case MessageType.DOUBLE: {
+                MessageHolder.publishPrimitive(event.dispatch, messageType, event.primitive);
+                return;
+            }
+            case MessageType.REQUEST_ONE: {
+                final ResponseFuture<?> future = event.future;
+                try {
+                    event.dispatch.request(future.getCollector(), event.message1);
+                } finally {
+                    future.done();
+                }
+                return;
+            }
+            case MessageType.REQUEST_TWO: {
+                final ResponseFuture<?> future = event.future;
+                try {
+                    event.dispatch.request(future.getCollector(), event.message1, event.message2);
+                } finally {
+                    future.done();
+                }
+                return;
+            }
+            case MessageType.REQUEST_THREE: {
+                final ResponseFuture<?> future = event.future;
+                try {
+                    event.dispatch.request(future.getCollector(), event.message1, event.message2, event.message3);
+                } finally {
+                    future.done();
+                }
                 //noinspection UnnecessaryReturnStatement
                 return;
             }
         }
     }
 
-    @Override
-    public
-    void onStart() {
-    }
-
-    @Override
-    public synchronized
-    void onShutdown() {
-        shutdown.set(true);
-    }
-
+    /**
+     * @return how many messages this handler has finished processing
+     */
     public
-    boolean isShutdown() {
-        return shutdown.get();
+    long getProcessedCount() {
+        return processed.get();
     }
 }
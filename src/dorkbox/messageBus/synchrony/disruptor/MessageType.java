@@ -23,6 +23,15 @@ public final class MessageType {
     public static final int TWO = 2;
     public static final int THREE = 3;
 
+    public static final int REQUEST_ONE = 4;
+    public static final int REQUEST_TWO = 5;
+    public static final int REQUEST_THREE = 6;
+
+    // the value is stored in MessageHolder.primitive, so it is not boxed
+    public static final int INT = 7;
+    public static final int LONG = 8;
+    public static final int DOUBLE = 9;
+
     private MessageType() {
     }
 }
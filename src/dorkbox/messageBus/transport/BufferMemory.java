@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * Accesses the shared memory through the mapped buffer, when sun.misc.Unsafe is not available. This only uses public APIs, but is much
+ * slower: claiming a slot takes a (kernel) file lock.
+ * <p>
+ * A volatile write followed by a volatile read (of this JVM) is a full fence, which orders the reads and writes of the mapped buffer.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+final
+class BufferMemory extends SharedMemory {
+    private volatile int fence = 0;
+
+    BufferMemory(final FileChannel channel, final MappedByteBuffer buffer) {
+        super(channel, buffer);
+    }
+
+    private
+    int fullFence() {
+        fence = 1;
+        return fence;
+    }
+
+    @Override
+    int getInt(final long offset) {
+        return buffer.getInt((int) offset);
+    }
+
+    @Override
+    void putInt(final long offset, final int value) {
+        buffer.putInt((int) offset, value);
+    }
+
+    @Override
+    void putByte(final long offset, final byte value) {
+        buffer.put((int) offset, value);
+    }
+
+    @Override
+    int getIntVolatile(final long offset) {
+        final int value = buffer.getInt((int) offset);
+        fullFence();
+        return value;
+    }
+
+    @Override
+    void putIntVolatile(final long offset, final int value) {
+        fullFence();
+        buffer.putInt((int) offset, value);
+        fullFence();
+    }
+
+    @Override
+    long getLongVolatile(final long offset) {
+        final long value = buffer.getLong((int) offset);
+        fullFence();
+        return value;
+    }
+
+    @Override
+    void putLongVolatile(final long offset, final long value) {
+        fullFence();
+        buffer.putLong((int) offset, value);
+        fullFence();
+    }
+
+    @Override
+    void putLongOrdered(final long offset, final long value) {
+        fullFence();
+        buffer.putLong((int) offset, value);
+    }
+
+    @Override
+    boolean isLockFree() {
+        return false;
+    }
+
+    @Override
+    long getAndAddLong(final long offset, final long delta) {
+        synchronized (FILE_LOCK) {
+            try {
+                final FileLock lock = channel.lock(offset, 8L, false);
+                try {
+                    final long value = getLongVolatile(offset);
+                    putLongVolatile(offset, value + delta);
+                    return value;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to lock the shared memory", e);
+            }
+        }
+    }
+
+    @Override
+    void put(final long offset, final byte[] bytes) {
+        // the buffer is used by many threads, so the position of a duplicate is used
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position((int) offset);
+        duplicate.put(bytes);
+    }
+
+    @Override
+    void get(final long offset, final byte[] bytes, final int length) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position((int) offset);
+        duplicate.get(bytes, 0, length);
+    }
+
+    @Override
+    void loadFence() {
+        fullFence();
+    }
+}
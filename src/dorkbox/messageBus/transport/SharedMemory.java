@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.transport;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The memory of a ring file that is shared between processes. The offsets are from the start of the file, and the values are in the
+ * native byte order (so every implementation can use the same file).
+ * <p>
+ * sun.misc.Unsafe is used when it is available, otherwise the mapped buffer is used.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+abstract
+class SharedMemory {
+    // file locks are held on behalf of the whole JVM (an overlapping lock from another thread throws), so they are only taken while
+    // holding this lock
+    static final Object FILE_LOCK = new Object();
+
+    final FileChannel channel;
+
+    // the mapping must be kept, so that it is not unmapped while it is used
+    final MappedByteBuffer buffer;
+
+    SharedMemory(final FileChannel channel, final MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps the file, which is closed by close()
+     *
+     * @param useUnsafe false to always use the mapped buffer
+     */
+    static
+    SharedMemory map(final FileChannel channel, final long size, final boolean useUnsafe) throws IOException {
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.nativeOrder());
+
+        if (useUnsafe && UnsafeMemory.AVAILABLE) {
+            return new UnsafeMemory(channel, buffer);
+        }
+        return new BufferMemory(channel, buffer);
+    }
+
+    abstract
+    int getInt(long offset);
+
+    abstract
+    void putInt(long offset, int value);
+
+    abstract
+    void putByte(long offset, byte value);
+
+    abstract
+    int getIntVolatile(long offset);
+
+    abstract
+    void putIntVolatile(long offset, int value);
+
+    abstract
+    long getLongVolatile(long offset);
+
+    abstract
+    void putLongVolatile(long offset, long value);
+
+    /**
+     * Writes the value after every write before it, but without a full fence
+     */
+    abstract
+    void putLongOrdered(long offset, long value);
+
+    /**
+     * Atomically adds to the value (for every process that uses the file). This is only atomic with the adds of the same kind of memory,
+     * because a file lock does not exclude a lock-free add (and the other way around).
+     *
+     * @return the previous value
+     */
+    abstract
+    long getAndAddLong(long offset, long delta);
+
+    /**
+     * @return true if getAndAddLong is lock-free, false if it takes a file lock
+     */
+    abstract
+    boolean isLockFree();
+
+    /**
+     * Copies the bytes into the memory
+     */
+    abstract
+    void put(long offset, byte[] bytes);
+
+    /**
+     * Copies the memory into the bytes
+     */
+    abstract
+    void get(long offset, byte[] bytes, int length);
+
+    /**
+     * Reads after this are not reordered with the reads before it
+     */
+    abstract
+    void loadFence();
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
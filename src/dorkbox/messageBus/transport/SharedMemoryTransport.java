@@ -0,0 +1,407 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.journal.MessageCodec;
+import dorkbox.messageBus.synchrony.disruptor.MessageType;
+
+/**
+ * Connects message buses in different processes (on the same host) through a memory-mapped ring file. Messages that are published
+ * to the transport are delivered to the bus of every other transport that is connected to the same file, without a kernel round trip.
+ * <p>
+ * The sequencing is modeled on the disruptor's multi-producer sequencer: publishers claim a sequence from the shared cursor (with an
+ * atomic add), write the message into the slot for that sequence, and then publish the slot by writing the sequence into it. Each
+ * transport reads the slots in sequence order on it's own thread, and publishes the messages (synchronously) to it's bus.
+ * <p>
+ * Publishers never wait for the readers, so a reader that is more than a ring behind is lapped. The reader detects this (the slot has
+ * a newer sequence, or changed while it was read), skips ahead, and reports how many messages were lost to the error handlers.
+ * <p>
+ * Memory layout: a 128 byte header [int magic][int slot count][int slot size][int access mode] ... [long cursor at 64], followed by the
+ * slots. Each slot is [long sequence + 1 (negative while written)][int length][int sender][payload].
+ * <p>
+ * The ring file is accessed with sun.misc.Unsafe when it is available. Otherwise (or when 'useUnsafe' is false) the mapped buffer is
+ * used, which is much slower because claiming a slot takes a file lock. A file lock does not exclude the (lock-free) claims of Unsafe,
+ * so every process must access the same file the same way. The first process records how it accesses the file, and a transport that
+ * would access it differently is rejected.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class SharedMemoryTransport {
+    private static final int MAGIC = 0x4D425553;
+
+    private static final int HEADER_SLOT_COUNT = 4;
+    private static final int HEADER_SLOT_SIZE = 8;
+    private static final int HEADER_ACCESS_MODE = 12;
+    private static final int HEADER_CURSOR = 64;
+    private static final int HEADER_SIZE = 128;
+
+    // how the cursor is claimed
+    private static final int ACCESS_LOCK_FREE = 1;
+    private static final int ACCESS_FILE_LOCK = 2;
+
+    private static final int SLOT_SEQUENCE = 0;
+    private static final int SLOT_LENGTH = 8;
+    private static final int SLOT_SENDER = 12;
+    private static final int SLOT_HEADER_SIZE = 16;
+
+    // a claimed slot that is not published within this time belongs to a publisher that died
+    private static final long STALLED_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * When false, the ring file is accessed through the mapped buffer (even if sun.misc.Unsafe is available)
+     */
+    public static boolean useUnsafe = true;
+
+    private final MessageBus bus;
+    private final ErrorHandler errorHandler;
+    private final MessageCodec codec;
+    private final File file;
+
+    private final SharedMemory memory;
+    private final int mask;
+    private final int slotSize;
+    private final int senderId;
+
+    private final Thread reader;
+    private volatile boolean running = true;
+
+    // only used by the reader thread
+    private long nextSequence;
+    private byte[] scratch = new byte[256];
+    private ByteBuffer scratchView = view(scratch);
+
+    /**
+     * @param bus the bus that the messages from the other processes are published to
+     * @param file the ring file, which is created if it does not exist. Every process must use the same slot count and size.
+     * @param slotCount how many messages the ring holds, this is rounded up to a power of 2
+     * @param slotSize the size of each slot, a message (encoded by the codec) must fit in a slot
+     * @param codec converts the messages to and from bytes. The codec is only used while holding a lock.
+     */
+    public
+    SharedMemoryTransport(final MessageBus bus, final File file, int slotCount, final int slotSize, final MessageCodec codec)
+                    throws IOException {
+        // round to the nearest power of 2
+        slotCount = 1 << (32 - Integer.numberOfLeadingZeros(Math.max(2, slotCount) - 1));
+
+        if (slotSize <= SLOT_HEADER_SIZE || (slotSize & 7) != 0) {
+            throw new IllegalArgumentException("The slot size must be a multiple of 8, and larger than " + SLOT_HEADER_SIZE);
+        }
+
+        this.bus = bus;
+        this.errorHandler = bus.getErrorHandler();
+        this.codec = codec;
+        this.file = file;
+        this.mask = slotCount - 1;
+        this.slotSize = slotSize;
+        this.senderId = System.identityHashCode(this) ^ (int) System.nanoTime();
+
+        final long size = HEADER_SIZE + (long) slotCount * slotSize;
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+
+            // only the first process initializes the header. Unless Unsafe is not available, this is the only time a (kernel) lock is used.
+            synchronized (SharedMemory.FILE_LOCK) {
+                final FileLock lock = channel.lock();
+                try {
+                    if (randomAccessFile.length() < size) {
+                        randomAccessFile.setLength(size);
+                    }
+
+                    memory = SharedMemory.map(channel, size, useUnsafe);
+                    final int accessMode = memory.isLockFree() ? ACCESS_LOCK_FREE : ACCESS_FILE_LOCK;
+
+                    if (memory.getIntVolatile(0L) != MAGIC) {
+                        memory.putInt(HEADER_SLOT_COUNT, slotCount);
+                        memory.putInt(HEADER_SLOT_SIZE, slotSize);
+                        memory.putInt(HEADER_ACCESS_MODE, accessMode);
+                        memory.putLongVolatile(HEADER_CURSOR, 0L);
+                        memory.putIntVolatile(0L, MAGIC);
+                    }
+                    else if (memory.getInt(HEADER_SLOT_COUNT) != slotCount || memory.getInt(HEADER_SLOT_SIZE) != slotSize) {
+                        throw new IOException("The ring file " + file + " has a different slot count or slot size");
+                    }
+                    else if (memory.getInt(HEADER_ACCESS_MODE) != accessMode) {
+                        // the claims of the two modes are not atomic with each other
+                        throw new IOException("The ring file " + file + " is accessed " +
+                                              (accessMode == ACCESS_LOCK_FREE ? "with a file lock" : "with sun.misc.Unsafe") +
+                                              " by another process, which is not compatible with how this process accesses it");
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException e) {
+            // otherwise the memory closes the file
+            randomAccessFile.close();
+            throw e;
+        }
+
+        // only messages published after connecting are received
+        nextSequence = memory.getLongVolatile(HEADER_CURSOR);
+
+        reader = new Thread(new Runnable() {
+            @Override
+            public
+            void run() {
+                read();
+            }
+        }, "MessageBus-SharedMemory");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private
+    long slot(final long sequence) {
+        return HEADER_SIZE + (sequence & mask) * slotSize;
+    }
+
+    /**
+     * The lengths in the payload are in the native byte order (like the rest of the ring file)
+     */
+    private static
+    ByteBuffer view(final byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Publish the message to the buses of the other processes. This does not publish to the bus of this transport.
+     */
+    public
+    void publish(final Object message) {
+        write(MessageType.ONE, message, null, null);
+    }
+
+    /**
+     * Publish <b>TWO</b> messages to the buses of the other processes. This does not publish to the bus of this transport.
+     */
+    public
+    void publish(final Object message1, final Object message2) {
+        write(MessageType.TWO, message1, message2, null);
+    }
+
+    /**
+     * Publish <b>THREE</b> messages to the buses of the other processes. This does not publish to the bus of this transport.
+     */
+    public
+    void publish(final Object message1, final Object message2, final Object message3) {
+        write(MessageType.THREE, message1, message2, message3);
+    }
+
+    private
+    void write(final int type, final Object message1, final Object message2, final Object message3) {
+        final byte[] bytes1;
+        final byte[] bytes2;
+        final byte[] bytes3;
+
+        synchronized (codec) {
+            bytes1 = codec.encode(message1);
+            bytes2 = type >= MessageType.TWO ? codec.encode(message2) : null;
+            bytes3 = type == MessageType.THREE ? codec.encode(message3) : null;
+        }
+
+        final int length = 1 + 4 + bytes1.length + (bytes2 == null ? 0 : 4 + bytes2.length) + (bytes3 == null ? 0 : 4 + bytes3.length);
+        if (SLOT_HEADER_SIZE + length > slotSize) {
+            throw new IllegalArgumentException("The message (" + length + " bytes) is larger than the slot size");
+        }
+
+        // claim
+        final long sequence = memory.getAndAddLong(HEADER_CURSOR, 1L);
+        final long slot = slot(sequence);
+
+        // the readers see that the slot is being written. This is a full fence, so the writes below happen after it.
+        memory.putLongVolatile(slot + SLOT_SEQUENCE, -(sequence + 1));
+
+        memory.putInt(slot + SLOT_LENGTH, length);
+        memory.putInt(slot + SLOT_SENDER, senderId);
+
+        long position = slot + SLOT_HEADER_SIZE;
+        memory.putByte(position, (byte) type);
+        position = put(put(put(position + 1, bytes1), bytes2), bytes3);
+
+        // publish (ordered, so the slot is complete before the readers see the sequence)
+        memory.putLongOrdered(slot + SLOT_SEQUENCE, sequence + 1);
+    }
+
+    private
+    long put(final long position, final byte[] bytes) {
+        if (bytes == null) {
+            return position;
+        }
+
+        memory.putInt(position, bytes.length);
+        memory.put(position + 4, bytes);
+        return position + 4 + bytes.length;
+    }
+
+    private
+    void read() {
+        int idle = 0;
+        long stalledSince = 0L;
+
+        while (running) {
+            final long sequence = nextSequence;
+            final long slot = slot(sequence);
+            final long marker = memory.getLongVolatile(slot + SLOT_SEQUENCE);
+
+            if (marker == sequence + 1) {
+                idle = 0;
+                stalledSince = 0L;
+
+                final int length = memory.getInt(slot + SLOT_LENGTH);
+                final int sender = memory.getInt(slot + SLOT_SENDER);
+
+                if (length <= 0 || SLOT_HEADER_SIZE + length > slotSize) {
+                    // torn, the slot is being rewritten
+                    lapped(sequence);
+                    continue;
+                }
+
+                if (scratch.length < length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                    scratchView = view(scratch);
+                }
+                memory.get(slot + SLOT_HEADER_SIZE, scratch, length);
+
+                // if the slot changed while it was copied, a publisher lapped this reader
+                memory.loadFence();
+                if (memory.getLongVolatile(slot + SLOT_SEQUENCE) != marker) {
+                    lapped(sequence);
+                    continue;
+                }
+
+                nextSequence = sequence + 1;
+
+                if (sender != senderId) {
+                    deliver(scratch, scratchView);
+                }
+            }
+            else if (Math.abs(marker) > sequence + 1) {
+                lapped(sequence);
+            }
+            else if (memory.getLongVolatile(HEADER_CURSOR) > sequence) {
+                // claimed, but not published yet
+                final long now = System.nanoTime();
+                if (stalledSince == 0L) {
+                    stalledSince = now;
+                }
+                else if (now - stalledSince > STALLED_NANOS) {
+                    stalledSince = 0L;
+                    nextSequence = sequence + 1;
+                    errorHandler.handleError("Skipped message " + sequence + " in " + file + ", the publisher did not finish writing it",
+                                             SharedMemoryTransport.class);
+                }
+                Thread.yield();
+            }
+            else {
+                // spin, then yield, then back off
+                if (++idle < 100) {
+                    continue;
+                }
+                if (idle < 200) {
+                    Thread.yield();
+                }
+                else {
+                    LockSupport.parkNanos(50000L);
+                }
+            }
+        }
+    }
+
+    private
+    void lapped(final long sequence) {
+        final long cursor = memory.getLongVolatile(HEADER_CURSOR);
+
+        // the oldest message that can still be in the ring
+        final long next = Math.max(sequence + 1, cursor - mask);
+        nextSequence = next;
+
+        errorHandler.handleError("Lost " + (next - sequence) + " messages in " + file + ", the reader was lapped",
+                                 SharedMemoryTransport.class);
+    }
+
+    private
+    void deliver(final byte[] payload, final ByteBuffer view) {
+        try {
+            final int type = payload[0];
+            int position = 1;
+
+            final Object message1 = decode(payload, view, position);
+            position += 4 + view.getInt(position);
+
+            switch (type) {
+                case MessageType.ONE: {
+                    bus.publish(message1);
+                    return;
+                }
+                case MessageType.TWO: {
+                    bus.publish(message1, decode(payload, view, position));
+                    return;
+                }
+                default: {
+                    final Object message2 = decode(payload, view, position);
+                    position += 4 + view.getInt(position);
+                    bus.publish(message1, message2, decode(payload, view, position));
+                }
+            }
+        } catch (Exception e) {
+            errorHandler.handlePublicationError("Unable to decode the message from " + file, e, (Object) null);
+        }
+    }
+
+    private
+    Object decode(final byte[] payload, final ByteBuffer view, final int position) {
+        final int length = view.getInt(position);
+        final byte[] bytes = Arrays.copyOfRange(payload, position + 4, position + 4 + length);
+
+        synchronized (codec) {
+            return codec.decode(bytes);
+        }
+    }
+
+    /**
+     * Stops receiving messages. The ring file is not deleted, since other processes may still use it.
+     */
+    public
+    void close() {
+        running = false;
+        LockSupport.unpark(reader);
+
+        try {
+            reader.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+
+        memory.close();
+    }
+}
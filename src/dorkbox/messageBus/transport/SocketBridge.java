@@ -0,0 +1,558 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.journal.MessageCodec;
+
+/**
+ * Forwards the messages of the configured types to the buses on other nodes, over TCP. Every connection (accepted via bind(), or made
+ * via connect()) is bidirectional, and the messages received from it are published asynchronously to the local bus.
+ * <p>
+ * The bridge subscribes a listener to the bus for only the configured types, so the other messages are not affected by the bridge. The
+ * bus must dispatch to super types (the default) for sub types to be forwarded. Messages are encoded on the publishing thread and
+ * queued for each connection. One selector thread does all of the (non-blocking) IO, and coalesces all of
+ * the queued messages of a connection into as few writes as possible. Nagle's algorithm is disabled, since the messages are already
+ * batched.
+ * <p>
+ * Each message is sent as [int length][encoded message], and a connection that sends a length larger than
+ * MessageBus.bridgeMaxFrameSize is closed. The messages that were received from a connection are published (in the order
+ * they were received) by a dispatch thread of the bridge, and are not forwarded again. When the dispatch thread cannot keep up, the
+ * selector thread stops reading, so the other node has to slow down.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class SocketBridge {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INCOMING_SIZE = 1024;
+
+    private final MessageBus bus;
+    private final ErrorHandler errorHandler;
+    private final MessageCodec codec;
+    private final Class<?>[] types;
+    private final int maxFrameSize;
+
+    private final Selector selector;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final List<Connection> connections = new CopyOnWriteArrayList<Connection>();
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    private final ConcurrentLinkedQueue<Connection> pendingWrites = new ConcurrentLinkedQueue<Connection>();
+
+    // messages that were received from a connection, waiting to be published by the dispatch thread
+    private final BlockingQueue<Object> incoming = new ArrayBlockingQueue<Object>(INCOMING_SIZE);
+    private final Thread dispatchThread;
+
+    // the received message that the dispatch thread is publishing, so the forwarder does not send it back. Only used by that thread.
+    private Object dispatching = null;
+
+    private final Forwarder forwarder;
+
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong messagesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * The listener that forwards the messages. This is public, so that it can be invoked via ASM.
+     */
+    public static final
+    class Forwarder {
+        private final SocketBridge bridge;
+
+        Forwarder(final SocketBridge bridge) {
+            this.bridge = bridge;
+        }
+
+        @Handler
+        public
+        void forward(final Object message) {
+            bridge.forward(message);
+        }
+    }
+
+    private static final
+    class Connection {
+        final SocketChannel channel;
+        SelectionKey key;
+
+        final ConcurrentLinkedQueue<byte[]> outgoing = new ConcurrentLinkedQueue<byte[]>();
+        final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        // only used by the selector thread
+        final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        byte[] current = null;
+        int currentOffset = 0;
+        ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * @param bus the bus that the messages are forwarded from, and published to
+     * @param codec converts the messages to and from bytes. The codec is only used while holding a lock.
+     * @param types the messages of these types (and their sub types) are forwarded to the other nodes
+     */
+    public
+    SocketBridge(final MessageBus bus, final MessageCodec codec, final Class<?>... types) throws IOException {
+        this.bus = bus;
+        this.errorHandler = bus.getErrorHandler();
+        this.codec = codec;
+        this.types = types.clone();
+        this.maxFrameSize = MessageBus.bridgeMaxFrameSize;
+
+        this.selector = Selector.open();
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public
+            void run() {
+                select();
+            }
+        }, "MessageBus-Bridge");
+        thread.setDaemon(true);
+        thread.start();
+
+        dispatchThread = new Thread(new Runnable() {
+            @Override
+            public
+            void run() {
+                dispatch();
+            }
+        }, "MessageBus-Bridge-Dispatch");
+        dispatchThread.setDaemon(true);
+        dispatchThread.start();
+
+        forwarder = new Forwarder(this);
+        bus.subscribe(forwarder, this.types);
+    }
+
+    /**
+     * Accepts connections from the other nodes
+     *
+     * @return the address that was bound (when binding to port 0, this has the actual port)
+     */
+    public
+    InetSocketAddress bind(final InetSocketAddress address) throws IOException {
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.bind(address);
+
+        execute(new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    server.register(selector, SelectionKey.OP_ACCEPT);
+                } catch (IOException e) {
+                    errorHandler.handlePublicationError("Unable to accept connections on " + address, e, (Object) null);
+                }
+            }
+        });
+
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Connects (blocking) to another node
+     */
+    public
+    void connect(final InetSocketAddress address) throws IOException {
+        final SocketChannel channel = SocketChannel.open(address);
+        register(channel);
+    }
+
+    private
+    void register(final SocketChannel channel) throws IOException {
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+
+        final Connection connection = new Connection(channel);
+
+        execute(new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    connections.add(connection);
+                } catch (IOException e) {
+                    close(connection, e);
+                }
+            }
+        });
+    }
+
+    private
+    void execute(final Runnable task) {
+        tasks.offer(task);
+        selector.wakeup();
+    }
+
+    private
+    void forward(final Object message) {
+        if (message == dispatching && Thread.currentThread() == dispatchThread) {
+            // this was received from a connection
+            return;
+        }
+
+        final List<Connection> connections = this.connections;
+        if (connections.isEmpty()) {
+            return;
+        }
+
+        final byte[] bytes;
+        synchronized (codec) {
+            bytes = codec.encode(message);
+        }
+
+        if (bytes.length == 0 || bytes.length > maxFrameSize) {
+            // the other nodes would close the connection
+            errorHandler.handlePublicationError("The message is too large (" + bytes.length + " bytes) to be forwarded by the bridge",
+                                                null, message);
+            return;
+        }
+
+        final byte[] frame = new byte[4 + bytes.length];
+        ByteBuffer.wrap(frame).putInt(bytes.length);
+        System.arraycopy(bytes, 0, frame, 4, bytes.length);
+
+        for (Connection connection : connections) {
+            connection.outgoing.offer(frame);
+
+            // many messages queued before the selector thread wakes up are written together
+            if (connection.scheduled.compareAndSet(false, true)) {
+                pendingWrites.offer(connection);
+                selector.wakeup();
+            }
+        }
+
+        messagesSent.incrementAndGet();
+    }
+
+    private
+    void select() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                errorHandler.handlePublicationError("Unable to select", e, (Object) null);
+                return;
+            }
+
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+
+            Connection connection;
+            while ((connection = pendingWrites.poll()) != null) {
+                connection.scheduled.set(false);
+                write(connection);
+            }
+
+            final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                final SelectionKey key = keys.next();
+                keys.remove();
+
+                if (!key.isValid()) {
+                    continue;
+                }
+
+                if (key.isAcceptable()) {
+                    accept((ServerSocketChannel) key.channel());
+                    continue;
+                }
+
+                connection = (Connection) key.attachment();
+                if (key.isReadable()) {
+                    read(connection);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    write(connection);
+                }
+            }
+        }
+    }
+
+    private
+    void accept(final ServerSocketChannel server) {
+        try {
+            final SocketChannel channel = server.accept();
+            if (channel != null) {
+                register(channel);
+            }
+        } catch (IOException e) {
+            errorHandler.handlePublicationError("Unable to accept a connection", e, (Object) null);
+        }
+    }
+
+    /**
+     * Copies as many of the queued messages as fit into the write buffer, and writes them together
+     */
+    private
+    void write(final Connection connection) {
+        final ByteBuffer buffer = connection.writeBuffer;
+
+        try {
+            while (true) {
+                // coalesce
+                while (buffer.hasRemaining()) {
+                    if (connection.current == null) {
+                        connection.current = connection.outgoing.poll();
+                        connection.currentOffset = 0;
+
+                        if (connection.current == null) {
+                            break;
+                        }
+                    }
+
+                    final byte[] current = connection.current;
+                    final int length = Math.min(buffer.remaining(), current.length - connection.currentOffset);
+                    buffer.put(current, connection.currentOffset, length);
+                    connection.currentOffset += length;
+
+                    if (connection.currentOffset == current.length) {
+                        connection.current = null;
+                    }
+                }
+
+                if (buffer.position() == 0) {
+                    // nothing left to write
+                    if (connection.key != null && (connection.key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+                        connection.key.interestOps(SelectionKey.OP_READ);
+                    }
+                    return;
+                }
+
+                buffer.flip();
+                final int written = connection.channel.write(buffer);
+                buffer.compact();
+
+                writes.incrementAndGet();
+                bytesSent.addAndGet(written);
+
+                if (written == 0) {
+                    // the socket is full, continue once it is writable
+                    if (connection.key != null) {
+                        connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            close(connection, e);
+        }
+    }
+
+    private
+    void read(final Connection connection) {
+        try {
+            ByteBuffer buffer = connection.readBuffer;
+            if (connection.channel.read(buffer) < 0) {
+                close(connection, null);
+                return;
+            }
+
+            buffer.flip();
+            while (buffer.remaining() >= 4) {
+                final int length = buffer.getInt(buffer.position());
+                if (length <= 0 || length > maxFrameSize) {
+                    // the stream is corrupt (or the other node is not a bridge), and cannot be recovered
+                    close(connection, new IOException("Invalid frame length: " + length));
+                    return;
+                }
+
+                if (buffer.remaining() < 4 + length) {
+                    if (4 + length > buffer.capacity()) {
+                        // the message is larger than the buffer
+                        final ByteBuffer larger = ByteBuffer.allocate(4 + length);
+                        larger.put(buffer);
+                        connection.readBuffer = larger;
+                        return;
+                    }
+                    break;
+                }
+
+                buffer.getInt();
+                final byte[] bytes = new byte[length];
+                buffer.get(bytes);
+
+                receive(bytes);
+            }
+            buffer.compact();
+        } catch (IOException e) {
+            close(connection, e);
+        }
+    }
+
+    private
+    void receive(final byte[] bytes) {
+        final Object message;
+        try {
+            synchronized (codec) {
+                message = codec.decode(bytes);
+            }
+        } catch (Exception e) {
+            errorHandler.handlePublicationError("Unable to decode a message from the bridge", e, (Object) null);
+            return;
+        }
+
+        messagesReceived.incrementAndGet();
+
+        try {
+            // blocks the selector thread (so nothing more is read) when the dispatch thread cannot keep up
+            incoming.put(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Publishes the received messages, in the order they were received
+     */
+    private
+    void dispatch() {
+        while (true) {
+            final Object message;
+            try {
+                message = incoming.take();
+            } catch (InterruptedException e) {
+                // the bridge was closed
+                return;
+            }
+
+            dispatching = message;
+            try {
+                bus.publish(message);
+            } finally {
+                dispatching = null;
+            }
+        }
+    }
+
+    private
+    void close(final Connection connection, final IOException cause) {
+        connections.remove(connection);
+
+        if (connection.key != null) {
+            connection.key.cancel();
+        }
+
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+
+        if (cause != null && running) {
+            errorHandler.handlePublicationError("The bridge connection was closed", cause, (Object) null);
+        }
+    }
+
+    /**
+     * @return how many connections (accepted, or made) are open
+     */
+    public
+    int getConnectionCount() {
+        return connections.size();
+    }
+
+    public
+    long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    public
+    long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    public
+    long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * @return how many writes were made to the sockets. Because messages are batched, this is (usually) much less than the messages sent.
+     */
+    public
+    long getWrites() {
+        return writes.get();
+    }
+
+    /**
+     * Stops forwarding, and closes all of the connections
+     */
+    public
+    void close() {
+        bus.unsubscribe(forwarder);
+        running = false;
+        selector.wakeup();
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+
+        // the messages that were received, but not published yet, are dropped
+        dispatchThread.interrupt();
+        incoming.clear();
+
+        for (Connection connection : new ArrayList<Connection>(connections)) {
+            close(connection, null);
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
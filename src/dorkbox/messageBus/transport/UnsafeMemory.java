@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.transport;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Accesses the shared memory with sun.misc.Unsafe. This is the only class that uses it, and it is only reached through method handles
+ * (that the JIT inlines, since they are constants), so nothing is compiled against an internal API. When Unsafe (or one of it's methods)
+ * is not available, AVAILABLE is false and the mapped buffer is used instead.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+final
+class UnsafeMemory extends SharedMemory {
+    static final boolean AVAILABLE;
+
+    private static final MethodHandle GET_INT;
+    private static final MethodHandle PUT_INT;
+    private static final MethodHandle PUT_BYTE;
+    private static final MethodHandle GET_INT_VOLATILE;
+    private static final MethodHandle PUT_INT_VOLATILE;
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle GET_LONG_VOLATILE;
+    private static final MethodHandle PUT_LONG_VOLATILE;
+    private static final MethodHandle PUT_ORDERED_LONG;
+    private static final MethodHandle GET_AND_ADD_LONG;
+    private static final MethodHandle COPY_MEMORY;
+    private static final MethodHandle LOAD_FENCE;
+
+    private static final long ADDRESS_OFFSET;
+    private static final long BYTE_ARRAY_OFFSET;
+
+    static {
+        boolean available = false;
+        MethodHandle getInt = null;
+        MethodHandle putInt = null;
+        MethodHandle putByte = null;
+        MethodHandle getIntVolatile = null;
+        MethodHandle putIntVolatile = null;
+        MethodHandle getLong = null;
+        MethodHandle getLongVolatile = null;
+        MethodHandle putLongVolatile = null;
+        MethodHandle putOrderedLong = null;
+        MethodHandle getAndAddLong = null;
+        MethodHandle copyMemory = null;
+        MethodHandle loadFence = null;
+        long addressOffset = 0L;
+        long byteArrayOffset = 0L;
+
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            final Object unsafe = field.get(null);
+
+            getInt = handle(unsafe, "getInt", Object.class, long.class);
+            putInt = handle(unsafe, "putInt", Object.class, long.class, int.class);
+            putByte = handle(unsafe, "putByte", Object.class, long.class, byte.class);
+            getIntVolatile = handle(unsafe, "getIntVolatile", Object.class, long.class);
+            putIntVolatile = handle(unsafe, "putIntVolatile", Object.class, long.class, int.class);
+            getLong = handle(unsafe, "getLong", Object.class, long.class);
+            getLongVolatile = handle(unsafe, "getLongVolatile", Object.class, long.class);
+            putLongVolatile = handle(unsafe, "putLongVolatile", Object.class, long.class, long.class);
+            putOrderedLong = handle(unsafe, "putOrderedLong", Object.class, long.class, long.class);
+            getAndAddLong = handle(unsafe, "getAndAddLong", Object.class, long.class, long.class);
+            copyMemory = handle(unsafe, "copyMemory", Object.class, long.class, Object.class, long.class, long.class);
+            loadFence = handle(unsafe, "loadFence");
+
+            addressOffset = (Long) handle(unsafe, "objectFieldOffset", Field.class).invoke(Buffer.class.getDeclaredField("address"));
+            byteArrayOffset = (Integer) handle(unsafe, "arrayBaseOffset", Class.class).invoke(byte[].class);
+
+            available = true;
+        } catch (Throwable ignored) {
+        }
+
+        AVAILABLE = available;
+        GET_INT = getInt;
+        PUT_INT = putInt;
+        PUT_BYTE = putByte;
+        GET_INT_VOLATILE = getIntVolatile;
+        PUT_INT_VOLATILE = putIntVolatile;
+        GET_LONG = getLong;
+        GET_LONG_VOLATILE = getLongVolatile;
+        PUT_LONG_VOLATILE = putLongVolatile;
+        PUT_ORDERED_LONG = putOrderedLong;
+        GET_AND_ADD_LONG = getAndAddLong;
+        COPY_MEMORY = copyMemory;
+        LOAD_FENCE = loadFence;
+        ADDRESS_OFFSET = addressOffset;
+        BYTE_ARRAY_OFFSET = byteArrayOffset;
+    }
+
+    private static
+    MethodHandle handle(final Object unsafe, final String name, final Class<?>... parameterTypes) throws Exception {
+        return MethodHandles.lookup().unreflect(unsafe.getClass().getMethod(name, parameterTypes)).bindTo(unsafe);
+    }
+
+    private static
+    IllegalStateException failed(final Throwable e) {
+        return new IllegalStateException("Unable to access the shared memory", e);
+    }
+
+    private final long address;
+
+    UnsafeMemory(final FileChannel channel, final MappedByteBuffer buffer) {
+        super(channel, buffer);
+
+        try {
+            address = (long) GET_LONG.invokeExact((Object) buffer, ADDRESS_OFFSET);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    int getInt(final long offset) {
+        try {
+            return (int) GET_INT.invokeExact((Object) null, address + offset);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    void putInt(final long offset, final int value) {
+        try {
+            PUT_INT.invokeExact((Object) null, address + offset, value);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    void putByte(final long offset, final byte value) {
+        try {
+            PUT_BYTE.invokeExact((Object) null, address + offset, value);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    int getIntVolatile(final long offset) {
+        try {
+            return (int) GET_INT_VOLATILE.invokeExact((Object) null, address + offset);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    void putIntVolatile(final long offset, final int value) {
+        try {
+            PUT_INT_VOLATILE.invokeExact((Object) null, address + offset, value);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    long getLongVolatile(final long offset) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address + offset);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    void putLongVolatile(final long offset, final long value) {
+        try {
+            PUT_LONG_VOLATILE.invokeExact((Object) null, address + offset, value);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    void putLongOrdered(final long offset, final long value) {
+        try {
+            PUT_ORDERED_LONG.invokeExact((Object) null, address + offset, value);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    boolean isLockFree() {
+        return true;
+    }
+
+    @Override
+    long getAndAddLong(final long offset, final long delta) {
+        try {
+            return (long) GET_AND_ADD_LONG.invokeExact((Object) null, address + offset, delta);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    void put(final long offset, final byte[] bytes) {
+        try {
+            COPY_MEMORY.invokeExact((Object) bytes, BYTE_ARRAY_OFFSET, (Object) null, address + offset, (long) bytes.length);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    void get(final long offset, final byte[] bytes, final int length) {
+        try {
+            COPY_MEMORY.invokeExact((Object) null, address + offset, (Object) bytes, BYTE_ARRAY_OFFSET, (long) length);
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw failed(e);
+        }
+    }
+}
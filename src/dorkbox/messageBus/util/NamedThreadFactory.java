@@ -107,12 +107,19 @@ class NamedThreadFactory implements ThreadFactory {
         // 8k is the size of the android stack. Depending on the version of android, this can either change, or will always be 8k
         // To be honest, 8k is pretty reasonable for an asynchronous/event based system (32bit) or 16k (64bit)
         // Setting the size MAY or MAY NOT have any effect!!!
-        Thread t = new Thread(this.group, r, name, NamedThreadFactory.stackSizeForThreads);
+        Thread t = createThread(this.group, r, name, NamedThreadFactory.stackSizeForThreads);
         t.setDaemon(true);// don't let these threads keep the JVM running
         if (t.getPriority() != Thread.NORM_PRIORITY) {
             t.setPriority(Thread.NORM_PRIORITY);
         }
         return t;
     }
-}
 
+    /**
+     * Creates the (unstarted) thread, so that a subclass can use its own type of thread
+     */
+    protected
+    Thread createThread(final ThreadGroup group, final Runnable r, final String name, final long stackSize) {
+        return new Thread(group, r, name, stackSize);
+    }
+}
@@ -39,6 +39,7 @@ package dorkbox.messageBus.util;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -183,6 +184,27 @@ class ReflectionUtils {
         return getAnnotation(from, annotationType, new IdentityMap<AnnotatedElement, Boolean>());
     }
 
+    /**
+     * Searches the class hierarchy for a field, and makes it accessible.
+     *
+     * @throws IllegalArgumentException if the field does not exist
+     */
+    public static
+    Field getField(final Class<?> target, final String name) {
+        Class<?> current = target;
+        while (current != null) {
+            try {
+                Field field = current.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException ignored) {
+                current = current.getSuperclass();
+            }
+        }
+
+        throw new IllegalArgumentException("Unable to find the field '" + name + "' in " + target.getName());
+    }
+
     //
     private static
     boolean isOverriddenBy(final Method superclassMethod, final Method subclassMethod) {
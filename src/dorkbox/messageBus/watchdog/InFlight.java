@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.watchdog;
+
+import dorkbox.messageBus.subscription.Subscription;
+
+/**
+ * The subscription that a worker is currently invoking. It is only written by the worker (two volatile writes per subscription), and
+ * is read by the watchdog.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class InFlight {
+
+    /**
+     * @return the in-flight record of the current thread, or null when the thread is not watched. It is also null when the thread is
+     *         already invoking a handler, so that a message published by a handler is accounted to that (outer) handler.
+     */
+    public static
+    InFlight current() {
+        final Thread thread = Thread.currentThread();
+        if (thread instanceof WatchedThread) {
+            final InFlight inFlight = ((WatchedThread) thread).inFlight;
+            if (inFlight.startTime == 0L) {
+                return inFlight;
+            }
+        }
+
+        return null;
+    }
+
+
+    private final Thread thread;
+    private volatile Subscription subscription;
+
+    // 0 when the worker is idle
+    private volatile long startTime = 0L;
+
+    // only used by the watchdog, so that each stall is only reported once
+    long reported = 0L;
+
+    InFlight(final Thread thread) {
+        this.thread = thread;
+    }
+
+    /**
+     * Called by the worker before it invokes the handler of a subscription. Ends the previous invocation (if any).
+     */
+    public
+    void start(final Subscription subscription) {
+        this.subscription = subscription;
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Called by the worker after the message was dispatched
+     */
+    public
+    void end() {
+        startTime = 0L;
+    }
+
+    Thread getThread() {
+        return thread;
+    }
+
+    Subscription getSubscription() {
+        return subscription;
+    }
+
+    long getStartTime() {
+        return startTime;
+    }
+}
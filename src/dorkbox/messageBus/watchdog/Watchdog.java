@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.watchdog;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.util.NamedThreadFactory;
+
+/**
+ * Watches the handlers that the workers are invoking, and reports (to the error handlers) the handlers that have been running for
+ * longer than the threshold, with the stack of the stuck worker.
+ * <p>
+ * Each stall is reported once. The worker is not interrupted, a handler stuck in I/O will continue to block it.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+public final
+class Watchdog {
+
+    private final long thresholdNanos;
+    private final ErrorHandler errorHandler;
+
+    // copy-on-write, so the watchdog does not lock while checking the workers
+    private volatile InFlight[] workers = new InFlight[0];
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * @param threshold how long a handler can run before it is reported
+     */
+    public
+    Watchdog(final long threshold, final TimeUnit unit, final ErrorHandler errorHandler) {
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.errorHandler = errorHandler;
+
+        // a stall is noticed within 1.5x of the threshold
+        final long intervalNanos = Math.max(thresholdNanos / 2, TimeUnit.MILLISECONDS.toNanos(1L));
+
+        thread = new NamedThreadFactory("MessageBus-Watchdog").newThread(new Runnable() {
+            @Override
+            public
+            void run() {
+                while (running) {
+                    LockSupport.parkNanos(intervalNanos);
+                    check();
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return a thread factory for the workers. The handlers that are invoked by these threads are watched.
+     */
+    public
+    ThreadFactory newThreadFactory(final String groupName) {
+        return new NamedThreadFactory(groupName) {
+            @Override
+            protected
+            Thread createThread(final ThreadGroup group, final Runnable r, final String name, final long stackSize) {
+                return new WatchedThread(Watchdog.this, group, r, name, stackSize);
+            }
+        };
+    }
+
+    synchronized
+    void watch(final InFlight worker) {
+        final InFlight[] workers = this.workers;
+        final InFlight[] newWorkers = new InFlight[workers.length + 1];
+        System.arraycopy(workers, 0, newWorkers, 0, workers.length);
+        newWorkers[workers.length] = worker;
+
+        this.workers = newWorkers;
+    }
+
+    synchronized
+    void unwatch(final InFlight worker) {
+        final InFlight[] workers = this.workers;
+
+        for (int i = 0; i < workers.length; i++) {
+            if (workers[i] == worker) {
+                final InFlight[] newWorkers = new InFlight[workers.length - 1];
+                System.arraycopy(workers, 0, newWorkers, 0, i);
+                System.arraycopy(workers, i + 1, newWorkers, i, workers.length - i - 1);
+
+                this.workers = newWorkers;
+                return;
+            }
+        }
+    }
+
+    private
+    void check() {
+        final InFlight[] workers = this.workers;
+        final long now = System.nanoTime();
+
+        for (int i = 0; i < workers.length; i++) {
+            final InFlight worker = workers[i];
+            final long startTime = worker.getStartTime();
+
+            if (startTime != 0L && startTime != worker.reported && now - startTime > thresholdNanos) {
+                final Subscription subscription = worker.getSubscription();
+
+                // the worker moved on while the subscription was read, it is checked again next time
+                if (startTime != worker.getStartTime()) {
+                    continue;
+                }
+
+                worker.reported = startTime;
+                report(worker.getThread(), subscription, now - startTime);
+            }
+        }
+    }
+
+    private
+    void report(final Thread thread, final Subscription subscription, final long elapsedNanos) {
+        // the stack of the worker, so the error handler can show where it is stuck
+        final Throwable cause = new Throwable("Stack of " + thread.getName());
+        cause.setStackTrace(thread.getStackTrace());
+
+        final Method handler = subscription.getHandler().getMethod();
+
+        errorHandler.handlePublicationError(new PublicationError().setMessage("Handler " + subscription.getListenerClass().getName() +
+                                                                              "." + handler.getName() + " has been running for " +
+                                                                              TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms.")
+                                                                  .setCause(cause));
+    }
+
+    /**
+     * Stops watching the workers
+     */
+    public
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+}
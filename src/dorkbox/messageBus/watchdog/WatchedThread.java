@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.watchdog;
+
+/**
+ * A worker thread that carries its in-flight record, so the dispatch finds it without a lookup. It is watched while it runs.
+ *
+ * @author dorkbox, llc
+ *         Date: 10/19/26
+ */
+final
+class WatchedThread extends Thread {
+
+    final InFlight inFlight = new InFlight(this);
+    private final Watchdog watchdog;
+
+    WatchedThread(final Watchdog watchdog, final ThreadGroup group, final Runnable target, final String name, final long stackSize) {
+        super(group, target, name, stackSize);
+        this.watchdog = watchdog;
+    }
+
+    @Override
+    public
+    void run() {
+        watchdog.watch(inFlight);
+        try {
+            super.run();
+        } finally {
+            watchdog.unwatch(inFlight);
+        }
+    }
+}
@@ -42,6 +42,30 @@ import org.junit.runners.Suite;
         AsyncFIFOBusTest.class,
         MultiTreeTest.class,
         MultiMessageTest.class,
+        RequestTest.class,
+        ShutdownTest.class,
+        ShardedAsyncTest.class,
+        ScheduledPublicationTest.class,
+        ConflationTest.class,
+        PriorityLaneTest.class,
+        HandlerPriorityTest.class,
+        FilterTest.class,
+        RoutingKeyTest.class,
+        CancelTest.class,
+        LazyPublicationTest.class,
+        AsyncErrorHandlingTest.class,
+        PrimitivePublicationTest.class,
+        JournalTest.class,
+        ReplayTest.class,
+        SharedMemoryTransportTest.class,
+        SocketBridgeTest.class,
+        HandlerIndexTest.class,
+        HandlerCacheTest.class,
+        MetricsTest.class,
+        FlightRecorderTest.class,
+        JmxTest.class,
+        WatchdogTest.class,
+        ElasticPoolTest.class,
 })
 public class AllTests {
 }
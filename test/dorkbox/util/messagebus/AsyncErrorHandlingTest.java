@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.error.DeadMessage;
+import dorkbox.messageBus.error.IPublicationErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that errors are handled by the error handling thread, and that errors of the same type are rate limited and reported as
+ * a summary
+ *
+ * @author dorkbox, llc
+ */
+public class AsyncErrorHandlingTest extends MessageBusTest {
+
+    @Test
+    public void testAsyncErrors() throws Exception {
+        final boolean async = MessageBus.useAsyncErrorHandling;
+        final int maxErrors = MessageBus.maxErrorsPerTypePerSecond;
+        try {
+            MessageBus.useAsyncErrorHandling = true;
+            MessageBus.maxErrorsPerTypePerSecond = 5;
+
+            final Thread publisher = Thread.currentThread();
+            final AtomicInteger errors = new AtomicInteger(0);
+            final AtomicInteger wrongThread = new AtomicInteger(0);
+            final List<String> summaries = new ArrayList<String>();
+
+            MessageBus bus = new MessageBus();
+            bus.addErrorHandler(new IPublicationErrorHandler() {
+                @Override
+                public
+                void handleError(final PublicationError error) {
+                    if (Thread.currentThread() == publisher) {
+                        wrongThread.incrementAndGet();
+                    }
+                    if (error.getCause() instanceof IllegalStateException && error.getPublishedObject()[0] instanceof Integer) {
+                        errors.incrementAndGet();
+                    }
+                }
+
+                @Override
+                public
+                void handleError(final String error, final Class<?> listenerClass) {
+                    synchronized (summaries) {
+                        summaries.add(error);
+                    }
+                }
+            });
+            bus.subscribe(new FailingListener());
+
+            for (int i = 0; i < 100; i++) {
+                bus.publish(i);
+            }
+
+            // the remaining errors (and the summary) are reported during shutdown
+            bus.shutdown();
+
+            assertEquals(0, wrongThread.get());
+
+            // usually all of the errors are within one second (5 are reported, the rest are summarized), but a slow machine might need
+            // more than one second to publish them
+            assertTrue(errors.get() >= 5);
+            assertTrue(errors.get() < 100);
+
+            synchronized (summaries) {
+                assertFalse(summaries.isEmpty());
+                for (String summary : summaries) {
+                    assertTrue(summary.contains("errors of type java.lang.IllegalStateException"));
+                }
+            }
+        } finally {
+            MessageBus.useAsyncErrorHandling = async;
+            MessageBus.maxErrorsPerTypePerSecond = maxErrors;
+        }
+    }
+
+    @Test
+    public void testUnlimited() throws Exception {
+        final boolean async = MessageBus.useAsyncErrorHandling;
+        final int maxErrors = MessageBus.maxErrorsPerTypePerSecond;
+        try {
+            MessageBus.useAsyncErrorHandling = true;
+            MessageBus.maxErrorsPerTypePerSecond = 0;
+
+            final AtomicInteger errors = new AtomicInteger(0);
+
+            MessageBus bus = new MessageBus();
+            bus.addErrorHandler(new IPublicationErrorHandler() {
+                @Override
+                public
+                void handleError(final PublicationError error) {
+                    errors.incrementAndGet();
+                }
+
+                @Override
+                public
+                void handleError(final String error, final Class<?> listenerClass) {
+                    fail("No summary when the errors are not limited");
+                }
+            });
+            bus.subscribe(new FailingListener());
+
+            for (int i = 0; i < 500; i++) {
+                bus.publish(i);
+            }
+            bus.shutdown();
+
+            assertEquals(500, errors.get());
+        } finally {
+            MessageBus.useAsyncErrorHandling = async;
+            MessageBus.maxErrorsPerTypePerSecond = maxErrors;
+        }
+    }
+
+    @Test
+    public void testDeadMessageErrors() throws Exception {
+        final boolean async = MessageBus.useAsyncErrorHandling;
+        final int maxErrors = MessageBus.maxErrorsPerTypePerSecond;
+        try {
+            MessageBus.useAsyncErrorHandling = true;
+            MessageBus.maxErrorsPerTypePerSecond = 0;
+
+            final Set<Object> deadMessages = new HashSet<Object>();
+
+            MessageBus bus = new MessageBus();
+            bus.addErrorHandler(new IPublicationErrorHandler() {
+                @Override
+                public
+                void handleError(final PublicationError error) {
+                    // the dead message is reused by the publishing thread, so the error must have it's own copy
+                    final DeadMessage deadMessage = (DeadMessage) error.getPublishedObject()[0];
+                    synchronized (deadMessages) {
+                        deadMessages.add(deadMessage.getMessages()[0]);
+                    }
+                }
+
+                @Override
+                public
+                void handleError(final String error, final Class<?> listenerClass) {
+                }
+            });
+            bus.subscribe(new FailingDeadListener());
+
+            for (int i = 0; i < 100; i++) {
+                bus.publish("dead " + i);
+            }
+            bus.shutdown();
+
+            synchronized (deadMessages) {
+                assertEquals(100, deadMessages.size());
+                for (int i = 0; i < 100; i++) {
+                    assertTrue(deadMessages.contains("dead " + i));
+                }
+            }
+        } finally {
+            MessageBus.useAsyncErrorHandling = async;
+            MessageBus.maxErrorsPerTypePerSecond = maxErrors;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class FailingDeadListener {
+        @Handler
+        public void handle(DeadMessage message) {
+            throw new IllegalStateException("failed " + message.getMessages()[0]);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class FailingListener {
+        @Handler
+        public void handle(Integer message) {
+            throw new IllegalStateException("failed " + message);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.dispatch.DispatchCancel;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that cancelling a message stops the delivery without reporting an error, for ASM and reflection, and that cancelling does
+ * not allocate a new exception (or stack trace).
+ *
+ * @author dorkbox, llc
+ */
+public class CancelTest extends MessageBusTest {
+
+    private static final int COUNT = 10000;
+
+    private static final AtomicInteger delivered = new AtomicInteger(0);
+
+    @Test
+    public void testCancelAsm() {
+        boolean asm = MessageBus.useAsmForDispatch;
+        try {
+            MessageBus.useAsmForDispatch = true;
+            cancel();
+        } finally {
+            MessageBus.useAsmForDispatch = asm;
+        }
+    }
+
+    @Test
+    public void testCancelReflection() {
+        boolean asm = MessageBus.useAsmForDispatch;
+        try {
+            MessageBus.useAsmForDispatch = false;
+            cancel();
+        } finally {
+            MessageBus.useAsmForDispatch = asm;
+        }
+    }
+
+    @Test
+    public void testNoAllocation() {
+        DispatchCancel first = null;
+        DispatchCancel second = null;
+        try {
+            MessageBus.cancel();
+        } catch (DispatchCancel e) {
+            first = e;
+        }
+        try {
+            MessageBus.cancel();
+        } catch (DispatchCancel e) {
+            second = e;
+        }
+
+        assertTrue(first == second);
+        assertEquals(0, first.getStackTrace().length);
+
+        // the shared instance does not collect suppressed exceptions
+        first.addSuppressed(new IllegalStateException());
+        assertEquals(0, first.getSuppressed().length);
+    }
+
+    private
+    void cancel() {
+        delivered.set(0);
+
+        // TestFailingHandler fails if the cancellation is reported as an error
+        MessageBus bus = createBus();
+        bus.subscribe(new ValidationListener());
+        bus.subscribe(new DeliveryListener());
+
+        for (int i = 0; i < COUNT; i++) {
+            bus.publish(i);
+        }
+
+        // 30% are cancelled
+        assertEquals(COUNT - COUNT * 3 / 10, delivered.get());
+        bus.shutdown();
+    }
+
+    @SuppressWarnings("unused")
+    public static class ValidationListener {
+        @Handler(priority = 10)
+        public void handle(Integer message) {
+            if (message % 10 < 3) {
+                MessageBus.cancel();
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class DeliveryListener {
+        @Handler
+        public void handle(Integer message) {
+            delivered.incrementAndGet();
+        }
+    }
+}
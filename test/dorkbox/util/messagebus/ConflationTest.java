@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that only the newest conflated message for a key is dispatched
+ *
+ * @author dorkbox, llc
+ */
+public class ConflationTest extends MessageBusTest {
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+    private static final AtomicInteger notConflated = new AtomicInteger(0);
+    private static volatile Integer last;
+
+    private static CountDownLatch blocked;
+    private static CountDownLatch release;
+
+    @Test
+    public void testLatestValueWins() throws Exception {
+        received.set(0);
+        notConflated.set(0);
+        blocked = new CountDownLatch(2);
+        release = new CountDownLatch(1);
+
+        // both workers block, so all of the others are conflated while they wait in the queue
+        MessageBus bus = new MessageBus(2);
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new BlockingListener());
+
+        bus.publishAsyncConflated("key", -1);
+        bus.publishAsync(-2);
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 1000; i++) {
+            bus.publishAsyncConflated("key", i);
+        }
+        bus.publishAsyncConflated("other", 5000);
+
+        release.countDown();
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        // -1, -2, 999, 5000 (the last two in either order)
+        assertEquals(4, received.get());
+        assertEquals(0, notConflated.get());
+
+        bus.publishAsyncConflated("key", 1);
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(5, received.get());
+        assertEquals(1, last);
+
+        bus.shutdown();
+    }
+
+    @SuppressWarnings("unused")
+    public static class BlockingListener {
+        @Handler
+        public void handle(Integer message) throws InterruptedException {
+            if (message < 0) {
+                blocked.countDown();
+                release.await();
+            }
+
+            if (message >= 0 && message != 999 && message != 5000 && received.get() < 4) {
+                notConflated.incrementAndGet();
+            }
+
+            last = message;
+            received.incrementAndGet();
+        }
+    }
+}
@@ -22,6 +22,7 @@
  */
 package dorkbox.util.messagebus;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
@@ -47,6 +48,7 @@ import dorkbox.util.messagebus.listeners.ObjectListener;
 public class DeadMessageTest extends MessageBusTest{
 
     private static final AtomicInteger deadMessages = new AtomicInteger(0);
+    private static final AtomicInteger delivered = new AtomicInteger(0);
 
     @Override
     @Before
@@ -128,6 +130,130 @@ public class DeadMessageTest extends MessageBusTest{
         assertEquals(InstancesPerListener, deadMessages.get());
     }
 
+    @Test
+    public void testDeadMessageIsReused() {
+        final MessageBus bus = createBus();
+        final RecordingDeadMessageHandler handler = new RecordingDeadMessageHandler();
+        bus.subscribe(handler);
+
+        bus.publish("first");
+        bus.publish("second");
+        bus.publish(1, 2);
+
+        assertEquals(3, deadMessages.get());
+        assertEquals("second", handler.lastMessage);
+
+        // the same instance is used every time (on the same thread), and the messages are cleared once it was published
+        assertTrue(handler.first == handler.last);
+        assertNull(handler.last.getMessages()[0]);
+
+        // a type that was remembered as "dead" is delivered once it has a listener
+        bus.subscribe(new StringHandler());
+        bus.publish("third");
+        assertEquals(3, deadMessages.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testSubscribeWhilePublishing() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            delivered.set(0);
+
+            final MessageBus bus = createBus();
+            final AtomicBoolean running = new AtomicBoolean(true);
+
+            // remembers String as a "dead" type, while the listener is subscribed
+            Thread publisher = new Thread(new Runnable() {
+                @Override
+                public
+                void run() {
+                    while (running.get()) {
+                        bus.publish("dead");
+                    }
+                }
+            });
+            publisher.start();
+
+            Thread.yield();
+            bus.subscribe(new CountingStringHandler());
+
+            running.set(false);
+            publisher.join();
+
+            bus.publish("delivered");
+            assertEquals(1, delivered.get());
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testNestedDeadMessage() {
+        final MessageBus bus = createBus();
+        final NestedDeadMessageHandler handler = new NestedDeadMessageHandler(bus);
+        bus.subscribe(handler);
+
+        bus.publish("outer");
+
+        // the outer dead message is not changed by the nested one
+        assertEquals(2, deadMessages.get());
+        assertEquals("outer", handler.outer);
+
+        bus.shutdown();
+    }
+
+    public static class RecordingDeadMessageHandler {
+        private DeadMessage first;
+        private DeadMessage last;
+        private Object lastMessage;
+
+        @Handler
+        public void handle(DeadMessage message){
+            deadMessages.incrementAndGet();
+            if (first == null) {
+                first = message;
+            }
+            last = message;
+            if (message.getMessages().length == 1) {
+                lastMessage = message.getMessages()[0];
+            }
+        }
+    }
+
+    public static class NestedDeadMessageHandler {
+        private final MessageBus bus;
+        private Object outer;
+
+        public NestedDeadMessageHandler(final MessageBus bus) {
+            this.bus = bus;
+        }
+
+        @Handler
+        public void handle(DeadMessage message){
+            deadMessages.incrementAndGet();
+            if ("outer".equals(message.getMessages()[0])) {
+                bus.publish(1.0D);
+                outer = message.getMessages()[0];
+            }
+        }
+    }
+
+    public static class StringHandler {
+        @Handler
+        public void handle(String message){
+        }
+    }
+
+    public static class CountingStringHandler {
+        @Handler
+        public void handle(String message){
+            if ("delivered".equals(message)) {
+                delivered.incrementAndGet();
+            }
+        }
+    }
+
     public static class DeadMessagHandler {
         @Handler
         public void handle(DeadMessage message){
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.IMessageBus.DispatchMode;
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.dispatch.DispatchExactWithSuperTypes;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.subscription.SubscriptionManager;
+import dorkbox.messageBus.synchrony.AsyncDisruptor;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that the elastic worker pool grows when messages queue up, shrinks back to the min when idle, and that a fixed number of
+ * threads stays fixed
+ *
+ * @author dorkbox, llc
+ */
+public class ElasticPoolTest extends MessageBusTest {
+
+    @Test
+    public void testGrowAndShrink() throws Exception {
+        final ErrorHandler errorHandler = new ErrorHandler();
+        final SubscriptionManager subscriptionManager = new SubscriptionManager(true);
+        subscriptionManager.subscribe(new SlowListener());
+
+        final DispatchExactWithSuperTypes dispatch = new DispatchExactWithSuperTypes(errorHandler, subscriptionManager);
+        final AsyncDisruptor async = new AsyncDisruptor(1, 4, errorHandler);
+
+        try {
+            assertEquals(1, async.getActiveThreads());
+
+            // the slow handlers queue up, so more threads are started
+            int maxActive = 1;
+            for (int i = 0; i < 400 && maxActive < 4; i++) {
+                async.publish(dispatch, i);
+                maxActive = Math.max(maxActive, async.getActiveThreads());
+            }
+            assertEquals(4, maxActive);
+            assertTrue(async.awaitQuiescence(10, TimeUnit.SECONDS));
+
+            // retired one at a time, after the ring buffer has been idle for 1 second
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (async.getActiveThreads() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(50L);
+            }
+            assertEquals(1, async.getActiveThreads());
+
+            // never shrinks below the min
+            Thread.sleep(1500L);
+            assertEquals(1, async.getActiveThreads());
+        } finally {
+            async.shutdown();
+            errorHandler.shutdown();
+            subscriptionManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testFixedSize() throws Exception {
+        boolean disruptor = MessageBus.useDisruptorForAsyncPublish;
+        MessageBus.useDisruptorForAsyncPublish = true;
+
+        try {
+            // rounded to a power of 2, which must not create an elastic pool
+            final int monitors = countMonitors();
+
+            MessageBus bus = new MessageBus(DispatchMode.ExactWithSuperTypes, 3);
+            assertEquals(monitors, countMonitors());
+            bus.shutdown();
+
+            bus = new MessageBus(DispatchMode.ExactWithSuperTypes, 1);
+            assertEquals(monitors, countMonitors());
+            bus.shutdown();
+
+            // only the min/max constructor is elastic
+            bus = new MessageBus(DispatchMode.ExactWithSuperTypes, 1, 4);
+            assertEquals(monitors + 1, countMonitors());
+            bus.shutdown();
+            assertEquals(monitors, countMonitors());
+        } finally {
+            MessageBus.useDisruptorForAsyncPublish = disruptor;
+        }
+    }
+
+    private static
+    int countMonitors() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("MessageBus-Monitor") && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unused")
+    public static class SlowListener {
+        @Handler
+        public void handle(Integer message) {
+            LockSupport.parkNanos(5000000L);
+        }
+    }
+}
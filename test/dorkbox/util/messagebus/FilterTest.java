@@ -0,0 +1,323 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Filter;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.annotations.Synchronized;
+import dorkbox.messageBus.filter.IMessageFilter;
+import dorkbox.messageBus.filter.IPrimitiveMessageFilter;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that @Filter handlers are only invoked for accepted messages, for every kind of filter, and that the filter saves the
+ * handler invocations for rejected messages.
+ *
+ * @author dorkbox, llc
+ */
+public class FilterTest extends MessageBusTest {
+
+    private static final AtomicInteger classFiltered = new AtomicInteger(0);
+    private static final AtomicInteger stringFiltered = new AtomicInteger(0);
+    private static final AtomicInteger enumFiltered = new AtomicInteger(0);
+    private static final AtomicInteger intFiltered = new AtomicInteger(0);
+    private static final AtomicInteger doubleFiltered = new AtomicInteger(0);
+    private static final AtomicInteger floatFiltered = new AtomicInteger(0);
+    private static final AtomicInteger listenerFiltered = new AtomicInteger(0);
+    private static final AtomicInteger unfiltered = new AtomicInteger(0);
+    private static final AtomicInteger primitiveFiltered = new AtomicInteger(0);
+    private static final AtomicInteger boxedFiltered = new AtomicInteger(0);
+
+    @Test
+    public void testFiltersAsm() {
+        boolean asm = MessageBus.useAsmForDispatch;
+        try {
+            MessageBus.useAsmForDispatch = true;
+            filter();
+        } finally {
+            MessageBus.useAsmForDispatch = asm;
+        }
+    }
+
+    @Test
+    public void testFiltersReflection() {
+        boolean asm = MessageBus.useAsmForDispatch;
+        try {
+            MessageBus.useAsmForDispatch = false;
+            filter();
+        } finally {
+            MessageBus.useAsmForDispatch = asm;
+        }
+    }
+
+    @Test
+    public void testSavedInvocations() {
+        final int count = 100000;
+        unfiltered.set(0);
+        stringFiltered.set(0);
+
+        MessageBus bus = createBus();
+        bus.subscribe(new UnfilteredListener());
+        bus.subscribe(new StringListener());
+
+        for (int i = 0; i < count; i++) {
+            bus.publish(new Quote(i % 10 == 0 ? "ABC" : "XYZ", i, 1.0D, Side.BUY));
+        }
+
+        assertEquals(count, unfiltered.get());
+        assertEquals(count / 10, stringFiltered.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testInvalidFilter() {
+        MessageBus bus = createBus();
+        try {
+            bus.subscribe(new InvalidListener());
+            fail("An invalid filter must be rejected when subscribing");
+        } catch (IllegalArgumentException expected) {
+        }
+        bus.shutdown();
+    }
+
+    @Test
+    public void testPrimitiveFilter() {
+        primitiveFiltered.set(0);
+        boxedFiltered.set(0);
+
+        MessageBus bus = createBus();
+        bus.subscribe(new PrimitiveListener());
+
+        for (int i = 0; i < 10; i++) {
+            bus.publish(i);
+            bus.publish((long) i);
+        }
+
+        assertEquals(10, primitiveFiltered.get()); // even ints and longs
+        assertEquals(3, boxedFiltered.get());      // ints > 6, via the boxed message
+
+        bus.shutdown();
+    }
+
+    private
+    void filter() {
+        classFiltered.set(0);
+        stringFiltered.set(0);
+        enumFiltered.set(0);
+        intFiltered.set(0);
+        doubleFiltered.set(0);
+        floatFiltered.set(0);
+        listenerFiltered.set(0);
+
+        MessageBus bus = createBus();
+        bus.subscribe(new ClassListener());
+        bus.subscribe(new StringListener());
+        bus.subscribe(new EnumListener());
+        bus.subscribe(new IntListener());
+        bus.subscribe(new DoubleListener());
+        bus.subscribe(new FloatListener());
+        bus.subscribe(new SymbolListener("ABC"));
+        bus.subscribe(new SymbolListener("XYZ"));
+
+        bus.publish(new Quote("ABC", 42, 1.5D, Side.BUY));
+        bus.publish(new Quote("XYZ", 42, 2.5D, Side.SELL));
+        bus.publish(new Quote("ABC", 7, 1.5D, Side.SELL));
+        bus.publish(new Quote("DEF", 7, 2.5D, Side.SELL));
+
+        bus.publish(new Discount(0.1F));
+        bus.publish(new Discount(0.2F));
+        bus.publish(new Discount(0.1F));
+
+        assertEquals(3, classFiltered.get());   // quantity > 10
+        assertEquals(2, stringFiltered.get());  // symbol == "ABC"
+        assertEquals(1, enumFiltered.get());    // side == BUY
+        assertEquals(2, intFiltered.get());     // quantity == 42
+        assertEquals(2, doubleFiltered.get());  // price == 2.5
+        assertEquals(2, floatFiltered.get());   // rate == 0.1 (which is not exact as a double)
+        assertEquals(3, listenerFiltered.get()); // symbol == listener.symbol (ABC twice, XYZ once)
+
+        bus.shutdown();
+    }
+
+    public enum Side {
+        BUY, SELL
+    }
+
+    public static class Quote {
+        private final String symbol;
+        private final int quantity;
+        private final double price;
+        private final Side side;
+
+        public Quote(final String symbol, final int quantity, final double price, final Side side) {
+            this.symbol = symbol;
+            this.quantity = quantity;
+            this.price = price;
+            this.side = side;
+        }
+    }
+
+    public static class LargeQuantity implements IMessageFilter {
+        @Override
+        public
+        boolean accepts(final Object listener, final Object message) {
+            return ((Quote) message).quantity > 10 || ((Quote) message).symbol.equals("DEF");
+        }
+    }
+
+    public static class EvenFilter implements IPrimitiveMessageFilter {
+        @Override
+        public
+        boolean accepts(final Object listener, final int message) {
+            return message % 2 == 0;
+        }
+
+        @Override
+        public
+        boolean accepts(final Object listener, final long message) {
+            return message % 2 == 0;
+        }
+
+        @Override
+        public
+        boolean accepts(final Object listener, final double message) {
+            return message % 2 == 0;
+        }
+
+        @Override
+        public
+        boolean accepts(final Object listener, final Object message) {
+            throw new IllegalStateException("The primitive message must not be boxed");
+        }
+    }
+
+    public static class LargeInt implements IMessageFilter {
+        @Override
+        public
+        boolean accepts(final Object listener, final Object message) {
+            return ((Integer) message) > 6;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class PrimitiveListener {
+        @Handler
+        @Filter(EvenFilter.class)
+        public void handle(int message) {
+            primitiveFiltered.incrementAndGet();
+        }
+
+        @Handler
+        @Filter(EvenFilter.class)
+        public void handle(long message) {
+            primitiveFiltered.incrementAndGet();
+        }
+
+        @Handler
+        @Filter(LargeInt.class)
+        public void handleLarge(int message) {
+            boxedFiltered.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class ClassListener {
+        @Handler
+        @Filter(LargeQuantity.class)
+        public void handle(Quote message) {
+            classFiltered.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class StringListener {
+        @Handler
+        @Synchronized
+        @Filter(field = "symbol", equals = "ABC")
+        public void handle(Quote message) {
+            stringFiltered.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class EnumListener {
+        @Handler
+        @Filter(field = "side", equals = "BUY")
+        public void handle(Quote message) {
+            enumFiltered.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class IntListener {
+        @Handler
+        @Filter(field = "quantity", equals = "42")
+        public void handle(Quote message) {
+            intFiltered.incrementAndGet();
+        }
+    }
+
+    public static class Discount {
+        private final float rate;
+
+        public Discount(final float rate) {
+            this.rate = rate;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class FloatListener {
+        @Handler
+        @Filter(field = "rate", equals = "0.1")
+        public void handle(Discount message) {
+            floatFiltered.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class DoubleListener {
+        @Handler
+        @Filter(field = "price", equals = "2.5")
+        public void handle(Quote message) {
+            doubleFiltered.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class SymbolListener {
+        private final String symbol;
+
+        public SymbolListener(final String symbol) {
+            this.symbol = symbol;
+        }
+
+        @Handler
+        @Filter(field = "symbol", listenerField = "symbol")
+        public void handle(Quote message) {
+            listenerFiltered.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class UnfilteredListener {
+        @Handler
+        public void handle(Quote message) {
+            unfiltered.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class InvalidListener {
+        @Handler
+        @Filter(field = "missing", equals = "ABC")
+        public void handle(Quote message) {
+        }
+    }
+}
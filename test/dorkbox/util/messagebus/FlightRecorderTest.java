@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.util.messagebus.common.MessageBusTest;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Verify that the publish, handler invocation, queue wait, ring buffer full and dead message JFR events are recorded
+ *
+ * @author dorkbox, llc
+ */
+public class FlightRecorderTest extends MessageBusTest {
+
+    private static
+    int count(final List<RecordedEvent> events, final String name) {
+        int count = 0;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static
+    RecordedEvent first(final List<RecordedEvent> events, final String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        Recording recording = new Recording();
+        recording.enable("dorkbox.messageBus.Publish").withThreshold(Duration.ZERO);
+        recording.enable("dorkbox.messageBus.HandlerInvocation").withThreshold(Duration.ZERO);
+        recording.enable("dorkbox.messageBus.QueueWait").withThreshold(Duration.ZERO);
+        recording.enable("dorkbox.messageBus.RingFull").withThreshold(Duration.ZERO);
+        recording.enable("dorkbox.messageBus.DeadMessage");
+        recording.start();
+
+        MessageBus bus = new MessageBus(1);
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new SlowListener());
+
+        bus.publish("sync");
+        bus.publish(1.5F);
+
+        // the ring buffer (32 slots) is filled by the slow handler
+        for (int i = 0; i < 100; i++) {
+            bus.publishAsync("async");
+        }
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        bus.shutdown();
+        recording.stop();
+
+        File file = File.createTempFile("messageBus", ".jfr");
+        try {
+            recording.dump(file.toPath());
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+
+            assertEquals(102, count(events, "dorkbox.messageBus.Publish"));
+            assertEquals(101, count(events, "dorkbox.messageBus.HandlerInvocation"));
+            assertEquals(100, count(events, "dorkbox.messageBus.QueueWait"));
+            assertEquals(1, count(events, "dorkbox.messageBus.DeadMessage"));
+            assertTrue(count(events, "dorkbox.messageBus.RingFull") > 0);
+
+            RecordedEvent handler = first(events, "dorkbox.messageBus.HandlerInvocation");
+            assertEquals(SlowListener.class.getName(), handler.getClass("listenerClass").getName());
+            assertEquals("handle", handler.getString("method"));
+
+            RecordedEvent dead = first(events, "dorkbox.messageBus.DeadMessage");
+            assertEquals(Float.class.getName(), dead.getClass("messageType").getName());
+        } finally {
+            recording.close();
+            file.delete();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class SlowListener {
+        @Handler
+        public void handle(String message) {
+            LockSupport.parkNanos(200000L);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.common.MessageHandler;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that the handlers of a listener class are found once and shared by every bus, while the subscriptions stay per bus
+ *
+ * @author dorkbox, llc
+ */
+public class HandlerCacheTest extends MessageBusTest {
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+
+    @Test
+    public void testSharedHandlers() {
+        MessageHandler[] handlers = MessageHandler.get(CountingListener.class);
+        assertEquals(1, handlers.length);
+
+        // the same instance is returned, instead of searching the class again
+        assertTrue(handlers == MessageHandler.get(CountingListener.class));
+        assertEquals(0, MessageHandler.get(Object.class).length);
+    }
+
+    @Test
+    public void testSubscriptionsPerBus() {
+        received.set(0);
+
+        MessageBus bus1 = createBus();
+        MessageBus bus2 = createBus();
+
+        bus1.subscribe(new CountingListener());
+        bus2.subscribe(new CountingListener());
+        bus2.subscribe(new CountingListener());
+
+        bus1.publish("message");
+        assertEquals(1, received.get());
+
+        bus2.publish("message");
+        assertEquals(3, received.get());
+
+        bus1.shutdown();
+
+        // shutting down one bus does not affect another bus that shares the same handlers
+        bus2.publish("message");
+        assertEquals(5, received.get());
+
+        bus2.shutdown();
+    }
+
+    @SuppressWarnings("unused")
+    public static class CountingListener {
+        @Handler
+        public void handle(String message) {
+            received.incrementAndGet();
+        }
+    }
+}
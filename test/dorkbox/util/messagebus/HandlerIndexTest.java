@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.io.File;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.common.HandlerIndex;
+import dorkbox.messageBus.common.MessageHandler;
+import dorkbox.messageBus.processor.HandlerIndexProcessor;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that the annotation processor generates a handler index, that the index is used to find and invoke the handlers, and that
+ * listeners without an index still use reflection
+ *
+ * @author dorkbox, llc
+ */
+public class HandlerIndexTest extends MessageBusTest {
+
+    private static final String SOURCE =
+        "package indexed;\n" +
+        "import dorkbox.messageBus.annotations.Handler;\n" +
+        "public class Listener extends Base {\n" +
+        "    public final StringBuilder received = new StringBuilder();\n" +
+        "    @Handler public void string(String message) { received.append(\"string:\").append(message).append(';'); }\n" +
+        "    @Handler public void primitive(int message) { received.append(\"int:\").append(message).append(';'); }\n" +
+        "    @Handler public void pair(String message1, Long message2) { received.append(\"pair:\").append(message2).append(';'); }\n" +
+        "    @Override public void number(Number message) { received.append(\"override:\").append(message).append(';'); }\n" +
+        "    @Handler(enabled = false) public void disabled(Character message) { received.append(\"disabled;\"); }\n" +
+        "}\n" +
+        "class Base {\n" +
+        "    @Handler public void number(Number message) { }\n" +
+        // the signature of the class includes the methods that are not handlers (and skips the synthetic lambda)
+        "    private final Runnable task = () -> { };\n" +
+        "    protected <T extends Number> T[] helper(java.util.List<T> list, T[][] values, int[] primitives, String... names) {\n" +
+        "        return null;\n" +
+        "    }\n" +
+        "    void nested(java.util.Map.Entry<String, Object> entry, Inner inner, char primitive) { }\n" +
+        "    static class Inner { }\n" +
+        "}\n";
+
+    // the same listener, but the base class is compiled on it's own (without the annotation processor), so it can change later
+    private static final String STALE_SOURCE =
+        "package stale;\n" +
+        "import dorkbox.messageBus.annotations.Handler;\n" +
+        "public class Listener extends Base {\n" +
+        "    @Handler public void string(String message) { received.append(\"string:\").append(message).append(';'); }\n" +
+        "}\n";
+
+    private static final String STALE_BASE =
+        "package stale;\n" +
+        "import dorkbox.messageBus.annotations.Handler;\n" +
+        "public class Base {\n" +
+        "    public final StringBuilder received = new StringBuilder();\n" +
+        "}\n";
+
+    // a handler was added to the base class after the index of the listener was generated
+    private static final String CHANGED_BASE =
+        "package stale;\n" +
+        "import dorkbox.messageBus.annotations.Handler;\n" +
+        "public class Base {\n" +
+        "    public final StringBuilder received = new StringBuilder();\n" +
+        "    @Handler public void number(Number message) { received.append(\"number:\").append(message).append(';'); }\n" +
+        "}\n";
+
+    private static File directory;
+
+    private
+    File createDirectory() throws Exception {
+        File directory = File.createTempFile("handlerIndex", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+        return directory;
+    }
+
+    private
+    File write(final File directory, final String packageName, final String className, final String text) throws Exception {
+        File sourceDirectory = new File(directory, packageName);
+        if (!sourceDirectory.isDirectory()) {
+            assertTrue(sourceDirectory.mkdirs());
+        }
+        File source = new File(sourceDirectory, className + ".java");
+
+        Writer writer = new java.io.FileWriter(source);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+        return source;
+    }
+
+    private
+    void compile(final File directory, final boolean index, final File... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(sources);
+            List<String> options = new ArrayList<String>(Arrays.asList("-classpath", System.getProperty("java.class.path") +
+                                                                                      File.pathSeparator + directory.getAbsolutePath(),
+                                                                        "-d", directory.getAbsolutePath(),
+                                                                        "-s", directory.getAbsolutePath()));
+            if (!index) {
+                options.add("-proc:none");
+            }
+
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, units);
+            if (index) {
+                task.setProcessors(Collections.singletonList(new HandlerIndexProcessor()));
+            }
+            assertTrue(task.call());
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    private
+    Class<?> compile() throws Exception {
+        if (directory == null) {
+            directory = createDirectory();
+            compile(directory, true, write(directory, "indexed", "Listener", SOURCE));
+        }
+
+        URLClassLoader loader = new URLClassLoader(new URL[] {directory.toURI().toURL()}, getClass().getClassLoader());
+        return loader.loadClass("indexed.Listener");
+    }
+
+    @Test
+    public void testGeneratedIndex() throws Exception {
+        Class<?> listenerClass = compile();
+
+        Class<?> indexClass = Class.forName(listenerClass.getName() + HandlerIndex.SUFFIX, true, listenerClass.getClassLoader());
+        HandlerIndex index = (HandlerIndex) indexClass.getDeclaredConstructor().newInstance();
+
+        // string, primitive, pair and the (overridden) number handler. The disabled handler is not indexed.
+        assertEquals(4, index.size());
+
+        MessageHandler[] handlers = MessageHandler.get(listenerClass);
+        assertEquals(4, handlers.length);
+        for (MessageHandler handler : handlers) {
+            assertNotNull(handler.getIndex());
+            assertEquals(listenerClass, handler.getMethod().getDeclaringClass());
+        }
+    }
+
+    @Test
+    public void testIndexedPublication() throws Exception {
+        Class<?> listenerClass = compile();
+        Object listener = listenerClass.getDeclaredConstructor().newInstance();
+
+        MessageBus bus = createBus();
+        bus.subscribe(listener);
+
+        bus.publish("a");
+        bus.publish(7);
+        bus.publish("b", 2L);
+        bus.publish(1.5F);
+        bus.publish('c');
+
+        Field field = listenerClass.getField("received");
+        assertEquals("string:a;int:7;override:7;pair:2;override:1.5;", field.get(listener).toString());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testStaleIndex() throws Exception {
+        File directory = createDirectory();
+        File base = write(directory, "stale", "Base", STALE_BASE);
+        compile(directory, false, base);
+        compile(directory, true, write(directory, "stale", "Listener", STALE_SOURCE));
+
+        // the base class changed, but the listener (and it's index) was not compiled again
+        write(directory, "stale", "Base", CHANGED_BASE);
+        compile(directory, false, base);
+
+        URLClassLoader loader = new URLClassLoader(new URL[] {directory.toURI().toURL()}, getClass().getClassLoader());
+        Class<?> listenerClass = loader.loadClass("stale.Listener");
+
+        Class<?> indexClass = Class.forName(listenerClass.getName() + HandlerIndex.SUFFIX, true, listenerClass.getClassLoader());
+        assertEquals(1, ((HandlerIndex) indexClass.getDeclaredConstructor().newInstance()).size());
+
+        // the index does not list the inherited handler, so it is not used
+        MessageHandler[] handlers = MessageHandler.get(listenerClass);
+        assertEquals(2, handlers.length);
+        for (MessageHandler handler : handlers) {
+            assertNull(handler.getIndex());
+        }
+
+        Object listener = listenerClass.getDeclaredConstructor().newInstance();
+
+        MessageBus bus = createBus();
+        bus.subscribe(listener);
+        bus.publish("a");
+        bus.publish(7);
+
+        Field field = listenerClass.getField("received");
+        assertEquals("string:a;number:7;", field.get(listener).toString());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testWithoutIndex() {
+        MessageHandler[] handlers = MessageHandler.get(ReflectionListener.class);
+        assertEquals(1, handlers.length);
+        assertNull(handlers[0].getIndex());
+
+        ReflectionListener listener = new ReflectionListener();
+
+        MessageBus bus = createBus();
+        bus.subscribe(listener);
+        bus.publish("a");
+        assertEquals(1, listener.count);
+
+        bus.shutdown();
+    }
+
+    @SuppressWarnings("unused")
+    public static class ReflectionListener {
+        int count;
+
+        @Handler
+        public void handle(String message) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that handlers are invoked in the order of their priority, and that a high priority handler can cancel the publication
+ *
+ * @author dorkbox, llc
+ */
+public class HandlerPriorityTest extends MessageBusTest {
+
+    private static final List<String> invoked = new ArrayList<String>();
+
+    @Test
+    public void testPriorityOrder() {
+        invoked.clear();
+
+        MessageBus bus = createBus();
+        bus.subscribe(new LowListener());
+        bus.subscribe(new DefaultListener());
+        bus.subscribe(new HighListener());
+
+        bus.publish("message");
+
+        assertEquals(3, invoked.size());
+        assertEquals("high", invoked.get(0));
+        assertEquals("default", invoked.get(1));
+        assertEquals("low", invoked.get(2));
+    }
+
+    @Test
+    public void testVeto() {
+        invoked.clear();
+
+        MessageBus bus = createBus();
+        bus.subscribe(new LowListener());
+        bus.subscribe(new VetoListener());
+
+        bus.publish("message");
+        bus.publish("veto");
+
+        assertEquals(2, invoked.size());
+        assertEquals("veto", invoked.get(0));
+        assertEquals("low", invoked.get(1));
+    }
+
+    @SuppressWarnings("unused")
+    public static class LowListener {
+        @Handler(priority = -10)
+        public void handle(String message) {
+            invoked.add("low");
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class DefaultListener {
+        @Handler
+        public void handle(String message) {
+            invoked.add("default");
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class HighListener {
+        @Handler(priority = 10)
+        public void handle(String message) {
+            invoked.add("high");
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class VetoListener {
+        @Handler(priority = 100)
+        public void handle(String message) {
+            if (message.equals("veto")) {
+                MessageBus.cancel();
+            }
+            invoked.add("veto");
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.annotations.Listener;
+import dorkbox.messageBus.annotations.References;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that the state of the bus can be read (and compacted) via JMX
+ *
+ * @author dorkbox, llc
+ */
+public class JmxTest extends MessageBusTest {
+
+    @Test
+    public void testAttributes() throws Exception {
+        MessageBus bus = createBus(true);
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = bus.getMBeanName();
+            assertNotNull(name);
+            assertTrue(server.isRegistered(name));
+
+            bus.subscribe(new StringListener());
+            bus.subscribe(new StringListener());
+            bus.subscribe(new IntegerListener());
+
+            bus.publishAsync("hello");
+            assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+
+            assertEquals(0L, server.getAttribute(name, "PendingCount"));
+            assertEquals(0L, server.getAttribute(name, "ErrorCount"));
+
+            final TabularData subscriptions = (TabularData) server.getAttribute(name, "SubscriptionsPerMessageType");
+            assertEquals(1, get(subscriptions, String.class.getName()));
+            assertEquals(1, get(subscriptions, Integer.class.getName()));
+
+            final TabularData listeners = (TabularData) server.getAttribute(name, "ListenersPerSubscription");
+            assertEquals(2, get(listeners, StringListener.class.getName() + ".handle(" + String.class.getName() + ")"));
+            assertEquals(1, get(listeners, IntegerListener.class.getName() + ".handle(" + Integer.class.getName() + ")"));
+
+            // listeners for specific message types have a subscription each, which are counted together
+            bus.subscribe(new IntegerListener(), Integer.class);
+            bus.subscribe(new IntegerListener(), Integer.class);
+            final TabularData typedListeners = (TabularData) server.getAttribute(name, "ListenersPerSubscription");
+            assertEquals(3, get(typedListeners, IntegerListener.class.getName() + ".handle(" + Integer.class.getName() + ")"));
+
+            // handlers that throw are counted
+            bus.subscribe(new FailingListener());
+            bus.publish(5L);
+            assertEquals(1L, server.getAttribute(name, "ErrorCount"));
+
+            server.invoke(name, "resetStatistics", null, null);
+            assertEquals(0L, server.getAttribute(name, "ErrorCount"));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testRingBuffer() throws Exception {
+        boolean disruptor = MessageBus.useDisruptorForAsyncPublish;
+        MessageBus.useDisruptorForAsyncPublish = true;
+
+        MessageBus bus = createBus(true);
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = bus.getMBeanName();
+
+            assertEquals("AsyncDisruptor", server.getAttribute(name, "AsyncType"));
+
+            final int size = (Integer) server.getAttribute(name, "RingBufferSize");
+            assertTrue(size > 0);
+            assertEquals((long) size, server.getAttribute(name, "RemainingCapacity"));
+
+            bus.subscribe(new StringListener());
+            for (int i = 0; i < 10; i++) {
+                bus.publishAsync("hello");
+            }
+            assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+
+            assertEquals(9L, server.getAttribute(name, "RingBufferCursor"));
+            assertEquals(0L, server.getAttribute(name, "PendingCount"));
+
+            final String[] states = (String[]) server.getAttribute(name, "WorkerThreadStates");
+            final long[] sequences = (long[]) server.getAttribute(name, "WorkerSequences");
+            assertEquals(states.length, sequences.length);
+            assertTrue(states.length > 0);
+        } finally {
+            MessageBus.useDisruptorForAsyncPublish = disruptor;
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        MessageBus bus = createBus(true);
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = bus.getMBeanName();
+
+            final WeakListener listener = new WeakListener();
+            bus.subscribe(listener);
+            bus.subscribe(new StringListener());
+
+            // nothing was garbage collected, so nothing is removed
+            assertEquals(0, server.invoke(name, "compact", null, null));
+            assertEquals(0L, server.getAttribute(name, "WeakReferencesReaped"));
+
+            final TabularData listeners = (TabularData) server.getAttribute(name, "ListenersPerSubscription");
+            assertEquals(1, get(listeners, WeakListener.class.getName() + ".handle(" + String.class.getName() + ")"));
+            assertEquals(1, get(listeners, StringListener.class.getName() + ".handle(" + String.class.getName() + ")"));
+
+            bus.unsubscribe(listener);
+            final TabularData subscriptions = (TabularData) server.getAttribute(name, "SubscriptionsPerMessageType");
+            assertEquals(1, get(subscriptions, String.class.getName()));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testReaped() throws Exception {
+        MessageBus bus = createBus(true);
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = bus.getMBeanName();
+
+            // the subscriptions do not keep the (weak) listeners from being garbage collected
+            bus.subscribe(new WeakListener());
+            bus.subscribe(new WeakPrimitiveListener());
+            bus.subscribe(new WeakKeyedListener());
+
+            int reaped = 0;
+            for (int i = 0; i < 50 && reaped < 3; i++) {
+                System.gc();
+                Thread.sleep(10L);
+                reaped += (Integer) server.invoke(name, "compact", null, null);
+            }
+
+            assertEquals(3, reaped);
+            assertEquals(3L, server.getAttribute(name, "WeakReferencesReaped"));
+
+            final TabularData listeners = (TabularData) server.getAttribute(name, "ListenersPerSubscription");
+            assertEquals(0, get(listeners, WeakListener.class.getName() + ".handle(" + String.class.getName() + ")"));
+
+            server.invoke(name, "resetStatistics", null, null);
+            assertEquals(0L, server.getAttribute(name, "WeakReferencesReaped"));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnregister() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        MessageBus bus = createBus(true);
+        final ObjectName name = bus.getMBeanName();
+        assertTrue(server.isRegistered(name));
+
+        bus.shutdown(1, TimeUnit.SECONDS);
+        assertFalse(server.isRegistered(name));
+
+        // not registered by default
+        bus = createBus(false);
+        assertNull(bus.getMBeanName());
+        bus.shutdown();
+    }
+
+    private static
+    MessageBus createBus(final boolean registerMBeans) {
+        boolean register = MessageBus.registerMBeans;
+        try {
+            MessageBus.registerMBeans = registerMBeans;
+            return new MessageBus();
+        } finally {
+            MessageBus.registerMBeans = register;
+        }
+    }
+
+    private static
+    Object get(final TabularData data, final String key) {
+        final CompositeData row = data.get(new Object[] {key});
+        return row == null ? null : row.get("value");
+    }
+
+    @SuppressWarnings("unused")
+    public static class StringListener {
+        @Handler
+        public void handle(String message) {
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class IntegerListener {
+        @Handler
+        public void handle(Integer message) {
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class FailingListener {
+        @Handler
+        public void handle(Long message) {
+            throw new IllegalStateException("failed");
+        }
+    }
+
+    @SuppressWarnings("unused")
+    @Listener(references = References.Weak)
+    public static class WeakListener {
+        @Handler
+        public void handle(String message) {
+        }
+    }
+
+    public static class Quote {
+        final String symbol;
+
+        public Quote(final String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    @Listener(references = References.Weak)
+    public static class WeakKeyedListener {
+        private final String symbol = "A";
+
+        @Handler(key = "symbol")
+        public void handle(Quote message) {
+        }
+    }
+
+    @SuppressWarnings("unused")
+    @Listener(references = References.Weak)
+    public static class WeakPrimitiveListener {
+        @Handler
+        public void handle(int message) {
+        }
+    }
+}
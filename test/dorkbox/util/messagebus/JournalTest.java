@@ -0,0 +1,289 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.journal.Journal;
+import dorkbox.messageBus.journal.JournalEntry;
+import dorkbox.messageBus.journal.KryoCodec;
+import dorkbox.messageBus.synchrony.disruptor.MessageType;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that journaled asynchronous messages are acknowledged once dispatched, and that the messages that were not acknowledged are
+ * recovered by the next bus
+ *
+ * @author dorkbox, llc
+ */
+public class JournalTest extends MessageBusTest {
+
+    private static final AtomicInteger orders = new AtomicInteger(0);
+    private static final AtomicLong orderTotal = new AtomicLong(0);
+    private static final AtomicInteger pairs = new AtomicInteger(0);
+    private static final AtomicLong longs = new AtomicLong(0);
+
+    private
+    File createDirectory() throws IOException {
+        File directory = File.createTempFile("journal", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+        return directory;
+    }
+
+    private static
+    void delete(final File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    private static
+    int journalFiles(final File directory) {
+        File[] files = directory.listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    private
+    MessageBus createJournaledBus(final File directory, final int segmentSize) {
+        File journalDirectory = MessageBus.asyncJournalDirectory;
+        int journalSegmentSize = MessageBus.journalSegmentSize;
+        try {
+            MessageBus.asyncJournalDirectory = directory;
+            MessageBus.journalSegmentSize = segmentSize;
+            return createBus();
+        } finally {
+            MessageBus.asyncJournalDirectory = journalDirectory;
+            MessageBus.journalSegmentSize = journalSegmentSize;
+        }
+    }
+
+    private static
+    void reset() {
+        orders.set(0);
+        orderTotal.set(0);
+        pairs.set(0);
+        longs.set(0);
+    }
+
+    @Test
+    public void testAcknowledged() throws Exception {
+        reset();
+        File directory = createDirectory();
+        try {
+            // a small segment size, so the journal rolls over to new segments
+            MessageBus bus = createJournaledBus(directory, 1024);
+            bus.subscribe(new OrderListener());
+
+            for (int i = 1; i <= 500; i++) {
+                bus.publishAsync(new Order(i));
+            }
+            bus.publishAsync(new Order(1), "pair");
+            bus.publishAsync(7L);
+
+            assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+
+            assertEquals(500, orders.get());
+            assertEquals(125250L, orderTotal.get());
+            assertEquals(1, pairs.get());
+            assertEquals(7L, longs.get());
+
+            // every message was acknowledged, so there is nothing left to recover
+            assertEquals(0, journalFiles(directory));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        reset();
+        File directory = createDirectory();
+        try {
+            // simulates a bus that died before these messages were dispatched
+            Journal journal = new Journal(directory, new KryoCodec(), 1024, 1, 0L);
+            for (int i = 1; i <= 100; i++) {
+                JournalEntry entry = journal.append(MessageType.ONE, new Order(i), null, null, 0L);
+
+                // the even orders were dispatched
+                if (i % 2 == 0) {
+                    journal.ack(entry);
+                }
+            }
+            journal.append(MessageType.TWO, new Order(1000), "pair", null, 0L);
+            journal.append(MessageType.LONG, null, null, null, 42L);
+            journal.close();
+
+            assertTrue(journalFiles(directory) > 1);
+
+            MessageBus bus = createJournaledBus(directory, 1024);
+            bus.subscribe(new OrderListener());
+
+            assertEquals(52, bus.recoverJournal());
+
+            // only once
+            assertEquals(0, bus.recoverJournal());
+
+            assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+
+            assertEquals(50, orders.get());
+            assertEquals(2500L, orderTotal.get());
+            assertEquals(1, pairs.get());
+            assertEquals(42L, longs.get());
+            assertEquals(0, journalFiles(directory));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testConcurrentAppends() throws Exception {
+        reset();
+        final File directory = createDirectory();
+        try {
+            // small segments, so they roll while the other threads are writing
+            final Journal journal = new Journal(directory, new KryoCodec(), 1024, 8, 0L);
+
+            Thread[] threads = new Thread[8];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        for (int j = 1; j <= 200; j++) {
+                            journal.append(MessageType.ONE, new Order(j), null, null, 0L);
+                        }
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            journal.close();
+
+            MessageBus bus = createJournaledBus(directory, 1024);
+            bus.subscribe(new OrderListener());
+
+            assertEquals(1600, bus.recoverJournal());
+            assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+
+            assertEquals(1600, orders.get());
+            assertEquals(8L * 200 * 201 / 2, orderTotal.get());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testPartialEntry() throws Exception {
+        reset();
+        File directory = createDirectory();
+        try {
+            Journal journal = new Journal(directory, new KryoCodec(), 1024, 1, 0L);
+            journal.append(MessageType.ONE, new Order(1), null, null, 0L);
+            journal.append(MessageType.ONE, new Order(2), null, null, 0L);
+            journal.append(MessageType.ONE, new Order(4), null, null, 0L);
+            journal.close();
+
+            // simulates a JVM that died while the second entry was written (its state is still 0), after the third was written
+            RandomAccessFile file = new RandomAccessFile(directory.listFiles()[0], "rw");
+            try {
+                int second = 24 + file.readInt();
+                file.seek(second + 4);
+                file.writeByte(0);
+            } finally {
+                file.close();
+            }
+
+            MessageBus bus = createJournaledBus(directory, 1024);
+            bus.subscribe(new OrderListener());
+
+            assertEquals(2, bus.recoverJournal());
+            assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+
+            assertEquals(2, orders.get());
+            assertEquals(5L, orderTotal.get());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testSequenceContinues() throws Exception {
+        File directory = createDirectory();
+        try {
+            Journal journal = new Journal(directory, new KryoCodec(), 1024, 1, 0L);
+            assertEquals(0L, journal.append(MessageType.ONE, "a", null, null, 0L).getSequence());
+            assertEquals(1L, journal.append(MessageType.ONE, "b", null, null, 0L).getSequence());
+            journal.close();
+
+            journal = new Journal(directory, new KryoCodec(), 1024, 1, 0L);
+            assertEquals(2L, journal.append(MessageType.ONE, "c", null, null, 0L).getSequence());
+            journal.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testMessageTooLarge() throws Exception {
+        File directory = createDirectory();
+        try {
+            Journal journal = new Journal(directory, new KryoCodec(), 64, 1, 0L);
+            try {
+                journal.append(MessageType.ONE, new byte[1024], null, null, 0L);
+                fail("The message is larger than the segment");
+            } catch (IllegalArgumentException expected) {
+            }
+            journal.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    // no no-arg constructor, which the codec handles
+    public static class Order {
+        final int amount;
+
+        public Order(final int amount) {
+            this.amount = amount;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class OrderListener {
+        @Handler
+        public void handle(Order order) {
+            orders.incrementAndGet();
+            orderTotal.addAndGet(order.amount);
+        }
+
+        @Handler
+        public void handle(Order order, String tag) {
+            pairs.incrementAndGet();
+        }
+
+        @Handler
+        public void handle(long value) {
+            longs.addAndGet(value);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.IMessageBus.DispatchMode;
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.common.MessageSupplier;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that hasSubscribers() considers exact and super type listeners, and that publishLazy() only creates the message when it
+ * would be delivered
+ *
+ * @author dorkbox, llc
+ */
+public class LazyPublicationTest extends MessageBusTest {
+
+    private static final AtomicInteger created = new AtomicInteger(0);
+    private static final AtomicInteger received = new AtomicInteger(0);
+
+    private static final MessageSupplier<Snapshot> SUPPLIER = new MessageSupplier<Snapshot>() {
+        @Override
+        public
+        Snapshot get() {
+            created.incrementAndGet();
+            return new Snapshot();
+        }
+    };
+
+    @Test
+    public void testHasSubscribers() {
+        MessageBus bus = createBus();
+        assertFalse(bus.hasSubscribers(Snapshot.class));
+
+        SnapshotListener listener = new SnapshotListener();
+        bus.subscribe(listener);
+        assertTrue(bus.hasSubscribers(Snapshot.class));
+        assertFalse(bus.hasSubscribers(String.class));
+
+        bus.unsubscribe(listener);
+        assertFalse(bus.hasSubscribers(Snapshot.class));
+
+        // super types
+        SuperListener superListener = new SuperListener();
+        bus.subscribe(superListener);
+        assertTrue(bus.hasSubscribers(Snapshot.class));
+        assertTrue(bus.hasSubscribers(Base.class));
+
+        bus.unsubscribe(superListener);
+        assertFalse(bus.hasSubscribers(Snapshot.class));
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testHasSubscribersExact() {
+        MessageBus bus = new MessageBus(DispatchMode.Exact);
+        bus.addErrorHandler(TestFailingHandler);
+
+        bus.subscribe(new SuperListener());
+        assertFalse(bus.hasSubscribers(Snapshot.class));
+        assertTrue(bus.hasSubscribers(Base.class));
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testPublishLazy() {
+        created.set(0);
+        received.set(0);
+
+        MessageBus bus = createBus();
+        bus.publishLazy(Snapshot.class, SUPPLIER);
+        assertEquals(0, created.get());
+
+        SnapshotListener listener = new SnapshotListener();
+        bus.subscribe(listener);
+        bus.publishLazy(Snapshot.class, SUPPLIER);
+        assertEquals(1, created.get());
+        assertEquals(1, received.get());
+
+        bus.unsubscribe(listener);
+        bus.publishLazy(Snapshot.class, SUPPLIER);
+        assertEquals(1, created.get());
+
+        bus.shutdown();
+    }
+
+    public static class Base {
+    }
+
+    public static class Snapshot extends Base {
+    }
+
+    @SuppressWarnings("unused")
+    public static class SnapshotListener {
+        @Handler
+        public void handle(Snapshot message) {
+            received.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class SuperListener {
+        @Handler
+        public void handle(Base message) {
+        }
+    }
+}
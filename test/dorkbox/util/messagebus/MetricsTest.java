@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.metrics.Histogram;
+import dorkbox.messageBus.metrics.HistogramSnapshot;
+import dorkbox.messageBus.metrics.MetricsRegistry;
+import dorkbox.messageBus.metrics.MetricsSnapshot;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that the publications, dead messages, handlers and durations are recorded per message type when there is a metrics recorder
+ *
+ * @author dorkbox, llc
+ */
+public class MetricsTest extends MessageBusTest {
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+
+    @Test
+    public void testRegistry() throws Exception {
+        received.set(0);
+
+        MetricsRegistry registry = new MetricsRegistry();
+
+        MessageBus bus;
+        try {
+            MessageBus.metrics = registry;
+            bus = createBus();
+        } finally {
+            MessageBus.metrics = null;
+        }
+
+        bus.subscribe(new StringListener());
+        bus.subscribe(new StringListener());
+        bus.subscribe(new ObjectListener());
+
+        for (int i = 0; i < 10; i++) {
+            bus.publish("sync");
+        }
+        for (int i = 0; i < 20; i++) {
+            bus.publishAsync("async");
+        }
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(90, received.get());
+
+        bus.publish(5);
+
+        // 2 listeners share the String handler, so there are 2 handlers (the String and the Object handler)
+        MetricsSnapshot strings = registry.getSnapshot(String.class);
+        assertEquals(30L, strings.getPublications());
+        assertEquals(0L, strings.getDeadMessages());
+        assertEquals(60L, strings.getHandlerDeliveries());
+        assertEquals(30L, strings.getDispatchTime().getCount());
+        assertEquals(20L, strings.getQueueWait().getCount());
+
+        // only the Object handler
+        MetricsSnapshot ints = registry.getSnapshot(int.class);
+        assertEquals(1L, ints.getPublications());
+        assertEquals(1L, ints.getHandlerDeliveries());
+        assertEquals(0L, ints.getQueueWait().getCount());
+
+        bus.shutdown();
+
+        assertNull(registry.getSnapshot(Long.class));
+        assertEquals(2, registry.getSnapshots().size());
+
+        registry.reset();
+        assertEquals(0L, registry.getSnapshot(String.class).getPublications());
+        assertEquals(0L, registry.getSnapshot(String.class).getDispatchTime().getCount());
+    }
+
+    @Test
+    public void testDeadMessages() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        MessageBus bus;
+        try {
+            MessageBus.metrics = registry;
+            bus = createBus();
+        } finally {
+            MessageBus.metrics = null;
+        }
+
+        bus.publish("nobody");
+        bus.publish("is", "listening");
+        bus.publish(2L);
+
+        // the type is the class of the first message
+        assertEquals(2L, registry.getSnapshot(String.class).getPublications());
+        assertEquals(2L, registry.getSnapshot(String.class).getDeadMessages());
+        assertEquals(0L, registry.getSnapshot(String.class).getHandlerDeliveries());
+        assertEquals(1L, registry.getSnapshot(long.class).getDeadMessages());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-1L);
+
+        HistogramSnapshot snapshot = histogram.getSnapshot();
+        assertEquals(1001L, snapshot.getCount());
+        assertEquals(1000L, snapshot.getMax());
+        assertEquals(1000L, snapshot.getPercentile(100.0D));
+
+        // within the precision of the buckets
+        long median = snapshot.getPercentile(50.0D);
+        assertTrue(median >= 500L && median <= 500L + 500L / 8);
+
+        long p99 = snapshot.getPercentile(99.0D);
+        assertTrue(p99 >= 990L && p99 <= 1000L);
+
+        assertEquals(0L, new Histogram().getSnapshot().getPercentile(50.0D));
+    }
+
+    @SuppressWarnings("unused")
+    public static class StringListener {
+        @Handler
+        public void handle(String message) {
+            received.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class ObjectListener {
+        @Handler
+        public void handle(Object message) {
+            received.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.error.DeadMessage;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that int, long and double messages reach primitive handlers without boxing, and still reach boxed (and super type) handlers
+ *
+ * @author dorkbox, llc
+ */
+public class PrimitivePublicationTest extends MessageBusTest {
+
+    private static final AtomicLong intSum = new AtomicLong(0);
+    private static final AtomicLong longSum = new AtomicLong(0);
+    private static final AtomicLong doubleBits = new AtomicLong(0);
+    private static final AtomicInteger boxed = new AtomicInteger(0);
+    private static final AtomicInteger numbers = new AtomicInteger(0);
+    private static final AtomicInteger dead = new AtomicInteger(0);
+    private static final AtomicInteger floats = new AtomicInteger(0);
+
+    private static
+    void reset() {
+        intSum.set(0);
+        longSum.set(0);
+        doubleBits.set(0);
+        boxed.set(0);
+        numbers.set(0);
+        dead.set(0);
+        floats.set(0);
+    }
+
+    @Test
+    public void testPrimitiveHandlers() {
+        reset();
+
+        MessageBus bus = createBus();
+        bus.subscribe(new PrimitiveListener());
+
+        for (int i = 1; i <= 100; i++) {
+            bus.publish(i);
+            bus.publish((long) i);
+        }
+        bus.publish(2.5D);
+
+        assertEquals(5050L, intSum.get());
+        assertEquals(5050L, longSum.get());
+        assertEquals(Double.doubleToRawLongBits(2.5D), doubleBits.get());
+
+        // nothing else was subscribed, so nothing was boxed for other handlers
+        assertEquals(0, boxed.get());
+        assertEquals(0, dead.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testBoxedHandlers() {
+        reset();
+
+        MessageBus bus = createBus();
+        bus.subscribe(new PrimitiveListener());
+        bus.subscribe(new BoxedListener());
+
+        bus.publish(3);
+        assertEquals(3L, intSum.get());
+        assertEquals(1, boxed.get());
+        assertEquals(1, numbers.get());
+
+        // the primitive handler, and the boxed value for the super type
+        bus.publish(4L);
+        assertEquals(4L, longSum.get());
+        assertEquals(2, numbers.get());
+
+        // a boxed message is only delivered to the boxed handlers
+        bus.publish((Object) Integer.valueOf(5));
+        assertEquals(3L, intSum.get());
+        assertEquals(2, boxed.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testNarrowTypesAreNotWidened() {
+        reset();
+
+        MessageBus bus = createBus();
+        bus.subscribe(new PrimitiveListener());
+        bus.subscribe(new BoxedListener());
+
+        bus.publish(1.5F);
+        bus.publish((short) 2);
+
+        assertEquals(1, floats.get());
+        assertEquals(0L, intSum.get());
+        assertEquals(0, boxed.get());
+        assertEquals(0L, doubleBits.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testDeadMessage() {
+        reset();
+
+        MessageBus bus = createBus();
+        bus.subscribe(new DeadListener());
+
+        bus.publish(42);
+        bus.publish(42L);
+        bus.publish(4.2D);
+        assertEquals(3, dead.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testAsync() {
+        asyncPrimitives(true);
+        asyncPrimitives(false);
+    }
+
+    private
+    void asyncPrimitives(final boolean disruptor) {
+        reset();
+
+        boolean original = MessageBus.useDisruptorForAsyncPublish;
+        try {
+            MessageBus.useDisruptorForAsyncPublish = disruptor;
+
+            MessageBus bus = createBus();
+            bus.subscribe(new PrimitiveListener());
+
+            for (int i = 1; i <= 100; i++) {
+                bus.publishAsync(i);
+                bus.publishAsync((long) i);
+            }
+            bus.publishAsync(-1.25D);
+
+            assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+
+            assertEquals(5050L, intSum.get());
+            assertEquals(5050L, longSum.get());
+            assertEquals(Double.doubleToRawLongBits(-1.25D), doubleBits.get());
+        } finally {
+            MessageBus.useDisruptorForAsyncPublish = original;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class PrimitiveListener {
+        @Handler
+        public void handle(int message) {
+            intSum.addAndGet(message);
+        }
+
+        @Handler
+        public void handle(long message) {
+            longSum.addAndGet(message);
+        }
+
+        @Handler
+        public void handle(double message) {
+            doubleBits.set(Double.doubleToRawLongBits(message));
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class BoxedListener {
+        @Handler
+        public void handle(Integer message) {
+            boxed.incrementAndGet();
+        }
+
+        @Handler
+        public void handle(Number message) {
+            if (message instanceof Float) {
+                floats.incrementAndGet();
+            }
+            else if (!(message instanceof Short)) {
+                numbers.incrementAndGet();
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class DeadListener {
+        @Handler
+        public void handle(DeadMessage message) {
+            dead.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that high priority messages are dispatched before the low priority messages that were queued before them
+ *
+ * @author dorkbox, llc
+ */
+public class PriorityLaneTest extends MessageBusTest {
+
+    private static final List<Object> received = new ArrayList<Object>();
+
+    private static CountDownLatch blocked;
+    private static CountDownLatch release;
+
+    @Test
+    public void testPriority() throws Exception {
+        int lanes = MessageBus.numberOfPriorityLanes;
+
+        try {
+            MessageBus.numberOfPriorityLanes = 2;
+
+            received.clear();
+            blocked = new CountDownLatch(2);
+            release = new CountDownLatch(1);
+
+            MessageBus bus = new MessageBus(2);
+            bus.addErrorHandler(TestFailingHandler);
+            bus.subscribe(new Listener());
+
+            // block both of the workers, so the messages are queued
+            bus.publishAsync("block");
+            bus.publishAsync("block");
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 100; i++) {
+                bus.publishAsync(i);
+            }
+            bus.publishAsyncPriority(1, "control");
+
+            release.countDown();
+            assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+
+            synchronized (received) {
+                assertEquals(101, received.size());
+                assertTrue(received.indexOf("control") < 2);
+            }
+        } finally {
+            MessageBus.numberOfPriorityLanes = lanes;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class Listener {
+        @Handler
+        public void handle(String message) throws InterruptedException {
+            if (message.equals("block")) {
+                blocked.countDown();
+                release.await();
+                return;
+            }
+
+            synchronized (received) {
+                received.add(message);
+            }
+        }
+
+        @Handler
+        public void handle(Integer message) {
+            synchronized (received) {
+                received.add(message);
+            }
+        }
+    }
+}
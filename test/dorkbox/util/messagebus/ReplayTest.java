@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.journal.Journal;
+import dorkbox.messageBus.journal.KryoCodec;
+import dorkbox.messageBus.journal.ReplayResult;
+import dorkbox.messageBus.synchrony.disruptor.MessageType;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that a (retained) journal is replayed into a fresh bus, for a range of sequences and with the original timing
+ *
+ * @author dorkbox, llc
+ */
+public class ReplayTest extends MessageBusTest {
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+    private static final AtomicLong total = new AtomicLong(0);
+
+    private
+    File createDirectory() throws IOException {
+        File directory = File.createTempFile("replay", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdirs());
+        return directory;
+    }
+
+    private static
+    void delete(final File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        directory.delete();
+    }
+
+    private
+    void record(final File directory, final int count) {
+        File journalDirectory = MessageBus.asyncJournalDirectory;
+        int journalSegmentSize = MessageBus.journalSegmentSize;
+        boolean retain = MessageBus.journalRetainSegments;
+        try {
+            MessageBus.asyncJournalDirectory = directory;
+            MessageBus.journalSegmentSize = 4096;
+            MessageBus.journalRetainSegments = true;
+
+            MessageBus bus = createBus();
+            bus.subscribe(new Listener());
+            for (int i = 1; i <= count; i++) {
+                bus.publishAsync(i);
+            }
+
+            assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+        } finally {
+            MessageBus.asyncJournalDirectory = journalDirectory;
+            MessageBus.journalSegmentSize = journalSegmentSize;
+            MessageBus.journalRetainSegments = retain;
+        }
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        File directory = createDirectory();
+        try {
+            record(directory, 1000);
+
+            // the segments were kept, even though every message was dispatched
+            File[] files = directory.listFiles();
+            assertTrue(files != null && files.length > 1);
+
+            received.set(0);
+            total.set(0);
+
+            MessageBus bus = createBus();
+            bus.subscribe(new Listener());
+
+            ReplayResult result = bus.replay(directory, 0L, Long.MAX_VALUE, 0.0D);
+            assertEquals(1000L, result.getMessages());
+            assertTrue(result.getBytes() > 0L);
+            assertTrue(result.getMessagesPerSecond() > 0.0D);
+
+            assertEquals(1000, received.get());
+            assertEquals(500500L, total.get());
+
+            // a range that starts in the middle of a segment, and ends in a different segment
+            received.set(0);
+            total.set(0);
+
+            result = bus.replay(directory, 100L, 600L, 0.0D);
+            assertEquals(500L, result.getMessages());
+            assertEquals(500, received.get());
+
+            // sequence 100 is the 101st message
+            long expected = 0L;
+            for (int i = 101; i <= 600; i++) {
+                expected += i;
+            }
+            assertEquals(expected, total.get());
+
+            bus.shutdown();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testOriginalTiming() throws Exception {
+        File directory = createDirectory();
+        try {
+            Journal journal = new Journal(directory, new KryoCodec(), 4096, 1, 0L, true);
+            journal.append(MessageType.INT, null, null, null, 1L);
+            Thread.sleep(200L);
+            journal.append(MessageType.INT, null, null, null, 2L);
+            journal.close();
+
+            received.set(0);
+
+            MessageBus bus = createBus();
+            bus.subscribe(new Listener());
+
+            ReplayResult result = bus.replay(directory, 0L, Long.MAX_VALUE, 1.0D);
+            assertEquals(2, received.get());
+            assertTrue(result.getElapsed(TimeUnit.MILLISECONDS) >= 150L);
+
+            // four times as fast
+            result = bus.replay(directory, 0L, Long.MAX_VALUE, 4.0D);
+            assertEquals(4, received.get());
+            assertTrue(result.getElapsed(TimeUnit.MILLISECONDS) >= 40L);
+            assertTrue(result.getElapsed(TimeUnit.MILLISECONDS) < 150L);
+
+            bus.shutdown();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class Listener {
+        @Handler
+        public void handle(int message) {
+            received.incrementAndGet();
+            total.addAndGet(message);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.request.AllResponses;
+import dorkbox.messageBus.request.FirstResponse;
+import dorkbox.messageBus.request.ReduceResponses;
+import dorkbox.messageBus.request.Reducer;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that the values returned by handlers are collected during a request
+ *
+ * @author dorkbox, llc
+ */
+public class RequestTest extends MessageBusTest {
+
+    private static final AtomicInteger voidCount = new AtomicInteger(0);
+
+    @Test
+    public void testFirstResponse() {
+        MessageBus bus = createBus();
+        bus.subscribe(new DoublingListener());
+
+        assertEquals(4, bus.request(2));
+        assertEquals(4, bus.request(new FirstResponse<Integer>(), 2));
+        assertNull(bus.request("no handlers respond to strings"));
+
+    }
+
+    @Test
+    public void testAllResponses() {
+        voidCount.set(0);
+
+        MessageBus bus = createBus();
+        bus.subscribe(new DoublingListener());
+        bus.subscribe(new DoublingListener());
+        bus.subscribe(new VoidListener());
+
+        List<Integer> responses = bus.request(new AllResponses<Integer>(), 3);
+        assertEquals(2, responses.size());
+        assertEquals(6, responses.get(0));
+        assertEquals(6, responses.get(1));
+
+        // void handlers still receive the message
+        assertEquals(1, voidCount.get());
+
+    }
+
+    @Test
+    public void testReduceResponses() {
+        MessageBus bus = createBus();
+        bus.subscribe(new DoublingListener());
+        bus.subscribe(new DoublingListener());
+        bus.subscribe(new DoublingListener());
+
+        Integer sum = bus.request(new ReduceResponses<Integer>(0, new Reducer<Integer>() {
+            @Override
+            public
+            Integer reduce(final Integer accumulated, final Object response) {
+                return accumulated + (Integer) response;
+            }
+        }), 5);
+
+        assertEquals(30, sum);
+    }
+
+    @Test
+    public void testAsyncRequest() throws Exception {
+        MessageBus bus = createBus();
+        bus.subscribe(new DoublingListener());
+        bus.subscribe(new MultiListener());
+
+        Future<Integer> first = bus.requestAsync(new FirstResponse<Integer>(), 21);
+        assertEquals(42, first.get(10, TimeUnit.SECONDS));
+
+        Future<List<String>> all = bus.requestAsync(new AllResponses<String>(), "a", "b");
+        assertEquals(1, all.get(10, TimeUnit.SECONDS).size());
+        assertEquals("ab", all.get().get(0));
+
+    }
+
+    public static class DoublingListener {
+        @Handler
+        public Integer handle(Integer message) {
+            return message * 2;
+        }
+    }
+
+    public static class VoidListener {
+        @Handler
+        public void handle(Integer message) {
+            voidCount.getAndIncrement();
+        }
+    }
+
+    public static class MultiListener {
+        @Handler
+        public String handle(String message1, String message2) {
+            return message1 + message2;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.annotations.Listener;
+import dorkbox.messageBus.annotations.References;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that handlers that route by key only receive the messages for their key, and that subscribe/unsubscribe maintain the index
+ *
+ * @author dorkbox, llc
+ */
+public class RoutingKeyTest extends MessageBusTest {
+
+    private static final int LISTENERS = 5000;
+
+    private static final AtomicInteger everything = new AtomicInteger(0);
+    private static final AtomicInteger misrouted = new AtomicInteger(0);
+
+    @Test
+    public void testRouting() {
+        everything.set(0);
+        misrouted.set(0);
+
+        MessageBus bus = createBus();
+
+        OrderListener[] listeners = new OrderListener[LISTENERS];
+        for (int i = 0; i < LISTENERS; i++) {
+            listeners[i] = new OrderListener("SYM" + (i % 1000));
+            bus.subscribe(listeners[i]);
+        }
+
+        // a null key receives every message
+        bus.subscribe(new OrderListener(null));
+
+        bus.publish(new Order("SYM7", 1));
+        bus.publish(new Order("SYM7", 2));
+        bus.publish(new Order("SYM999", 3));
+        bus.publish(new Order("UNKNOWN", 4));
+
+        for (int i = 0; i < LISTENERS; i++) {
+            final String symbol = "SYM" + (i % 1000);
+            if (symbol.equals("SYM7")) {
+                assertEquals(2, listeners[i].received);
+            }
+            else if (symbol.equals("SYM999")) {
+                assertEquals(1, listeners[i].received);
+            }
+            else {
+                assertEquals(0, listeners[i].received);
+            }
+        }
+        assertEquals(4, everything.get());
+        assertEquals(0, misrouted.get());
+
+        // unsubscribe all of the SYM7 listeners
+        for (int i = 7; i < LISTENERS; i += 1000) {
+            bus.unsubscribe(listeners[i]);
+        }
+
+        bus.publish(new Order("SYM7", 5));
+        for (int i = 7; i < LISTENERS; i += 1000) {
+            assertEquals(2, listeners[i].received);
+        }
+        assertEquals(5, everything.get());
+
+        // and the key can be used again
+        bus.subscribe(listeners[7]);
+        bus.publish(new Order("SYM7", 6));
+        assertEquals(3, listeners[7].received);
+        assertEquals(2, listeners[1007].received);
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testChangedKey() {
+        MessageBus bus = createBus();
+
+        MutableListener listener = new MutableListener("A");
+        bus.subscribe(listener);
+
+        // the listener stays subscribed with the key it had when it was subscribed
+        listener.symbol = "B";
+        bus.publish(new Order("A", 1));
+        bus.publish(new Order("B", 1));
+        assertEquals(1, listener.received);
+
+        bus.unsubscribe(listener);
+        bus.publish(new Order("A", 1));
+        bus.publish(new Order("B", 1));
+        assertEquals(1, listener.received);
+
+        // subscribed again, with the new key
+        bus.subscribe(listener);
+        bus.publish(new Order("B", 1));
+        assertEquals(2, listener.received);
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testDifferentListenerField() {
+        MessageBus bus = createBus();
+
+        QuantityListener small = new QuantityListener(1);
+        QuantityListener large = new QuantityListener(100);
+        bus.subscribe(small);
+        bus.subscribe(large);
+
+        bus.publish(new Order("A", 1));
+        bus.publish(new Order("B", 100));
+        bus.publish(new Order("C", 100));
+
+        assertEquals(1, small.received);
+        assertEquals(2, large.received);
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testRequest() {
+        MessageBus bus = createBus();
+        bus.subscribe(new PriceListener("A", 1));
+        bus.subscribe(new PriceListener("B", 2));
+
+        assertEquals(2, bus.request(new Order("B", 1)));
+        assertNull(bus.request(new Order("C", 1)));
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testInvalidKey() {
+        MessageBus bus = createBus();
+        try {
+            bus.subscribe(new InvalidListener());
+            fail("An invalid key must be rejected when subscribing");
+        } catch (IllegalArgumentException expected) {
+        }
+        bus.shutdown();
+    }
+
+    public static class Order {
+        private final String symbol;
+        private final int quantity;
+
+        public Order(final String symbol, final int quantity) {
+            this.symbol = symbol;
+            this.quantity = quantity;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class OrderListener {
+        private final String symbol;
+        private int received = 0;
+
+        public OrderListener(final String symbol) {
+            this.symbol = symbol;
+        }
+
+        @Handler(key = "symbol")
+        public void handle(Order message) {
+            if (symbol == null) {
+                everything.incrementAndGet();
+            }
+            else {
+                if (!symbol.equals(message.symbol)) {
+                    misrouted.incrementAndGet();
+                }
+                received++;
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+    @Listener(references = References.Weak)
+    public static class QuantityListener {
+        private final int size;
+        private int received = 0;
+
+        public QuantityListener(final int size) {
+            this.size = size;
+        }
+
+        @Handler(key = "quantity", listenerKey = "size")
+        public void handle(Order message) {
+            received++;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class MutableListener {
+        private String symbol;
+        private int received = 0;
+
+        public MutableListener(final String symbol) {
+            this.symbol = symbol;
+        }
+
+        @Handler(key = "symbol")
+        public void handle(Order message) {
+            received++;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class PriceListener {
+        private final String symbol;
+        private final int price;
+
+        public PriceListener(final String symbol, final int price) {
+            this.symbol = symbol;
+            this.price = price;
+        }
+
+        @Handler(key = "symbol")
+        public Integer handle(Order message) {
+            return price;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class InvalidListener {
+        @Handler(key = "missing")
+        public void handle(Order message) {
+        }
+    }
+}
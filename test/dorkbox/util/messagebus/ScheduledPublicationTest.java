@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.schedule.ScheduledMessage;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that delayed and fixed rate messages are published by the timing wheel, and that they can be cancelled
+ *
+ * @author dorkbox, llc
+ */
+public class ScheduledPublicationTest extends MessageBusTest {
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+
+    @Test
+    public void testDelayed() throws Exception {
+        received.set(0);
+
+        MessageBus bus = createBus();
+        bus.subscribe(new CountingListener());
+
+        ScheduledMessage scheduled = bus.publishAsyncDelayed(1, 200, TimeUnit.MILLISECONDS);
+        ScheduledMessage cancelled = bus.publishAsyncDelayed(2, 200, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+
+        pause(50);
+        assertEquals(0, received.get());
+
+        pause(500);
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        assertTrue(scheduled.isDone());
+        assertFalse(scheduled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertEquals(1, received.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testFixedRate() throws Exception {
+        received.set(0);
+
+        MessageBus bus = createBus();
+        bus.subscribe(new CountingListener());
+
+        ScheduledMessage scheduled = bus.publishAtFixedRate(1, 0, 20, TimeUnit.MILLISECONDS);
+        pause(300);
+
+        assertTrue(scheduled.cancel());
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        final int count = received.get();
+        assertTrue(count > 3);
+
+        pause(100);
+        assertEquals(count, received.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testManyTimers() throws Exception {
+        received.set(0);
+
+        MessageBus bus = createBus();
+        bus.subscribe(new CountingListener());
+
+        // most of these are cancelled before they are published
+        final int count = 100000;
+        ScheduledMessage[] scheduled = new ScheduledMessage[count];
+        for (int i = 0; i < count; i++) {
+            scheduled[i] = bus.publishAsyncDelayed(i, i < 10 ? 50 : 2000 + i % 1000, TimeUnit.MILLISECONDS);
+        }
+        for (int i = 10; i < count; i++) {
+            scheduled[i].cancel();
+        }
+
+        pause(500);
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(10, received.get());
+
+        bus.shutdown();
+    }
+
+    @SuppressWarnings("unused")
+    public static class CountingListener {
+        @Handler
+        public void handle(Integer message) {
+            received.incrementAndGet();
+        }
+    }
+}
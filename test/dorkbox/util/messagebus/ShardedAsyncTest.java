@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.util.messagebus.common.ConcurrentExecutor;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that every message is delivered when the async publication is split across multiple disruptor shards
+ *
+ * @author dorkbox, llc
+ */
+public class ShardedAsyncTest extends MessageBusTest {
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+
+    @Test
+    public void testShards() throws Exception {
+        publish(false);
+    }
+
+    @Test
+    public void testShardsWithOverflow() throws Exception {
+        publish(true);
+    }
+
+    private
+    void publish(final boolean overflow) throws Exception {
+        int shards = MessageBus.numberOfDisruptorShards;
+        boolean overflowing = MessageBus.useOverflowBetweenShards;
+
+        try {
+            MessageBus.numberOfDisruptorShards = 3; // rounded up to 4
+            MessageBus.useOverflowBetweenShards = overflow;
+
+            received.set(0);
+
+            final MessageBus bus = createBus();
+            bus.subscribe(new CountingListener());
+
+            ConcurrentExecutor.runConcurrent(new Runnable() {
+                @Override
+                public
+                void run() {
+                    for (int i = 0; i < IterationsPerThread; i++) {
+                        bus.publishAsync(i);
+                    }
+                }
+            }, ConcurrentUnits);
+
+            assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+            assertEquals(IterationsPerThread * ConcurrentUnits, received.get());
+        } finally {
+            MessageBus.numberOfDisruptorShards = shards;
+            MessageBus.useOverflowBetweenShards = overflowing;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class CountingListener {
+        @Handler
+        public void handle(Integer message) {
+            received.incrementAndGet();
+        }
+    }
+}
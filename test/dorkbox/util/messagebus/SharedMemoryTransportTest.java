@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.error.IPublicationErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.journal.KryoCodec;
+import dorkbox.messageBus.transport.SharedMemoryTransport;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that messages published to a shared memory transport are delivered to the buses of the other transports on the same ring file,
+ * and that a lapped reader reports the lost messages
+ *
+ * @author dorkbox, llc
+ */
+public class SharedMemoryTransportTest extends MessageBusTest {
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+    private static final AtomicInteger pairs = new AtomicInteger(0);
+    private static volatile CountDownLatch blocked = null;
+
+    private static
+    File createFile() throws IOException {
+        File file = File.createTempFile("ring", ".shm");
+        file.deleteOnExit();
+
+        // the transport creates the file
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+        return file;
+    }
+
+    private static
+    boolean await(final AtomicInteger counter, final int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (counter.get() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(1L);
+        }
+        return true;
+    }
+
+    @Test
+    public void testDelivery() throws Exception {
+        delivery(true);
+    }
+
+    @Test
+    public void testDeliveryWithoutUnsafe() throws Exception {
+        // both use the mapped buffer
+        delivery(false);
+    }
+
+    private
+    void delivery(final boolean useUnsafe) throws Exception {
+        received.set(0);
+        pairs.set(0);
+        blocked = null;
+
+        File file = createFile();
+
+        MessageBus sender = createBus();
+        sender.subscribe(new Listener());
+        MessageBus receiver = createBus();
+        receiver.subscribe(new Listener());
+
+        SharedMemoryTransport senderTransport;
+        SharedMemoryTransport receiverTransport;
+        try {
+            SharedMemoryTransport.useUnsafe = useUnsafe;
+            senderTransport = new SharedMemoryTransport(sender, file, 64, 256, new KryoCodec());
+            receiverTransport = new SharedMemoryTransport(receiver, file, 64, 256, new KryoCodec());
+        } finally {
+            SharedMemoryTransport.useUnsafe = true;
+        }
+
+        // more than the size of the ring, so it wraps around
+        for (int i = 0; i < 1000; i++) {
+            senderTransport.publish("message " + i);
+
+            // the reader must keep up, otherwise it is lapped
+            if (i % 32 == 31) {
+                assertTrue(await(received, i + 1));
+            }
+        }
+        senderTransport.publish("pair", 2);
+
+        assertTrue(await(received, 1000));
+        assertTrue(await(pairs, 1));
+
+        // the sender does not receive it's own messages
+        Thread.sleep(50L);
+        assertEquals(1000, received.get());
+        assertEquals(1, pairs.get());
+
+        senderTransport.close();
+        receiverTransport.close();
+        sender.shutdown();
+        receiver.shutdown();
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testLapped() throws Exception {
+        received.set(0);
+        blocked = new CountDownLatch(1);
+
+        final AtomicInteger lost = new AtomicInteger(0);
+
+        File file = createFile();
+
+        MessageBus receiver = new MessageBus();
+        receiver.addErrorHandler(new IPublicationErrorHandler() {
+            @Override
+            public
+            void handleError(final PublicationError error) {
+            }
+
+            @Override
+            public
+            void handleError(final String error, final Class<?> listenerClass) {
+                if (error.startsWith("Lost")) {
+                    lost.incrementAndGet();
+                }
+            }
+        });
+        receiver.subscribe(new Listener());
+
+        MessageBus sender = createBus();
+        SharedMemoryTransport senderTransport = new SharedMemoryTransport(sender, file, 4, 256, new KryoCodec());
+        SharedMemoryTransport receiverTransport = new SharedMemoryTransport(receiver, file, 4, 256, new KryoCodec());
+
+        // the first message blocks the reader, while the ring wraps around several times
+        senderTransport.publish("first");
+        Thread.sleep(50L);
+        for (int i = 0; i < 20; i++) {
+            senderTransport.publish("message " + i);
+        }
+        blocked.countDown();
+        blocked = null;
+
+        assertTrue(await(lost, 1));
+        assertTrue(received.get() < 21);
+
+        senderTransport.close();
+        receiverTransport.close();
+        sender.shutdown();
+        receiver.shutdown();
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testDifferentRing() throws Exception {
+        File file = createFile();
+        MessageBus bus = createBus();
+
+        SharedMemoryTransport transport = new SharedMemoryTransport(bus, file, 16, 256, new KryoCodec());
+        try {
+            new SharedMemoryTransport(bus, file, 16, 512, new KryoCodec());
+            fail("The slot size is different");
+        } catch (IOException expected) {
+        }
+
+        transport.close();
+        bus.shutdown();
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testDifferentAccessMode() throws Exception {
+        File file = createFile();
+        MessageBus bus = createBus();
+
+        // the file lock of the mapped buffer is not atomic with the claims of unsafe
+        SharedMemoryTransport transport;
+        try {
+            SharedMemoryTransport.useUnsafe = false;
+            transport = new SharedMemoryTransport(bus, file, 16, 256, new KryoCodec());
+        } finally {
+            SharedMemoryTransport.useUnsafe = true;
+        }
+
+        try {
+            new SharedMemoryTransport(bus, file, 16, 256, new KryoCodec());
+            fail("The access mode is different");
+        } catch (IOException expected) {
+        }
+
+        transport.close();
+        bus.shutdown();
+        assertTrue(file.delete());
+    }
+
+    @SuppressWarnings("unused")
+    public static class Listener {
+        @Handler
+        public void handle(String message) throws InterruptedException {
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                latch.await(10, TimeUnit.SECONDS);
+            }
+            received.incrementAndGet();
+        }
+
+        @Handler
+        public void handle(String message, Integer count) {
+            pairs.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.IMessageBus.DispatchMode;
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.error.IPublicationErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.request.FirstResponse;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that the queued asynchronous messages are delivered when the bus drains during shutdown, and that the requests that are still
+ * queued once the bus is shut down are abandoned, for every async implementation
+ *
+ * @author dorkbox, llc
+ */
+public class ShutdownTest extends MessageBusTest {
+
+    private static final int COUNT = 1000;
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+
+    private static volatile CountDownLatch blocked;
+    private static volatile CountDownLatch release;
+
+    @Test
+    public void testDisruptorDrain() throws Exception {
+        boolean disruptor = MessageBus.useDisruptorForAsyncPublish;
+        try {
+            MessageBus.useDisruptorForAsyncPublish = true;
+            drain();
+        } finally {
+            MessageBus.useDisruptorForAsyncPublish = disruptor;
+        }
+    }
+
+    @Test
+    public void testQueueDrain() throws Exception {
+        boolean disruptor = MessageBus.useDisruptorForAsyncPublish;
+        boolean noGc = MessageBus.useZeroGarbageVersionOfABQ;
+        try {
+            MessageBus.useDisruptorForAsyncPublish = false;
+
+            MessageBus.useZeroGarbageVersionOfABQ = false;
+            drain();
+
+            MessageBus.useZeroGarbageVersionOfABQ = true;
+            drain();
+        } finally {
+            MessageBus.useDisruptorForAsyncPublish = disruptor;
+            MessageBus.useZeroGarbageVersionOfABQ = noGc;
+        }
+    }
+
+    @Test
+    public void testElasticDrain() throws Exception {
+        received.set(0);
+
+        MessageBus bus = new MessageBus(DispatchMode.ExactWithSuperTypes, 1, 4);
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new SlowListener());
+
+        for (int i = 0; i < 200; i++) {
+            bus.publishAsync(i);
+        }
+
+        assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+        assertEquals(200, received.get());
+    }
+
+    @Test
+    public void testDisruptorAbandonsRequests() throws Exception {
+        boolean disruptor = MessageBus.useDisruptorForAsyncPublish;
+        try {
+            MessageBus.useDisruptorForAsyncPublish = true;
+            abandon();
+        } finally {
+            MessageBus.useDisruptorForAsyncPublish = disruptor;
+        }
+    }
+
+    @Test
+    public void testQueueAbandonsRequests() throws Exception {
+        boolean disruptor = MessageBus.useDisruptorForAsyncPublish;
+        boolean noGc = MessageBus.useZeroGarbageVersionOfABQ;
+        try {
+            MessageBus.useDisruptorForAsyncPublish = false;
+
+            MessageBus.useZeroGarbageVersionOfABQ = false;
+            abandon();
+
+            MessageBus.useZeroGarbageVersionOfABQ = true;
+            abandon();
+        } finally {
+            MessageBus.useDisruptorForAsyncPublish = disruptor;
+            MessageBus.useZeroGarbageVersionOfABQ = noGc;
+        }
+    }
+
+    @Test
+    public void testLanesAbandonRequests() throws Exception {
+        int lanes = MessageBus.numberOfPriorityLanes;
+        try {
+            MessageBus.numberOfPriorityLanes = 2;
+            abandon();
+        } finally {
+            MessageBus.numberOfPriorityLanes = lanes;
+        }
+    }
+
+    @Test
+    public void testShutdownBeforeStart() {
+        // the worker threads might not have started yet
+        MessageBus bus = createBus();
+        bus.shutdown();
+    }
+
+    private
+    void drain() throws Exception {
+        received.set(0);
+
+        final AtomicInteger rejected = new AtomicInteger(0);
+
+        MessageBus bus = new MessageBus();
+        bus.addErrorHandler(new IPublicationErrorHandler() {
+            @Override
+            public
+            void handleError(final PublicationError error) {
+                rejected.incrementAndGet();
+            }
+
+            @Override
+            public
+            void handleError(final String error, final Class<?> listenerClass) {
+            }
+        });
+        bus.subscribe(new CountingListener());
+
+        for (int i = 0; i < COUNT; i++) {
+            bus.publishAsync(i);
+        }
+
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+        assertEquals(COUNT, received.get());
+
+        for (int i = 0; i < COUNT; i++) {
+            bus.publishAsync(i);
+        }
+
+        assertEquals(0, bus.shutdown(10, TimeUnit.SECONDS));
+        assertEquals(COUNT * 2, received.get());
+        assertEquals(0, rejected.get());
+
+        // the bus no longer accepts messages
+        bus.publishAsync(1);
+        assertEquals(1, rejected.get());
+        assertEquals(COUNT * 2, received.get());
+    }
+
+    private
+    void abandon() throws Exception {
+        blocked = new CountDownLatch(2);
+        release = new CountDownLatch(1);
+
+        // the blocked handlers are interrupted by some of the implementations
+        final MessageBus bus = new MessageBus(2);
+        bus.addErrorHandler(new IPublicationErrorHandler() {
+            @Override
+            public
+            void handleError(final PublicationError error) {
+            }
+
+            @Override
+            public
+            void handleError(final String error, final Class<?> listenerClass) {
+            }
+        });
+        bus.subscribe(new BlockingListener());
+
+        // both workers block, so the requests stay queued
+        bus.publishAsync(1);
+        bus.publishAsync(2);
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(bus.requestAsync(new FirstResponse<Integer>(), "request"));
+        }
+
+        Thread shutdown = new Thread(new Runnable() {
+            @Override
+            public
+            void run() {
+                bus.shutdown();
+            }
+        });
+        shutdown.start();
+
+        // the bus stops the workers before the handlers finish
+        Thread.sleep(100L);
+        release.countDown();
+        shutdown.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(shutdown.isAlive());
+
+        for (Future<Integer> future : futures) {
+            assertTrue(future.isDone());
+            assertTrue(future.isCancelled());
+
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("The request was never dispatched");
+            } catch (CancellationException expected) {
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class BlockingListener {
+        @Handler
+        public void handle(Integer message) throws InterruptedException {
+            blocked.countDown();
+            release.await(10, TimeUnit.SECONDS);
+        }
+
+        @Handler
+        public Integer handle(String message) {
+            return 1;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class SlowListener {
+        @Handler
+        public void handle(Integer message) {
+            LockSupport.parkNanos(1000000L);
+            received.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class CountingListener {
+        @Handler
+        public void handle(Integer message) {
+            received.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.error.DeadMessage;
+import dorkbox.messageBus.error.IPublicationErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.journal.KryoCodec;
+import dorkbox.messageBus.transport.SocketBridge;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that the configured message types are forwarded between buses over loopback (without echoing them back), and that many
+ * messages are batched into fewer writes
+ *
+ * @author dorkbox, llc
+ */
+public class SocketBridgeTest extends MessageBusTest {
+
+    private static final AtomicInteger ordersA = new AtomicInteger(0);
+    private static final AtomicInteger ordersB = new AtomicInteger(0);
+    private static final AtomicInteger stringsB = new AtomicInteger(0);
+    private static final AtomicInteger deadA = new AtomicInteger(0);
+
+    private static
+    boolean await(final AtomicInteger counter, final int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (counter.get() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(1L);
+        }
+        return true;
+    }
+
+    private static
+    boolean awaitConnected(final SocketBridge bridge) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (bridge.getConnectionCount() == 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(1L);
+        }
+        return true;
+    }
+
+    @Test
+    public void testForwarding() throws Exception {
+        ordersA.set(0);
+        ordersB.set(0);
+        stringsB.set(0);
+        deadA.set(0);
+
+        MessageBus busA = createBus();
+        busA.subscribe(new ListenerA());
+        busA.subscribe(new DeadListener());
+        MessageBus busB = createBus();
+        busB.subscribe(new ListenerB());
+
+        SocketBridge bridgeA = new SocketBridge(busA, new KryoCodec(), Order.class);
+        SocketBridge bridgeB = new SocketBridge(busB, new KryoCodec(), Order.class);
+
+        InetSocketAddress address = bridgeA.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        bridgeB.connect(address);
+        assertTrue(awaitConnected(bridgeA));
+        assertTrue(awaitConnected(bridgeB));
+
+        busA.publish(new Order(1));
+        busA.publish("not forwarded");
+
+        assertTrue(await(ordersB, 1));
+        assertEquals(1, ordersA.get());
+
+        // the other direction, and the message is not echoed back
+        busB.publish(new Order(2));
+        assertTrue(await(ordersA, 2));
+
+        Thread.sleep(100L);
+        assertEquals(2, ordersA.get());
+        assertEquals(2, ordersB.get());
+        assertEquals(0, stringsB.get());
+
+        // the bridge only subscribes to the forwarded types, so the other messages are still dead messages
+        assertEquals(1, deadA.get());
+        assertEquals(1L, bridgeA.getMessagesSent());
+        assertEquals(1L, bridgeA.getMessagesReceived());
+
+        bridgeA.close();
+        bridgeB.close();
+        busA.shutdown();
+        busB.shutdown();
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        final int count = 200000;
+        ordersB.set(0);
+
+        MessageBus busA = createBus();
+        MessageBus busB = createBus();
+        busB.subscribe(new ListenerB());
+
+        SocketBridge bridgeA = new SocketBridge(busA, new KryoCodec(), Order.class);
+        SocketBridge bridgeB = new SocketBridge(busB, new KryoCodec(), Order.class);
+
+        InetSocketAddress address = bridgeB.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        bridgeA.connect(address);
+        assertTrue(awaitConnected(bridgeA));
+
+        Order order = new Order(1);
+        for (int i = 0; i < count; i++) {
+            busA.publish(order);
+        }
+        assertTrue(await(ordersB, count));
+
+        // the messages are batched
+        assertTrue(bridgeA.getWrites() < count);
+
+        bridgeA.close();
+        bridgeB.close();
+        busA.shutdown();
+        busB.shutdown();
+    }
+
+    @Test
+    public void testInvalidFrameLength() throws Exception {
+        final AtomicInteger errors = new AtomicInteger(0);
+
+        // the closed connection is reported as an error
+        MessageBus bus = new MessageBus();
+        bus.addErrorHandler(new IPublicationErrorHandler() {
+            @Override
+            public void handleError(final PublicationError error) {
+                errors.incrementAndGet();
+            }
+
+            @Override
+            public void handleError(final String error, final Class<?> listenerClass) {
+            }
+        });
+
+        SocketBridge bridge = new SocketBridge(bus, new KryoCodec(), Order.class);
+        InetSocketAddress address = bridge.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+        // a negative length must not be trusted (or a huge buffer allocated), so the connection is closed
+        Socket socket = new Socket(address.getAddress(), address.getPort());
+        try {
+            assertTrue(awaitConnected(bridge));
+            socket.getOutputStream().write(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0});
+            socket.getOutputStream().flush();
+
+            assertEquals(-1, socket.getInputStream().read());
+            assertEquals(0, bridge.getConnectionCount());
+            assertTrue(await(errors, 1));
+        } finally {
+            socket.close();
+        }
+
+        bridge.close();
+        bus.shutdown();
+    }
+
+    public static class Order {
+        final int id;
+
+        public Order(final int id) {
+            this.id = id;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class ListenerA {
+        @Handler
+        public void handle(Order order) {
+            ordersA.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class DeadListener {
+        @Handler
+        public void handle(DeadMessage message) {
+            deadA.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class ListenerB {
+        @Handler
+        public void handle(Order order) {
+            ordersB.incrementAndGet();
+        }
+
+        @Handler
+        public void handle(String message) {
+            stringsB.incrementAndGet();
+        }
+    }
+}
@@ -245,6 +245,26 @@ public class SubscriptionManagerTest extends AssertSupport {
         runTestWith(listeners, expectedSubscriptions);
     }
 
+    @Test
+    public
+    void testTypedSubscriptionsAreRemoved() {
+        final SubscriptionManager subscriptionManager = new SubscriptionManager(true);
+
+        // the subscriptions for specific message types are only for their listener, so they must not accumulate
+        for (int i = 0; i < 100; i++) {
+            Object listener = new IMessageListener.DefaultListener();
+            subscriptionManager.subscribe(listener, new Class<?>[] {MultipartMessage.class});
+            assertEquals(1, subscriptionManager.getSubscriptions().length);
+            assertEquals(1, subscriptionManager.getSubs(MultipartMessage.class).length);
+
+            subscriptionManager.unsubscribe(listener);
+            assertEquals(0, subscriptionManager.getSubscriptions().length);
+            assertNull(subscriptionManager.getSubs(MultipartMessage.class));
+        }
+
+        subscriptionManager.shutdown();
+    }
+
     private ListenerFactory listeners(Class<?>... listeners) {
         ListenerFactory factory = new ListenerFactory();
         for (Class<?> listener : listeners) {
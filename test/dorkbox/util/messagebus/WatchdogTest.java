@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 dorkbox, llc
+ */
+package dorkbox.util.messagebus;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Handler;
+import dorkbox.messageBus.error.IPublicationErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.util.messagebus.common.MessageBusTest;
+
+/**
+ * Verify that handlers which are stuck are reported, with the stack of the worker
+ *
+ * @author dorkbox, llc
+ */
+public class WatchdogTest extends MessageBusTest {
+
+    private static volatile CountDownLatch blocked;
+    private static volatile CountDownLatch release;
+
+    @Test
+    public void testStuckHandler() throws Exception {
+        final List<PublicationError> errors = new CopyOnWriteArrayList<PublicationError>();
+
+        blocked = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+
+        MessageBus bus = createBus(50L);
+        bus.addErrorHandler(new IPublicationErrorHandler() {
+            @Override
+            public
+            void handleError(final PublicationError error) {
+                errors.add(error);
+            }
+
+            @Override
+            public
+            void handleError(final String error, final Class<?> listenerClass) {
+            }
+        });
+        bus.subscribe(new BlockingListener());
+
+        try {
+            bus.publishAsync("stuck");
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+            // reported once, no matter how long it is stuck
+            for (int i = 0; i < 100 && errors.isEmpty(); i++) {
+                Thread.sleep(10L);
+            }
+            Thread.sleep(200L);
+            assertEquals(1, errors.size());
+
+            final PublicationError error = errors.get(0);
+            assertTrue(error.getMessage().startsWith("Handler " + BlockingListener.class.getName() + ".handle has been running for"));
+            assertTrue(error.getMessage().endsWith("ms."));
+
+            boolean found = false;
+            for (StackTraceElement element : error.getCause().getStackTrace()) {
+                if (element.getClassName().equals(BlockingListener.class.getName())) {
+                    found = true;
+                }
+            }
+            assertTrue(found);
+        } finally {
+            release.countDown();
+        }
+
+        // fast handlers are not reported
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            bus.publishAsync(i);
+        }
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+        Thread.sleep(100L);
+        assertEquals(1, errors.size());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testManyFastHandlers() throws Exception {
+        final List<PublicationError> errors = new CopyOnWriteArrayList<PublicationError>();
+
+        // each handler is below the threshold, all of them together are not
+        MessageBus bus = createBus(100L);
+        bus.addErrorHandler(new IPublicationErrorHandler() {
+            @Override
+            public
+            void handleError(final PublicationError error) {
+                errors.add(error);
+            }
+
+            @Override
+            public
+            void handleError(final String error, final Class<?> listenerClass) {
+            }
+        });
+        bus.subscribe(new SlowListener());
+
+        bus.publishAsync("slow");
+        assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+        Thread.sleep(100L);
+        assertEquals(0, errors.size());
+
+        bus.shutdown();
+    }
+
+    private static
+    MessageBus createBus(final long threshold) {
+        boolean disruptor = MessageBus.useDisruptorForAsyncPublish;
+        long slowHandlerThreshold = MessageBus.slowHandlerThresholdMillis;
+        try {
+            MessageBus.useDisruptorForAsyncPublish = true;
+            MessageBus.slowHandlerThresholdMillis = threshold;
+            return new MessageBus(1);
+        } finally {
+            MessageBus.useDisruptorForAsyncPublish = disruptor;
+            MessageBus.slowHandlerThresholdMillis = slowHandlerThreshold;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class BlockingListener {
+        @Handler
+        public void handle(String message) throws InterruptedException {
+            blocked.countDown();
+            release.await();
+        }
+
+        @Handler
+        public void handle(Integer message) {
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class SlowListener {
+        @Handler
+        public void handle1(String message) throws InterruptedException {
+            Thread.sleep(40L);
+        }
+
+        @Handler
+        public void handle2(String message) throws InterruptedException {
+            Thread.sleep(40L);
+        }
+
+        @Handler
+        public void handle3(String message) throws InterruptedException {
+            Thread.sleep(40L);
+        }
+
+        @Handler
+        public void handle4(String message) throws InterruptedException {
+            Thread.sleep(40L);
+        }
+
+        @Handler
+        public void handle5(String message) throws InterruptedException {
+            Thread.sleep(40L);
+        }
+    }
+}